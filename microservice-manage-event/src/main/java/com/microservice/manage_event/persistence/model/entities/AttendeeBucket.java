@@ -0,0 +1,26 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import com.microservice.manage_event.persistence.model.vo.UserVO;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("attendeeBuckets")
+public class AttendeeBucket {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String idBucket;
+    private String idEvent;
+    // Attendees in the bucket, a new bucket is started when it reaches attendees.bucket-size
+    private int count;
+    private List<UserVO> attendees;
+}
@@ -3,9 +3,10 @@ package com.microservice.manage_event.persistence.model.entities;
 import com.microservice.manage_event.persistence.model.enums.State;
 import com.microservice.manage_event.persistence.model.vo.LocalityVO;
 import com.microservice.manage_event.persistence.model.vo.LocationVO;
-import com.microservice.manage_event.persistence.model.vo.UserVO;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -29,10 +30,17 @@ public class Event {
     private LocalDate startDate;
     private LocalDate endDate;
     private Map<String, String> images;
+    // Resized copies of every image: slot, then variant key, then link
+    private Map<String, Map<String, String>> imageVariants;
     private LocationVO locations;
+    private GeoJsonPoint position;
     private String address;
     private int capacity;
     private int ticketsSold;
     private List<LocalityVO> localitiesEvent;
-    private List<UserVO> registeredUsers;
+    // Attendees live in attendeeBuckets, the event only keeps how many there are
+    private int attendeesCount;
+    // Raised on every write, a save that read an older value fails instead of overwriting it
+    @Version
+    private Long version;
 }
@@ -0,0 +1,34 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("eventStats")
+public class EventStats {
+
+    // Same id as the event
+    @Id
+    @EqualsAndHashCode.Include
+    private String idEvent;
+    private String name;
+    private boolean active;
+    private int ticketsSold;
+    private int capacity;
+    // Sum of the tickets sold at the price they had when they were sold
+    private double revenue;
+    // Derived from capacity and ticketsSold on every write, stored so the stats can be sorted by index
+    private int available;
+    private double sellThrough;
+
+    public EventStats(String idEvent, String name, boolean active, int ticketsSold, int capacity, double revenue) {
+        this(idEvent, name, active, ticketsSold, capacity, revenue, capacity - ticketsSold,
+                capacity > 0 ? (double) ticketsSold / capacity : 0);
+    }
+}
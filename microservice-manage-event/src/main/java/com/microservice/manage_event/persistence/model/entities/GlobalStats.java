@@ -0,0 +1,24 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("globalStats")
+public class GlobalStats {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String idStats;
+    // Totals of the active events of eventStats
+    private int totalEvents;
+    private int totalTicketsSold;
+    private int totalCapacity;
+    private double totalRevenue;
+}
@@ -0,0 +1,39 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
+import lombok.*;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("imageJobs")
+public class ImageJob {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String idJob;
+    private String idEvent;
+    // Key of the image in the event's images map
+    private String slot;
+    private String publicId;
+    // Image content, kept in GridFS until the upload succeeds
+    private ObjectId fileId;
+    private long size;
+    private ImageJobState state;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    // A RUNNING job whose worker did not finish before this date is taken again
+    private LocalDateTime lockedUntil;
+    private String lastError;
+    // Set when the job is finished, a TTL index removes the document after this date
+    private LocalDateTime purgeAt;
+}
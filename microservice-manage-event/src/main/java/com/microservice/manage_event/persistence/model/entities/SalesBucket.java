@@ -0,0 +1,31 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import com.microservice.manage_event.persistence.model.enums.SalesGranularity;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("salesBuckets")
+public class SalesBucket {
+
+    // idEvent|idLocality|granularity|start, so every flush upserts the same document
+    @Id
+    @EqualsAndHashCode.Include
+    private String idBucket;
+    private String idEvent;
+    private String idLocality;
+    private SalesGranularity granularity;
+    private LocalDateTime start;
+    private int tickets;
+    private double revenue;
+    // Minute buckets are removed once purgeAt is reached, hour buckets are kept
+    private LocalDateTime purgeAt;
+}
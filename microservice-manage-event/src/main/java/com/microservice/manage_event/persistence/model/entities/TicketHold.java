@@ -0,0 +1,35 @@
+package com.microservice.manage_event.persistence.model.entities;
+
+import com.microservice.manage_event.persistence.model.enums.HoldState;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Document("ticketHolds")
+public class TicketHold {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String idHold;
+    private String idEvent;
+    private String idLocality;
+    private String idUser;
+    private int quantity;
+    private HoldState state;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    // Set when the hold leaves ACTIVE, a TTL index removes the document after this date
+    private LocalDateTime purgeAt;
+    // Marks the holds expired by the same sweep so their tickets are released together
+    private String sweepId;
+    // Set when the hold enters CONFIRMING, RELEASING or EXPIRING, the sweeper retries the ones left there
+    private LocalDateTime changedAt;
+}
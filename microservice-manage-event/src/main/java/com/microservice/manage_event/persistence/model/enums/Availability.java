@@ -0,0 +1,6 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+public enum Availability {
+
+    AVAILABLE, FEW_LEFT, SOLD_OUT
+}
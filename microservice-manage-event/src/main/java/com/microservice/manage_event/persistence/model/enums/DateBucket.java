@@ -0,0 +1,6 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+public enum DateBucket {
+
+    THIS_WEEK, THIS_MONTH, LATER
+}
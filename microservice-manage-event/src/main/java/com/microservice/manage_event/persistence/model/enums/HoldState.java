@@ -0,0 +1,6 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+public enum HoldState {
+
+    ACTIVE, CONFIRMING, RELEASING, EXPIRING, CONFIRMED, RELEASED, EXPIRED
+}
@@ -0,0 +1,22 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+import java.util.Locale;
+
+public enum ImageVariant {
+
+    THUMBNAIL(160), CARD(480), HERO(1280);
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,23 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum SalesGranularity {
+
+    MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS);
+
+    private final ChronoUnit unit;
+
+    SalesGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public long minutes() {
+        return unit.getDuration().toMinutes();
+    }
+}
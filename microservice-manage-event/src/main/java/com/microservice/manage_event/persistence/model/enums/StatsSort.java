@@ -0,0 +1,29 @@
+package com.microservice.manage_event.persistence.model.enums;
+
+import com.microservice.manage_event.persistence.model.entities.EventStats;
+
+import java.util.function.ToDoubleFunction;
+
+public enum StatsSort {
+
+    TICKETS_SOLD("ticketsSold", EventStats::getTicketsSold),
+    REVENUE("revenue", EventStats::getRevenue),
+    SELL_THROUGH("sellThrough", EventStats::getSellThrough),
+    AVAILABLE("available", EventStats::getAvailable);
+
+    private final String field;
+    private final ToDoubleFunction<EventStats> extractor;
+
+    StatsSort(String field, ToDoubleFunction<EventStats> extractor) {
+        this.field = field;
+        this.extractor = extractor;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public double value(EventStats eventStats) {
+        return extractor.applyAsDouble(eventStats);
+    }
+}
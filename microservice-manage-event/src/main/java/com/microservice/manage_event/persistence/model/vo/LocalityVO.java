@@ -15,4 +15,21 @@ public class LocalityVO {
     private String nameLocality;
     private int capacityLocality;
     private double priceLocality;
+    private int soldLocality;
+    private int heldLocality;
+
+    public LocalityVO(String idLocality, String nameLocality, int capacityLocality, double priceLocality) {
+        this.idLocality = idLocality;
+        this.nameLocality = nameLocality;
+        this.capacityLocality = capacityLocality;
+        this.priceLocality = priceLocality;
+    }
+
+    /**
+     * This method is used for get the tickets that can still be reserved in the locality
+     * @return remaining tickets
+     */
+    public int calculateRemaining() {
+        return capacityLocality - soldLocality - heldLocality;
+    }
 }
@@ -15,4 +15,13 @@ public class LocationVO {
     private String city;
     @EqualsAndHashCode.Include
     private int postalCode;
+    private Double latitude;
+    private Double longitude;
+
+    public LocationVO(String country, String department, String city, int postalCode) {
+        this.country = country;
+        this.department = department;
+        this.city = city;
+        this.postalCode = postalCode;
+    }
 }
@@ -0,0 +1,7 @@
+package com.microservice.manage_event.persistence.repository;
+
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface TicketHoldRepository extends MongoRepository<TicketHold, String> {
+}
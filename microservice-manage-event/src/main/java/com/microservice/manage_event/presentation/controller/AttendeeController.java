@@ -0,0 +1,186 @@
+package com.microservice.manage_event.presentation.controller;
+
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.UserVO;
+import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.implementation.AttendeeServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/manage-event/attendees")
+@Tag(name = "Attendees", description = "Private controller to register the attendees of an event and list them")
+public class AttendeeController {
+
+    private static final String ALREADY_REGISTERED = "The user is already registered in the event";
+    private static final String NOT_REGISTERED = "The user is not registered in the event";
+
+    final AttendeeServiceImpl attendeeService;
+
+    public AttendeeController(AttendeeServiceImpl attendeeService) {
+        this.attendeeService = attendeeService;
+    }
+
+    /**
+     * This endpoint is used to run the registerAttendee service
+     * @param idEvent event's id
+     * @param idUser user's id
+     * @return state action
+     */
+    @PostMapping("/register-attendee")
+    @Operation(
+            summary = "Register Attendee",
+            description = "Add a user to the attendees of an event",
+            tags = {"Attendees"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Register Attendee",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Error - Event not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Error - User already registered",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<State>> registerAttendee(@RequestParam String idEvent, @RequestParam String idUser) {
+        try {
+            return toResponse(attendeeService.registerAttendee(idEvent, idUser), ALREADY_REGISTERED);
+        } catch (ResourceNotFoundException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the unregisterAttendee service
+     * @param idEvent event's id
+     * @param idUser user's id
+     * @return state action
+     */
+    @DeleteMapping("/unregister-attendee")
+    @Operation(
+            summary = "Unregister Attendee",
+            description = "Remove a user from the attendees of an event",
+            tags = {"Attendees"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Unregister Attendee",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Error - User not registered",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<State>> unregisterAttendee(@RequestParam String idEvent, @RequestParam String idUser) {
+        try {
+            return toResponse(attendeeService.unregisterAttendee(idEvent, idUser), NOT_REGISTERED);
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getAttendees service
+     * @param idEvent event's id
+     * @param cursor nextCursor of the previous page
+     * @param size attendees by page
+     * @return page of attendees
+     */
+    @GetMapping("/get-attendees")
+    @Operation(
+            summary = "Get Attendees",
+            description = "Get a page of the attendees of an event, the nextCursor of a page gives the following one",
+            tags = {"Attendees"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get Attendees",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Error - Parameters or cursor are not valid",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<EventPageDTO<UserVO>>> getAttendees(@RequestParam String idEvent,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, attendeeService.getAttendees(idEvent, cursor, size)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<MessageDTO<State>> toResponse(State state, String conflict) {
+        if (state == State.SUCCESS) {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, state));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageDTO<>(true, state, conflict));
+    }
+}
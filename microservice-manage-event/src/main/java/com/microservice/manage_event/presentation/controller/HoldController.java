@@ -0,0 +1,170 @@
+package com.microservice.manage_event.presentation.controller;
+
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.dto.CreateHoldDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.implementation.HoldServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/manage-event/holds")
+@Tag(name = "Holds", description = "Private controller to hold tickets for a limited time while the purchase is completed")
+public class HoldController {
+
+    private static final String HOLD_NOT_ACTIVE = "The hold is not active";
+
+    final HoldServiceImpl holdService;
+
+    public HoldController(HoldServiceImpl holdService) {
+        this.holdService = holdService;
+    }
+
+    /**
+     * This endpoint is used to run the createHold service
+     * @param createHoldDTO event, locality, user and quantity
+     * @return hold created
+     */
+    @PostMapping("/create-hold")
+    @Operation(
+            summary = "Create Hold",
+            description = "Hold tickets of a locality until the hold is confirmed, released or expires",
+            tags = {"Holds"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Create Hold",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Error - Not enough tickets",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<TicketHold>> createHold(@RequestBody @Valid CreateHoldDTO createHoldDTO) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, holdService.createHold(createHoldDTO)));
+        } catch (ErrorResponseException e){
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the confirmHold service
+     * @param idHold hold's id
+     * @return state action
+     */
+    @PostMapping("/confirm-hold")
+    @Operation(
+            summary = "Confirm Hold",
+            description = "Turn the tickets of an active hold into sold tickets",
+            tags = {"Holds"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Confirm Hold",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Error - Hold is not active",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<State>> confirmHold(@RequestParam String idHold) {
+        try {
+            return toResponse(holdService.confirmHold(idHold));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the releaseHold service
+     * @param idHold hold's id
+     * @return state action
+     */
+    @DeleteMapping("/release-hold")
+    @Operation(
+            summary = "Release Hold",
+            description = "Give back the tickets of an active hold before it expires",
+            tags = {"Holds"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Release Hold",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Error - Hold is not active",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<State>> releaseHold(@RequestParam String idHold) {
+        try {
+            return toResponse(holdService.releaseHold(idHold));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, State.ERROR, e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<MessageDTO<State>> toResponse(State state) {
+        if (state == State.SUCCESS) {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, state));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageDTO<>(true, state, HOLD_NOT_ACTIVE));
+    }
+}
@@ -2,18 +2,27 @@ package com.microservice.manage_event.presentation.controller;
 
 import com.microservice.manage_event.persistence.model.entities.Location;
 import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.NearestLocationDTO;
 import com.microservice.manage_event.presentation.dto.http.MessageDTO;
 import com.microservice.manage_event.service.implementation.LocationServiceImpl;
+import com.microservice.manage_event.utils.CompressedBody;
 import org.bson.types.ObjectId;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/locations")
@@ -21,6 +30,8 @@ public class LocationsPublicController {
 
     final LocationServiceImpl locationService;
 
+    private static final CacheControl LEVEL_CACHE = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+
     public LocationsPublicController(LocationServiceImpl locationService) {
         this.locationService = locationService;
     }
@@ -46,4 +57,119 @@ public class LocationsPublicController {
             return ResponseEntity.badRequest().body(new MessageDTO<>(true, new Location(), e.getMessage()));
         }
     }
+
+    /**
+     * This endpoint is used to get the location closest to a coordinate
+     * @param lat latitude
+     * @param lng longitude
+     * @return closest location and its distance in kilometers
+     */
+    @GetMapping("/reverse-geocode")
+    public ResponseEntity<MessageDTO<NearestLocationDTO>> reverseGeocode(@RequestParam double lat, @RequestParam double lng){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, locationService.reverseGeocode(lat, lng)));
+        } catch (ResourceNotFoundException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to get the countries
+     * @param acceptEncoding accepted encodings, the body is sent gzip compressed when gzip is accepted
+     * @param ifNoneMatch ETag the client already has
+     * @return country names, or 304 when the client copy is still valid
+     */
+    @GetMapping("/countries")
+    public ResponseEntity<Object> getCountries(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return getLevel(acceptEncoding, ifNoneMatch);
+    }
+
+    /**
+     * This endpoint is used to get the departments of a country
+     * @param country country's name
+     * @param acceptEncoding accepted encodings, the body is sent gzip compressed when gzip is accepted
+     * @param ifNoneMatch ETag the client already has
+     * @return department names, or 304 when the client copy is still valid
+     */
+    @GetMapping("/departments")
+    public ResponseEntity<Object> getDepartments(@RequestParam String country,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return getLevel(acceptEncoding, ifNoneMatch, country);
+    }
+
+    /**
+     * This endpoint is used to get the cities of a department
+     * @param country country's name
+     * @param department department's name
+     * @param acceptEncoding accepted encodings, the body is sent gzip compressed when gzip is accepted
+     * @param ifNoneMatch ETag the client already has
+     * @return city names, or 304 when the client copy is still valid
+     */
+    @GetMapping("/cities")
+    public ResponseEntity<Object> getCities(@RequestParam String country, @RequestParam String department,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return getLevel(acceptEncoding, ifNoneMatch, country, department);
+    }
+
+    /**
+     * This endpoint is used to get the towns of a city
+     * @param country country's name
+     * @param department department's name
+     * @param city city's name
+     * @param acceptEncoding accepted encodings, the body is sent gzip compressed when gzip is accepted
+     * @param ifNoneMatch ETag the client already has
+     * @return towns with their postal code and coordinates, or 304 when the client copy is still valid
+     */
+    @GetMapping("/towns")
+    public ResponseEntity<Object> getTowns(@RequestParam String country, @RequestParam String department, @RequestParam String city,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return getLevel(acceptEncoding, ifNoneMatch, country, department, city);
+    }
+
+    private ResponseEntity<Object> getLevel(String acceptEncoding, String ifNoneMatch, String... path) {
+        try {
+            CompressedBody body = locationService.getLocationLevel(path);
+            boolean gzip = acceptsGzip(acceptEncoding);
+            String etag = gzip ? body.gzipEtag() : body.etag();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(etag);
+            headers.setCacheControl(LEVEL_CACHE);
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+            if (matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            if (gzip) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return ResponseEntity.ok().headers(headers).body(gzip ? body.gzip() : body.json());
+        } catch (ResourceNotFoundException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        }
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(String::trim)
+                .anyMatch(coding -> coding.equals("gzip") || (coding.startsWith("gzip;") && !coding.replace(" ", "").matches("gzip;q=0(\\.0*)?")));
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag));
+    }
 }
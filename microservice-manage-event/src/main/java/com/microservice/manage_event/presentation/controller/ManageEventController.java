@@ -6,10 +6,14 @@ import com.microservice.manage_event.persistence.model.vo.LocationVO;
 import com.microservice.manage_event.presentation.advice.CustomClientException;
 import com.microservice.manage_event.presentation.dto.CreateEventDTO;
 import com.microservice.manage_event.presentation.dto.CreateLocalityDTO;
+import com.microservice.manage_event.presentation.dto.ImportResultDTO;
+import com.microservice.manage_event.presentation.dto.StatsReconcileDTO;
 import com.microservice.manage_event.presentation.dto.UpdateEventDTO;
 import com.microservice.manage_event.presentation.dto.UpdateLocalityDTO;
 import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.implementation.EventImportServiceImpl;
 import com.microservice.manage_event.service.implementation.EventServiceImpl;
+import com.microservice.manage_event.service.implementation.EventStatsServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,12 +21,15 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -30,10 +37,17 @@ import java.util.List;
 @Tag(name = "Manage Event", description = "Private controller requiring authentication to access your endpoints")
 public class ManageEventController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     final EventServiceImpl eventService;
+    final EventImportServiceImpl eventImportService;
+    final EventStatsServiceImpl eventStatsService;
 
-    public ManageEventController(EventServiceImpl eventService) {
+    public ManageEventController(EventServiceImpl eventService, EventImportServiceImpl eventImportService,
+                                 EventStatsServiceImpl eventStatsService) {
         this.eventService = eventService;
+        this.eventImportService = eventImportService;
+        this.eventStatsService = eventStatsService;
     }
 
     /**
@@ -535,4 +549,87 @@ public class ManageEventController {
             return ResponseEntity.badRequest().body(new MessageDTO<>(true, State.ERROR));
         }
     }
+
+    /**
+     * This endpoint is used to run the importEvents service, the body is read and the results written while the import runs
+     * @param contentType application/x-ndjson or text/csv
+     * @param input events, one per line or CSV row
+     * @return result of every row, one JSON document per line
+     */
+    @PostMapping(value = "/import-events", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Import Events",
+            description = "Create many events from newline delimited JSON, one ImportEventDTO per line, or from CSV with the columns " +
+                    "nameEvent, startDate, endDate, address, country, department, city, postalCode, latitude, longitude and localitiesEvent, " +
+                    "where localitiesEvent holds id:name:capacity:price entries separated by ';'. Every row is validated on its own, " +
+                    "a row that fails does not stop the import",
+            tags = {"CRUD"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Import Events, state and message of every row",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(
+                                            implementation = ImportResultDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - Authentication failed",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> importEvents(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream input){
+        boolean csv = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType));
+        StreamingResponseBody body = output -> eventImportService.importEvents(input, csv, output);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * This endpoint is used to run the reconcileStats service
+     * @return drift found between the materialized stats and the events
+     */
+    @PostMapping("/reconcile-stats")
+    @Operation(
+            summary = "Reconcile Stats",
+            description = "Build the event stats again from the events and report how many had drifted, it also runs periodically",
+            tags = {"Stats"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Reconcile Stats",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - Authentication failed",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<StatsReconcileDTO>> reconcileStats(){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventStatsService.reconcileStats()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
 }
@@ -1,33 +1,67 @@
 package com.microservice.manage_event.presentation.controller;
 
 import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.Availability;
+import com.microservice.manage_event.persistence.model.enums.DateBucket;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
 import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.AvailabilityDTO;
+import com.microservice.manage_event.presentation.dto.EventCardDTO;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.presentation.dto.FacetResultDTO;
 import com.microservice.manage_event.presentation.dto.GlobalEventStatsDTO;
 import com.microservice.manage_event.presentation.dto.ListEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.MapClusterDTO;
+import com.microservice.manage_event.presentation.dto.NearbyEventDTO;
+import com.microservice.manage_event.presentation.dto.SuggestionDTO;
 import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
 import com.microservice.manage_event.service.implementation.EventServiceImpl;
+import com.microservice.manage_event.service.implementation.FacetServiceImpl;
+import com.microservice.manage_event.service.implementation.InventoryServiceImpl;
+import com.microservice.manage_event.service.implementation.MapServiceImpl;
+import com.microservice.manage_event.service.implementation.SuggestServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/public-event")
 public class ManageEventPublicController {
 
     final EventServiceImpl eventService;
+    final InventoryServiceImpl inventoryService;
+    final SuggestServiceImpl suggestService;
+    final FacetServiceImpl facetService;
+    final MapServiceImpl mapService;
 
-    public ManageEventPublicController(EventServiceImpl eventService) {
+    public ManageEventPublicController(EventServiceImpl eventService, InventoryServiceImpl inventoryService,
+                                       SuggestServiceImpl suggestService, FacetServiceImpl facetService,
+                                       MapServiceImpl mapService) {
         this.eventService = eventService;
+        this.inventoryService = inventoryService;
+        this.suggestService = suggestService;
+        this.facetService = facetService;
+        this.mapService = mapService;
     }
 
     /**
@@ -106,14 +140,365 @@ public class ManageEventPublicController {
         }
     }
 
+    /**
+     * This endpoint is used to run the suggest service
+     * @param q text typed by the user
+     * @param limit maximum suggestions
+     * @return events and cities that start with the text
+     */
+    @GetMapping("/suggest")
+    @Operation(
+            summary = "Suggest events and cities",
+            description = "Get the events and cities whose words start with the typed text, ranked by popularity and upcoming start date",
+            tags = {"Event"},
+            parameters = {
+                    @Parameter(
+                            name = "q",
+                            description = "Text typed by the user",
+                            required = true,
+                            content = @Content(
+                                    mediaType = "String",
+                                    schema = @Schema(
+                                            implementation = String.class
+                                    )
+                            )
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Suggest",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<SuggestionDTO>>> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, suggestService.suggest(q, limit)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getFacets service
+     * @param name (optional) event's name
+     * @param city (optional) cities
+     * @param department (optional) departments
+     * @param date (optional) date buckets
+     * @param price (optional) price bands
+     * @param availability (optional) availability values
+     * @param limit maximum events returned
+     * @return events, total and counts by facet
+     */
+    @GetMapping("/facets")
+    @Operation(
+            summary = "Faceted search",
+            description = "Filter the upcoming events by city, department, date, price band and availability, and count the events of every facet value. " +
+                    "Values of the same facet are combined with OR and different facets with AND",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Facets",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Error - The catalog is still being indexed",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<FacetResultDTO>> getFacets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) List<String> city,
+            @RequestParam(required = false) List<String> department,
+            @RequestParam(required = false) List<DateBucket> date,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<Availability> availability,
+            @RequestParam(defaultValue = "20") int limit){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, facetService.getFacets(name, city, department, date, price, availability, limit)));
+        } catch (ErrorResponseException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the findNearby service
+     * @param lat point's latitude
+     * @param lng point's longitude
+     * @param radiusKm search radius in kilometers
+     * @param page page number, starting at 0
+     * @param size page size
+     * @return upcoming events around the point, closest first
+     */
+    @GetMapping("/nearby")
+    @Operation(
+            summary = "Events near a point",
+            description = "Get the upcoming events inside a radius around a point, sorted by distance",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Nearby Events",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<NearbyEventDTO>>> findNearby(@RequestParam double lat,
+                                                                      @RequestParam double lng,
+                                                                      @RequestParam(defaultValue = "10") double radiusKm,
+                                                                      @RequestParam(defaultValue = "0") int page,
+                                                                      @RequestParam(defaultValue = "20") int size){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.findNearby(lat, lng, radiusKm, page, size)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getClusters service
+     * @param bbox west,south,east,north of the visible map
+     * @param zoom map zoom
+     * @return clustered markers of the active events in the box
+     */
+    @GetMapping("/map")
+    @Operation(
+            summary = "Event markers for a map",
+            description = "Get the active events inside a bounding box grouped in clusters for the zoom level",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Map Clusters",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Error - The catalog is still being indexed",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<MapClusterDTO>>> getMapClusters(@RequestParam String bbox, @RequestParam int zoom){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, mapService.getClusters(bbox, zoom)));
+        } catch (ErrorResponseException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getImageLink service
+     * @param idEvent event's id
+     * @param slot image's key
+     * @param variant size wanted, the original when it is missing
+     * @return redirect to the image
+     */
+    @GetMapping("/image/{idEvent}/{slot}")
+    @Operation(
+            summary = "Get an event image in a size",
+            description = "Redirect to the thumbnail, card or hero size of an event image, or to the original while the sizes are being generated",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "302",
+                            description = "Successful - Redirect to the image"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Error - Image not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<String>> getImage(@PathVariable String idEvent, @PathVariable String slot,
+                                                       @RequestParam(required = false) ImageVariant variant){
+        try {
+            String link = eventService.getImageLink(idEvent, slot, variant);
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(link))
+                    .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                    .build();
+        } catch (ResourceNotFoundException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getAvailability service
+     * @param idEvent event's id
+     * @return availability by locality
+     */
+    @GetMapping("/availability/{idEvent}")
+    @Operation(
+            summary = "Get availability of an event",
+            description = "Get capacity, sold, held and remaining tickets of every locality of an event",
+            tags = {"Event"},
+            parameters = {
+                    @Parameter(
+                            name = "idEvent",
+                            description = "Event's id",
+                            required = true,
+                            content = @Content(
+                                    mediaType = "String",
+                                    schema = @Schema(
+                                            implementation = String.class
+                                    )
+                            )
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get Availability",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "417",
+                            description = "Error - Get Availability",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<AvailabilityDTO>>> getAvailability(@PathVariable String idEvent){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, inventoryService.getAvailability(idEvent)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList(), e.getMessage()));
+        }
+    }
+
     /**
      * This endpoint is used to run the getEvents service
-     * @return event list
+     * @param cursor cursor of the page, empty for the first one
+     * @param size page size
+     * @return event card page
      */
     @GetMapping("/get-events")
     @Operation(
-            summary = "Get all events",
-            description = "Get all database's events",
+            summary = "Get events",
+            description = "Get a page of events ordered by start date. The nextCursor of the response is sent back to get the following page",
             tags = {"Event"},
             responses = {
                     @ApiResponse(
@@ -158,9 +543,57 @@ public class ManageEventPublicController {
                     )
             }
     )
-    public ResponseEntity<MessageDTO<List<Event>>> getEvents(){
+    public ResponseEntity<MessageDTO<EventPageDTO<EventCardDTO>>> getEvents(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "20") int size){
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.getEvents(cursor, size)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getEvents service returning only the requested fields
+     * @param cursor cursor of the page, empty for the first one
+     * @param size page size
+     * @param fields comma separated event fields, e.g. name,startDate,locations
+     * @return event page with the requested fields
+     */
+    @GetMapping(value = "/get-events", params = "fields")
+    @Operation(
+            summary = "Get events with sparse fields",
+            description = "Get a page of events ordered by start date with only the fields listed in the fields parameter",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get Events",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<EventPageDTO<Map<String, Object>>>> getEventFields(@RequestParam(required = false) String cursor,
+                                                                                     @RequestParam(defaultValue = "20") int size,
+                                                                                     @RequestParam String fields){
         try {
-            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.getEvents()));
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.getEvents(cursor, size, fields)));
         } catch (CustomClientException e){
             return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
         } catch (Exception e){
@@ -168,6 +601,33 @@ public class ManageEventPublicController {
         }
     }
 
+    /**
+     * This endpoint is used to run the streamEvents service, it answers get-events when the client accepts application/x-ndjson
+     * @return every event, one JSON document per line
+     */
+    @GetMapping(value = "/get-events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Stream all events",
+            description = "Stream every event as newline delimited JSON while it is read from the database",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Stream Events",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(
+                                            implementation = Event.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> streamEvents(){
+        StreamingResponseBody body = eventService::streamEvents;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     /**
      * This endpoint is used to run the filterEvents
      * @param name (optional) event's name
@@ -175,7 +635,7 @@ public class ManageEventPublicController {
      * @param endDate (optional) event's endDate
      * @param address (optional) event's address
      * @param capacity (optional) event's capacity
-     * @return event's list filtered
+     * @return event card's list filtered
      */
     @GetMapping("/filter")
     @Operation(
@@ -277,7 +737,7 @@ public class ManageEventPublicController {
                     )
             }
     )
-    public ResponseEntity<MessageDTO<List<Event>>> filterEvents(
+    public ResponseEntity<MessageDTO<List<EventCardDTO>>> filterEvents(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) LocalDate startDate,
             @RequestParam(required = false) LocalDate endDate,
@@ -292,6 +752,60 @@ public class ManageEventPublicController {
         }
     }
 
+    /**
+     * This endpoint is used to run the filterEvents returning only the requested fields
+     * @param name (optional) event's name
+     * @param startDate (optional) event's startDate
+     * @param endDate (optional) event's endDate
+     * @param address (optional) event's address
+     * @param capacity (optional) event's capacity
+     * @param fields comma separated event fields, e.g. name,startDate,locations
+     * @return event's list filtered with the requested fields
+     */
+    @GetMapping(value = "/filter", params = "fields")
+    @Operation(
+            summary = "Filter Events with sparse fields",
+            description = "Filter an event by name, startDate, endDate, address and capacity returning only the fields listed in the fields parameter",
+            tags = {"Event"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Filter Events",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Bad Request - Invalid input",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = ErrorResponse.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<Map<String, Object>>>> filterEventFields(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate,
+            @RequestParam(required = false) String address,
+            @RequestParam(required = false) Integer capacity,
+            @RequestParam String fields) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.filterEvents(name, startDate, endDate, address, capacity != null ? capacity : 0, fields)));
+        } catch (CustomClientException e) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, Collections.emptyList()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList()));
+        }
+    }
+
     /**
      * This endpoint is used to run getEventStats
      * @return stats global list
@@ -356,12 +870,19 @@ public class ManageEventPublicController {
 
     /**
      * This endpoint is used to run getEventStatsByEvent
-     * @return stats by event list
+     * @param sort value to sort by
+     * @param direction sort direction
+     * @param top (optional) number of first stats wanted
+     * @param cursor nextCursor of the previous page
+     * @param size stats by page
+     * @return stats by event page
      */
     @GetMapping("/event-stats")
     @Operation(
             summary = "Stats by Events",
-            description = "Stats by event how name, totalTicketsSold, totalCapacity, totalAvailableTickets, totalEvents",
+            description = "Stats by event how name, totalTicketsSold, totalCapacity, totalAvailableTickets, totalRevenue, sellThrough, "
+                    + "sorted by TICKETS_SOLD, REVENUE, SELL_THROUGH or AVAILABLE. With top only the first stats are returned, "
+                    + "otherwise the nextCursor of a page gives the following one",
             tags = {"Stats"},
             responses = {
                     @ApiResponse(
@@ -406,13 +927,17 @@ public class ManageEventPublicController {
                     )
             }
     )
-    public ResponseEntity<MessageDTO<List<ListEventStatsDTO>>> getEventStatsByEvent() {
+    public ResponseEntity<MessageDTO<EventPageDTO<ListEventStatsDTO>>> getEventStatsByEvent(@RequestParam(defaultValue = "TICKETS_SOLD") StatsSort sort,
+                                                                                          @RequestParam(defaultValue = "DESC") Sort.Direction direction,
+                                                                                          @RequestParam(required = false) Integer top,
+                                                                                          @RequestParam(required = false) String cursor,
+                                                                                          @RequestParam(defaultValue = "20") int size) {
         try {
-            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.getStatisticsByEvent()));
+            return ResponseEntity.ok().body(new MessageDTO<>(false, eventService.getStatisticsByEvent(sort, direction, top, cursor, size)));
         } catch (CustomClientException e) {
-            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, Collections.emptyList()));
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new MessageDTO<>(true, Collections.emptyList()));
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
         }
     }
 }
@@ -0,0 +1,87 @@
+package com.microservice.manage_event.presentation.controller;
+
+import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.dto.OnSaleMetricsDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.implementation.OnSaleMetricsServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/manage-event/on-sale")
+@Tag(name = "On Sale", description = "Private controller to follow the tickets, holds and checkouts of the events on sale in real time")
+public class OnSaleController {
+
+    final OnSaleMetricsServiceImpl onSaleMetricsService;
+
+    public OnSaleController(OnSaleMetricsServiceImpl onSaleMetricsService) {
+        this.onSaleMetricsService = onSaleMetricsService;
+    }
+
+    /**
+     * This endpoint is used to run the getOnSaleMetrics service
+     * @param idEvent (optional) event's id
+     * @return rates of the last 1, 10 and 60 seconds by event
+     */
+    @GetMapping("/get-on-sale-metrics")
+    @Operation(
+            summary = "Get On Sale Metrics",
+            description = "Get the tickets, holds and checkouts per second, the checkout failure rate and the p99 checkout latency of the last 1, 10 and 60 seconds",
+            tags = {"On Sale"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get On Sale Metrics",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<OnSaleMetricsDTO>>> getOnSaleMetrics(@RequestParam(required = false) String idEvent) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, onSaleMetricsService.getOnSaleMetrics(idEvent)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the streamOnSaleMetrics service
+     * @param idEvent (optional) event's id
+     * @return server-sent events with the rates by event
+     */
+    @GetMapping(value = "/stream-on-sale-metrics", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream On Sale Metrics",
+            description = "Receive the on sale metrics as server-sent events named on-sale, pushed every second",
+            tags = {"On Sale"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Stream On Sale Metrics",
+                            content = @Content(
+                                    mediaType = "text/event-stream"
+                            )
+                    )
+            }
+    )
+    public SseEmitter streamOnSaleMetrics(@RequestParam(required = false) String idEvent) {
+        return onSaleMetricsService.streamOnSaleMetrics(idEvent);
+    }
+}
@@ -0,0 +1,134 @@
+package com.microservice.manage_event.presentation.controller;
+
+import com.microservice.manage_event.persistence.model.enums.SalesGranularity;
+import com.microservice.manage_event.presentation.advice.CustomClientException;
+import com.microservice.manage_event.presentation.dto.CumulativeSalesDTO;
+import com.microservice.manage_event.presentation.dto.SalesVelocityDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.implementation.SalesSeriesServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/manage-event/sales")
+@Tag(name = "Sales", description = "Private controller to follow the ticket sales of an event over time")
+public class SalesController {
+
+    final SalesSeriesServiceImpl salesSeriesService;
+
+    public SalesController(SalesSeriesServiceImpl salesSeriesService) {
+        this.salesSeriesService = salesSeriesService;
+    }
+
+    /**
+     * This endpoint is used to run the getSalesVelocity service
+     * @param idEvent event's id
+     * @param idLocality (optional) locality's id
+     * @param granularity minute or hour buckets
+     * @param from (optional) start of the range
+     * @param to (optional) end of the range
+     * @return tickets sold by bucket
+     */
+    @GetMapping("/get-sales-velocity")
+    @Operation(
+            summary = "Get Sales Velocity",
+            description = "Get the tickets sold by minute or hour of an event or one of its localities, with the tickets sold per minute",
+            tags = {"Sales"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get Sales Velocity",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Error - Parameters or range are not valid",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<SalesVelocityDTO>>> getSalesVelocity(@RequestParam String idEvent,
+                                                                               @RequestParam(required = false) String idLocality,
+                                                                               @RequestParam(defaultValue = "MINUTE") SalesGranularity granularity,
+                                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, salesSeriesService.getSalesVelocity(idEvent, idLocality, granularity, from, to)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+
+    /**
+     * This endpoint is used to run the getCumulativeSales service
+     * @param idEvent event's id
+     * @param idLocality (optional) locality's id
+     * @param granularity minute or hour buckets
+     * @param from (optional) start of the range
+     * @param to (optional) end of the range
+     * @return running totals by bucket
+     */
+    @GetMapping("/get-cumulative-sales")
+    @Operation(
+            summary = "Get Cumulative Sales",
+            description = "Get the tickets and revenue sold since the beginning of the sale at the end of every minute or hour",
+            tags = {"Sales"},
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful - Get Cumulative Sales",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Error - Parameters or range are not valid",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = MessageDTO.class
+                                    )
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<MessageDTO<List<CumulativeSalesDTO>>> getCumulativeSales(@RequestParam String idEvent,
+                                                                                   @RequestParam(required = false) String idLocality,
+                                                                                   @RequestParam(defaultValue = "MINUTE") SalesGranularity granularity,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok().body(new MessageDTO<>(false, salesSeriesService.getCumulativeSales(idEvent, idLocality, granularity, from, to)));
+        } catch (CustomClientException e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(new MessageDTO<>(true, null, e.getMessage()));
+        } catch (Exception e){
+            return ResponseEntity.badRequest().body(new MessageDTO<>(true, null, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record AvailabilityDTO(
+        String idLocality,
+        String nameLocality,
+        int capacity,
+        int sold,
+        int held,
+        int remaining
+) {
+}
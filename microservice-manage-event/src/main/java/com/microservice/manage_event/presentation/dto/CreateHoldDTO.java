@@ -0,0 +1,12 @@
+package com.microservice.manage_event.presentation.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+public record CreateHoldDTO(
+        @NotBlank(message = "idEvent is required") String idEvent,
+        @NotBlank(message = "idLocality is required") String idLocality,
+        @NotBlank(message = "idUser is required") String idUser,
+        @Min(value = 1, message = "quantity must be greater than zero") int quantity
+) {
+}
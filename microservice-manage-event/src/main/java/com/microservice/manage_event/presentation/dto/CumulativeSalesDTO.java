@@ -0,0 +1,10 @@
+package com.microservice.manage_event.presentation.dto;
+
+import java.time.LocalDateTime;
+
+public record CumulativeSalesDTO(
+        LocalDateTime start,
+        long tickets,
+        double revenue
+) {
+}
@@ -0,0 +1,15 @@
+package com.microservice.manage_event.presentation.dto;
+
+import java.time.LocalDate;
+
+public record EventCardDTO(
+        String idEvent,
+        String name,
+        LocalDate startDate,
+        LocalDate endDate,
+        String city,
+        double minPrice,
+        int remainingTickets,
+        String image
+) {
+}
@@ -0,0 +1,7 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record FacetCountDTO(
+        String value,
+        int count
+) {
+}
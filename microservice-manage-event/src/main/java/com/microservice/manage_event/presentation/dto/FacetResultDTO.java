@@ -0,0 +1,11 @@
+package com.microservice.manage_event.presentation.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record FacetResultDTO(
+        int total,
+        List<EventCardDTO> items,
+        Map<String, List<FacetCountDTO>> facets
+) {
+}
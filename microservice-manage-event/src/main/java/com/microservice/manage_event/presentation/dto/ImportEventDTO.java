@@ -0,0 +1,16 @@
+package com.microservice.manage_event.presentation.dto;
+
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.persistence.model.vo.LocationVO;
+
+import java.util.List;
+
+public record ImportEventDTO(
+        String nameEvent,
+        String startDate,
+        String endDate,
+        String address,
+        LocationVO location,
+        List<LocalityVO> localitiesEvent
+) {
+}
@@ -0,0 +1,11 @@
+package com.microservice.manage_event.presentation.dto;
+
+import com.microservice.manage_event.persistence.model.enums.State;
+
+public record ImportResultDTO(
+        int row,
+        String idEvent,
+        State state,
+        String message
+) {
+}
@@ -8,6 +8,8 @@ public record ListEventStatsDTO(
         int totalEvents,
         int totalTicketsSold,
         int totalCapacity,
-        int totalAvailableTickets
+        int totalAvailableTickets,
+        double totalRevenue,
+        double sellThrough
 ) {
 }
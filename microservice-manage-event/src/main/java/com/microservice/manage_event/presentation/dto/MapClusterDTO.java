@@ -0,0 +1,9 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record MapClusterDTO(
+        double latitude,
+        double longitude,
+        int count,
+        String idEvent
+) {
+}
@@ -0,0 +1,7 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record NearbyEventDTO(
+        EventCardDTO event,
+        double distanceKm
+) {
+}
@@ -0,0 +1,9 @@
+package com.microservice.manage_event.presentation.dto;
+
+import com.microservice.manage_event.persistence.model.entities.Location;
+
+public record NearestLocationDTO(
+        Location location,
+        double distanceKm
+) {
+}
@@ -0,0 +1,9 @@
+package com.microservice.manage_event.presentation.dto;
+
+import java.util.List;
+
+public record OnSaleMetricsDTO(
+        String idEvent,
+        List<OnSaleWindowDTO> windows
+) {
+}
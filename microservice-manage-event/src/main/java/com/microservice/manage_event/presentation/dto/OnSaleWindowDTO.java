@@ -0,0 +1,11 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record OnSaleWindowDTO(
+        int seconds,
+        double ticketsPerSecond,
+        double holdsPerSecond,
+        double checkoutsPerSecond,
+        double checkoutFailureRate,
+        double p99CheckoutMillis
+) {
+}
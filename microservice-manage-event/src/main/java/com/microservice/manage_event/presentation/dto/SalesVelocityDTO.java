@@ -0,0 +1,11 @@
+package com.microservice.manage_event.presentation.dto;
+
+import java.time.LocalDateTime;
+
+public record SalesVelocityDTO(
+        LocalDateTime start,
+        int tickets,
+        double revenue,
+        double ticketsPerMinute
+) {
+}
@@ -0,0 +1,9 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record StatsReconcileDTO(
+        int eventsChecked,
+        int eventsDrifted,
+        int eventsRemoved,
+        boolean globalDrifted
+) {
+}
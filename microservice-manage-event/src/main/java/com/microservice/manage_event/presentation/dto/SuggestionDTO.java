@@ -0,0 +1,10 @@
+package com.microservice.manage_event.presentation.dto;
+
+import com.microservice.manage_event.persistence.model.enums.SuggestionType;
+
+public record SuggestionDTO(
+        SuggestionType type,
+        String text,
+        String idEvent
+) {
+}
@@ -0,0 +1,9 @@
+package com.microservice.manage_event.presentation.dto;
+
+public record TownDTO(
+        String name,
+        int postalCode,
+        double latitude,
+        double longitude
+) {
+}
@@ -0,0 +1,54 @@
+package com.microservice.manage_event.service.configuration.app;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String EVENTS = "events";
+    public static final String EVENT_PAGES = "eventPages";
+    public static final String LOCATIONS = "locations";
+    public static final String RECOMMENDATIONS = "recommendations";
+
+    /**
+     * This method is used for create the in-process caches. Caffeine evicts with W-TinyLFU, so the few
+     * events read during an on-sale stay cached while one-off reads do not push them out
+     * @return cache manager with one bounded cache per read path
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.events.ttl-seconds:30}") long eventsTtl,
+                                     @Value("${cache.events.maximum-size:10000}") long eventsSize,
+                                     @Value("${cache.event-pages.ttl-seconds:10}") long pagesTtl,
+                                     @Value("${cache.event-pages.maximum-size:1000}") long pagesSize,
+                                     @Value("${cache.locations.ttl-seconds:3600}") long locationsTtl,
+                                     @Value("${cache.locations.maximum-size:10}") long locationsSize,
+                                     @Value("${cache.recommendations.ttl-seconds:300}") long recommendationsTtl,
+                                     @Value("${cache.recommendations.maximum-size:100000}") long recommendationsSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+        // Caches are registered up front so actuator binds their hit, miss and eviction metrics on startup
+        cacheManager.registerCustomCache(EVENTS, build(eventsTtl, eventsSize));
+        cacheManager.registerCustomCache(EVENT_PAGES, build(pagesTtl, pagesSize));
+        cacheManager.registerCustomCache(LOCATIONS, build(locationsTtl, locationsSize));
+        cacheManager.registerCustomCache(RECOMMENDATIONS, build(recommendationsTtl, recommendationsSize));
+
+        return cacheManager;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> build(long ttlSeconds, long maximumSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+}
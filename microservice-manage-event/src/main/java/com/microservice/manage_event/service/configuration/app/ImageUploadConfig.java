@@ -0,0 +1,70 @@
+package com.microservice.manage_event.service.configuration.app;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImageUploadConfig {
+
+    public static final String IMAGE_UPLOAD_EXECUTOR = "imageUploadExecutor";
+    public static final String IMAGE_JOB_EXECUTOR = "imageJobExecutor";
+    public static final String IMAGE_RESIZE_EXECUTOR = "imageResizeExecutor";
+
+    /**
+     * This method is used for create the pool the image uploads run on, the original and the variants of a
+     * job are uploaded on it at the same time. It is bounded so the image workers can not open an unbounded
+     * number of connections to the image store, when the queue is full the worker uploads the image itself
+     * @return upload executor
+     */
+    @Bean(name = IMAGE_UPLOAD_EXECUTOR)
+    public ThreadPoolTaskExecutor imageUploadExecutor(@Value("${images.upload.parallelism:4}") int parallelism,
+                                                      @Value("${images.upload.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * This method is used for create the workers of the image job queue. The queue service never hands
+     * out more jobs than there are workers, so the pool does not need room to queue them
+     * @return image job executor
+     */
+    @Bean(name = IMAGE_JOB_EXECUTOR)
+    public ThreadPoolTaskExecutor imageJobExecutor(@Value("${images.jobs.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("image-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * This method is used for create the pool images are resized on. Resizing is CPU bound, so it gets
+     * at most one thread per core whatever the number of image workers waiting on it
+     * @return resize executor
+     */
+    @Bean(name = IMAGE_RESIZE_EXECUTOR)
+    public ThreadPoolTaskExecutor imageResizeExecutor(@Value("${images.variants.cpu-workers:0}") int cpuWorkers,
+                                                      @Value("${images.variants.queue-capacity:256}") int queueCapacity) {
+        int threads = cpuWorkers > 0 ? cpuWorkers : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-resize-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
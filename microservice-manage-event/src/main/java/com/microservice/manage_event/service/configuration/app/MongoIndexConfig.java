@@ -0,0 +1,98 @@
+package com.microservice.manage_event.service.configuration.app;
+
+import com.microservice.manage_event.persistence.model.entities.AttendeeBucket;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.EventStats;
+import com.microservice.manage_event.persistence.model.entities.ImageJob;
+import com.microservice.manage_event.persistence.model.entities.SalesBucket;
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+
+@Configuration
+public class MongoIndexConfig {
+
+    final MongoTemplate mongoTemplate;
+
+    private static final String ACTIVE_INDEX = "active_1";
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * This method is used for create the indexes the services rely on, creating an existing index is a no-op
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations events = mongoTemplate.indexOps(Event.class);
+
+        // Keyset pagination of get-events
+        events.ensureIndex(new Index().on("startDate", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        // Nearby search
+        events.ensureIndex(new GeospatialIndex("position").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+        // Settled holds past their retention
+        events.ensureIndex(new Index().on("settledHolds.settledAt", Sort.Direction.ASC).sparse());
+
+        IndexOperations holds = mongoTemplate.indexOps(TicketHold.class);
+
+        // Sweeper: active holds past their deadline
+        holds.ensureIndex(new Index().on("state", Sort.Direction.ASC).on("expiresAt", Sort.Direction.ASC));
+        // Sweeper: holds whose release was left unfinished
+        holds.ensureIndex(new Index().on("state", Sort.Direction.ASC).on("changedAt", Sort.Direction.ASC));
+        // Holds expired by the same sweep
+        holds.ensureIndex(new Index().on("sweepId", Sort.Direction.ASC).sparse());
+        // Finished holds are removed once purgeAt is reached
+        holds.ensureIndex(new Index().on("purgeAt", Sort.Direction.ASC).expire(Duration.ZERO));
+
+        IndexOperations imageJobs = mongoTemplate.indexOps(ImageJob.class);
+
+        // Workers: due pending jobs and running jobs whose lease ran out
+        imageJobs.ensureIndex(new Index().on("state", Sort.Direction.ASC).on("nextAttemptAt", Sort.Direction.ASC));
+        imageJobs.ensureIndex(new Index().on("state", Sort.Direction.ASC).on("lockedUntil", Sort.Direction.ASC));
+        // Finished jobs are removed once purgeAt is reached
+        imageJobs.ensureIndex(new Index().on("purgeAt", Sort.Direction.ASC).expire(Duration.ZERO));
+
+        IndexOperations attendees = mongoTemplate.indexOps(AttendeeBucket.class);
+
+        // A user is in at most one bucket of an event, emptied buckets hold no users and are left out
+        attendees.ensureIndex(new Index().on("idEvent", Sort.Direction.ASC).on("attendees.idUser", Sort.Direction.ASC)
+                .unique().partial(PartialIndexFilter.of(Criteria.where("count").gt(0))));
+        // Buckets with room left and the attendee pages in bucket order
+        attendees.ensureIndex(new Index().on("idEvent", Sort.Direction.ASC).on("count", Sort.Direction.ASC));
+        attendees.ensureIndex(new Index().on("idEvent", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+
+        IndexOperations eventStats = mongoTemplate.indexOps(EventStats.class);
+
+        // Pages of the active events' stats by each sort value, _id breaks ties so the cursor is unique.
+        // Every index starts with active, so stats of the active events need no index of their own
+        for (StatsSort sort : StatsSort.values()) {
+            eventStats.ensureIndex(new Index().on("active", Sort.Direction.ASC).on(sort.field(), Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC));
+        }
+        // The single index on active they replace is still in deployed databases, drop it so it is not maintained
+        if (eventStats.getIndexInfo().stream().anyMatch(index -> ACTIVE_INDEX.equals(index.getName()))) {
+            eventStats.dropIndex(ACTIVE_INDEX);
+        }
+
+        IndexOperations salesBuckets = mongoTemplate.indexOps(SalesBucket.class);
+
+        // Sales series of an event by granularity and time
+        salesBuckets.ensureIndex(new Index().on("idEvent", Sort.Direction.ASC).on("granularity", Sort.Direction.ASC)
+                .on("start", Sort.Direction.ASC));
+        // Minute buckets are removed once purgeAt is reached, hour buckets have no purgeAt
+        salesBuckets.ensureIndex(new Index().on("purgeAt", Sort.Direction.ASC).expire(Duration.ZERO));
+    }
+}
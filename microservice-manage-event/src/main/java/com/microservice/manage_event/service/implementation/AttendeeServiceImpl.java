@@ -0,0 +1,257 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.AttendeeBucket;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.UserVO;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.service.interfaces.AttendeeService;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+
+@Service
+public class AttendeeServiceImpl implements AttendeeService {
+
+    final MongoTemplate mongoTemplate;
+
+    private final int bucketSize;
+
+    private static final String NOT_FOUND = "Event not found";
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String CURSOR_NOT_VALID = "Cursor is not valid";
+    private static final String ID_EVENT = "idEvent";
+    private static final String ID_USER = "idUser";
+    private static final String COUNT = "count";
+    private static final String ATTENDEES = "attendees";
+    private static final String ATTENDEE_IDS = "attendees.idUser";
+    private static final String ATTENDEES_COUNT = "attendeesCount";
+    private static final String REGISTERED_USERS = "registeredUsers";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    public AttendeeServiceImpl(MongoTemplate mongoTemplate, @Value("${attendees.bucket-size:1000}") int bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("bucketSize must be positive");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * This method is used for register a user as attendee of an event
+     * @param idEvent event's id
+     * @param idUser user's id
+     * @return state action, ERROR when the user is already registered
+     * @throws ResourceNotFoundException if the event does not exist
+     */
+    @Override
+    public State registerAttendee(String idEvent, String idUser) throws ResourceNotFoundException {
+        validate(idEvent, idUser);
+
+        if (!mongoTemplate.exists(byId(idEvent), Event.class)) {
+            throw new ResourceNotFoundException(NOT_FOUND);
+        }
+
+        // Fill a bucket of the event with room left or start a new one,
+        // the unique index on (idEvent, attendees.idUser) rejects a user already in another bucket
+        Query open = new Query(Criteria.where(ID_EVENT).is(idEvent).and(COUNT).lt(bucketSize).and(ATTENDEE_IDS).ne(idUser));
+        Update push = new Update().push(ATTENDEES, new UserVO(idUser)).inc(COUNT, 1);
+        try {
+            mongoTemplate.upsert(open, push, AttendeeBucket.class);
+        } catch (DuplicateKeyException e) {
+            return State.ERROR;
+        }
+
+        mongoTemplate.updateFirst(byId(idEvent), new Update().inc(ATTENDEES_COUNT, 1), Event.class);
+        return State.SUCCESS;
+    }
+
+    /**
+     * This method is used for remove a user from the attendees of an event
+     * @param idEvent event's id
+     * @param idUser user's id
+     * @return state action, ERROR when the user is not registered
+     */
+    @Override
+    public State unregisterAttendee(String idEvent, String idUser) {
+        validate(idEvent, idUser);
+
+        // Emptied buckets are kept, the next registration fills them again
+        Query query = new Query(Criteria.where(ID_EVENT).is(idEvent).and(ATTENDEE_IDS).is(idUser));
+        Update pull = new Update().pull(ATTENDEES, new Document(ID_USER, idUser)).inc(COUNT, -1);
+
+        UpdateResult result = mongoTemplate.updateFirst(query, pull, AttendeeBucket.class);
+        if (result.getModifiedCount() == 0) {
+            return State.ERROR;
+        }
+
+        mongoTemplate.updateFirst(byId(idEvent), new Update().inc(ATTENDEES_COUNT, -1), Event.class);
+        return State.SUCCESS;
+    }
+
+    /**
+     * This method is used for get a page of the attendees of an event
+     * @param idEvent event's id
+     * @param cursor nextCursor of the previous page, empty for the first page
+     * @param size attendees by page
+     * @return attendees and the cursor of the next page, null when there are no more
+     */
+    @Override
+    public EventPageDTO<UserVO> getAttendees(String idEvent, String cursor, int size) {
+        if (!StringUtils.hasText(idEvent)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        List<UserVO> items = new ArrayList<>(pageSize);
+
+        // Continue inside the bucket of the cursor, then go through the next buckets in _id order
+        Criteria criteria = Criteria.where(ID_EVENT).is(idEvent);
+        int offset = 0;
+        if (StringUtils.hasText(cursor)) {
+            String[] position = decodeCursor(cursor);
+            criteria = criteria.and("_id").gte(toId(position[0]));
+            offset = Integer.parseInt(position[1]);
+        }
+
+        while (true) {
+            int wanted = pageSize - items.size();
+
+            // Only the attendees of the page are read, one more tells if the bucket goes on
+            Query query = new Query(criteria).with(Sort.by("_id")).limit(1);
+            query.fields().slice(ATTENDEES, offset, wanted + 1);
+
+            AttendeeBucket bucket = mongoTemplate.findOne(query, AttendeeBucket.class);
+            if (bucket == null) {
+                return new EventPageDTO<>(items, null);
+            }
+
+            List<UserVO> attendees = bucket.getAttendees() == null ? Collections.emptyList() : bucket.getAttendees();
+            if (attendees.size() > wanted) {
+                items.addAll(attendees.subList(0, wanted));
+                return new EventPageDTO<>(items, encodeCursor(bucket.getIdBucket(), offset + wanted));
+            }
+
+            items.addAll(attendees);
+            if (items.size() == pageSize) {
+                return new EventPageDTO<>(items, encodeCursor(bucket.getIdBucket(), offset + attendees.size()));
+            }
+
+            criteria = Criteria.where(ID_EVENT).is(idEvent).and("_id").gt(toId(bucket.getIdBucket()));
+            offset = 0;
+        }
+    }
+
+    /**
+     * This method is used for move the attendees still embedded in events into buckets
+     * @return events migrated
+     */
+    @Override
+    public int migrateRegisteredUsers() {
+        Query query = new Query(Criteria.where(REGISTERED_USERS).exists(true));
+        query.fields().include(REGISTERED_USERS);
+
+        int migrated = 0;
+        try (Stream<Document> events = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(Event.class))) {
+            Iterator<Document> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                Document event = iterator.next();
+                String idEvent = event.get("_id").toString();
+
+                Set<String> users = new LinkedHashSet<>();
+                for (Document user : event.getList(REGISTERED_USERS, Document.class, Collections.emptyList())) {
+                    if (user != null && user.getString(ID_USER) != null) users.add(user.getString(ID_USER));
+                }
+
+                List<UserVO> bucket = new ArrayList<>(bucketSize);
+                for (String idUser : users) {
+                    bucket.add(new UserVO(idUser));
+                    if (bucket.size() == bucketSize) {
+                        insertBucket(idEvent, bucket);
+                        bucket = new ArrayList<>(bucketSize);
+                    }
+                }
+                if (!bucket.isEmpty()) insertBucket(idEvent, bucket);
+
+                // The counter is read back from the buckets, so a migration that stopped halfway is finished right
+                mongoTemplate.updateFirst(byId(idEvent), new Update()
+                        .set(ATTENDEES_COUNT, countAttendees(idEvent))
+                        .unset(REGISTERED_USERS), Event.class);
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateRegisteredUsersOnStartup() {
+        migrateRegisteredUsers();
+    }
+
+    private void insertBucket(String idEvent, List<UserVO> attendees) {
+        try {
+            mongoTemplate.insert(new AttendeeBucket(null, idEvent, attendees.size(), attendees));
+        } catch (DuplicateKeyException e) {
+            // Inserted by a migration that was interrupted before the event was cleaned
+        }
+    }
+
+    private int countAttendees(String idEvent) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(ID_EVENT).is(idEvent)),
+                Aggregation.group(ID_EVENT).sum(COUNT).as(COUNT));
+
+        Document total = mongoTemplate.aggregate(aggregation, AttendeeBucket.class, Document.class).getUniqueMappedResult();
+        return total == null ? 0 : ((Number) total.get(COUNT)).intValue();
+    }
+
+    private Query byId(String idEvent) {
+        return new Query(Criteria.where("_id").is(idEvent));
+    }
+
+    private Object toId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private String encodeCursor(String idBucket, int offset) {
+        String value = idBucket + "|" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
+        }
+
+        String[] position = value.split("\\|");
+        if (position.length != 2 || !position[1].matches("\\d{1,9}")) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
+        }
+        return position;
+    }
+
+    private void validate(String idEvent, String idUser) {
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idUser)) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
+    }
+}
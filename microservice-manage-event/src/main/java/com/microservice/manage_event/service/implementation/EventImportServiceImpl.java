@@ -0,0 +1,420 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.persistence.model.vo.LocationVO;
+import com.microservice.manage_event.presentation.dto.ImportEventDTO;
+import com.microservice.manage_event.presentation.dto.ImportResultDTO;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
+import com.microservice.manage_event.service.interfaces.EventImportService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.CsvReader;
+import com.microservice.manage_event.utils.LocationTree;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+@Service
+public class EventImportServiceImpl implements EventImportService {
+
+    final MongoTemplate mongoTemplate;
+    final LocationServiceImpl locationService;
+    final ObjectMapper objectMapper;
+    final ApplicationEventPublisher eventPublisher;
+    final CacheManager cacheManager;
+
+    private final int batchSize;
+
+    private static final String ROW_NOT_VALID = "Row is not valid";
+    private static final String NAME_REQUIRED = "nameEvent and address are required";
+    private static final String DATES_NOT_VALID = "endDate is before startDate";
+    private static final String LOCALITIES_REQUIRED = "localitiesEvent are required";
+    private static final String LOCALITIES_NOT_VALID = "localitiesEvent are not valid";
+    private static final String LOCALITY_REPEATED = "idLocality is repeated";
+    private static final String LOCATION_REQUIRED = "location is required";
+    private static final String LOCATION_NOT_FOUND = "Location not found";
+    private static final String POSTAL_CODE_NOT_VALID = "postalCode does not belong to the city";
+    private static final String COLUMN_MISSING = "Column is missing: ";
+    private static final List<String> REQUIRED_COLUMNS = List.of(
+            "nameEvent", "startDate", "endDate", "address", "country", "department", "city", "localitiesEvent");
+
+    public EventImportServiceImpl(MongoTemplate mongoTemplate, LocationServiceImpl locationService, ObjectMapper objectMapper,
+                                  ApplicationEventPublisher eventPublisher, CacheManager cacheManager,
+                                  @Value("${imports.batch-size:500}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.locationService = locationService;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * This method is used for create the events of a NDJSON or CSV file while it is read. Rows are validated
+     * one by one and written in unordered bulk inserts, so only one batch is held in memory at a time
+     * @param input NDJSON, one event per line, or CSV with a header row
+     * @param csv true when the input is CSV
+     * @param output receives one ImportResultDTO per row as NDJSON, once its batch is written
+     * @throws IOException if the input can not be read or the output written
+     */
+    @Override
+    public void importEvents(InputStream input, boolean csv, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ImportBatch batch = new ImportBatch(output, locationService.getLocationTree());
+
+        if (csv) {
+            readCsv(reader, batch);
+        } else {
+            readNdjson(reader, batch);
+        }
+        batch.flush();
+    }
+
+    private void readNdjson(BufferedReader reader, ImportBatch batch) throws IOException {
+        ObjectReader rowReader = objectMapper.readerFor(ImportEventDTO.class);
+
+        String line;
+        int row = 0;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (!StringUtils.hasText(line)) continue;
+
+            ImportEventDTO importEvent;
+            try {
+                importEvent = rowReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                batch.reject(row, ROW_NOT_VALID);
+                continue;
+            }
+            batch.add(row, importEvent);
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportBatch batch) throws IOException {
+        CsvReader csvReader = new CsvReader(reader);
+        List<String> header = csvReader.next();
+        if (header == null) return;
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                // Without the column no row can be read, row 0 is the header
+                batch.reject(0, COLUMN_MISSING + column);
+                return;
+            }
+        }
+
+        List<String> record;
+        int row = 0;
+        while ((record = csvReader.next()) != null) {
+            row++;
+            if (record.size() == 1 && record.get(0).isBlank()) continue;
+
+            try {
+                batch.add(row, csvToImportEvent(record, columns));
+            } catch (IllegalArgumentException e) {
+                batch.reject(row, e.getMessage());
+            }
+        }
+    }
+
+    private ImportEventDTO csvToImportEvent(List<String> record, Map<String, Integer> columns) {
+        LocationVO location = new LocationVO(
+                column(record, columns, "country"),
+                column(record, columns, "department"),
+                column(record, columns, "city"),
+                parseInt(column(record, columns, "postalCode"), "postalCode"),
+                parseDouble(column(record, columns, "latitude"), "latitude"),
+                parseDouble(column(record, columns, "longitude"), "longitude"));
+
+        return new ImportEventDTO(
+                column(record, columns, "nameEvent"),
+                column(record, columns, "startDate"),
+                column(record, columns, "endDate"),
+                column(record, columns, "address"),
+                location,
+                parseLocalities(column(record, columns, "localitiesEvent")));
+    }
+
+    /**
+     * Localities go in a single column as id:name:capacity:price entries separated by ';',
+     * the name is everything between the first and the last two ':'
+     */
+    private List<LocalityVO> parseLocalities(String value) {
+        if (value == null) return Collections.emptyList();
+
+        List<LocalityVO> localities = new ArrayList<>();
+        for (String entry : value.split(";")) {
+            if (entry.isBlank()) continue;
+
+            int first = entry.indexOf(':');
+            int last = entry.lastIndexOf(':');
+            int beforeLast = last <= 0 ? -1 : entry.lastIndexOf(':', last - 1);
+            if (first < 0 || beforeLast <= first) {
+                throw new IllegalArgumentException(LOCALITIES_NOT_VALID);
+            }
+
+            localities.add(new LocalityVO(
+                    entry.substring(0, first).trim(),
+                    entry.substring(first + 1, beforeLast).trim(),
+                    parseInt(entry.substring(beforeLast + 1, last).trim(), "capacityLocality"),
+                    parseDouble(entry.substring(last + 1).trim(), "priceLocality")));
+        }
+        return localities;
+    }
+
+    private String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) return null;
+
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private int parseInt(String value, String field) {
+        if (value == null) return 0;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not valid");
+        }
+    }
+
+    private Double parseDouble(String value, String field) {
+        if (value == null) return null;
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not valid");
+        }
+    }
+
+    /**
+     * This method is used for validate a row and build its event, ready to be inserted
+     * @param importEvent row of the file
+     * @param tree locations tree
+     * @return event with its id already assigned
+     * @throws IllegalArgumentException with the reason when the row is not valid
+     */
+    private Event toEvent(ImportEventDTO importEvent, LocationTree tree) {
+        if (importEvent == null) throw new IllegalArgumentException(ROW_NOT_VALID);
+        if (!StringUtils.hasText(importEvent.nameEvent()) || !StringUtils.hasText(importEvent.address())) {
+            throw new IllegalArgumentException(NAME_REQUIRED);
+        }
+
+        LocalDate startDate = parseDate(importEvent.startDate(), "startDate");
+        LocalDate endDate = parseDate(importEvent.endDate(), "endDate");
+        if (endDate.isBefore(startDate)) throw new IllegalArgumentException(DATES_NOT_VALID);
+
+        List<LocalityVO> localities = importEvent.localitiesEvent();
+        if (localities == null || localities.isEmpty()) throw new IllegalArgumentException(LOCALITIES_REQUIRED);
+
+        Set<String> ids = new HashSet<>();
+        long capacity = 0;
+        for (LocalityVO locality : localities) {
+            if (locality == null || !StringUtils.hasText(locality.getIdLocality()) || !StringUtils.hasText(locality.getNameLocality())
+                    || locality.getCapacityLocality() <= 0 || locality.getPriceLocality() < 0) {
+                throw new IllegalArgumentException(LOCALITIES_NOT_VALID);
+            }
+            if (!ids.add(locality.getIdLocality())) throw new IllegalArgumentException(LOCALITY_REPEATED);
+
+            // A new event has not sold nor held anything
+            locality.setSoldLocality(0);
+            locality.setHeldLocality(0);
+            capacity += locality.getCapacityLocality();
+        }
+        if (capacity > Integer.MAX_VALUE) throw new IllegalArgumentException(LOCALITIES_NOT_VALID);
+
+        LocationVO location = importEvent.location();
+        GeoJsonPoint position = resolveLocation(location, tree);
+
+        Event event = new Event();
+        event.setIdEvent(new ObjectId().toHexString());
+        event.setName(importEvent.nameEvent().trim());
+        event.setState(State.ACTIVE);
+        event.setStartDate(startDate);
+        event.setEndDate(endDate);
+        event.setAddress(importEvent.address().trim());
+        event.setLocations(location);
+        event.setPosition(position);
+        event.setLocalitiesEvent(localities);
+        event.setCapacity((int) capacity);
+        event.setImages(new HashMap<>());
+        event.setVersion(0L);
+        return event;
+    }
+
+    /**
+     * This method is used for check a location against the locations tree, already in memory, instead of
+     * querying the locations collection for every row. The names are stored as the dataset spells them and
+     * the coordinates missing are taken from the town of the postal code, or else from the first town of the city
+     * that has them. Towns without coordinates are stored as 0, 0 and never give a position
+     * @param location row's location, completed in place
+     * @param tree locations tree
+     * @return event's position, or null when neither the row nor the city have coordinates
+     */
+    private GeoJsonPoint resolveLocation(LocationVO location, LocationTree tree) {
+        if (location == null) throw new IllegalArgumentException(LOCATION_REQUIRED);
+
+        int country = tree.child(LocationTree.ROOT, location.getCountry());
+        int department = country < 0 ? -1 : tree.child(country, location.getDepartment());
+        int city = department < 0 ? -1 : tree.child(department, location.getCity());
+        if (city < 0 || tree.childCount(city) == 0) throw new IllegalArgumentException(LOCATION_NOT_FOUND);
+
+        int town = -1;
+        for (int node = tree.firstChild(city), end = node + tree.childCount(city); node < end; node++) {
+            if (location.getPostalCode() == 0 || tree.postalCode(node) == location.getPostalCode()) {
+                town = node;
+                break;
+            }
+        }
+        if (town < 0) throw new IllegalArgumentException(POSTAL_CODE_NOT_VALID);
+
+        location.setCountry(tree.name(country));
+        location.setDepartment(tree.name(department));
+        location.setCity(tree.name(city));
+        location.setPostalCode(tree.postalCode(town));
+        if (location.getLatitude() == null || location.getLongitude() == null
+                || (location.getLatitude() == 0 && location.getLongitude() == 0)) {
+            int positioned = tree.hasCoordinates(town) ? town : positionedTown(tree, city);
+            if (positioned < 0) {
+                location.setLatitude(null);
+                location.setLongitude(null);
+                return null;
+            }
+            location.setLatitude(tree.latitude(positioned));
+            location.setLongitude(tree.longitude(positioned));
+        }
+        return new GeoJsonPoint(location.getLongitude(), location.getLatitude());
+    }
+
+    private int positionedTown(LocationTree tree, int city) {
+        for (int node = tree.firstChild(city), end = node + tree.childCount(city); node < end; node++) {
+            if (tree.hasCoordinates(node)) return node;
+        }
+        return -1;
+    }
+
+    private LocalDate parseDate(String value, String field) {
+        if (!StringUtils.hasText(value)) throw new IllegalArgumentException(field + " is required");
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " is not valid");
+        }
+    }
+
+    /**
+     * Rows of the file waiting to be written. The results keep the order of the rows, the rejected ones
+     * are filled right away and the others once the bulk insert of the batch answers
+     */
+    private class ImportBatch {
+
+        private final OutputStream output;
+        private final LocationTree tree;
+        private final ObjectWriter writer = objectMapper.writer();
+        private final List<ImportResultDTO> results = new ArrayList<>();
+        private List<Event> events = new ArrayList<>();
+        private final List<Integer> slots = new ArrayList<>();
+
+        ImportBatch(OutputStream output, LocationTree tree) {
+            this.output = output;
+            this.tree = tree;
+        }
+
+        void add(int row, ImportEventDTO importEvent) throws IOException {
+            Event event;
+            try {
+                event = toEvent(importEvent, tree);
+            } catch (IllegalArgumentException e) {
+                reject(row, e.getMessage());
+                return;
+            }
+
+            slots.add(results.size());
+            results.add(new ImportResultDTO(row, event.getIdEvent(), State.SUCCESS, null));
+            events.add(event);
+            if (results.size() >= batchSize) flush();
+        }
+
+        void reject(int row, String message) throws IOException {
+            results.add(new ImportResultDTO(row, null, State.ERROR, message));
+            if (results.size() >= batchSize) flush();
+        }
+
+        void flush() throws IOException {
+            if (!events.isEmpty()) {
+                insert();
+            }
+
+            for (ImportResultDTO result : results) {
+                output.write(writer.writeValueAsBytes(result));
+                output.write('\n');
+            }
+            output.flush();
+
+            // The inserted list may still be referenced by the bulk operation, the next batch starts a new one
+            results.clear();
+            events = new ArrayList<>();
+            slots.clear();
+        }
+
+        private void insert() {
+            // Unordered: a failed document does not stop the rest of the batch
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class);
+            bulk.insert(events);
+
+            Map<Integer, String> failed = new HashMap<>();
+            try {
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failed.put(error.getIndex(), error.getMessage());
+                }
+            }
+
+            for (int i = 0; i < events.size(); i++) {
+                String message = failed.get(i);
+                if (message == null) continue;
+
+                int slot = slots.get(i);
+                results.set(slot, new ImportResultDTO(results.get(slot).row(), null, State.ERROR, message));
+            }
+
+            if (failed.size() < events.size()) {
+                Cache pages = cacheManager.getCache(CacheConfig.EVENT_PAGES);
+                if (pages != null) pages.clear();
+
+                for (int i = 0; i < events.size(); i++) {
+                    if (!failed.containsKey(i)) eventPublisher.publishEvent(new CatalogChangeEvent(events.get(i).getIdEvent()));
+                }
+            }
+        }
+    }
+}
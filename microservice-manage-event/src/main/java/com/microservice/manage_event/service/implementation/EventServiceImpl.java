@@ -1,33 +1,61 @@
 package com.microservice.manage_event.service.implementation;
 
-import com.microservice.manage_event.client.ManageUserClient;
 import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
 import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
 import com.microservice.manage_event.persistence.model.vo.LocalityVO;
 import com.microservice.manage_event.persistence.model.vo.LocationVO;
 import com.microservice.manage_event.persistence.repository.EventRepository;
 import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
 import com.microservice.manage_event.presentation.dto.*;
-import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
 import com.microservice.manage_event.service.exception.ErrorResponseException;
 import com.microservice.manage_event.service.interfaces.EventService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.ConflictRetryExecutor;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import com.microservice.manage_event.utils.StockCache;
 import com.microservice.manage_event.utils.mapper.EventMapper;
-import com.microservice.manage_user.persistence.model.entities.User;
-import com.microservice.manage_user.persistence.model.vo.EventVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.stream.Stream;
 
 
 @Service
@@ -36,19 +64,71 @@ public class EventServiceImpl implements EventService {
     final EventRepository eventRepository;
     final EventMapper eventMapper;
     final MongoTemplate mongoTemplate;
-    final ImagesServiceImpl imagesService;
-    final ManageUserClient manageUserClient;
+    final ImageJobServiceImpl imageJobService;
+    final ObjectMapper objectMapper;
+    final EventSearchIndex searchIndex;
+    final ApplicationEventPublisher eventPublisher;
+    final ConflictRetryExecutor conflictRetry;
+    final EventStatsServiceImpl eventStatsService;
+    final RecommendationServiceImpl recommendationService;
+    final LocationServiceImpl locationService;
+    final StockCache stockCache;
 
     private static final String NOT_FOUND = "Event not found";
     private static final String ID_NOT_VALID = "Id is not valid";
     private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
-
-    public EventServiceImpl(EventRepository eventRepository, EventMapper eventMapper, MongoTemplate mongoTemplate, ImagesServiceImpl imagesService, ManageUserClient manageUserClient) {
+    private static final String CURSOR_NOT_VALID = "Cursor is not valid";
+    private static final String START_DATE = "startDate";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int BULK_SIZE = 500;
+    private static final String DISTANCE = "distance";
+    private static final double MAX_RADIUS_KM = 500;
+    private static final String FIELD_NOT_VALID = "Field is not valid: ";
+    private static final String CAPACITY = "capacity";
+    private static final String EVENT = "event";
+    private static final String VERSION = "version";
+    private static final String LOCALITIES = "localitiesEvent";
+    private static final String[] EDITABLE_FIELDS = {"name", "address", START_DATE, "endDate"};
+    private static final String LOCALITY_IDS = "localitiesEvent.idLocality";
+    private static final String LOCALITY = "locality";
+    private static final String LOCALITY_ID = "$$locality.idLocality";
+    private static final Document LOCALITIES_OR_EMPTY = new Document("$ifNull", List.of("$localitiesEvent", List.of()));
+
+    // Tickets of the locality already sold or held
+    private static final Document TAKEN = new Document("$add", List.of(
+            new Document("$ifNull", List.of("$$locality.soldLocality", 0)),
+            new Document("$ifNull", List.of("$$locality.heldLocality", 0))));
+
+    // Runs after the localities stage of a pipeline update, so the capacity is summed from the new list
+    private static final Document TOTAL_CAPACITY = new Document("$sum", "$localitiesEvent.capacityLocality");
+
+    // Only what an event card shows is read from the database
+    private static final String[] CARD_FIELDS = {"name", START_DATE, "endDate", "locations.city", "images", "imageVariants",
+            "localitiesEvent.priceLocality", "localitiesEvent.capacityLocality",
+            "localitiesEvent.soldLocality", "localitiesEvent.heldLocality"};
+
+    // Fields that can be requested with fields=, attendees are only listed by the attendees endpoint
+    private static final Set<String> SPARSE_FIELDS = Set.of("name", "state", START_DATE, "endDate", "images", "imageVariants",
+            "locations", "address", "capacity", "ticketsSold", "attendeesCount", "localitiesEvent");
+
+    public EventServiceImpl(EventRepository eventRepository, EventMapper eventMapper, MongoTemplate mongoTemplate, ImageJobServiceImpl imageJobService, ObjectMapper objectMapper,
+                            EventSearchIndex searchIndex, ApplicationEventPublisher eventPublisher, ConflictRetryExecutor conflictRetry,
+                            EventStatsServiceImpl eventStatsService, RecommendationServiceImpl recommendationService,
+                            LocationServiceImpl locationService, StockCache stockCache) {
         this.eventRepository = eventRepository;
         this.eventMapper = eventMapper;
         this.mongoTemplate = mongoTemplate;
-        this.imagesService = imagesService;
-        this.manageUserClient = manageUserClient;
+        this.imageJobService = imageJobService;
+        this.objectMapper = objectMapper;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.conflictRetry = conflictRetry;
+        this.eventStatsService = eventStatsService;
+        this.recommendationService = recommendationService;
+        this.locationService = locationService;
+        this.stockCache = stockCache;
     }
 
     /**
@@ -57,6 +137,7 @@ public class EventServiceImpl implements EventService {
      * @return event
      */
     @Override
+    @Cacheable(cacheNames = CacheConfig.EVENTS, key = "#idEvent", unless = "#result.idEvent == null")
     public Event getEvent(String idEvent) {
         try {
             // Validate idEvent
@@ -82,26 +163,63 @@ public class EventServiceImpl implements EventService {
     }
 
     /**
-     * This method is used for get all events
-     * @return event list
+     * This method is used for get a page of event cards ordered by start date
+     * @param cursor (optional) cursor returned with the previous page
+     * @param size page size
+     * @return event card page and the cursor of the next one
      */
     @Override
-    public List<Event> getEvents() {
-        try {
-            // Get events of the database
-            List<Event> events = eventRepository.findAll();
+    @Cacheable(CacheConfig.EVENT_PAGES)
+    public EventPageDTO<EventCardDTO> getEvents(String cursor, int size) {
+        EventPageDTO<Event> page = findEventPage(cursor, size, CARD_FIELDS);
+        return new EventPageDTO<>(page.items().stream().map(eventMapper::eventEntityToEventCardDTO).toList(), page.nextCursor());
+    }
 
-            // Validate that event is no empty
-            if (events.isEmpty()){
-                throw new ResourceNotFoundException("Events not found");
-            }
+    /**
+     * This method is used for get a page of events ordered by start date with only the requested fields
+     * @param cursor (optional) cursor returned with the previous page
+     * @param size page size
+     * @param fields comma separated event fields
+     * @return page of events as field maps and the cursor of the next one
+     */
+    @Override
+    public EventPageDTO<Map<String, Object>> getEvents(String cursor, int size, String fields) {
+        Set<String> selected = parseFields(fields);
+
+        // The start date is always read because the next cursor is built from it
+        Set<String> projection = new LinkedHashSet<>(selected);
+        projection.add(START_DATE);
+
+        EventPageDTO<Event> page = findEventPage(cursor, size, projection.toArray(new String[0]));
+        return new EventPageDTO<>(page.items().stream().map(event -> selectFields(event, selected)).toList(), page.nextCursor());
+    }
 
-            // return event list
-            return events;
-        } catch (ResourceNotFoundException e){
-            //return list empty
-            return new ArrayList<>();
+    /**
+     * This method is used for write every event as newline delimited JSON while it is read from the database
+     * @param outputStream response stream
+     */
+    @Override
+    public void streamEvents(OutputStream outputStream) throws IOException {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, START_DATE, "_id"))
+                .cursorBatchSize(STREAM_BATCH_SIZE);
+
+        ObjectWriter writer = objectMapper.writer();
+        int written = 0;
+
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            Iterator<Event> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+
+                // Flush the first event right away, then once per batch
+                if (written++ % STREAM_BATCH_SIZE == 0) {
+                    outputStream.flush();
+                }
+            }
         }
+        outputStream.flush();
     }
 
     /**
@@ -110,6 +228,7 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
     public State createEvent(CreateEventDTO createEventDTO, LocationVO location, List<LocalityVO> localities) {
         try {
 
@@ -123,6 +242,17 @@ public class EventServiceImpl implements EventService {
             event.setLocations(location);
             event.setLocalitiesEvent(localities);
 
+            // Keep the coordinates on the event for the nearby search
+            GeoJsonPoint position = resolvePosition(location);
+            if (position != null) {
+                location.setLatitude(position.getY());
+                location.setLongitude(position.getX());
+                event.setPosition(position);
+            } else if (location != null) {
+                location.setLatitude(null);
+                location.setLongitude(null);
+            }
+
             // Calculate total capacity by summing up the capacity of all localities
             int totalCapacity = localities
                     .stream()
@@ -132,8 +262,9 @@ public class EventServiceImpl implements EventService {
             // Set the calculated total capacity and initialize ticketsSold to 0
             event.setCapacity(totalCapacity);
 
-            // Upload images to Cloudinary and get URLs
+            // The images are uploaded in the background, until then their slots are PENDING
             Map<String, String> imageLinks = new HashMap<>();
+            Map<String, MultipartFile> pendingImages = new LinkedHashMap<>();
 
             if (createEventDTO.getImages() != null && !createEventDTO.getImages().isEmpty()) {
                 for (MultipartFile image : createEventDTO.getImages()) {
@@ -144,12 +275,8 @@ public class EventServiceImpl implements EventService {
 
                     String newFilename = originalFilename.substring(0, originalFilename.lastIndexOf('.')).replace(".", "_").replace(" ", "_");
 
-                    // Upload image
-                    Map<?, ?> uploadResult = imagesService.uploadImage(image);
-                    String imageUrl = (String) uploadResult.get("secure_url");
-
-                    // Add link to the event
-                    imageLinks.put(newFilename, imageUrl);
+                    imageLinks.put(newFilename, ImageJobState.PENDING.name());
+                    pendingImages.put(newFilename, image);
                 }
             }
 
@@ -158,6 +285,17 @@ public class EventServiceImpl implements EventService {
             // Update in the repository
             eventRepository.save(event);
 
+            if (!pendingImages.isEmpty()) {
+                try {
+                    imageJobService.enqueueImages(event.getIdEvent(), pendingImages);
+                } catch (IOException | RuntimeException e) {
+                    // Without its jobs the event would keep its images PENDING forever
+                    eventRepository.delete(event);
+                    throw e;
+                }
+            }
+            eventPublisher.publishEvent(new CatalogChangeEvent(event.getIdEvent()));
+
             // return success state
             return State.SUCCESS;
         } catch (IllegalArgumentException | IOException e){
@@ -172,13 +310,17 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.EVENTS, key = "#idEvent"),
+            @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
+    })
     public State deleteEvent(String idEvent) throws ResourceNotFoundException {
         if (!StringUtils.hasText(idEvent)){
             throw new IllegalArgumentException(ID_NOT_VALID);
         }
 
         Query query = new Query();
-        query.addCriteria(Criteria.where("_idEvent").is(idEvent));
+        query.addCriteria(Criteria.where("_id").is(idEvent));
 
         Update update = new Update().set("state", State.INACTIVE);
 
@@ -191,6 +333,8 @@ public class EventServiceImpl implements EventService {
         if (result.getModifiedCount() == 0) {
             throw new ErrorResponseException("Failed changing code");
         }
+
+        eventPublisher.publishEvent(new CatalogChangeEvent(idEvent));
         return State.SUCCESS;
     }
 
@@ -201,6 +345,10 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.EVENTS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
+    })
     public State updateEvent(UpdateEventDTO updateEventDTO, String id) {
         // Validates that updateUserDTO is not null
         if (updateEventDTO == null){
@@ -211,41 +359,44 @@ public class EventServiceImpl implements EventService {
             throw new IllegalArgumentException(ID_NOT_VALID);
         }
 
-        // Gets the event that is in the database
-        Event event = getEvent(id);
+        // An edit that lost against a concurrent edit reads the event again and reapplies the changes
+        return conflictRetry.execute(EVENT, () -> {
+            // Only the edited fields are read and written, so the counters raised during a sale never conflict with it
+            Query byId = new Query(Criteria.where("_id").is(id));
+            byId.fields().include(EDITABLE_FIELDS);
+            Event event = mongoTemplate.findOne(byId, Event.class);
+            if (event == null) {
+                throw new IllegalArgumentException(NOT_FOUND);
+            }
 
-        // A boolean variable is defined as needsUpdate and is initializing as false
-        boolean needsUpdate = false;
+            Criteria unchanged = Criteria.where("_id").is(id);
+            Update update = new Update();
+            setIfChanged(unchanged, update, "name", event.getName(), updateEventDTO.nameEvent());
+            setIfChanged(unchanged, update, "address", event.getAddress(), updateEventDTO.address());
+            setIfChanged(unchanged, update, START_DATE, event.getStartDate(), updateEventDTO.startDate());
+            setIfChanged(unchanged, update, "endDate", event.getEndDate(), updateEventDTO.endDate());
 
-        // Validates if name of the event changed
-        if (!updateEventDTO.nameEvent().equals(event.getName())) {
-            event.setName(updateEventDTO.nameEvent());
-            needsUpdate = true;
-        }
+            // Only writes if the parameters changed
+            if (update.getUpdateObject().isEmpty()) {
+                return State.SUCCESS;
+            }
 
-        // Validates if address of the event changed
-        if (!updateEventDTO.address().equals(event.getAddress())) {
-            event.setAddress(updateEventDTO.address());
-            needsUpdate = true;
-        }
+            // The write only applies while the changed fields still hold the values read
+            UpdateResult result = mongoTemplate.updateFirst(new Query(unchanged), update, Event.class);
+            if (result.getMatchedCount() == 0) {
+                throw new OptimisticLockingFailureException("Event " + id + " was edited concurrently");
+            }
 
-        // Validates if phoneNumber of the event changed
-        if (!updateEventDTO.startDate().equals(event.getStartDate())) {
-            event.setStartDate(updateEventDTO.startDate());
-            needsUpdate = true;
-        }
+            eventPublisher.publishEvent(new CatalogChangeEvent(id));
+            return State.SUCCESS;
+        });
+    }
 
-        // Validate if emailAddress of the event changed
-        if (!updateEventDTO.endDate().equals(event.getEndDate())) {
-            event.setEndDate(updateEventDTO.endDate());
-            needsUpdate = true;
-        }
+    private void setIfChanged(Criteria unchanged, Update update, String field, Object current, Object value) {
+        if (Objects.equals(current, value)) return;
 
-        // Only saves the information if the parameters changed
-        if (needsUpdate) {
-            eventRepository.save(event);
-        }
-        return State.SUCCESS;
+        unchanged.and(field).is(current);
+        update.set(field, value);
     }
 
     /**
@@ -255,10 +406,66 @@ public class EventServiceImpl implements EventService {
      * @param endDate event's endDate
      * @param address event's address
      * @param capacity event's capacity
-     * @return event's list filtered
+     * @return event card's list filtered
      */
     @Override
-    public List<Event> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity) {
+    public List<EventCardDTO> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity) {
+        return findFiltered(name, startDate, endDate, address, capacity, CARD_FIELDS).stream()
+                .map(eventMapper::eventEntityToEventCardDTO)
+                .toList();
+    }
+
+    /**
+     * This method is used for to filter events returning only the requested fields
+     * @param name event's name
+     * @param startDate event's startDate
+     * @param endDate event's endDate
+     * @param address event's address
+     * @param capacity event's capacity
+     * @param fields comma separated event fields
+     * @return event's list filtered as field maps
+     */
+    @Override
+    public List<Map<String, Object>> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity, String fields) {
+        Set<String> selected = parseFields(fields);
+
+        return findFiltered(name, startDate, endDate, address, capacity, selected.toArray(new String[0])).stream()
+                .map(event -> selectFields(event, selected))
+                .toList();
+    }
+
+    private List<Event> findFiltered(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity, String... fields) {
+        // The regex scan is only used until the search index is loaded
+        if (!searchIndex.isReady()) {
+            Query query = buildFilterQuery(name, startDate, endDate, address, capacity);
+            query.fields().include(fields);
+            return mongoTemplate.find(query, Event.class);
+        }
+
+        if (name == null) throw new NullPointerException(PARAMETER_NOT_VALID);
+        if (name.isEmpty()) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        List<String> ranked = searchIndex.search(name, address, startDate, endDate, capacity);
+        if (ranked.isEmpty()) return Collections.emptyList();
+
+        Query query = new Query(Criteria.where("_id").in(ranked));
+        query.fields().include(fields);
+
+        // Return the events in the order given by the index
+        Map<String, Event> found = new HashMap<>();
+        for (Event event : mongoTemplate.find(query, Event.class)) {
+            found.put(event.getIdEvent(), event);
+        }
+
+        List<Event> events = new ArrayList<>(found.size());
+        for (String idEvent : ranked) {
+            Event event = found.get(idEvent);
+            if (event != null) events.add(event);
+        }
+        return events;
+    }
+
+    private Query buildFilterQuery(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity) {
         Query query = new Query();
         List<Criteria> criteriaList = new ArrayList<>();
 
@@ -310,16 +517,159 @@ public class EventServiceImpl implements EventService {
             query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
         }
 
-        return mongoTemplate.find(query, Event.class);
+        return query;
+    }
+
+    /**
+     * This method is used for get the link of one size of an event image
+     * @param idEvent event's id
+     * @param slot image's key in the images map
+     * @param variant size wanted, null for the original
+     * @return link of the variant, or of the original while the variants do not exist
+     * @throws ResourceNotFoundException when the event or the image do not exist or the image is not uploaded yet
+     */
+    @Override
+    public String getImageLink(String idEvent, String slot, ImageVariant variant) throws ResourceNotFoundException {
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(slot)) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
+
+        Query query = new Query(Criteria.where("_id").is(idEvent));
+        query.fields().include("images", "imageVariants");
+
+        Event event = mongoTemplate.findOne(query, Event.class);
+        String link = event == null ? null : eventMapper.imageLink(event, slot, variant);
+        if (link == null) throw new ResourceNotFoundException(NOT_FOUND);
+
+        return link;
+    }
+
+    /**
+     * This method is used for get the upcoming events around a point, the closest first
+     * @param latitude point's latitude
+     * @param longitude point's longitude
+     * @param radiusKm search radius in kilometers
+     * @param page page number, starting at 0
+     * @param size page size
+     * @return events with their distance to the point
+     */
+    @Override
+    public List<NearbyEventDTO> findNearby(double latitude, double longitude, double radiusKm, int page, int size) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180 || radiusKm <= 0 || page < 0) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        // GeoJSON distances are in meters
+        NearQuery near = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .maxDistance(Math.min(radiusKm, MAX_RADIUS_KM) * 1000)
+                .query(new Query(Criteria.where("state").ne(State.INACTIVE).and("endDate").gte(LocalDate.now())));
+
+        // Only what an event card needs leaves the database
+        Document projection = new Document(DISTANCE, 1);
+        for (String field : CARD_FIELDS) {
+            projection.append(field, 1);
+        }
+
+        TypedAggregation<Event> aggregation = Aggregation.newAggregation(Event.class,
+                Aggregation.geoNear(near, DISTANCE),
+                Aggregation.skip((long) page * pageSize),
+                Aggregation.limit(pageSize),
+                context -> new Document("$project", projection));
+
+        List<NearbyEventDTO> nearby = new ArrayList<>();
+        for (Document document : mongoTemplate.aggregate(aggregation, Document.class).getMappedResults()) {
+            Event event = mongoTemplate.getConverter().read(Event.class, document);
+            double distanceKm = ((Number) document.get(DISTANCE)).doubleValue() / 1000;
+            nearby.add(new NearbyEventDTO(eventMapper.eventEntityToEventCardDTO(event), distanceKm));
+        }
+        return nearby;
+    }
+
+    /**
+     * This method is used for add the coordinates to the events stored before they were denormalized, and fix
+     * the ones stored at 0, 0 from locations without coordinates
+     * @return events updated
+     */
+    @Override
+    public int backfillPositions() {
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("locations").ne(null),
+                new Criteria().orOperator(
+                        Criteria.where("position").exists(false),
+                        Criteria.where("position.coordinates").is(List.of(0.0, 0.0)))));
+        query.fields().include("locations", "position");
+
+        Map<String, Optional<GeoJsonPoint>> resolved = new HashMap<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class);
+        int pending = 0;
+        int updated = 0;
+
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            Iterator<Event> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                Event event = iterator.next();
+
+                // Many events share a city, its coordinates are resolved once
+                LocationVO location = event.getLocations();
+                GeoJsonPoint position = resolved.computeIfAbsent(location.getPostalCode() + "|" + location.getCity(),
+                        key -> Optional.ofNullable(resolvePosition(location))).orElse(null);
+                if (position == null && event.getPosition() == null) continue;
+
+                if (position == null) {
+                    // Nowhere to place it, the event leaves the nearby search instead of showing at 0, 0
+                    bulk.updateOne(new Query(Criteria.where("_id").is(event.getIdEvent())), new Update()
+                            .unset("position")
+                            .unset("locations.latitude")
+                            .unset("locations.longitude"));
+                } else {
+                    bulk.updateOne(new Query(Criteria.where("_id").is(event.getIdEvent())), new Update()
+                            .set("position", position)
+                            .set("locations.latitude", position.getY())
+                            .set("locations.longitude", position.getX()));
+                }
+
+                if (++pending == BULK_SIZE) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class);
+                    pending = 0;
+                }
+            }
+        }
+
+        if (pending > 0) updated += bulk.execute().getModifiedCount();
+        return updated;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPositionsOnStartup() {
+        backfillPositions();
+    }
+
+    /**
+     * This method is used for start the version of the events stored before they were versioned,
+     * a save of an event without version would be taken as an insert and fail
+     * @return events updated
+     */
+    @Override
+    public long backfillVersions() {
+        Query query = new Query(Criteria.where(VERSION).exists(false));
+        return mongoTemplate.updateMulti(query, new Update().set(VERSION, 0L), Event.class).getModifiedCount();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVersionsOnStartup() {
+        backfillVersions();
     }
 
     /**
-     * This method is used for get global Event Stats
+     * This method is used for get global Event Stats, kept up to date in globalStats
      * @return Event's global stats
      */
     @Override
     public List<GlobalEventStatsDTO> getEventStatistics() {
-        return eventRepository.getGlobalEventStats();
+        return List.of(eventStatsService.getGlobalStats());
     }
 
     /**
@@ -329,31 +679,26 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.EVENTS, key = "#idEvent"),
+            @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
+    })
     public State createLocality(String idEvent, CreateLocalityDTO newLocality) {
+        if (!StringUtils.hasText(idEvent) || newLocality == null || !StringUtils.hasText(newLocality.idLocality())
+                || newLocality.capacityLocality() <= 0 || newLocality.priceLocality() < 0) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
 
-        Optional<Event> optionalEvent = eventRepository.findById(idEvent);
-
-        if (optionalEvent.isPresent()) {
-            Event event = optionalEvent.get();
-
-            LocalityVO localityVO = eventMapper.createLocalityDTOToLocalityVO(newLocality);
-
-            // Add new locality to the event
-            event.getLocalitiesEvent().add(localityVO);
+        LocalityVO localityVO = eventMapper.createLocalityDTOToLocalityVO(newLocality);
 
-            // Update the total capacity of event
-            int totalCapacity = event.getLocalitiesEvent().stream()
-                    .filter(Objects::nonNull)  // Filtra los valores nulos si es necesario
-                    .mapToInt(LocalityVO::getCapacityLocality)  // Suponiendo que tienes un método getCapacity
-                    .sum();
-            event.setCapacity(totalCapacity);
+        // Push the locality and grow the capacity in one write, an id already in the event is not added twice
+        Query query = new Query(Criteria.where("_id").is(idEvent)
+                .and(LOCALITY_IDS).ne(newLocality.idLocality()));
+        Update update = new Update()
+                .push(LOCALITIES, localityVO)
+                .inc(CAPACITY, newLocality.capacityLocality());
 
-            // Save event with new locality
-            eventRepository.save(event);
-            return State.SUCCESS;
-        } else {
-            return State.ERROR;
-        }
+        return applyLocalityChange(idEvent, query, update);
     }
 
     /**
@@ -363,28 +708,27 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.EVENTS, key = "#idEvent"),
+            @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
+    })
     public State deleteLocality(String idEvent, String idLocality) {
-        Optional<Event> optionalEvent = eventRepository.findById(idEvent);
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idLocality)){
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
 
-        if (optionalEvent.isPresent()) {
-            Event event = optionalEvent.get();
+        Document withoutLocality = new Document("$filter", new Document("input", LOCALITIES_OR_EMPTY)
+                .append("as", LOCALITY)
+                .append("cond", new Document("$ne", List.of(LOCALITY_ID, idLocality))));
 
-            // Delete locality by id
-            boolean removed = event.getLocalitiesEvent().removeIf(loc -> loc.getIdLocality().equals(idLocality));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(LOCALITIES).toValue(withoutLocality)
+                .set(CAPACITY).toValue(TOTAL_CAPACITY);
 
-            if (removed) {
-                // Recalculate the total capacity
-                int totalCapacity = event.getLocalitiesEvent()
-                        .stream()
-                        .mapToInt(LocalityVO::getCapacityLocality)
-                        .sum();
-                event.setCapacity(totalCapacity);
+        // A locality with sold or held tickets is kept, its holds and sales still count against it
+        Document untouched = new Document("$eq", List.of(TAKEN, 0));
 
-                eventRepository.save(event);
-                return State.SUCCESS;
-            }
-        }
-        return State.ERROR;
+        return applyLocalityChange(idEvent, localityQuery(idEvent, idLocality, untouched), update);
     }
 
     /**
@@ -395,112 +739,194 @@ public class EventServiceImpl implements EventService {
      * @return state action
      */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.EVENTS, key = "#idEvent"),
+            @CacheEvict(cacheNames = CacheConfig.EVENT_PAGES, allEntries = true)
+    })
     public State updateLocality(String idEvent, String idLocality, UpdateLocalityDTO updatedLocalityDTO) {
-        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idLocality)){
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idLocality) || updatedLocalityDTO == null
+                || updatedLocalityDTO.capacityLocality() <= 0 || updatedLocalityDTO.priceLocality() < 0){
             throw new IllegalArgumentException(PARAMETER_NOT_VALID);
         }
 
-        Optional<Event> optionalEvent = eventRepository.findById(idEvent);
+        // Literal keeps a name starting with $ from being read as a field path
+        Document changes = new Document("nameLocality", new Document("$literal", updatedLocalityDTO.nameLocality()))
+                .append("capacityLocality", updatedLocalityDTO.capacityLocality())
+                .append("priceLocality", updatedLocalityDTO.priceLocality());
 
-        if (optionalEvent.isPresent()) {
-            Event event = optionalEvent.get();
+        Document updatedLocalities = new Document("$map", new Document("input", LOCALITIES_OR_EMPTY)
+                .append("as", LOCALITY)
+                .append("in", new Document("$cond", List.of(
+                        new Document("$eq", List.of(LOCALITY_ID, idLocality)),
+                        new Document("$mergeObjects", List.of("$$" + LOCALITY, changes)),
+                        "$$" + LOCALITY))));
 
-            // Search locality to modify
-            LocalityVO locality = event.getLocalitiesEvent().stream()
-                    .filter(loc -> loc.getIdLocality().equals(idLocality))
-                    .findFirst()
-                    .orElse(null);
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(LOCALITIES).toValue(updatedLocalities)
+                .set(CAPACITY).toValue(TOTAL_CAPACITY);
 
-            if (locality != null) {
-                // Update values of the locality
-                locality.setNameLocality(updatedLocalityDTO.nameLocality());
-                locality.setCapacityLocality(updatedLocalityDTO.capacityLocality());
-                locality.setPriceLocality(updatedLocalityDTO.priceLocality());
+        // The capacity never goes below the tickets already sold or held
+        Document fits = new Document("$gte", List.of(updatedLocalityDTO.capacityLocality(), TAKEN));
 
-                // Recalculate the total capacity of the event
-                int totalCapacity = event.getLocalitiesEvent()
-                        .stream()
-                        .mapToInt(LocalityVO::getCapacityLocality)
-                        .sum();
-                event.setCapacity(totalCapacity);
+        return applyLocalityChange(idEvent, localityQuery(idEvent, idLocality, fits), update);
+    }
 
-                eventRepository.save(event);
-                return State.SUCCESS;
-            }
+    private Query localityQuery(String idEvent, String idLocality, Document condition) {
+        // The condition is checked on the stored counters of the locality, in the same write that changes it
+        Document matches = new Document("$and", List.of(
+                new Document("$eq", List.of(LOCALITY_ID, idLocality)),
+                condition));
+        Document filter = new Document("$filter", new Document("input", LOCALITIES_OR_EMPTY)
+                .append("as", LOCALITY)
+                .append("cond", matches));
+
+        return new Query(Criteria.where("_id").is(idEvent).and(LOCALITY_IDS).is(idLocality)
+                .and("$expr").is(new Document("$gt", List.of(new Document("$size", filter), 0))));
+    }
+
+    // The guard and the change run in one single-document write, concurrent edits of other localities are kept
+    private State applyLocalityChange(String idEvent, Query query, UpdateDefinition update) {
+        UpdateResult result = mongoTemplate.updateFirst(query, update, Event.class);
+
+        if (result.getMatchedCount() == 0) {
+            return State.ERROR;
         }
-        return State.ERROR;
+
+        // The inventory reads capacities and prices from the stock cache, the next sale loads them again
+        stockCache.invalidate(idEvent);
+        eventPublisher.publishEvent(new CatalogChangeEvent(idEvent));
+        return State.SUCCESS;
     }
 
     /**
-     * This method is used for get Stats By Event
-     * @return Event's stats
+     * This method is used for get Stats By Event, kept up to date in eventStats
+     * @param sort value to sort by
+     * @param direction sort direction
+     * @param top (optional) number of first stats wanted, a single page without cursor
+     * @param cursor (optional) cursor returned with the previous page
+     * @param size stats by page
+     * @return Event's stats page
      */
     @Override
-    public List<ListEventStatsDTO> getStatisticsByEvent() {
-        return eventRepository.getEventStatsByEvent();
+    public EventPageDTO<ListEventStatsDTO> getStatisticsByEvent(StatsSort sort, Sort.Direction direction, Integer top,
+                                                                String cursor, int size) {
+        if (top != null) {
+            return new EventPageDTO<>(eventStatsService.getTopStats(sort, direction, top), null);
+        }
+        return eventStatsService.getStatsByEvent(sort, direction, cursor, size);
     }
 
+    /**
+     * This method is used for recommend upcoming events to a user, served by the recommendation index
+     * @param userId user's id
+     * @return up to 10 events by score
+     */
     @Override
     public List<EventRecommendationDTO> recommendEvents(String userId) {
-        // Obtener usuario actual
-        ResponseEntity<MessageDTO<User>> userResponse = manageUserClient.getUser(userId);
-        User currentUser = Optional.ofNullable(userResponse.getBody())
-                .map(MessageDTO::getData)
-                .orElseThrow(() -> new NullPointerException("Usuario no encontrado"));
-
-        // Obtener todos los eventos activos
-        List<Event> activeEvents = eventRepository.findActiveEventsAfterDate(LocalDateTime.now());
-
-        // Calcular puntuación para cada evento
-        List<EventRecommendationDTO> recommendations = new ArrayList<>();
-
-        for (Event event : activeEvents) {
-            double score = calculateRecommendationScore(event, currentUser);
-
-            if (score > 0) {
-                recommendations.add(new EventRecommendationDTO(
-                        event.getIdEvent(),
-                        event.getName(),
-                        score
-                ));
+        return recommendationService.recommendEvents(userId);
+    }
+
+    private GeoJsonPoint resolvePosition(LocationVO location) {
+        if (location == null) return null;
+
+        // Locations without coordinates are stored as 0, 0, they are looked up like the missing ones
+        if (location.getLatitude() != null && location.getLongitude() != null
+                && (location.getLatitude() != 0 || location.getLongitude() != 0)) {
+            return new GeoJsonPoint(location.getLongitude(), location.getLatitude());
+        }
+
+        // Take the coordinates from the locations already in memory, by postal code or else by city
+        Location found = locationService.findPositioned(location.getPostalCode(), location.getCity());
+        return found == null ? null : new GeoJsonPoint(found.getLongitude(), found.getLatitude());
+    }
+
+    private EventPageDTO<Event> findEventPage(String cursor, int size, String... fields) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        // Keyset pagination: continue right after the last (startDate, _id) of the previous page
+        Query query = new Query();
+        if (StringUtils.hasText(cursor)) {
+            query.addCriteria(afterCursor(cursor));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, START_DATE, "_id")).limit(pageSize + 1);
+        query.fields().include(fields);
+
+        List<Event> events = mongoTemplate.find(query, Event.class);
+
+        // One extra event is read to know if there is a next page
+        String nextCursor = null;
+        if (events.size() > pageSize) {
+            events = new ArrayList<>(events.subList(0, pageSize));
+            nextCursor = encodeCursor(events.get(pageSize - 1));
+        }
+        return new EventPageDTO<>(events, nextCursor);
+    }
+
+    private Set<String> parseFields(String fields) {
+        if (!StringUtils.hasText(fields)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) continue;
+            if (!SPARSE_FIELDS.contains(trimmed)) {
+                throw new IllegalArgumentException(FIELD_NOT_VALID + trimmed);
             }
+            selected.add(trimmed);
         }
 
-        // Ordenar por puntuación descendente
-        recommendations.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        if (selected.isEmpty()) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        return selected;
+    }
+
+    private Map<String, Object> selectFields(Event event, Set<String> fields) {
+        BeanWrapper wrapper = new BeanWrapperImpl(event);
 
-        return recommendations.subList(0, Math.min(10, recommendations.size()));
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("idEvent", event.getIdEvent());
+        for (String field : fields) {
+            values.put(field, wrapper.getPropertyValue(field));
+        }
+        return values;
     }
 
-    private double calculateRecommendationScore(Event event, User user) {
-        double score = 0.0;
+    private String encodeCursor(Event event) {
+        String startDate = event.getStartDate() == null ? "" : event.getStartDate().toString();
+        String value = startDate + "|" + event.getIdEvent();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
 
-        // Factor de ubicación (30% del peso)
-        if (user.getAddress().equals(event.getLocations().getCity())) {
-            score += 30;
+    private Criteria afterCursor(String cursor) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
         }
 
-        List<String> eventNames = user.getEventsUser()
-                .stream()
-                .map(EventVO::getName)
-                .toList();
+        int separator = value.indexOf('|');
+        if (separator < 0) throw new IllegalArgumentException(CURSOR_NOT_VALID);
 
-        // Factor de categorías preferidas (40% del peso)
-        Set<String> userPreferredCategories = new HashSet<>(eventNames);
-        if (userPreferredCategories.contains(event.getName())) {
-            score += 40;
+        String startDate = value.substring(0, separator);
+        String id = value.substring(separator + 1);
+        Object lastId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+
+        // Events without start date are sorted before the rest
+        if (startDate.isEmpty()) {
+            return new Criteria().orOperator(
+                    Criteria.where(START_DATE).is(null).and("_id").gt(lastId),
+                    Criteria.where(START_DATE).ne(null));
         }
 
-        // Factor de historial de eventos (30% del peso)
-        List<EventVO> userEventHistory = user.getEventsUser();
-        if (userEventHistory != null && !userEventHistory.isEmpty()) {
-            // Si el usuario ha asistido a eventos similares
-            long similarEventsAttended = userEventHistory.stream()
-                    .filter(e -> e.getName().equals(event.getName()))
-                    .count();
-            score += Math.min(similarEventsAttended * 5, 30); // Máximo 30 puntos
+        LocalDate lastStartDate;
+        try {
+            lastStartDate = LocalDate.parse(startDate);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
         }
 
-        return score;
+        return new Criteria().orOperator(
+                Criteria.where(START_DATE).gt(lastStartDate),
+                Criteria.where(START_DATE).is(lastStartDate).and("_id").gt(lastId));
     }
 }
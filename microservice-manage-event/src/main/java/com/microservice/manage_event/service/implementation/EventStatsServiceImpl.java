@@ -0,0 +1,528 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.EventStats;
+import com.microservice.manage_event.persistence.model.entities.GlobalStats;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.presentation.dto.GlobalEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.ListEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.StatsReconcileDTO;
+import com.microservice.manage_event.service.interfaces.EventStatsService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.LiteralOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Service
+public class EventStatsServiceImpl implements EventStatsService {
+
+    final MongoTemplate mongoTemplate;
+    final MeterRegistry meterRegistry;
+
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Sales> pendingSales = new ConcurrentHashMap<>();
+
+    private static final String GLOBAL = "global";
+    private static final String NAME = "name";
+    private static final String ACTIVE = "active";
+    private static final String TICKETS_SOLD = "ticketsSold";
+    private static final String CAPACITY = "capacity";
+    private static final String REVENUE = "revenue";
+    private static final String AVAILABLE = "available";
+    private static final String SELL_THROUGH = "sellThrough";
+    private static final String LOCALITIES = "localitiesEvent";
+    private static final String[] EVENT_FIELDS = {NAME, "state", CAPACITY, TICKETS_SOLD, LOCALITIES};
+    private static final String[] STATS_FIELDS = {NAME, TICKETS_SOLD, CAPACITY, REVENUE, AVAILABLE, SELL_THROUGH};
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String CURSOR_NOT_VALID = "Cursor is not valid";
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TOP = 1000;
+
+    public EventStatsServiceImpl(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * This method is used for get the totals of the active events, read from a single document
+     * @return global stats
+     */
+    @Override
+    public GlobalEventStatsDTO getGlobalStats() {
+        GlobalStats global = mongoTemplate.findById(GLOBAL, GlobalStats.class);
+        if (global == null) return new GlobalEventStatsDTO(0, 0, 0, 0);
+
+        return new GlobalEventStatsDTO(global.getTotalEvents(), global.getTotalTicketsSold(), global.getTotalCapacity(),
+                global.getTotalCapacity() - global.getTotalTicketsSold());
+    }
+
+    /**
+     * This method is used for get a page of the stats of the active events, sorted by one of their values
+     * @param sort value to sort by, tickets sold by default
+     * @param direction sort direction, descending by default
+     * @param cursor (optional) cursor returned with the previous page
+     * @param size stats by page
+     * @return stats page and the cursor of the next one
+     */
+    @Override
+    public EventPageDTO<ListEventStatsDTO> getStatsByEvent(StatsSort sort, Sort.Direction direction, String cursor, int size) {
+        StatsSort by = sort == null ? StatsSort.TICKETS_SOLD : sort;
+        Sort.Direction order = direction == null ? Sort.Direction.DESC : direction;
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        // Keyset pagination over the (active, value, _id) index: continue right after the last stats of the previous page
+        Query query = new Query(Criteria.where(ACTIVE).is(true));
+        if (StringUtils.hasText(cursor)) {
+            query.addCriteria(afterCursor(cursor, by, order));
+        }
+        query.with(Sort.by(order, by.field(), "_id")).limit(pageSize + 1);
+        query.fields().include(STATS_FIELDS);
+
+        List<EventStats> stats = mongoTemplate.find(query, EventStats.class);
+
+        // One extra stats is read to know if there is a next page
+        String nextCursor = null;
+        if (stats.size() > pageSize) {
+            stats = stats.subList(0, pageSize);
+            nextCursor = encodeCursor(stats.get(pageSize - 1), by);
+        }
+        return new EventPageDTO<>(stats.stream().map(this::toListEventStats).toList(), nextCursor);
+    }
+
+    /**
+     * This method is used for get the first stats of the active events by one of their values. The stats
+     * go through a heap bounded to the limit, so only the limit is ever kept and sorted
+     * @param sort value to rank by, tickets sold by default
+     * @param direction DESC for the highest values, ASC for the lowest, descending by default
+     * @param limit stats wanted, up to 1000
+     * @return stats ranked by the value
+     */
+    @Override
+    public List<ListEventStatsDTO> getTopStats(StatsSort sort, Sort.Direction direction, int limit) {
+        if (limit <= 0 || limit > MAX_TOP) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        StatsSort by = sort == null ? StatsSort.TICKETS_SOLD : sort;
+        Comparator<EventStats> ranking = Comparator.comparingDouble(by::value).thenComparing(EventStats::getIdEvent);
+        if (direction != Sort.Direction.ASC) ranking = ranking.reversed();
+
+        // The head of the heap is the worst stats kept, the one a better stats replaces
+        PriorityQueue<EventStats> heap = new PriorityQueue<>(limit + 1, ranking.reversed());
+
+        Query query = new Query(Criteria.where(ACTIVE).is(true)).cursorBatchSize(RECONCILE_BATCH_SIZE);
+        query.fields().include(STATS_FIELDS);
+        try (Stream<EventStats> stats = mongoTemplate.stream(query, EventStats.class)) {
+            Iterator<EventStats> iterator = stats.iterator();
+            while (iterator.hasNext()) {
+                EventStats eventStats = iterator.next();
+                if (heap.size() < limit) {
+                    heap.add(eventStats);
+                } else if (ranking.compare(eventStats, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(eventStats);
+                }
+            }
+        }
+
+        List<EventStats> top = new ArrayList<>(heap);
+        top.sort(ranking);
+        return top.stream().map(this::toListEventStats).toList();
+    }
+
+    /**
+     * This method is used for apply the sales and the catalog changes published since the last call.
+     * Every change moves the event's stats and the global totals with $inc, nothing is aggregated again
+     * @return events updated
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${stats.refresh-millis:1000}")
+    public synchronized int applyChanges() {
+        Totals totals = new Totals();
+
+        // Sales first: stats created from the event document already count its sales, adding them again would count them twice
+        Map<String, Sales> sales = drainSales();
+        Set<String> created = new HashSet<>();
+        for (Map.Entry<String, Sales> sale : sales.entrySet()) {
+            AggregationUpdate update = withDerivedFields(AggregationUpdate.update()
+                    .set(TICKETS_SOLD).toValue(ArithmeticOperators.valueOf(TICKETS_SOLD).add((int) sale.getValue().tickets()))
+                    .set(REVENUE).toValue(ArithmeticOperators.valueOf(REVENUE).add(sale.getValue().revenue())));
+            EventStats updated = mongoTemplate.findAndModify(byId(sale.getKey()), update,
+                    FindAndModifyOptions.options().returnNew(true), EventStats.class);
+
+            if (updated == null) {
+                // Stats not created yet, they are read from the event, which already counts the sale
+                refresh(sale.getKey(), totals);
+                created.add(sale.getKey());
+            } else if (updated.isActive()) {
+                totals.add(0, sale.getValue().tickets(), 0, sale.getValue().revenue());
+            }
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+        String idEvent;
+        while ((idEvent = pendingChanges.poll()) != null) {
+            changed.add(idEvent);
+        }
+        for (String id : changed) {
+            // Stats just created from the event already have its catalog changes
+            if (!created.contains(id)) refresh(id, totals);
+        }
+
+        if (!totals.isEmpty()) {
+            mongoTemplate.upsert(byId(GLOBAL), totals.toUpdate(), GlobalStats.class);
+        }
+
+        Set<String> updated = new HashSet<>(changed);
+        updated.addAll(sales.keySet());
+        return updated.size();
+    }
+
+    /**
+     * This method is used for build the stats again from the events collection and report how far
+     * the materialized ones had drifted. Events are compared by name, state, capacity and tickets sold;
+     * revenue depends on past prices and is only taken from the event when its stats are missing.
+     * Sales confirmed while the pass runs may show up as drift of the next pass
+     * @return events checked, fixed and removed and whether the global totals were fixed
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${stats.reconcile-millis:3600000}", initialDelayString = "${stats.reconcile-millis:3600000}")
+    public synchronized StatsReconcileDTO reconcileStats() {
+        applyChanges();
+
+        Totals expected = new Totals();
+        int checked = 0;
+        int drifted = 0;
+
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(RECONCILE_BATCH_SIZE);
+        query.fields().include(EVENT_FIELDS);
+
+        List<Event> batch = new ArrayList<>(RECONCILE_BATCH_SIZE);
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            Iterator<Event> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == RECONCILE_BATCH_SIZE || !iterator.hasNext()) {
+                    checked += batch.size();
+                    drifted += reconcileBatch(batch, expected);
+                    batch.clear();
+                }
+            }
+        }
+
+        int removed = removeOrphans();
+
+        GlobalStats global = mongoTemplate.findById(GLOBAL, GlobalStats.class);
+        boolean globalDrifted = global == null || !expected.matches(global);
+        if (globalDrifted) {
+            mongoTemplate.upsert(byId(GLOBAL), expected.toSet(), GlobalStats.class);
+        }
+
+        meterRegistry.counter("event.stats.drift", "scope", "event").increment(drifted + removed);
+        meterRegistry.counter("event.stats.drift", "scope", "global").increment(globalDrifted ? 1 : 0);
+        return new StatsReconcileDTO(checked, drifted, removed, globalDrifted);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileStatsOnStartup() {
+        // Stats of the events created before they were materialized
+        if (!mongoTemplate.exists(byId(GLOBAL), GlobalStats.class)) {
+            reconcileStats();
+        }
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (StringUtils.hasText(change.idEvent())) pendingChanges.add(change.idEvent());
+    }
+
+    @EventListener
+    public void onTicketsSold(TicketsSoldEvent sold) {
+        if (!StringUtils.hasText(sold.idEvent()) || sold.quantity() <= 0) return;
+
+        // Only counters are touched on the purchase path, the writes happen in applyChanges
+        pendingSales.merge(sold.idEvent(), new Sales(sold.quantity(), sold.quantity() * sold.price()), Sales::plus);
+    }
+
+    /**
+     * This method is used for take the pending sales by event
+     * @return tickets and revenue by event
+     */
+    private Map<String, Sales> drainSales() {
+        Map<String, Sales> byEvent = new LinkedHashMap<>();
+        for (String idEvent : pendingSales.keySet()) {
+            // remove is atomic with merge, a sale published meanwhile starts a new entry
+            Sales sales = pendingSales.remove(idEvent);
+            if (sales != null) byEvent.put(idEvent, sales);
+        }
+        return byEvent;
+    }
+
+    /**
+     * This method is used for copy the name, state and capacity of an event to its stats and move the global
+     * totals by the difference. The previous stats come back from the same write, so concurrent changes of
+     * the event are never counted twice
+     * @param idEvent event's id
+     * @param totals global changes of the current pass
+     */
+    private void refresh(String idEvent, Totals totals) {
+        Query query = byId(idEvent);
+        query.fields().include(EVENT_FIELDS);
+        Event event = mongoTemplate.findOne(query, Event.class);
+
+        if (event == null) {
+            totals.subtract(mongoTemplate.findAndRemove(byId(idEvent), EventStats.class));
+            return;
+        }
+
+        boolean active = event.getState() == State.ACTIVE;
+        AggregationUpdate update = withDerivedFields(AggregationUpdate.update()
+                .set(NAME).toValue(LiteralOperators.Literal.asLiteral(event.getName()))
+                .set(ACTIVE).toValue(active)
+                .set(CAPACITY).toValue(event.getCapacity())
+                // Sales are counted by applyChanges, the event only gives the starting values
+                .set(TICKETS_SOLD).toValue(ConditionalOperators.ifNull(TICKETS_SOLD).then(event.getTicketsSold()))
+                .set(REVENUE).toValue(ConditionalOperators.ifNull(REVENUE).then(revenueOf(event))));
+
+        EventStats previous = mongoTemplate.findAndModify(byId(idEvent), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(false), EventStats.class);
+
+        EventStats current = previous == null
+                ? new EventStats(idEvent, event.getName(), active, event.getTicketsSold(), event.getCapacity(), revenueOf(event))
+                : new EventStats(idEvent, event.getName(), active, previous.getTicketsSold(), event.getCapacity(), previous.getRevenue());
+        totals.subtract(previous);
+        totals.add(current);
+    }
+
+    private int reconcileBatch(List<Event> events, Totals expected) {
+        List<String> ids = events.stream().map(Event::getIdEvent).toList();
+        Map<String, EventStats> stored = new HashMap<>();
+        for (EventStats eventStats : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), EventStats.class)) {
+            stored.put(eventStats.getIdEvent(), eventStats);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventStats.class);
+        int drifted = 0;
+        for (Event event : events) {
+            EventStats current = stored.get(event.getIdEvent());
+            boolean active = event.getState() == State.ACTIVE;
+            double revenue = current == null ? revenueOf(event) : current.getRevenue();
+
+            EventStats fresh = new EventStats(event.getIdEvent(), event.getName(), active, event.getTicketsSold(), event.getCapacity(), revenue);
+            expected.add(fresh);
+
+            if (current == null || current.isActive() != active || current.getCapacity() != event.getCapacity()
+                    || current.getTicketsSold() != event.getTicketsSold() || !Objects.equals(current.getName(), event.getName())
+                    || current.getAvailable() != fresh.getAvailable() || current.getSellThrough() != fresh.getSellThrough()) {
+                bulk.upsert(byId(event.getIdEvent()), new Update()
+                        .set(NAME, fresh.getName())
+                        .set(ACTIVE, active)
+                        .set(CAPACITY, fresh.getCapacity())
+                        .set(TICKETS_SOLD, fresh.getTicketsSold())
+                        .set(REVENUE, revenue)
+                        .set(AVAILABLE, fresh.getAvailable())
+                        .set(SELL_THROUGH, fresh.getSellThrough()));
+                drifted++;
+            }
+        }
+
+        if (drifted > 0) bulk.execute();
+        return drifted;
+    }
+
+    /**
+     * This method is used for remove the stats of events that no longer exist
+     * @return stats removed
+     */
+    private int removeOrphans() {
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(RECONCILE_BATCH_SIZE);
+        query.fields().include("_id");
+
+        int removed = 0;
+        List<String> batch = new ArrayList<>(RECONCILE_BATCH_SIZE);
+        try (Stream<EventStats> stats = mongoTemplate.stream(query, EventStats.class)) {
+            Iterator<EventStats> iterator = stats.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next().getIdEvent());
+                if (batch.size() == RECONCILE_BATCH_SIZE || !iterator.hasNext()) {
+                    removed += removeMissing(batch);
+                    batch.clear();
+                }
+            }
+        }
+        return removed;
+    }
+
+    private int removeMissing(List<String> ids) {
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("_id");
+
+        Set<String> existing = new HashSet<>();
+        for (Event event : mongoTemplate.find(query, Event.class)) {
+            existing.add(event.getIdEvent());
+        }
+
+        List<String> missing = ids.stream().filter(id -> !existing.contains(id)).toList();
+        if (missing.isEmpty()) return 0;
+
+        return (int) mongoTemplate.remove(new Query(Criteria.where("_id").in(missing)), EventStats.class).getDeletedCount();
+    }
+
+    private double revenueOf(Event event) {
+        if (event.getLocalitiesEvent() == null) return 0;
+
+        return event.getLocalitiesEvent().stream()
+                .filter(Objects::nonNull)
+                .mapToDouble(locality -> locality.getSoldLocality() * locality.getPriceLocality())
+                .sum();
+    }
+
+    /**
+     * This method is used for add the stages that compute available and sellThrough. A stage reads the
+     * values left by the previous ones, so the derived fields always match the same write
+     * @param update stages of the write
+     * @return update with the derived fields
+     */
+    private AggregationUpdate withDerivedFields(AggregationUpdate update) {
+        return update
+                .set(AVAILABLE).toValue(ArithmeticOperators.valueOf(CAPACITY).subtract(TICKETS_SOLD))
+                .set(SELL_THROUGH).toValue(ConditionalOperators.when(ComparisonOperators.valueOf(CAPACITY).greaterThanValue(0))
+                        .then(ArithmeticOperators.valueOf(TICKETS_SOLD).divideBy(CAPACITY))
+                        .otherwise(0.0));
+    }
+
+    private ListEventStatsDTO toListEventStats(EventStats eventStats) {
+        ObjectId idEvent = ObjectId.isValid(eventStats.getIdEvent()) ? new ObjectId(eventStats.getIdEvent()) : null;
+        int capacity = eventStats.getCapacity();
+        return new ListEventStatsDTO(idEvent, eventStats.getName(), 1, eventStats.getTicketsSold(), capacity,
+                capacity - eventStats.getTicketsSold(), eventStats.getRevenue(),
+                capacity > 0 ? (double) eventStats.getTicketsSold() / capacity : 0);
+    }
+
+    private String encodeCursor(EventStats eventStats, StatsSort sort) {
+        String value = sort.value(eventStats) + "|" + eventStats.getIdEvent();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Criteria afterCursor(String cursor, StatsSort sort, Sort.Direction direction) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
+        }
+
+        int separator = value.indexOf('|');
+        if (separator < 0) throw new IllegalArgumentException(CURSOR_NOT_VALID);
+
+        double last;
+        try {
+            last = Double.parseDouble(value.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(CURSOR_NOT_VALID);
+        }
+        String id = value.substring(separator + 1);
+        Object lastId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+
+        // Numbers compare across int and double, so the value of the cursor works for every field
+        if (direction == Sort.Direction.ASC) {
+            return new Criteria().orOperator(
+                    Criteria.where(sort.field()).gt(last),
+                    Criteria.where(sort.field()).is(last).and("_id").gt(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(sort.field()).lt(last),
+                Criteria.where(sort.field()).is(last).and("_id").lt(lastId));
+    }
+
+    private Query byId(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
+
+    private record Sales(long tickets, double revenue) {
+
+        Sales plus(Sales other) {
+            return new Sales(tickets + other.tickets, revenue + other.revenue);
+        }
+    }
+
+    /**
+     * Changes of the global totals, only active events count
+     */
+    private static final class Totals {
+
+        private long events;
+        private long ticketsSold;
+        private long capacity;
+        private double revenue;
+
+        void add(EventStats eventStats) {
+            if (eventStats != null && eventStats.isActive()) {
+                add(1, eventStats.getTicketsSold(), eventStats.getCapacity(), eventStats.getRevenue());
+            }
+        }
+
+        void subtract(EventStats eventStats) {
+            if (eventStats != null && eventStats.isActive()) {
+                add(-1, -eventStats.getTicketsSold(), -eventStats.getCapacity(), -eventStats.getRevenue());
+            }
+        }
+
+        void add(long events, long ticketsSold, long capacity, double revenue) {
+            this.events += events;
+            this.ticketsSold += ticketsSold;
+            this.capacity += capacity;
+            this.revenue += revenue;
+        }
+
+        boolean isEmpty() {
+            return events == 0 && ticketsSold == 0 && capacity == 0 && revenue == 0;
+        }
+
+        boolean matches(GlobalStats global) {
+            return global.getTotalEvents() == events && global.getTotalTicketsSold() == ticketsSold
+                    && global.getTotalCapacity() == capacity && Math.abs(global.getTotalRevenue() - revenue) < 0.01;
+        }
+
+        Update toUpdate() {
+            return new Update()
+                    .inc("totalEvents", (int) events)
+                    .inc("totalTicketsSold", (int) ticketsSold)
+                    .inc("totalCapacity", (int) capacity)
+                    .inc("totalRevenue", revenue);
+        }
+
+        Update toSet() {
+            return new Update()
+                    .set("totalEvents", (int) events)
+                    .set("totalTicketsSold", (int) ticketsSold)
+                    .set("totalCapacity", (int) capacity)
+                    .set("totalRevenue", revenue);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.Availability;
+import com.microservice.manage_event.persistence.model.enums.DateBucket;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.FacetResultDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.interfaces.FacetService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import com.microservice.manage_event.utils.FacetIndex;
+import com.microservice.manage_event.utils.mapper.EventMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Service
+public class FacetServiceImpl implements FacetService {
+
+    final MongoTemplate mongoTemplate;
+    final EventMapper eventMapper;
+    final EventSearchIndex searchIndex;
+
+    private final double[] priceBounds;
+    private final double fewLeftRatio;
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile FacetIndex index;
+
+    private static final String INDEX_NOT_READY = "The catalog is still being indexed";
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    private static final String[] EVENT_FIELDS = {"name", "state", "startDate", "endDate", "locations.city", "images", "imageVariants",
+            "locations.department", "localitiesEvent.priceLocality", "localitiesEvent.capacityLocality",
+            "localitiesEvent.soldLocality", "localitiesEvent.heldLocality"};
+
+    public FacetServiceImpl(MongoTemplate mongoTemplate, EventMapper eventMapper, EventSearchIndex searchIndex,
+                            @Value("${facets.price-bounds:50000,100000,200000}") double[] priceBounds,
+                            @Value("${facets.few-left-ratio:0.1}") double fewLeftRatio) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventMapper = eventMapper;
+        this.searchIndex = searchIndex;
+        this.priceBounds = priceBounds;
+        this.fewLeftRatio = fewLeftRatio;
+    }
+
+    /**
+     * This method is used for filter the upcoming events by facets and count the events of every facet value
+     * @param name (optional) words of the event's name
+     * @param cities (optional) cities
+     * @param departments (optional) departments
+     * @param dates (optional) date buckets
+     * @param prices (optional) price bands, as returned in the price facet
+     * @param availability (optional) availability values
+     * @param limit maximum events returned
+     * @return events starting first, total and counts by facet
+     */
+    @Override
+    public FacetResultDTO getFacets(String name, List<String> cities, List<String> departments, List<DateBucket> dates,
+                                    List<String> prices, List<Availability> availability, int limit) {
+        FacetIndex current = index;
+        if (current == null) throw new ErrorResponseException(INDEX_NOT_READY);
+
+        // The name is not a facet, it only narrows the events that are counted
+        BitSet candidates = null;
+        if (StringUtils.hasText(name)) {
+            if (!searchIndex.isReady()) throw new ErrorResponseException(INDEX_NOT_READY);
+            candidates = current.positionsOf(searchIndex.matching(name));
+        }
+
+        FacetIndex.Filter filter = new FacetIndex.Filter(candidates, orEmpty(cities), orEmpty(departments),
+                orEmpty(dates), orEmpty(prices), orEmpty(availability));
+
+        int pageSize = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        return current.query(filter, LocalDate.now(), pageSize);
+    }
+
+    /**
+     * This method is used for build the facet index again from the events collection. It also
+     * refreshes the availability, which changes with every sale
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${facets.rebuild-millis:60000}")
+    public synchronized void rebuildFacets() {
+        FacetIndex fresh = new FacetIndex(priceBounds, fewLeftRatio);
+
+        Query query = new Query();
+        query.fields().include(EVENT_FIELDS);
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            events.forEach(event -> put(fresh, event));
+        }
+
+        index = fresh;
+    }
+
+    /**
+     * This method is used for apply the catalog changes published since the last call
+     * @return events refreshed
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${facets.refresh-millis:1000}")
+    public synchronized int applyCatalogChanges() {
+        FacetIndex current = index;
+        if (current == null) return 0;
+
+        Set<String> changed = new LinkedHashSet<>();
+        String idEvent;
+        while ((idEvent = pendingChanges.poll()) != null) {
+            changed.add(idEvent);
+        }
+
+        for (String id : changed) {
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include(EVENT_FIELDS);
+            Event event = mongoTemplate.findOne(query, Event.class);
+
+            current.remove(id);
+            if (event != null) put(current, event);
+        }
+        return changed.size();
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (StringUtils.hasText(change.idEvent())) pendingChanges.add(change.idEvent());
+    }
+
+    private void put(FacetIndex target, Event event) {
+        if (event.getIdEvent() == null || event.getState() == State.INACTIVE) return;
+        target.put(event, eventMapper.eventEntityToEventCardDTO(event));
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values == null ? Collections.emptyList() : values;
+    }
+}
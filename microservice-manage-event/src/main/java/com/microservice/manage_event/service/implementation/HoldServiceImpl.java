@@ -0,0 +1,343 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import com.microservice.manage_event.persistence.model.enums.HoldState;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.repository.TicketHoldRepository;
+import com.microservice.manage_event.presentation.dto.CreateHoldDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.interfaces.HoldService;
+import com.microservice.manage_event.utils.HashedTimingWheel;
+import com.mongodb.client.result.UpdateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Service
+public class HoldServiceImpl implements HoldService {
+
+    final TicketHoldRepository holdRepository;
+    final MongoTemplate mongoTemplate;
+    final InventoryServiceImpl inventoryService;
+    final OnSaleMetricsServiceImpl onSaleMetrics;
+
+    private final HashedTimingWheel<String> wheel;
+    private final Map<String, HashedTimingWheel.Timeout<String>> timeouts = new ConcurrentHashMap<>();
+    private final long ttlSeconds;
+    private final long retentionHours;
+    private final long retrySeconds;
+    private final long settledRetentionMillis;
+
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String NOT_ENOUGH_TICKETS = "There are not enough tickets for this request";
+    private static final String STATE = "state";
+    private static final String SWEEP_ID = "sweepId";
+    private static final String CHANGED_AT = "changedAt";
+    private static final String PURGE_AT = "purgeAt";
+    private static final int EXPIRE_BATCH = 5000;
+
+    public HoldServiceImpl(TicketHoldRepository holdRepository, MongoTemplate mongoTemplate, InventoryServiceImpl inventoryService,
+                           OnSaleMetricsServiceImpl onSaleMetrics,
+                           @Value("${holds.ttl-seconds:600}") long ttlSeconds,
+                           @Value("${holds.wheel.tick-millis:100}") long tickMillis,
+                           @Value("${holds.wheel.size:1024}") int wheelSize,
+                           @Value("${holds.retention-hours:24}") long retentionHours,
+                           @Value("${holds.retry-seconds:30}") long retrySeconds,
+                           @Value("${holds.settled.retention-minutes:60}") long settledRetentionMinutes) {
+        this.holdRepository = holdRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.inventoryService = inventoryService;
+        this.onSaleMetrics = onSaleMetrics;
+        this.ttlSeconds = ttlSeconds;
+        this.retentionHours = retentionHours;
+        this.retrySeconds = retrySeconds;
+        this.settledRetentionMillis = Duration.ofMinutes(settledRetentionMinutes).toMillis();
+        this.wheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * This method is used for hold tickets of a locality for a limited time
+     * @param createHoldDTO event, locality, user and quantity
+     * @return hold created
+     */
+    @Override
+    public TicketHold createHold(CreateHoldDTO createHoldDTO) {
+        if (createHoldDTO == null) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        // The hold only exists if the tickets could be taken from the stock
+        State reserved = inventoryService.reserveTickets(createHoldDTO.idEvent(), createHoldDTO.idLocality(), createHoldDTO.quantity());
+        if (reserved != State.SUCCESS) {
+            throw new ErrorResponseException(NOT_ENOUGH_TICKETS);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        TicketHold hold = new TicketHold(null, createHoldDTO.idEvent(), createHoldDTO.idLocality(), createHoldDTO.idUser(),
+                createHoldDTO.quantity(), HoldState.ACTIVE, now, now.plusSeconds(ttlSeconds), null, null, null);
+
+        try {
+            hold = holdRepository.save(hold);
+        } catch (RuntimeException e) {
+            // Give the tickets back if the hold could not be stored
+            inventoryService.releaseTickets(createHoldDTO.idEvent(), createHoldDTO.idLocality(), createHoldDTO.quantity());
+            throw e;
+        }
+
+        schedule(hold);
+        onSaleMetrics.recordHold(hold.getIdEvent());
+        return hold;
+    }
+
+    /**
+     * This method is used for turn an active hold into sold tickets
+     * @param idHold hold's id
+     * @return state action, ERROR when the hold is not active or already expired
+     */
+    @Override
+    public State confirmHold(String idHold) {
+        if (!StringUtils.hasText(idHold)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        long started = System.nanoTime();
+        TicketHold hold = startTransition(idHold, HoldState.CONFIRMING, true);
+        if (hold == null) {
+            // Only a failed checkout pays for reading the event of its hold
+            TicketHold failed = findEventOfHold(idHold);
+            if (failed != null) onSaleMetrics.recordCheckout(failed.getIdEvent(), false, System.nanoTime() - started);
+            return State.ERROR;
+        }
+
+        State state = State.ERROR;
+        try {
+            state = inventoryService.confirmHold(hold.getIdEvent(), hold.getIdLocality(), hold.getIdHold(), hold.getQuantity());
+            return state;
+        } finally {
+            // The hold is only confirmed once its tickets were sold, otherwise it is active again until its deadline
+            finishTransition(hold, HoldState.CONFIRMING, state == State.SUCCESS ? HoldState.CONFIRMED : HoldState.ACTIVE);
+            onSaleMetrics.recordCheckout(hold.getIdEvent(), state == State.SUCCESS, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * This method is used for give back the tickets of an active hold before it expires
+     * @param idHold hold's id
+     * @return state action, ERROR when the hold is not active
+     */
+    @Override
+    public State releaseHold(String idHold) {
+        if (!StringUtils.hasText(idHold)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        TicketHold hold = startTransition(idHold, HoldState.RELEASING, false);
+        if (hold == null) return State.ERROR;
+
+        State state = State.ERROR;
+        try {
+            state = inventoryService.releaseHolds(hold.getIdEvent(), hold.getIdLocality(), List.of(hold.getIdHold()), hold.getQuantity());
+            return state;
+        } finally {
+            // A hold whose tickets could not be released stays active, so its expiry releases them later
+            finishTransition(hold, HoldState.RELEASING, state == State.SUCCESS ? HoldState.RELEASED : HoldState.ACTIVE);
+        }
+    }
+
+    /**
+     * This method is used for expire the holds whose deadline passed on the timing wheel
+     * @return holds expired
+     */
+    @Override
+    public int expireDueHolds() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) return 0;
+
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += EXPIRE_BATCH) {
+            List<String> batch = due.subList(from, Math.min(due.size(), from + EXPIRE_BATCH));
+            batch.forEach(timeouts::remove);
+            expired += expireHolds(Criteria.where("_id").in(batch).and(STATE).is(HoldState.ACTIVE));
+        }
+        return expired;
+    }
+
+    /**
+     * This method is used for expire every active hold past its deadline, including the ones
+     * scheduled by an instance that is no longer running. The holds whose confirmation or release
+     * failed or was interrupted are settled again, the ones already sold end up confirmed
+     * @return holds expired
+     */
+    @Override
+    public int sweepExpiredHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = expireHolds(Criteria.where(STATE).is(HoldState.ACTIVE).and("expiresAt").lte(now));
+
+        // A transition left unfinished keeps the tickets held, the hold is expired again to give them back
+        expired += expireHolds(Criteria.where(STATE).in(HoldState.EXPIRING, HoldState.RELEASING, HoldState.CONFIRMING)
+                .and(CHANGED_AT).lte(now.minusSeconds(retrySeconds)));
+        return expired;
+    }
+
+    /**
+     * This method is used for forget the settled holds recorded on the events once they are older than the
+     * retention, by then every retry of those holds is over
+     * @return events changed
+     */
+    @Override
+    public long pruneSettledHolds() {
+        return inventoryService.pruneSettledHolds(System.currentTimeMillis() - settledRetentionMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${holds.wheel.tick-millis:100}")
+    public void runExpiryWheel() {
+        expireDueHolds();
+    }
+
+    @Scheduled(fixedDelayString = "${holds.sweep-millis:5000}")
+    public void runExpirySweep() {
+        sweepExpiredHolds();
+    }
+
+    @Scheduled(fixedDelayString = "${holds.settled.prune-millis:60000}")
+    public void runSettledPrune() {
+        pruneSettledHolds();
+    }
+
+    /**
+     * This method is used for put the active holds stored in the database back on the timing wheel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleActiveHolds() {
+        Query query = new Query(Criteria.where(STATE).is(HoldState.ACTIVE));
+        query.fields().include("expiresAt");
+
+        try (Stream<TicketHold> holds = mongoTemplate.stream(query, TicketHold.class)) {
+            holds.forEach(this::schedule);
+        }
+    }
+
+    private TicketHold startTransition(String idHold, HoldState pending, boolean requireNotExpired) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Only one transition can leave ACTIVE, so confirm, release and expiry never apply twice
+        Criteria criteria = Criteria.where("_id").is(idHold).and(STATE).is(HoldState.ACTIVE);
+        if (requireNotExpired) {
+            criteria = criteria.and("expiresAt").gt(now);
+        }
+
+        Update update = new Update().set(STATE, pending).set(CHANGED_AT, now);
+
+        return mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), TicketHold.class);
+    }
+
+    private void finishTransition(TicketHold hold, HoldState from, HoldState target) {
+        Update update = new Update().set(STATE, target);
+        if (target == HoldState.ACTIVE) {
+            update.unset(CHANGED_AT);
+        } else {
+            update.set(PURGE_AT, LocalDateTime.now().plusHours(retentionHours));
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(hold.getIdHold()).and(STATE).is(from)), update, TicketHold.class);
+
+        HashedTimingWheel.Timeout<String> timeout = timeouts.remove(hold.getIdHold());
+        if (timeout != null) timeout.cancel();
+        if (target == HoldState.ACTIVE) schedule(hold);
+    }
+
+    private TicketHold findEventOfHold(String idHold) {
+        Query query = new Query(Criteria.where("_id").is(idHold));
+        query.fields().include("idEvent");
+        return mongoTemplate.findOne(query, TicketHold.class);
+    }
+
+    private int expireHolds(Criteria criteria) {
+        String sweepId = UUID.randomUUID().toString();
+        Update update = new Update()
+                .set(STATE, HoldState.EXPIRING)
+                .set(SWEEP_ID, sweepId)
+                .set(CHANGED_AT, LocalDateTime.now());
+
+        // The holds stay EXPIRING until their tickets are released, so a failed release is retried by the sweeper
+        UpdateResult result = mongoTemplate.updateMulti(new Query(criteria), update, TicketHold.class);
+        if (result.getModifiedCount() == 0) return 0;
+
+        Query sweep = new Query(Criteria.where(SWEEP_ID).is(sweepId));
+        sweep.fields().include("idEvent", "idLocality", "quantity");
+
+        // Release the tickets once per locality no matter how many holds expired in it
+        Map<List<String>, List<TicketHold>> localities = new LinkedHashMap<>();
+        for (TicketHold hold : mongoTemplate.find(sweep, TicketHold.class)) {
+            localities.computeIfAbsent(List.of(hold.getIdEvent(), hold.getIdLocality()), key -> new ArrayList<>()).add(hold);
+        }
+
+        int expired = 0;
+        for (List<TicketHold> holds : localities.values()) {
+            String idEvent = holds.get(0).getIdEvent();
+            String idLocality = holds.get(0).getIdLocality();
+            List<String> idHolds = holds.stream().map(TicketHold::getIdHold).toList();
+
+            if (release(idEvent, idLocality, idHolds, holds.stream().mapToInt(TicketHold::getQuantity).sum()) == State.SUCCESS) {
+                expired += finishExpiring(idHolds, HoldState.EXPIRED);
+            } else {
+                // Some of them may have been settled already, the rest are released one by one
+                expired += settleSeparately(idEvent, idLocality, holds);
+            }
+        }
+        return expired;
+    }
+
+    private int settleSeparately(String idEvent, String idLocality, List<TicketHold> holds) {
+        Map<String, Boolean> settled;
+        try {
+            settled = inventoryService.findSettledHolds(idEvent, holds.stream().map(TicketHold::getIdHold).toList());
+        } catch (RuntimeException e) {
+            return 0;
+        }
+
+        int expired = 0;
+        for (TicketHold hold : holds) {
+            Boolean sold = settled.get(hold.getIdHold());
+            if (Boolean.TRUE.equals(sold)) {
+                // The confirmation sold the tickets but did not finish
+                finishExpiring(List.of(hold.getIdHold()), HoldState.CONFIRMED);
+            } else if (sold != null
+                    || release(idEvent, idLocality, List.of(hold.getIdHold()), hold.getQuantity()) == State.SUCCESS) {
+                expired += finishExpiring(List.of(hold.getIdHold()), HoldState.EXPIRED);
+            }
+        }
+        return expired;
+    }
+
+    private State release(String idEvent, String idLocality, List<String> idHolds, int quantity) {
+        try {
+            return inventoryService.releaseHolds(idEvent, idLocality, idHolds, quantity);
+        } catch (RuntimeException e) {
+            return State.ERROR;
+        }
+    }
+
+    private int finishExpiring(List<String> idHolds, HoldState target) {
+        Query expiring = new Query(Criteria.where("_id").in(idHolds).and(STATE).is(HoldState.EXPIRING));
+        Update done = new Update()
+                .set(STATE, target)
+                .set(PURGE_AT, LocalDateTime.now().plusHours(retentionHours));
+        return (int) mongoTemplate.updateMulti(expiring, done, TicketHold.class).getModifiedCount();
+    }
+
+    private void schedule(TicketHold hold) {
+        long deadline = hold.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        HashedTimingWheel.Timeout<String> previous = timeouts.put(hold.getIdHold(), wheel.schedule(hold.getIdHold(), deadline));
+        if (previous != null) previous.cancel();
+    }
+}
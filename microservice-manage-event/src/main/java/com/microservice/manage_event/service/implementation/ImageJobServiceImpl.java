@@ -0,0 +1,359 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.ImageJob;
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
+import com.microservice.manage_event.service.configuration.app.ImageUploadConfig;
+import com.microservice.manage_event.service.interfaces.ImageJobService;
+import com.microservice.manage_event.service.interfaces.ImagesService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.ImageResizer;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+public class ImageJobServiceImpl implements ImageJobService {
+
+    final MongoTemplate mongoTemplate;
+    final GridFsTemplate gridFsTemplate;
+    final ImagesService imagesService;
+    final Executor jobExecutor;
+    final Executor uploadExecutor;
+    final Executor resizeExecutor;
+    final ApplicationEventPublisher eventPublisher;
+    final CacheManager cacheManager;
+
+    private final Semaphore workers;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final long leaseSeconds;
+    private final long retentionHours;
+    private final long maxPixels;
+
+    private static final String STATE = "state";
+    private static final String ATTEMPTS = "attempts";
+    private static final String IMAGES = "images.";
+    private static final String IMAGE_VARIANTS = "imageVariants.";
+    private static final String SECURE_URL = "secure_url";
+    private static final String CONTENT_MISSING = "Image content is missing";
+
+    public ImageJobServiceImpl(MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate, ImagesService imagesService,
+                               @Qualifier(ImageUploadConfig.IMAGE_JOB_EXECUTOR) Executor jobExecutor,
+                               @Qualifier(ImageUploadConfig.IMAGE_UPLOAD_EXECUTOR) Executor uploadExecutor,
+                               @Qualifier(ImageUploadConfig.IMAGE_RESIZE_EXECUTOR) Executor resizeExecutor,
+                               ApplicationEventPublisher eventPublisher, CacheManager cacheManager,
+                               @Value("${images.jobs.workers:4}") int workers,
+                               @Value("${images.jobs.max-attempts:6}") int maxAttempts,
+                               @Value("${images.jobs.backoff-base-millis:2000}") long backoffBaseMillis,
+                               @Value("${images.jobs.backoff-max-millis:300000}") long backoffMaxMillis,
+                               @Value("${images.jobs.lease-seconds:300}") long leaseSeconds,
+                               @Value("${images.jobs.retention-hours:24}") long retentionHours,
+                               @Value("${images.variants.max-pixels:50000000}") long maxPixels) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+        this.imagesService = imagesService;
+        this.jobExecutor = jobExecutor;
+        this.uploadExecutor = uploadExecutor;
+        this.resizeExecutor = resizeExecutor;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.workers = new Semaphore(workers);
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+        this.leaseSeconds = leaseSeconds;
+        this.retentionHours = retentionHours;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * This method is used for keep the images of an event and queue their upload. The images are
+     * stored in GridFS so the jobs survive a restart
+     * @param idEvent event's id, its images map must already have the slots marked PENDING
+     * @param images images by slot
+     * @throws IOException when an image can not be read, no job is queued
+     */
+    @Override
+    public void enqueueImages(String idEvent, Map<String, MultipartFile> images) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        List<ImageJob> jobs = new ArrayList<>(images.size());
+
+        try {
+            for (Map.Entry<String, MultipartFile> image : images.entrySet()) {
+                ObjectId fileId;
+                try (InputStream content = image.getValue().getInputStream()) {
+                    fileId = gridFsTemplate.store(content, image.getKey(), image.getValue().getContentType());
+                }
+                jobs.add(new ImageJob(null, idEvent, image.getKey(), image.getKey(), fileId, image.getValue().getSize(),
+                        ImageJobState.PENDING, 0, now, now, null, null, null));
+            }
+            mongoTemplate.insert(jobs, ImageJob.class);
+        } catch (IOException | RuntimeException e) {
+            jobs.forEach(job -> deleteContent(job.getFileId()));
+            throw e;
+        }
+    }
+
+    /**
+     * This method is used for hand the due jobs to the workers, never more than the free workers
+     * @return jobs started
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${images.jobs.poll-millis:1000}")
+    public int runJobs() {
+        int started = 0;
+        while (workers.tryAcquire()) {
+            ImageJob job = claimJob();
+            if (job == null) {
+                workers.release();
+                break;
+            }
+
+            try {
+                jobExecutor.execute(() -> {
+                    try {
+                        processJob(job);
+                    } finally {
+                        workers.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The lease of the job runs out and it is taken again
+                workers.release();
+                throw e;
+            }
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * This method is used for upload the image of a claimed job with its resized variants and put
+     * their links in the event
+     * @param job job claimed by this worker
+     */
+    @Override
+    public void processJob(ImageJob job) {
+        try {
+            GridFSFile file = gridFsTemplate.findOne(new Query(Criteria.where("_id").is(job.getFileId())));
+            if (file == null) {
+                failJob(job, CONTENT_MISSING, true);
+                return;
+            }
+
+            Map<ImageVariant, byte[]> resized = createVariants(file);
+
+            // The original and its variants go to the store at the same time, on the bounded upload pool
+            List<CompletableFuture<Map<?, ?>>> pending = new ArrayList<>(resized.size() + 1);
+            pending.add(upload(() -> {
+                try (InputStream content = gridFsTemplate.getResource(file).getInputStream()) {
+                    return imagesService.uploadImage(job.getPublicId(), content, file.getLength());
+                }
+            }));
+            for (Map.Entry<ImageVariant, byte[]> variant : resized.entrySet()) {
+                pending.add(upload(() -> imagesService.uploadImage(job.getPublicId() + "_" + variant.getKey().key(),
+                        new ByteArrayInputStream(variant.getValue()), variant.getValue().length)));
+            }
+            List<Map<?, ?>> uploads = awaitUploads(pending);
+
+            // The variants were queued in the order of resized, right after the original
+            Map<String, String> variants = new LinkedHashMap<>();
+            int index = 1;
+            for (ImageVariant variant : resized.keySet()) {
+                variants.put(variant.key(), (String) uploads.get(index++).get(SECURE_URL));
+            }
+
+            // Only a slot still waiting for this upload is filled, the event may have been deleted or edited meanwhile
+            Query slot = new Query(Criteria.where("_id").is(job.getIdEvent())
+                    .and(IMAGES + job.getSlot()).is(ImageJobState.PENDING.name()));
+            Update update = new Update().set(IMAGES + job.getSlot(), uploads.get(0).get(SECURE_URL));
+            if (!variants.isEmpty()) update.set(IMAGE_VARIANTS + job.getSlot(), variants);
+            UpdateResult patched = mongoTemplate.updateFirst(slot, update, Event.class);
+
+            if (patched.getModifiedCount() == 0) {
+                uploads.forEach(this::deleteUploaded);
+            } else {
+                catalogChanged(job.getIdEvent());
+            }
+            finishJob(job, ImageJobState.DONE, null);
+        } catch (Exception e) {
+            failJob(job, e.getMessage() == null ? e.getClass().getName() : e.getMessage(), false);
+        }
+    }
+
+    // Runs on the resize pool, each variant is scaled from the next bigger one
+    private Map<ImageVariant, byte[]> createVariants(GridFSFile file) throws IOException {
+        CompletableFuture<Map<ImageVariant, byte[]>> variants = CompletableFuture.supplyAsync(() -> {
+            try (InputStream content = gridFsTemplate.getResource(file).getInputStream()) {
+                BufferedImage image = ImageResizer.decode(content, maxPixels);
+
+                // Formats ImageIO can not read and oversized images keep only the original
+                if (image == null) return Collections.emptyMap();
+
+                Map<ImageVariant, byte[]> encoded = new EnumMap<>(ImageVariant.class);
+                ImageVariant[] bySize = ImageVariant.values();
+                for (int i = bySize.length - 1; i >= 0; i--) {
+                    image = ImageResizer.resize(image, bySize[i].width());
+                    encoded.put(bySize[i], ImageResizer.encode(image));
+                }
+                return encoded;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, resizeExecutor);
+
+        try {
+            return variants.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Map<?, ?>> upload(ImageUpload upload) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return upload.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, uploadExecutor);
+    }
+
+    private List<Map<?, ?>> awaitUploads(List<CompletableFuture<Map<?, ?>>> pending) throws IOException {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // Let the other uploads finish so none is left behind in the store
+            pending.forEach(upload -> upload.handle((result, error) -> null).join());
+            for (CompletableFuture<Map<?, ?>> upload : pending) {
+                if (!upload.isCompletedExceptionally()) deleteUploaded(upload.join());
+            }
+
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IOException(cause);
+        }
+
+        List<Map<?, ?>> uploads = new ArrayList<>(pending.size());
+        for (CompletableFuture<Map<?, ?>> upload : pending) {
+            uploads.add(upload.join());
+        }
+        return uploads;
+    }
+
+    private ImageJob claimJob() {
+        LocalDateTime now = LocalDateTime.now();
+
+        Criteria due = new Criteria().orOperator(
+                Criteria.where(STATE).is(ImageJobState.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where(STATE).is(ImageJobState.RUNNING).and("lockedUntil").lte(now));
+        Update update = new Update()
+                .set(STATE, ImageJobState.RUNNING)
+                .set("lockedUntil", now.plusSeconds(leaseSeconds))
+                .inc(ATTEMPTS, 1);
+
+        return mongoTemplate.findAndModify(new Query(due).with(Sort.by("nextAttemptAt")), update,
+                FindAndModifyOptions.options().returnNew(true), ImageJob.class);
+    }
+
+    private void failJob(ImageJob job, String error, boolean permanent) {
+        if (!permanent && job.getAttempts() < maxAttempts) {
+            // Exponential backoff with jitter so failed jobs do not retry in lockstep
+            long backoff = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(30, job.getAttempts() - 1));
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+            Update retry = new Update()
+                    .set(STATE, ImageJobState.PENDING)
+                    .set("nextAttemptAt", LocalDateTime.now().plusNanos(delay * 1_000_000))
+                    .set("lastError", error);
+            mongoTemplate.updateFirst(ownJob(job), retry, ImageJob.class);
+            return;
+        }
+
+        Query slot = new Query(Criteria.where("_id").is(job.getIdEvent())
+                .and(IMAGES + job.getSlot()).is(ImageJobState.PENDING.name()));
+        UpdateResult marked = mongoTemplate.updateFirst(slot, new Update().set(IMAGES + job.getSlot(), ImageJobState.FAILED.name()), Event.class);
+        if (marked.getModifiedCount() > 0) catalogChanged(job.getIdEvent());
+
+        finishJob(job, ImageJobState.FAILED, error);
+    }
+
+    private void finishJob(ImageJob job, ImageJobState state, String error) {
+        Update update = new Update()
+                .set(STATE, state)
+                .set("lastError", error)
+                .set("purgeAt", LocalDateTime.now().plusHours(retentionHours));
+        UpdateResult finished = mongoTemplate.updateFirst(ownJob(job), update, ImageJob.class);
+
+        if (finished.getModifiedCount() > 0) deleteContent(job.getFileId());
+    }
+
+    // A worker whose lease ran out no longer owns the job, another attempt has it
+    private Query ownJob(ImageJob job) {
+        return new Query(Criteria.where("_id").is(job.getIdJob())
+                .and(STATE).is(ImageJobState.RUNNING)
+                .and(ATTEMPTS).is(job.getAttempts()));
+    }
+
+    private void catalogChanged(String idEvent) {
+        Cache events = cacheManager.getCache(CacheConfig.EVENTS);
+        if (events != null) events.evict(idEvent);
+        Cache pages = cacheManager.getCache(CacheConfig.EVENT_PAGES);
+        if (pages != null) pages.clear();
+
+        eventPublisher.publishEvent(new CatalogChangeEvent(idEvent));
+    }
+
+    private void deleteUploaded(Map<?, ?> result) {
+        Object publicId = result.get("public_id");
+        if (publicId == null) return;
+        try {
+            imagesService.deleteImage(publicId.toString());
+        } catch (IOException | RuntimeException e) {
+            // An orphan image is only wasted space
+        }
+    }
+
+    private void deleteContent(ObjectId fileId) {
+        if (fileId != null) gridFsTemplate.delete(new Query(Criteria.where("_id").is(fileId)));
+    }
+
+    @FunctionalInterface
+    private interface ImageUpload {
+        Map<?, ?> run() throws IOException;
+    }
+}
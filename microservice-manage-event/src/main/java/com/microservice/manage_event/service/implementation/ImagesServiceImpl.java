@@ -3,21 +3,24 @@ package com.microservice.manage_event.service.implementation;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.microservice.manage_event.service.interfaces.ImagesService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 @Service
+@ConditionalOnProperty(name = "images.storage", havingValue = "cloudinary", matchIfMissing = true)
 public class ImagesServiceImpl implements ImagesService {
 
     final Cloudinary cloudinary;
 
+    // Cloudinary takes big files in parts of at least 5 MB, smaller files go in a single part of their own size
+    private static final int CHUNK_SIZE = 6 * 1024 * 1024;
+
     public ImagesServiceImpl() {
         Map<String, String> config = new HashMap<>();
         config.put("cloud_name", "dsnq0pvey");
@@ -30,32 +33,35 @@ public class ImagesServiceImpl implements ImagesService {
     public Map uploadImage(MultipartFile image) throws IOException {
         // Obtener el nombre original del archivo
         String originalFilename = image.getOriginalFilename();
+        if (originalFilename == null) {
+            throw new NullPointerException("File cannot be null");
+        }
 
         // Renombrar el archivo para eliminar la extensión y otros caracteres problemáticos
         String newFilename = originalFilename.substring(0, originalFilename.lastIndexOf('.')).replace(".", "_").replace(" ", "_");
 
-        File file = convert(image);
-        if (file == null) {
-            throw new NullPointerException("File cannot be null");
+        try (InputStream input = image.getInputStream()) {
+            // Usa el nuevo nombre al subir (sin la extensión)
+            return uploadImage(newFilename, input, image.getSize());
         }
-
-        // Usa el nuevo nombre al subir (sin la extensión)
-        return cloudinary.uploader().upload(file, ObjectUtils.asMap("folder", "mi-boleta", "public_id", newFilename));
     }
 
+    /**
+     * This method is used for upload an image read from a stream
+     * @param publicId name of the image in the store
+     * @param content image content, it is not closed
+     * @param size content length in bytes
+     * @return upload result
+     */
     @Override
-    public Map deleteImage(String idImage) throws IOException {
-        return cloudinary.uploader().destroy(idImage, ObjectUtils.emptyMap());
+    public Map uploadImage(String publicId, InputStream content, long size) throws IOException {
+        // The file goes to Cloudinary one part at a time, it is never copied whole
+        int bufferSize = (int) Math.max(1, Math.min(CHUNK_SIZE, size));
+        return cloudinary.uploader().uploadLarge(content, ObjectUtils.asMap("folder", "mi-boleta", "public_id", publicId), bufferSize);
     }
 
     @Override
-    public File convert(MultipartFile image) throws IOException {
-        File file = File.createTempFile(Objects.requireNonNull(image.getOriginalFilename()), null);
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(image.getBytes());
-            return file;
-        } catch (NullPointerException e) {
-            return null;
-        }
+    public Map deleteImage(String idImage) throws IOException {
+        return cloudinary.uploader().destroy(idImage, ObjectUtils.emptyMap());
     }
-}
\ No newline at end of file
+}
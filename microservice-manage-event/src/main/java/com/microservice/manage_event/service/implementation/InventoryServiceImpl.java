@@ -0,0 +1,300 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.AvailabilityDTO;
+import com.microservice.manage_event.service.interfaces.InventoryService;
+import com.microservice.manage_event.utils.StockCache;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    final MongoTemplate mongoTemplate;
+    final StockCache stockCache;
+    final ApplicationEventPublisher eventPublisher;
+
+    private static final String NOT_FOUND = "Event not found";
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String LOCALITY = "locality";
+    private static final String LOCALITY_PATH = "localitiesEvent.$[locality].";
+    private static final String SOLD = "soldLocality";
+    private static final String HELD = "heldLocality";
+    private static final String SETTLED_HOLDS = "settledHolds";
+    private static final String ID_HOLD = "idHold";
+    private static final String SOLD_HOLD = "sold";
+    private static final String SETTLED_AT = "settledAt";
+
+    public InventoryServiceImpl(MongoTemplate mongoTemplate, StockCache stockCache, ApplicationEventPublisher eventPublisher) {
+        this.mongoTemplate = mongoTemplate;
+        this.stockCache = stockCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * This method is used for hold tickets of a locality while the purchase is completed
+     * @param idEvent event's id
+     * @param idLocality locality's id
+     * @param quantity tickets to hold
+     * @return state action, ERROR when there is not enough stock
+     */
+    @Override
+    public State reserveTickets(String idEvent, String idLocality, int quantity) {
+        validate(idEvent, idLocality, quantity);
+
+        // Reject without touching the database only when a snapshot loaded moments ago is already short
+        StockCache.EventStock cached = stockCache.getFresh(idEvent);
+        if (cached != null) {
+            StockCache.LocalityStock locality = cached.locality(idLocality);
+            if (locality != null && locality.remaining() < quantity) {
+                return State.ERROR;
+            }
+        }
+
+        // capacity - sold - held >= quantity
+        Document remaining = new Document("$subtract", List.of("$$locality.capacityLocality",
+                new Document("$add", List.of(counter(SOLD), counter(HELD)))));
+        Document guard = new Document("$gte", List.of(remaining, quantity));
+
+        Update update = new Update().inc(LOCALITY_PATH + HELD, quantity);
+
+        State state = applyGuarded(idEvent, idLocality, guard, update, 0, quantity);
+        if (state == State.ERROR && stockCache.getFresh(idEvent) == null) {
+            // The database refused it, a fresh snapshot lets the next requests for this stock be refused in memory
+            reloadStock(idEvent);
+        }
+        return state;
+    }
+
+    /**
+     * This method is used for return held tickets that no hold owns to the stock, as when the hold could not be stored
+     * @param idEvent event's id
+     * @param idLocality locality's id
+     * @param quantity tickets to release
+     * @return state action, ERROR when the locality does not hold that many tickets
+     */
+    @Override
+    public State releaseTickets(String idEvent, String idLocality, int quantity) {
+        validate(idEvent, idLocality, quantity);
+
+        Update update = new Update().inc(LOCALITY_PATH + HELD, -quantity);
+
+        return applyGuarded(idEvent, idLocality, heldAtLeast(quantity), update, 0, -quantity);
+    }
+
+    /**
+     * This method is used for turn the held tickets of a hold into sold tickets. The hold is recorded on the
+     * event in the same write, so its tickets are never sold or released twice
+     * @param idEvent event's id
+     * @param idLocality locality's id
+     * @param idHold hold's id
+     * @param quantity tickets of the hold
+     * @return state action, ERROR when the locality does not hold that many tickets or the hold was already settled
+     */
+    @Override
+    public State confirmHold(String idEvent, String idLocality, String idHold, int quantity) {
+        validate(idEvent, idLocality, quantity);
+        if (!StringUtils.hasText(idHold)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        Update update = new Update()
+                .inc(LOCALITY_PATH + HELD, -quantity)
+                .inc(LOCALITY_PATH + SOLD, quantity)
+                .inc("ticketsSold", quantity);
+        update.push(SETTLED_HOLDS, settled(idHold, true));
+
+        State state = applyGuarded(idEvent, idLocality, List.of(idHold), heldAtLeast(quantity), update, quantity, -quantity);
+        if (state == State.SUCCESS) {
+            // The price goes with the sale, so the listeners do not read the event again
+            eventPublisher.publishEvent(new TicketsSoldEvent(idEvent, idLocality, quantity, priceOf(idEvent, idLocality)));
+        }
+        return state;
+    }
+
+    /**
+     * This method is used for return the held tickets of some holds of a locality to the stock. The holds are
+     * recorded on the event in the same write, so their tickets are never sold or released twice
+     * @param idEvent event's id
+     * @param idLocality locality's id
+     * @param idHolds holds' ids
+     * @param quantity tickets of all the holds
+     * @return state action, ERROR when the locality does not hold that many tickets or one of the holds was already settled
+     */
+    @Override
+    public State releaseHolds(String idEvent, String idLocality, List<String> idHolds, int quantity) {
+        validate(idEvent, idLocality, quantity);
+        if (idHolds == null || idHolds.isEmpty()) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        Update update = new Update().inc(LOCALITY_PATH + HELD, -quantity);
+        update.push(SETTLED_HOLDS).each(idHolds.stream().map(idHold -> settled(idHold, false)).toArray());
+
+        return applyGuarded(idEvent, idLocality, idHolds, heldAtLeast(quantity), update, 0, -quantity);
+    }
+
+    /**
+     * This method is used for find which of some holds already had their tickets sold or released
+     * @param idEvent event's id
+     * @param idHolds holds' ids
+     * @return true for the holds whose tickets were sold, false for the released ones, the rest are missing
+     */
+    @Override
+    public Map<String, Boolean> findSettledHolds(String idEvent, List<String> idHolds) {
+        if (!StringUtils.hasText(idEvent) || idHolds == null) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        Query query = new Query(Criteria.where("_id").is(idEvent));
+        query.fields().include(SETTLED_HOLDS);
+
+        Document event = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Event.class));
+        if (event == null) return Collections.emptyMap();
+
+        Set<String> wanted = new HashSet<>(idHolds);
+        Map<String, Boolean> settled = new HashMap<>();
+        for (Document entry : event.getList(SETTLED_HOLDS, Document.class, Collections.emptyList())) {
+            String idHold = entry.getString(ID_HOLD);
+            if (wanted.contains(idHold)) settled.put(idHold, entry.getBoolean(SOLD_HOLD, false));
+        }
+        return settled;
+    }
+
+    /**
+     * This method is used for forget the holds settled before a moment, once no retry can settle them again
+     * @param before epoch millis
+     * @return events changed
+     */
+    @Override
+    public long pruneSettledHolds(long before) {
+        Query query = new Query(Criteria.where(SETTLED_HOLDS + "." + SETTLED_AT).lt(before));
+        Update update = new Update().pull(SETTLED_HOLDS, new Document(SETTLED_AT, new Document("$lt", before)));
+
+        return mongoTemplate.updateMulti(query, update, Event.class).getModifiedCount();
+    }
+
+    /**
+     * This method is used for get the availability of every locality of an event
+     * @param idEvent event's id
+     * @return availability by locality
+     */
+    @Override
+    public List<AvailabilityDTO> getAvailability(String idEvent) {
+        if (!StringUtils.hasText(idEvent)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        return loadStock(idEvent).toAvailability();
+    }
+
+    /**
+     * This method is used for get the tickets that can still be reserved in a locality
+     * @param idEvent event's id
+     * @param idLocality locality's id
+     * @return remaining tickets
+     */
+    @Override
+    public int getRemainingTickets(String idEvent, String idLocality) {
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idLocality)) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
+
+        StockCache.LocalityStock locality = loadStock(idEvent).locality(idLocality);
+        return locality == null ? 0 : Math.max(0, locality.remaining());
+    }
+
+    private double priceOf(String idEvent, String idLocality) {
+        StockCache.EventStock stock;
+        try {
+            // A cold cache is loaded once here, the next sales of the event read it from memory
+            stock = loadStock(idEvent);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        StockCache.LocalityStock locality = stock.locality(idLocality);
+        return locality == null ? 0 : locality.price();
+    }
+
+    private StockCache.EventStock loadStock(String idEvent) {
+        StockCache.EventStock stock = stockCache.get(idEvent);
+        if (stock != null) return stock;
+
+        stock = reloadStock(idEvent);
+        if (stock == null) {
+            throw new IllegalArgumentException(NOT_FOUND);
+        }
+        return stock;
+    }
+
+    private StockCache.EventStock reloadStock(String idEvent) {
+        // Only the localities are needed to rebuild the counters
+        Query query = new Query(Criteria.where("_id").is(idEvent));
+        query.fields().include("localitiesEvent");
+
+        Event event = mongoTemplate.findOne(query, Event.class);
+        if (event == null) return null;
+
+        return stockCache.put(idEvent, event.getLocalitiesEvent() == null ? Collections.emptyList() : event.getLocalitiesEvent());
+    }
+
+    private State applyGuarded(String idEvent, String idLocality, Document condition, Update update, int soldDelta, int heldDelta) {
+        return applyGuarded(idEvent, idLocality, null, condition, update, soldDelta, heldDelta);
+    }
+
+    private State applyGuarded(String idEvent, String idLocality, List<String> idHolds, Document condition, Update update,
+                               int soldDelta, int heldDelta) {
+        StockCache.EventStock cached = stockCache.peek(idEvent);
+
+        // The guard and the increment run in the same single-document update, so no ticket is oversold
+        Criteria criteria = Criteria.where("_id").is(idEvent).and("$expr").is(localityMatches(idLocality, condition));
+        if (idHolds != null) {
+            // A hold already settled is not settled again
+            criteria = criteria.and(SETTLED_HOLDS + "." + ID_HOLD).nin(idHolds);
+        }
+        Query query = new Query(criteria);
+        update.filterArray(Criteria.where("locality.idLocality").is(idLocality));
+
+        UpdateResult result = mongoTemplate.updateFirst(query, update, Event.class);
+
+        if (result.getModifiedCount() == 0) {
+            return State.ERROR;
+        }
+
+        stockCache.apply(idEvent, cached, idLocality, soldDelta, heldDelta);
+        return State.SUCCESS;
+    }
+
+    private Document localityMatches(String idLocality, Document condition) {
+        Document matches = new Document("$and", List.of(
+                new Document("$eq", List.of("$$locality.idLocality", idLocality)),
+                condition));
+
+        Document filter = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$localitiesEvent", List.of())))
+                .append("as", LOCALITY)
+                .append("cond", matches));
+
+        return new Document("$gt", List.of(new Document("$size", filter), 0));
+    }
+
+    private Document settled(String idHold, boolean sold) {
+        return new Document(ID_HOLD, idHold).append(SOLD_HOLD, sold).append(SETTLED_AT, System.currentTimeMillis());
+    }
+
+    private Document heldAtLeast(int quantity) {
+        return new Document("$gte", List.of(counter(HELD), quantity));
+    }
+
+    private Document counter(String field) {
+        return new Document("$ifNull", List.of("$$locality." + field, 0));
+    }
+
+    private void validate(String idEvent, String idLocality, int quantity) {
+        if (!StringUtils.hasText(idEvent) || !StringUtils.hasText(idLocality) || quantity <= 0) {
+            throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+        }
+    }
+}
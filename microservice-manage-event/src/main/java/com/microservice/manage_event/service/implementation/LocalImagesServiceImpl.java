@@ -0,0 +1,162 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.service.interfaces.ImagesService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Service
+@ConditionalOnProperty(name = "images.storage", havingValue = "local")
+public class LocalImagesServiceImpl implements ImagesService {
+
+    private final Path objects;
+    private final Path refs;
+    private final Path tmp;
+    private final String baseUrl;
+
+    // Uploads and deletes of the same content are serialized so a reference is never counted on a file being removed
+    private final Object[] locks = new Object[64];
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern REFERENCE = Pattern.compile("[0-9a-f]{64}/[0-9a-f-]{36}");
+    private static final String NOT_VALID = "Image id is not valid";
+
+    public LocalImagesServiceImpl(@Value("${images.local.root:./data/images}") String root,
+                                  @Value("${images.local.base-url:/api/public-event/images}") String baseUrl) {
+        Path rootPath = Paths.get(root).toAbsolutePath().normalize();
+        this.objects = rootPath.resolve("objects");
+        this.refs = rootPath.resolve("refs");
+        this.tmp = rootPath.resolve("tmp");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        try {
+            Files.createDirectories(objects);
+            Files.createDirectories(refs);
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map uploadImage(MultipartFile image) throws IOException {
+        try (InputStream input = image.getInputStream()) {
+            return uploadImage(image.getOriginalFilename(), input, image.getSize());
+        }
+    }
+
+    /**
+     * This method is used for store an image under the SHA-256 of its content. The same content
+     * uploaded twice is stored once and gets one more reference
+     * @param publicId name of the image, only kept by the caller since the content names the file
+     * @param content image content, it is not closed
+     * @param size content length in bytes
+     * @return upload result, public_id is the reference to delete and secure_url is the same for equal content
+     */
+    @Override
+    public Map uploadImage(String publicId, InputStream content, long size) throws IOException {
+        // The content is hashed while it is written, so it is read only once
+        Path temp = Files.createTempFile(tmp, "upload-", null);
+        String hash;
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream output = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                content.transferTo(output);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+
+            synchronized (lockOf(hash)) {
+                Path object = objectPath(hash);
+                if (Files.exists(object)) {
+                    Files.delete(temp);
+                } else {
+                    Files.createDirectories(object.getParent());
+                    Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+                }
+
+                String reference = UUID.randomUUID().toString();
+                Files.createDirectories(refs.resolve(hash));
+                Files.createFile(refs.resolve(hash).resolve(reference));
+
+                Map<String, Object> result = new HashMap<>();
+                result.put("public_id", hash + "/" + reference);
+                result.put("secure_url", baseUrl + "/" + hash);
+                result.put("bytes", Files.size(object));
+                return result;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * This method is used for drop a reference to an image, the content is removed with its last reference
+     * @param idImage public_id returned by the upload
+     * @return result of the delete
+     */
+    @Override
+    public Map deleteImage(String idImage) throws IOException {
+        if (idImage == null || !REFERENCE.matcher(idImage).matches()) throw new IllegalArgumentException(NOT_VALID);
+
+        String hash = idImage.substring(0, 64);
+        synchronized (lockOf(hash)) {
+            boolean deleted = Files.deleteIfExists(refs.resolve(idImage));
+
+            Path references = refs.resolve(hash);
+            boolean unused;
+            try (Stream<Path> remaining = Files.exists(references) ? Files.list(references) : Stream.empty()) {
+                unused = remaining.findAny().isEmpty();
+            }
+            if (unused) {
+                Files.deleteIfExists(references);
+                Files.deleteIfExists(objectPath(hash));
+            }
+            return Map.of("result", deleted ? "ok" : "not found");
+        }
+    }
+
+    /**
+     * This method is used for get the file of an image
+     * @param hash SHA-256 of the image content
+     * @return image file, or null when there is no such image
+     */
+    public Path getImageFile(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) return null;
+
+        Path object = objectPath(hash);
+        return Files.isRegularFile(object) ? object : null;
+    }
+
+    private Path objectPath(String hash) {
+        // Two levels of fan-out keep the directories small
+        return objects.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Object lockOf(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % locks.length];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,24 +1,50 @@
 package com.microservice.manage_event.service.implementation;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservice.manage_event.persistence.model.entities.Location;
 import com.microservice.manage_event.persistence.repository.LocationRepository;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.NearestLocationDTO;
+import com.microservice.manage_event.presentation.dto.TownDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
 import com.microservice.manage_event.service.interfaces.LocationService;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
+import com.microservice.manage_event.utils.CompressedBody;
+import com.microservice.manage_event.utils.GeoKdTree;
+import com.microservice.manage_event.utils.LocationTree;
 import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 public class LocationServiceImpl implements LocationService {
 
     final LocationRepository locationRepository;
+    final ObjectMapper objectMapper;
 
-    public LocationServiceImpl(LocationRepository locationRepository) {
+    // Built at startup or on first use, the locations collection is reference data and does not change while running
+    private volatile LocationLevels levels;
+
+    private static final String LEVEL_NOT_FOUND = "Location does not exist";
+    private static final String COORDINATES_NOT_VALID = "Coordinates are not valid";
+
+    public LocationServiceImpl(LocationRepository locationRepository, ObjectMapper objectMapper) {
         this.locationRepository = locationRepository;
+        this.objectMapper = objectMapper;
     }
 
     @Override
+    @Cacheable(CacheConfig.LOCATIONS)
     public List<Location> getLocations() {
         return locationRepository.findAll();
     }
@@ -33,4 +59,152 @@ public class LocationServiceImpl implements LocationService {
         return locationRepository.findById(locationId)
                 .orElseThrow(() -> new NullPointerException("Location does not exist"));
     }
-}
\ No newline at end of file
+
+    /**
+     * This method is used for get the children of one level of the locations tree, already serialized
+     * @param path country, department and city leading to the level, empty for the countries
+     * @return body with the names of the children, or the towns with their postal codes when the path ends in a city
+     * @throws ResourceNotFoundException when the path does not exist
+     */
+    @Override
+    public CompressedBody getLocationLevel(String... path) throws ResourceNotFoundException {
+        if (path == null || path.length >= LocationTree.TOWN) throw new IllegalArgumentException("Path is not valid");
+        for (String name : path) {
+            if (!StringUtils.hasText(name)) throw new IllegalArgumentException("Path is not valid");
+        }
+
+        LocationLevels current = loadLevels();
+        int node = current.tree().find(path);
+        if (node < 0) throw new ResourceNotFoundException(LEVEL_NOT_FOUND);
+
+        return current.bodies()[node];
+    }
+
+    /**
+     * This method is used for find the location closest to a coordinate, without querying the database
+     * @param latitude latitude in degrees
+     * @param longitude longitude in degrees
+     * @return closest location and its distance
+     * @throws ResourceNotFoundException when no location has coordinates
+     */
+    @Override
+    public NearestLocationDTO reverseGeocode(double latitude, double longitude) throws ResourceNotFoundException {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            throw new IllegalArgumentException(COORDINATES_NOT_VALID);
+        }
+
+        LocationLevels current = loadLevels();
+        int nearest = current.geo().nearest(latitude, longitude);
+        if (nearest < 0) throw new ResourceNotFoundException(LEVEL_NOT_FOUND);
+
+        Location location = current.geoLocations()[nearest];
+        return new NearestLocationDTO(location,
+                GeoKdTree.distanceKm(latitude, longitude, location.getLatitude(), location.getLongitude()));
+    }
+
+    /**
+     * This method is used for find a location with coordinates by postal code, or else by city, without querying
+     * the database. The rows without coordinates are left out
+     * @param postalCode postal code, 0 when unknown
+     * @param city (optional) city's name
+     * @return location, or null when no location with coordinates matches
+     */
+    public Location findPositioned(int postalCode, String city) {
+        LocationLevels current = loadLevels();
+
+        Location found = postalCode == 0 ? null : current.byPostalCode().get(postalCode);
+        if (found == null && StringUtils.hasText(city)) {
+            found = current.byCity().get(city.trim().toLowerCase(Locale.ROOT));
+        }
+        return found;
+    }
+
+    /**
+     * This method is used for load the locations when the application starts, so the first requests do not wait for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLocationsOnStartup() {
+        loadLevels();
+    }
+
+    /**
+     * This method is used for get the locations tree, loading it on first use
+     * @return locations tree
+     */
+    public LocationTree getLocationTree() {
+        return loadLevels().tree();
+    }
+
+    private LocationLevels loadLevels() {
+        LocationLevels current = levels;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (levels == null) {
+                List<Location> locations = locationRepository.findAll();
+                levels = buildLevels(LocationTree.of(locations), locations);
+            }
+            return levels;
+        }
+    }
+
+    private LocationLevels buildLevels(LocationTree tree, List<Location> locations) {
+        // Every node above the towns answers one request, serialize them all once
+        int inner = tree.firstOfLevel(LocationTree.TOWN);
+        CompressedBody[] bodies = new CompressedBody[inner];
+
+        for (int node = 0; node < inner; node++) {
+            int first = tree.firstChild(node);
+            int count = tree.childCount(node);
+
+            Object children;
+            if (tree.level(node) == LocationTree.CITY) {
+                List<TownDTO> towns = new ArrayList<>(count);
+                for (int child = first; child < first + count; child++) {
+                    towns.add(new TownDTO(tree.name(child), tree.postalCode(child), tree.latitude(child), tree.longitude(child)));
+                }
+                children = towns;
+            } else {
+                List<String> names = new ArrayList<>(count);
+                for (int child = first; child < first + count; child++) {
+                    names.add(tree.name(child));
+                }
+                children = names;
+            }
+            bodies[node] = CompressedBody.of(serialize(new MessageDTO<>(false, children)));
+        }
+
+        // Rows without coordinates are stored as 0, 0 and would attract every lookup near the gulf of Guinea
+        Location[] geoLocations = locations.stream()
+                .filter(location -> location.getLatitude() != 0 || location.getLongitude() != 0)
+                .toArray(Location[]::new);
+        double[] latitudes = new double[geoLocations.length];
+        double[] longitudes = new double[geoLocations.length];
+        Map<Integer, Location> byPostalCode = new HashMap<>();
+        Map<String, Location> byCity = new HashMap<>();
+        for (int i = 0; i < geoLocations.length; i++) {
+            latitudes[i] = geoLocations[i].getLatitude();
+            longitudes[i] = geoLocations[i].getLongitude();
+
+            // The first row of a postal code or a city gives its coordinates
+            byPostalCode.putIfAbsent(geoLocations[i].getPostal_code(), geoLocations[i]);
+            if (geoLocations[i].getCity() != null) {
+                byCity.putIfAbsent(geoLocations[i].getCity().trim().toLowerCase(Locale.ROOT), geoLocations[i]);
+            }
+        }
+
+        return new LocationLevels(tree, bodies, new GeoKdTree(latitudes, longitudes), geoLocations, byPostalCode, byCity);
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record LocationLevels(LocationTree tree, CompressedBody[] bodies, GeoKdTree geo, Location[] geoLocations,
+                                  Map<Integer, Location> byPostalCode, Map<String, Location> byCity) {
+    }
+}
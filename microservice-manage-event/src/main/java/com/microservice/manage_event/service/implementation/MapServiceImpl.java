@@ -0,0 +1,140 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.MapClusterDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.interfaces.MapService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.MarkerClusterIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Service
+public class MapServiceImpl implements MapService {
+
+    final MongoTemplate mongoTemplate;
+
+    private final int maxZoom;
+    private final int cellPixels;
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    // Only replaced by the scheduler thread while holding the service's monitor
+    private volatile MarkerClusterIndex index;
+
+    private static final String[] EVENT_FIELDS = {"position", "state", "startDate", "endDate"};
+    private static final String BBOX_NOT_VALID = "bbox must be west,south,east,north";
+    private static final String INDEX_NOT_READY = "The catalog is still being indexed";
+
+    public MapServiceImpl(MongoTemplate mongoTemplate,
+                          @Value("${map.max-zoom:16}") int maxZoom,
+                          @Value("${map.cell-pixels:64}") int cellPixels) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxZoom = maxZoom;
+        this.cellPixels = cellPixels;
+    }
+
+    /**
+     * This method is used for get the clustered markers of the active events inside a bounding box
+     * @param bbox west,south,east,north in degrees, west is bigger than east when the box crosses the antimeridian
+     * @param zoom map zoom
+     * @return clusters, the ones with a single event carry its id
+     */
+    @Override
+    public List<MapClusterDTO> getClusters(String bbox, int zoom) {
+        if (!StringUtils.hasText(bbox) || zoom < 0) throw new IllegalArgumentException(BBOX_NOT_VALID);
+
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException(BBOX_NOT_VALID);
+
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(BBOX_NOT_VALID);
+        }
+        if (Math.abs(box[0]) > 180 || Math.abs(box[2]) > 180 || Math.abs(box[1]) > 90 || Math.abs(box[3]) > 90 || box[1] > box[3]) {
+            throw new IllegalArgumentException(BBOX_NOT_VALID);
+        }
+
+        MarkerClusterIndex current = index;
+        if (current == null) throw new ErrorResponseException(INDEX_NOT_READY);
+
+        return current.query(box[0], box[1], box[2], box[3], zoom);
+    }
+
+    /**
+     * This method is used for build the clusters again from the events collection, it also drops the events that finished
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${map.rebuild-millis:3600000}")
+    public synchronized void rebuildClusters() {
+        LocalDate today = LocalDate.now();
+        MarkerClusterIndex fresh = new MarkerClusterIndex(maxZoom, cellPixels);
+
+        Query query = new Query(Criteria.where("position").exists(true).and("state").ne(State.INACTIVE));
+        query.fields().include(EVENT_FIELDS);
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            events.forEach(event -> putEvent(fresh, event, today));
+        }
+        index = fresh;
+    }
+
+    /**
+     * This method is used for apply the catalog changes published since the last call
+     * @return events refreshed
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${map.refresh-millis:1000}")
+    public synchronized int applyCatalogChanges() {
+        if (index == null) return 0;
+
+        // An event changed several times is read once
+        Set<String> changed = new LinkedHashSet<>();
+        String idEvent;
+        while ((idEvent = pendingChanges.poll()) != null) {
+            changed.add(idEvent);
+        }
+        if (changed.isEmpty()) return 0;
+
+        Query query = new Query(Criteria.where("_id").in(changed));
+        query.fields().include(EVENT_FIELDS);
+        List<Event> events = mongoTemplate.find(query, Event.class);
+
+        // Deleted events are not found, every changed event leaves the map and the ones still active come back
+        LocalDate today = LocalDate.now();
+        changed.forEach(index::remove);
+        events.forEach(event -> putEvent(index, event, today));
+        return changed.size();
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (StringUtils.hasText(change.idEvent())) pendingChanges.add(change.idEvent());
+    }
+
+    private void putEvent(MarkerClusterIndex target, Event event, LocalDate today) {
+        if (event.getPosition() == null || event.getState() == State.INACTIVE) return;
+
+        LocalDate lastDay = event.getEndDate() != null ? event.getEndDate() : event.getStartDate();
+        if (lastDay != null && lastDay.isBefore(today)) return;
+
+        target.put(event.getIdEvent(), event.getPosition().getY(), event.getPosition().getX());
+    }
+}
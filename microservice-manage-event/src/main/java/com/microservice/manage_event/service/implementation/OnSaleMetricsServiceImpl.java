@@ -0,0 +1,193 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.presentation.dto.OnSaleMetricsDTO;
+import com.microservice.manage_event.presentation.dto.OnSaleWindowDTO;
+import com.microservice.manage_event.service.interfaces.OnSaleMetricsService;
+import com.microservice.manage_event.utils.SlidingWindow;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class OnSaleMetricsServiceImpl implements OnSaleMetricsService {
+
+    private final long sseTimeoutMillis;
+    private final Map<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private static final int TICKETS = 0;
+    private static final int HOLDS = 1;
+    private static final int CHECKOUTS = 2;
+    private static final int CHECKOUT_FAILURES = 3;
+    // Checkout latency histogram: four buckets by power of two of microseconds, up to about two minutes
+    private static final int LATENCY = 4;
+    private static final int LATENCY_BUCKETS = 4 * 27;
+    private static final int COUNTERS = LATENCY + LATENCY_BUCKETS;
+    private static final int[] WINDOW_SECONDS = {1, 10, 60};
+    private static final String ALL_EVENTS = "";
+
+    public OnSaleMetricsServiceImpl(@Value("${on-sale.sse-timeout-millis:1800000}") long sseTimeoutMillis) {
+        this.sseTimeoutMillis = sseTimeoutMillis;
+    }
+
+    @EventListener
+    public void onTicketsSold(TicketsSoldEvent sold) {
+        if (!StringUtils.hasText(sold.idEvent())) return;
+        window(sold.idEvent()).add(TICKETS, sold.quantity(), System.currentTimeMillis());
+    }
+
+    /**
+     * This method is used for count a hold created for an event
+     * @param idEvent event's id
+     */
+    @Override
+    public void recordHold(String idEvent) {
+        if (!StringUtils.hasText(idEvent)) return;
+        window(idEvent).add(HOLDS, 1, System.currentTimeMillis());
+    }
+
+    /**
+     * This method is used for count a checkout of an event with its latency
+     * @param idEvent event's id
+     * @param success false when the checkout failed
+     * @param latencyNanos time the checkout took
+     */
+    @Override
+    public void recordCheckout(String idEvent, boolean success, long latencyNanos) {
+        if (!StringUtils.hasText(idEvent)) return;
+
+        long now = System.currentTimeMillis();
+        SlidingWindow window = window(idEvent);
+        window.add(CHECKOUTS, 1, now);
+        if (!success) window.add(CHECKOUT_FAILURES, 1, now);
+        window.add(LATENCY + latencyBucket(TimeUnit.NANOSECONDS.toMicros(latencyNanos)), 1, now);
+    }
+
+    /**
+     * This method is used for get the rates of the last 1, 10 and 60 seconds
+     * @param idEvent (optional) event's id, every event with recent activity when empty
+     * @return rates by event, the busiest first
+     */
+    @Override
+    public List<OnSaleMetricsDTO> getOnSaleMetrics(String idEvent) {
+        long now = System.currentTimeMillis();
+
+        if (StringUtils.hasText(idEvent)) {
+            SlidingWindow window = windows.get(idEvent);
+            // An event without recent activity reads as zero instead of creating its window
+            return List.of(snapshot(idEvent, window == null ? new SlidingWindow(COUNTERS) : window, now));
+        }
+
+        List<OnSaleMetricsDTO> metrics = new ArrayList<>(windows.size());
+        windows.forEach((id, window) -> metrics.add(snapshot(id, window, now)));
+        metrics.sort(Comparator.comparingDouble((OnSaleMetricsDTO dto) -> dto.windows().get(WINDOW_SECONDS.length - 1).ticketsPerSecond())
+                .reversed());
+        return metrics;
+    }
+
+    /**
+     * This method is used for subscribe to the rates, pushed every on-sale.push-millis
+     * @param idEvent (optional) event's id, every event with recent activity when empty
+     * @return emitter of the subscription
+     */
+    @Override
+    public SseEmitter streamOnSaleMetrics(String idEvent) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        Subscriber subscriber = new Subscriber(StringUtils.hasText(idEvent) ? idEvent : ALL_EVENTS, emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * This method is used for send the current rates to the subscribers and drop the windows of events
+     * without activity in the last minute
+     * @return subscribers reached
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${on-sale.push-millis:1000}")
+    public int pushOnSaleMetrics() {
+        long now = System.currentTimeMillis();
+        // A sale racing with the removal of an idle window is the only increment that can be lost
+        windows.values().removeIf(window -> window.isIdle(SlidingWindow.MAX_SECONDS, now));
+        if (subscribers.isEmpty()) return 0;
+
+        // Subscribers of the same event share one snapshot
+        Map<String, List<OnSaleMetricsDTO>> snapshots = new HashMap<>();
+        int pushed = 0;
+        for (Subscriber subscriber : subscribers) {
+            List<OnSaleMetricsDTO> metrics = snapshots.computeIfAbsent(subscriber.idEvent(), this::getOnSaleMetrics);
+            try {
+                subscriber.emitter().send(SseEmitter.event().name("on-sale").data(metrics));
+                pushed++;
+            } catch (IOException | IllegalStateException e) {
+                // The dashboard went away, completing the emitter removes the subscriber
+                subscribers.remove(subscriber);
+                subscriber.emitter().completeWithError(e);
+            }
+        }
+        return pushed;
+    }
+
+    private SlidingWindow window(String idEvent) {
+        // get is lock-free, computeIfAbsent is only reached by the first sale of an event
+        SlidingWindow window = windows.get(idEvent);
+        return window != null ? window : windows.computeIfAbsent(idEvent, id -> new SlidingWindow(COUNTERS));
+    }
+
+    private OnSaleMetricsDTO snapshot(String idEvent, SlidingWindow window, long now) {
+        List<OnSaleWindowDTO> rates = new ArrayList<>(WINDOW_SECONDS.length);
+        for (int seconds : WINDOW_SECONDS) {
+            long[] sums = window.sum(seconds, now);
+            long checkouts = sums[CHECKOUTS];
+            rates.add(new OnSaleWindowDTO(seconds,
+                    (double) sums[TICKETS] / seconds,
+                    (double) sums[HOLDS] / seconds,
+                    (double) checkouts / seconds,
+                    checkouts == 0 ? 0 : (double) sums[CHECKOUT_FAILURES] / checkouts,
+                    p99Millis(sums)));
+        }
+        return new OnSaleMetricsDTO(idEvent, rates);
+    }
+
+    private double p99Millis(long[] sums) {
+        long total = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            total += sums[LATENCY + i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * 0.99);
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS - 1 && (seen += sums[LATENCY + bucket]) < rank) {
+            bucket++;
+        }
+        // Upper bound of the bucket, at most a quarter above the real value
+        return (5 + (bucket & 3)) * Math.pow(2, bucket >> 2) / 4 / 1000;
+    }
+
+    private static int latencyBucket(long micros) {
+        long value = Math.max(1, micros);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        // The two bits after the leading one split each power of two in four
+        long quarter = exponent >= 2 ? value >>> (exponent - 2) : value << (2 - exponent);
+        return Math.min(LATENCY_BUCKETS - 1, exponent * 4 + (int) (quarter & 3));
+    }
+
+    private record Subscriber(String idEvent, SseEmitter emitter) {
+    }
+}
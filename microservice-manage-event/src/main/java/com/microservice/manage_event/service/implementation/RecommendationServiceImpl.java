@@ -0,0 +1,137 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.client.ManageUserClient;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.EventRecommendationDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.interfaces.RecommendationService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.RecommendationIndex;
+import com.microservice.manage_user.persistence.model.entities.User;
+import com.microservice.manage_user.persistence.model.vo.EventVO;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Service
+public class RecommendationServiceImpl implements RecommendationService {
+
+    final MongoTemplate mongoTemplate;
+    final ManageUserClient manageUserClient;
+
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile RecommendationIndex index;
+
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String INDEX_NOT_READY = "The catalog is still being indexed";
+    private static final String START_DATE = "startDate";
+    private static final String[] EVENT_FIELDS = {"name", "state", START_DATE, "locations.city"};
+    private static final int RECOMMENDATIONS = 10;
+
+    public RecommendationServiceImpl(MongoTemplate mongoTemplate, ManageUserClient manageUserClient) {
+        this.mongoTemplate = mongoTemplate;
+        this.manageUserClient = manageUserClient;
+    }
+
+    /**
+     * This method is used for recommend upcoming events to a user by their city and the events they attended.
+     * Only the events sharing one of them with the user are scored, and the result is cached by user
+     * @param userId user's id
+     * @return up to 10 events by score, the highest first
+     */
+    @Override
+    @Cacheable(cacheNames = CacheConfig.RECOMMENDATIONS, key = "#userId")
+    public List<EventRecommendationDTO> recommendEvents(String userId) {
+        if (!StringUtils.hasText(userId)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        RecommendationIndex current = index;
+        if (current == null) throw new ErrorResponseException(INDEX_NOT_READY);
+
+        ResponseEntity<MessageDTO<User>> userResponse = manageUserClient.getUser(userId);
+        User user = Optional.ofNullable(userResponse.getBody())
+                .map(MessageDTO::getData)
+                .orElseThrow(() -> new NullPointerException("Usuario no encontrado"));
+
+        return List.copyOf(current.recommend(preferencesOf(user), LocalDate.now(), RECOMMENDATIONS));
+    }
+
+    /**
+     * This method is used for build the recommendation index again from the upcoming active events.
+     * It also drops the events that started since the last build
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${recommendations.rebuild-millis:600000}")
+    public synchronized void rebuildRecommendations() {
+        RecommendationIndex fresh = new RecommendationIndex();
+
+        Query query = new Query(Criteria.where("state").is(State.ACTIVE).and(START_DATE).gt(LocalDate.now()));
+        query.fields().include(EVENT_FIELDS);
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            events.forEach(fresh::put);
+        }
+
+        index = fresh;
+    }
+
+    /**
+     * This method is used for apply the catalog changes published since the last call
+     * @return events refreshed
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${recommendations.refresh-millis:1000}")
+    public synchronized int applyCatalogChanges() {
+        RecommendationIndex current = index;
+        if (current == null) return 0;
+
+        Set<String> changed = new LinkedHashSet<>();
+        String idEvent;
+        while ((idEvent = pendingChanges.poll()) != null) {
+            changed.add(idEvent);
+        }
+
+        LocalDate today = LocalDate.now();
+        for (String id : changed) {
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include(EVENT_FIELDS);
+            Event event = mongoTemplate.findOne(query, Event.class);
+
+            if (event != null && event.getState() == State.ACTIVE && event.getStartDate() != null
+                    && event.getStartDate().isAfter(today)) {
+                current.put(event);
+            } else {
+                current.remove(id);
+            }
+        }
+        return changed.size();
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (StringUtils.hasText(change.idEvent())) pendingChanges.add(change.idEvent());
+    }
+
+    private RecommendationIndex.Preferences preferencesOf(User user) {
+        // The events attended are counted by name once, every candidate reads the same counts
+        Map<String, Integer> attended = new HashMap<>();
+        if (user.getEventsUser() != null) {
+            for (EventVO event : user.getEventsUser()) {
+                if (event != null && event.getName() != null) attended.merge(event.getName(), 1, Integer::sum);
+            }
+        }
+        return new RecommendationIndex.Preferences(user.getAddress(), attended);
+    }
+}
@@ -0,0 +1,249 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.SalesBucket;
+import com.microservice.manage_event.persistence.model.enums.SalesGranularity;
+import com.microservice.manage_event.presentation.dto.CumulativeSalesDTO;
+import com.microservice.manage_event.presentation.dto.SalesVelocityDTO;
+import com.microservice.manage_event.service.interfaces.SalesSeriesService;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class SalesSeriesServiceImpl implements SalesSeriesService {
+
+    final MongoTemplate mongoTemplate;
+
+    private final long minuteRetentionDays;
+    private final ConcurrentHashMap<BucketKey, Sales> pendingSales = new ConcurrentHashMap<>();
+    // Buckets whose upsert failed, the next flush writes them again. Only used under the flushSales lock
+    private final Map<BucketKey, Sales> unwrittenMinutes = new HashMap<>();
+    private final Map<BucketKey, Sales> unwrittenHours = new HashMap<>();
+
+    private static final String PARAMETER_NOT_VALID = "Parameter are not valid";
+    private static final String RANGE_NOT_VALID = "Range is not valid";
+    private static final String ID_EVENT = "idEvent";
+    private static final String ID_LOCALITY = "idLocality";
+    private static final String GRANULARITY = "granularity";
+    private static final String START = "start";
+    private static final String TICKETS = "tickets";
+    private static final String REVENUE = "revenue";
+    private static final String PURGE_AT = "purgeAt";
+    private static final int DEFAULT_POINTS = 60;
+    private static final int MAX_POINTS = 1440;
+
+    public SalesSeriesServiceImpl(MongoTemplate mongoTemplate,
+                                  @Value("${sales.series.minute-retention-days:7}") long minuteRetentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.minuteRetentionDays = minuteRetentionDays;
+    }
+
+    @EventListener
+    public void onTicketsSold(TicketsSoldEvent sold) {
+        if (!StringUtils.hasText(sold.idEvent()) || sold.quantity() <= 0) return;
+
+        // The purchase path only adds to the bucket of the current minute, flushSales writes it
+        LocalDateTime minute = SalesGranularity.MINUTE.truncate(LocalDateTime.now());
+        pendingSales.merge(new BucketKey(sold.idEvent(), sold.idLocality(), minute),
+                new Sales(sold.quantity(), sold.quantity() * sold.price()), Sales::plus);
+    }
+
+    /**
+     * This method is used for write the sales counted since the last call. Every event, locality and minute
+     * touched becomes one upsert of its minute bucket and one of its hour bucket, whatever the number of
+     * sales, so the writes per flush are bounded by the buckets and not by the sales rate. The buckets
+     * a failed write did not apply are written again by the next call
+     * @return buckets written
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${sales.series.flush-millis:5000}")
+    public synchronized int flushSales() {
+        Map<BucketKey, Sales> minutes = new HashMap<>(unwrittenMinutes);
+        Map<BucketKey, Sales> hours = new HashMap<>(unwrittenHours);
+        unwrittenMinutes.clear();
+        unwrittenHours.clear();
+        for (BucketKey key : pendingSales.keySet()) {
+            // remove is atomic with merge, a sale published meanwhile starts a new entry
+            Sales sales = pendingSales.remove(key);
+            if (sales == null) continue;
+
+            minutes.merge(key, sales, Sales::plus);
+            hours.merge(key.truncate(SalesGranularity.HOUR), sales, Sales::plus);
+        }
+        if (minutes.isEmpty() && hours.isEmpty()) return 0;
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesBucket.class);
+        LocalDateTime purgeAt = LocalDateTime.now().plusDays(minuteRetentionDays);
+        List<BucketKey> minuteKeys = new ArrayList<>(minutes.keySet());
+        List<BucketKey> hourKeys = new ArrayList<>(hours.keySet());
+        minuteKeys.forEach(key ->
+                bulk.upsert(byId(key, SalesGranularity.MINUTE), increment(key, SalesGranularity.MINUTE, minutes.get(key)).setOnInsert(PURGE_AT, purgeAt)));
+        hourKeys.forEach(key ->
+                bulk.upsert(byId(key, SalesGranularity.HOUR), increment(key, SalesGranularity.HOUR, hours.get(key))));
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: every upsert but the failed ones was applied, only those are kept
+            for (BulkWriteError error : e.getErrors()) {
+                int index = error.getIndex();
+                if (index < minuteKeys.size()) {
+                    BucketKey key = minuteKeys.get(index);
+                    unwrittenMinutes.merge(key, minutes.get(key), Sales::plus);
+                } else {
+                    BucketKey key = hourKeys.get(index - minuteKeys.size());
+                    unwrittenHours.merge(key, hours.get(key), Sales::plus);
+                }
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // Nothing is known to be written, every bucket is kept
+            minutes.forEach((key, sales) -> unwrittenMinutes.merge(key, sales, Sales::plus));
+            hours.forEach((key, sales) -> unwrittenHours.merge(key, sales, Sales::plus));
+            throw e;
+        }
+
+        return minutes.size() + hours.size();
+    }
+
+    /**
+     * This method is used for get the tickets sold by bucket, with their rate per minute
+     * @param idEvent event's id
+     * @param idLocality (optional) locality's id, every locality when empty
+     * @param granularity minute or hour buckets, minute by default
+     * @param from (optional) start of the range, 60 buckets before to by default
+     * @param to (optional) end of the range, now by default
+     * @return buckets with sales in the range, oldest first
+     */
+    @Override
+    public List<SalesVelocityDTO> getSalesVelocity(String idEvent, String idLocality, SalesGranularity granularity,
+                                                   LocalDateTime from, LocalDateTime to) {
+        SalesGranularity unit = granularity == null ? SalesGranularity.MINUTE : granularity;
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? end.minusMinutes(DEFAULT_POINTS * unit.minutes()) : from;
+
+        List<SalesVelocityDTO> velocity = new ArrayList<>();
+        findSales(idEvent, idLocality, unit, start, end).forEach((bucket, sales) ->
+                velocity.add(new SalesVelocityDTO(bucket, (int) sales.tickets(), sales.revenue(),
+                        (double) sales.tickets() / unit.minutes())));
+        return velocity;
+    }
+
+    /**
+     * This method is used for get the tickets sold since the beginning of the sale at the end of every bucket
+     * @param idEvent event's id
+     * @param idLocality (optional) locality's id, every locality when empty
+     * @param granularity minute or hour buckets, minute by default
+     * @param from (optional) start of the range, 60 buckets before to by default
+     * @param to (optional) end of the range, now by default
+     * @return running totals of the buckets with sales in the range, oldest first
+     */
+    @Override
+    public List<CumulativeSalesDTO> getCumulativeSales(String idEvent, String idLocality, SalesGranularity granularity,
+                                                       LocalDateTime from, LocalDateTime to) {
+        SalesGranularity unit = granularity == null ? SalesGranularity.MINUTE : granularity;
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = unit.truncate(from == null ? end.minusMinutes(DEFAULT_POINTS * unit.minutes()) : from);
+
+        Map<LocalDateTime, Sales> buckets = findSales(idEvent, idLocality, unit, start, end);
+
+        // The curve starts from what was sold before the range: whole hours, then the minutes of the first hour
+        LocalDateTime hour = SalesGranularity.HOUR.truncate(start);
+        Sales total = sumSales(criteria(idEvent, idLocality, SalesGranularity.HOUR).and(START).lt(hour));
+        if (hour.isBefore(start)) {
+            total = total.plus(sumSales(criteria(idEvent, idLocality, SalesGranularity.MINUTE).and(START).gte(hour).lt(start)));
+        }
+
+        List<CumulativeSalesDTO> cumulative = new ArrayList<>(buckets.size());
+        for (Map.Entry<LocalDateTime, Sales> bucket : buckets.entrySet()) {
+            total = total.plus(bucket.getValue());
+            cumulative.add(new CumulativeSalesDTO(bucket.getKey(), total.tickets(), total.revenue()));
+        }
+        return cumulative;
+    }
+
+    private Map<LocalDateTime, Sales> findSales(String idEvent, String idLocality, SalesGranularity granularity,
+                                                LocalDateTime from, LocalDateTime to) {
+        if (!StringUtils.hasText(idEvent)) throw new IllegalArgumentException(PARAMETER_NOT_VALID);
+
+        LocalDateTime start = granularity.truncate(from);
+        if (!start.isBefore(to) || Duration.between(start, to).toMinutes() > MAX_POINTS * granularity.minutes()) {
+            throw new IllegalArgumentException(RANGE_NOT_VALID);
+        }
+
+        Query query = new Query(criteria(idEvent, idLocality, granularity).and(START).gte(start).lt(to))
+                .with(Sort.by(START));
+        query.fields().include(START, TICKETS, REVENUE);
+
+        // Buckets of the same start but different localities are added together
+        Map<LocalDateTime, Sales> sales = new TreeMap<>();
+        for (SalesBucket bucket : mongoTemplate.find(query, SalesBucket.class)) {
+            sales.merge(bucket.getStart(), new Sales(bucket.getTickets(), bucket.getRevenue()), Sales::plus);
+        }
+        return sales;
+    }
+
+    private Sales sumSales(Criteria criteria) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group().sum(TICKETS).as(TICKETS).sum(REVENUE).as(REVENUE));
+
+        Document total = mongoTemplate.aggregate(aggregation, SalesBucket.class, Document.class).getUniqueMappedResult();
+        if (total == null) return new Sales(0, 0);
+        return new Sales(((Number) total.get(TICKETS)).longValue(), ((Number) total.get(REVENUE)).doubleValue());
+    }
+
+    private Criteria criteria(String idEvent, String idLocality, SalesGranularity granularity) {
+        Criteria criteria = Criteria.where(ID_EVENT).is(idEvent).and(GRANULARITY).is(granularity);
+        if (StringUtils.hasText(idLocality)) {
+            criteria = criteria.and(ID_LOCALITY).is(idLocality);
+        }
+        return criteria;
+    }
+
+    private Update increment(BucketKey key, SalesGranularity granularity, Sales sales) {
+        return new Update()
+                .setOnInsert(ID_EVENT, key.idEvent())
+                .setOnInsert(ID_LOCALITY, key.idLocality())
+                .setOnInsert(GRANULARITY, granularity)
+                .setOnInsert(START, key.start())
+                .inc(TICKETS, (int) sales.tickets())
+                .inc(REVENUE, sales.revenue());
+    }
+
+    private Query byId(BucketKey key, SalesGranularity granularity) {
+        String idBucket = key.idEvent() + "|" + key.idLocality() + "|" + granularity + "|" + key.start();
+        return new Query(Criteria.where("_id").is(idBucket));
+    }
+
+    private record BucketKey(String idEvent, String idLocality, LocalDateTime start) {
+
+        BucketKey truncate(SalesGranularity granularity) {
+            return new BucketKey(idEvent, idLocality, granularity.truncate(start));
+        }
+    }
+
+    private record Sales(long tickets, double revenue) {
+
+        Sales plus(Sales other) {
+            return new Sales(tickets + other.tickets, revenue + other.revenue);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.microservice.manage_event.service.implementation;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.SuggestionType;
+import com.microservice.manage_event.presentation.dto.SuggestionDTO;
+import com.microservice.manage_event.service.interfaces.SuggestService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import com.microservice.manage_event.utils.SuggestionTrie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Service
+public class SuggestServiceImpl implements SuggestService {
+
+    final MongoTemplate mongoTemplate;
+
+    private final int topK;
+    private final int maxKeyLength;
+    private final Queue<String> pendingChanges = new ConcurrentLinkedQueue<>();
+
+    // Only written by the scheduler thread while holding the service's monitor
+    private volatile SuggestionTrie<SuggestionDTO> trie;
+    private Map<String, String> eventCities = new HashMap<>();
+    private Map<String, City> cities = new HashMap<>();
+
+    private static final String[] EVENT_FIELDS = {"name", "state", "startDate", "endDate", "ticketsSold", "locations.city"};
+    private static final String EVENT_ID = "event:";
+    private static final String CITY_ID = "city:";
+    private static final int KEY_WORDS = 3;
+
+    // An event starting today gets this much on top of its popularity, fading over about a month
+    private static final double UPCOMING_WEIGHT = 3.0;
+    private static final double UPCOMING_DAYS = 30.0;
+
+    public SuggestServiceImpl(MongoTemplate mongoTemplate,
+                              @Value("${suggest.top-k:10}") int topK,
+                              @Value("${suggest.max-key-length:24}") int maxKeyLength) {
+        this.mongoTemplate = mongoTemplate;
+        this.topK = topK;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * This method is used for get the events and cities whose words start with the typed text
+     * @param prefix typed text
+     * @param limit maximum suggestions
+     * @return suggestions ranked by popularity and upcoming start date
+     */
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        SuggestionTrie<SuggestionDTO> current = trie;
+        if (current == null || !StringUtils.hasText(prefix)) return Collections.emptyList();
+
+        String key = String.join(" ", EventSearchIndex.tokenize(prefix));
+
+        // Keep the space the user typed after the last word so "rock " does not match "rockola"
+        if (!key.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) key += " ";
+
+        return current.lookup(key, Math.min(Math.max(limit, 1), topK));
+    }
+
+    /**
+     * This method is used for build the suggestions again from the events and locations collections.
+     * It also refreshes the upcoming boost, which changes every day
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${suggest.rebuild-millis:3600000}")
+    public synchronized void rebuildSuggestions() {
+        LocalDate today = LocalDate.now();
+        SuggestionTrie<SuggestionDTO> fresh = new SuggestionTrie<>(topK, maxKeyLength);
+        Map<String, String> freshEventCities = new HashMap<>();
+        Map<String, City> freshCities = new HashMap<>();
+
+        // Cities and towns with no event are still suggested, after the ones that have events
+        Query locations = new Query();
+        locations.fields().include("city", "town");
+        try (Stream<Location> stream = mongoTemplate.stream(locations, Location.class)) {
+            stream.forEach(location -> {
+                addCity(freshCities, location.getCity());
+                addCity(freshCities, location.getTown());
+            });
+        }
+
+        Query events = new Query();
+        events.fields().include(EVENT_FIELDS);
+        try (Stream<Event> stream = mongoTemplate.stream(events, Event.class)) {
+            stream.forEach(event -> putEvent(fresh, freshEventCities, freshCities, event, today));
+        }
+
+        for (Map.Entry<String, City> city : freshCities.entrySet()) {
+            putCity(fresh, city.getKey(), city.getValue());
+        }
+
+        trie = fresh;
+        eventCities = freshEventCities;
+        cities = freshCities;
+    }
+
+    /**
+     * This method is used for apply the catalog changes published since the last call
+     * @return events refreshed
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${suggest.refresh-millis:1000}")
+    public synchronized int applyCatalogChanges() {
+        if (trie == null) return 0;
+
+        // An event changed several times is read once
+        Set<String> changed = new LinkedHashSet<>();
+        String idEvent;
+        while ((idEvent = pendingChanges.poll()) != null) {
+            changed.add(idEvent);
+        }
+
+        LocalDate today = LocalDate.now();
+        for (String id : changed) {
+            Query query = new Query(Criteria.where("_id").is(id));
+            query.fields().include(EVENT_FIELDS);
+            Event event = mongoTemplate.findOne(query, Event.class);
+
+            // Take the event out of its previous city before adding it again
+            trie.remove(EVENT_ID + id);
+            String previousCity = eventCities.remove(id);
+            if (previousCity != null) {
+                City city = cities.get(previousCity);
+                city.events--;
+                putCity(trie, previousCity, city);
+            }
+
+            if (event != null) {
+                String cityKey = putEvent(trie, eventCities, cities, event, today);
+                if (cityKey != null) putCity(trie, cityKey, cities.get(cityKey));
+            }
+        }
+        return changed.size();
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (StringUtils.hasText(change.idEvent())) pendingChanges.add(change.idEvent());
+    }
+
+    private String putEvent(SuggestionTrie<SuggestionDTO> target, Map<String, String> targetEventCities,
+                            Map<String, City> targetCities, Event event, LocalDate today) {
+        if (!StringUtils.hasText(event.getName()) || event.getState() == State.INACTIVE) return null;
+
+        // Finished events are not suggested
+        LocalDate lastDay = event.getEndDate() != null ? event.getEndDate() : event.getStartDate();
+        if (lastDay != null && lastDay.isBefore(today)) return null;
+
+        target.put(EVENT_ID + event.getIdEvent(), new SuggestionDTO(SuggestionType.EVENT, event.getName(), event.getIdEvent()),
+                eventScore(event, today), keys(event.getName()));
+
+        if (event.getLocations() == null) return null;
+        String cityKey = addCity(targetCities, event.getLocations().getCity());
+        if (cityKey == null) return null;
+
+        targetCities.get(cityKey).events++;
+        targetEventCities.put(event.getIdEvent(), cityKey);
+        return cityKey;
+    }
+
+    private void putCity(SuggestionTrie<SuggestionDTO> target, String cityKey, City city) {
+        target.put(CITY_ID + cityKey, new SuggestionDTO(SuggestionType.CITY, city.name, null),
+                Math.log1p(Math.max(0, city.events)), keys(city.name));
+    }
+
+    private String addCity(Map<String, City> targetCities, String name) {
+        if (!StringUtils.hasText(name)) return null;
+
+        String key = String.join(" ", EventSearchIndex.tokenize(name));
+        if (key.isEmpty()) return null;
+
+        targetCities.computeIfAbsent(key, k -> new City(name.trim()));
+        return key;
+    }
+
+    private double eventScore(Event event, LocalDate today) {
+        double popularity = Math.log1p(Math.max(0, event.getTicketsSold()));
+        if (event.getStartDate() == null) return popularity;
+
+        long days = Math.max(0, ChronoUnit.DAYS.between(today, event.getStartDate()));
+        return popularity + UPCOMING_WEIGHT * Math.exp(-days / UPCOMING_DAYS);
+    }
+
+    private List<String> keys(String text) {
+        // The text can be found from any of its first words: "rock" finds "Concierto de Rock"
+        List<String> tokens = EventSearchIndex.tokenize(text);
+        List<String> keys = new ArrayList<>(Math.min(KEY_WORDS, tokens.size()));
+        for (int i = 0; i < tokens.size() && i < KEY_WORDS; i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    private static final class City {
+
+        private final String name;
+        private int events;
+
+        private City(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.UserVO;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+
+public interface AttendeeService {
+
+    State registerAttendee(String idEvent, String idUser) throws ResourceNotFoundException;
+    State unregisterAttendee(String idEvent, String idUser);
+    EventPageDTO<UserVO> getAttendees(String idEvent, String cursor, int size);
+
+    int migrateRegisteredUsers();
+}
@@ -0,0 +1,10 @@
+package com.microservice.manage_event.service.interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface EventImportService {
+
+    void importEvents(InputStream input, boolean csv, OutputStream output) throws IOException;
+}
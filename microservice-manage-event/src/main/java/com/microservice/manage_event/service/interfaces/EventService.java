@@ -1,31 +1,44 @@
 package com.microservice.manage_event.service.interfaces;
 
 import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
 import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
 import com.microservice.manage_event.persistence.model.vo.LocalityVO;
 import com.microservice.manage_event.persistence.model.vo.LocationVO;
 import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
 import com.microservice.manage_event.presentation.dto.*;
+import org.springframework.data.domain.Sort;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface EventService {
 
     Event getEvent(String idEvent);
-    List<Event> getEvents();
+    String getImageLink(String idEvent, String slot, ImageVariant variant) throws ResourceNotFoundException;
+    EventPageDTO<EventCardDTO> getEvents(String cursor, int size);
+    List<NearbyEventDTO> findNearby(double latitude, double longitude, double radiusKm, int page, int size);
+    int backfillPositions();
+    long backfillVersions();
+    EventPageDTO<Map<String, Object>> getEvents(String cursor, int size, String fields);
+    void streamEvents(OutputStream outputStream) throws IOException;
     State createEvent(CreateEventDTO createEventDTO, LocationVO location, List<LocalityVO> localities);
 
     State deleteEvent(String idEvent) throws ResourceNotFoundException;
     State updateEvent(UpdateEventDTO updateEventDTO, String id);
-    List<Event> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity);
+    List<EventCardDTO> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity);
+    List<Map<String, Object>> filterEvents(String name, LocalDate startDate, LocalDate endDate, String address, Integer capacity, String fields);
     List<GlobalEventStatsDTO> getEventStatistics();
     State createLocality(String idEvent, CreateLocalityDTO newLocality);
     State deleteLocality(String idEvent, String idLocality);
     State updateLocality(String idEvent, String idLocality, UpdateLocalityDTO updateLocalityDTO);
 
-    List<ListEventStatsDTO> getStatisticsByEvent();
+    EventPageDTO<ListEventStatsDTO> getStatisticsByEvent(StatsSort sort, Sort.Direction direction, Integer top, String cursor, int size);
 
     List<EventRecommendationDTO> recommendEvents(String userId);
 }
@@ -0,0 +1,20 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.presentation.dto.GlobalEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.ListEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.StatsReconcileDTO;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface EventStatsService {
+
+    GlobalEventStatsDTO getGlobalStats();
+    EventPageDTO<ListEventStatsDTO> getStatsByEvent(StatsSort sort, Sort.Direction direction, String cursor, int size);
+    List<ListEventStatsDTO> getTopStats(StatsSort sort, Sort.Direction direction, int limit);
+
+    int applyChanges();
+    StatsReconcileDTO reconcileStats();
+}
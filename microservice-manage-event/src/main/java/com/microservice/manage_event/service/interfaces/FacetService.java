@@ -0,0 +1,15 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.enums.Availability;
+import com.microservice.manage_event.persistence.model.enums.DateBucket;
+import com.microservice.manage_event.presentation.dto.FacetResultDTO;
+
+import java.util.List;
+
+public interface FacetService {
+
+    FacetResultDTO getFacets(String name, List<String> cities, List<String> departments, List<DateBucket> dates,
+                             List<String> prices, List<Availability> availability, int limit);
+    void rebuildFacets();
+    int applyCatalogChanges();
+}
@@ -0,0 +1,16 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.CreateHoldDTO;
+
+public interface HoldService {
+
+    TicketHold createHold(CreateHoldDTO createHoldDTO);
+    State confirmHold(String idHold);
+    State releaseHold(String idHold);
+
+    int expireDueHolds();
+    int sweepExpiredHolds();
+    long pruneSettledHolds();
+}
@@ -0,0 +1,14 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.entities.ImageJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+public interface ImageJobService {
+
+    void enqueueImages(String idEvent, Map<String, MultipartFile> images) throws IOException;
+    int runJobs();
+    void processJob(ImageJob job);
+}
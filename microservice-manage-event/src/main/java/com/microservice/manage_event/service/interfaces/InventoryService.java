@@ -0,0 +1,20 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.AvailabilityDTO;
+
+import java.util.List;
+import java.util.Map;
+
+public interface InventoryService {
+
+    State reserveTickets(String idEvent, String idLocality, int quantity);
+    State releaseTickets(String idEvent, String idLocality, int quantity);
+    State confirmHold(String idEvent, String idLocality, String idHold, int quantity);
+    State releaseHolds(String idEvent, String idLocality, List<String> idHolds, int quantity);
+    Map<String, Boolean> findSettledHolds(String idEvent, List<String> idHolds);
+    long pruneSettledHolds(long before);
+
+    List<AvailabilityDTO> getAvailability(String idEvent);
+    int getRemainingTickets(String idEvent, String idLocality);
+}
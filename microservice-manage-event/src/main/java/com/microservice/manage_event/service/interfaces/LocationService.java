@@ -1,6 +1,9 @@
 package com.microservice.manage_event.service.interfaces;
 
 import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.NearestLocationDTO;
+import com.microservice.manage_event.utils.CompressedBody;
 import org.bson.types.ObjectId;
 
 import java.util.List;
@@ -10,4 +13,8 @@ public interface LocationService {
     List<Location> getLocations();
 
     Location getLocationById(ObjectId locationId);
+
+    CompressedBody getLocationLevel(String... path) throws ResourceNotFoundException;
+
+    NearestLocationDTO reverseGeocode(double latitude, double longitude) throws ResourceNotFoundException;
 }
@@ -0,0 +1,12 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.presentation.dto.MapClusterDTO;
+
+import java.util.List;
+
+public interface MapService {
+
+    List<MapClusterDTO> getClusters(String bbox, int zoom);
+    void rebuildClusters();
+    int applyCatalogChanges();
+}
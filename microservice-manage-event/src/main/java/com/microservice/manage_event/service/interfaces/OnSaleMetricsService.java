@@ -0,0 +1,15 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.presentation.dto.OnSaleMetricsDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+public interface OnSaleMetricsService {
+
+    void recordHold(String idEvent);
+    void recordCheckout(String idEvent, boolean success, long latencyNanos);
+    List<OnSaleMetricsDTO> getOnSaleMetrics(String idEvent);
+    SseEmitter streamOnSaleMetrics(String idEvent);
+    int pushOnSaleMetrics();
+}
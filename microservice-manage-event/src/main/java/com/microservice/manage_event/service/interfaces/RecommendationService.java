@@ -0,0 +1,12 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.presentation.dto.EventRecommendationDTO;
+
+import java.util.List;
+
+public interface RecommendationService {
+
+    List<EventRecommendationDTO> recommendEvents(String userId);
+    void rebuildRecommendations();
+    int applyCatalogChanges();
+}
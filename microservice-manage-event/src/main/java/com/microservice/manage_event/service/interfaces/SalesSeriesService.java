@@ -0,0 +1,17 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.persistence.model.enums.SalesGranularity;
+import com.microservice.manage_event.presentation.dto.CumulativeSalesDTO;
+import com.microservice.manage_event.presentation.dto.SalesVelocityDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SalesSeriesService {
+
+    int flushSales();
+    List<SalesVelocityDTO> getSalesVelocity(String idEvent, String idLocality, SalesGranularity granularity,
+                                            LocalDateTime from, LocalDateTime to);
+    List<CumulativeSalesDTO> getCumulativeSales(String idEvent, String idLocality, SalesGranularity granularity,
+                                                LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,12 @@
+package com.microservice.manage_event.service.interfaces;
+
+import com.microservice.manage_event.presentation.dto.SuggestionDTO;
+
+import java.util.List;
+
+public interface SuggestService {
+
+    List<SuggestionDTO> suggest(String prefix, int limit);
+    void rebuildSuggestions();
+    int applyCatalogChanges();
+}
@@ -0,0 +1,9 @@
+package com.microservice.manage_event.utils;
+
+/**
+ * Published after an event of the catalog is created, updated or deleted, so the in-process
+ * read models can refresh that event
+ * @param idEvent event's id
+ */
+public record CatalogChangeEvent(String idEvent) {
+}
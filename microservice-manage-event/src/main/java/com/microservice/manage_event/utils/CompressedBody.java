@@ -0,0 +1,45 @@
+package com.microservice.manage_event.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response body serialized once and kept both as is and gzip compressed, each with its own strong ETag
+ * since they are different representations of the same resource.
+ * @param json body
+ * @param gzip gzip compressed body
+ * @param etag quoted ETag of the body
+ * @param gzipEtag quoted ETag of the compressed body
+ */
+public record CompressedBody(byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+    /**
+     * This method is used for compress a body and compute its ETags
+     * @param json body
+     * @return body ready to be served
+     */
+    public static CompressedBody of(byte[] json) {
+        String hash = sha256(json);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CompressedBody(json, compressed.toByteArray(), "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.microservice.manage_event.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time, so a file of any size is parsed without holding it in memory.
+ * Fields may be quoted, a quoted field can hold commas, line breaks and "" for a quote.
+ */
+public class CsvReader {
+
+    private static final char BOM = '\uFEFF';
+
+    private final Reader reader;
+    private int pending = -1;
+    private boolean started;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * This method is used for read the next record
+     * @return fields of the record, or null at the end of the input
+     * @throws IOException if the input can not be read or a quoted field is not closed
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        // A byte order mark at the start of the file is not part of the first field
+        if (!started) {
+            started = true;
+            if (c == BOM) c = read();
+        }
+        if (c == -1) return null;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) throw new IOException("Quoted field is not closed");
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                // CRLF ends a single record
+                if (c == '\r') {
+                    int after = read();
+                    if (after != '\n') pending = after;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending >= 0) {
+            int c = pending;
+            pending = -1;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,390 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-process full-text index of the event catalog.
+ * Names and addresses are folded (accents removed, lower case) and tokenized into one inverted index per
+ * field. Terms are kept sorted, so a query token also matches the terms it prefixes, and matches are
+ * ranked with BM25. Searches share a read lock, catalog changes take the write lock.
+ */
+@Component
+public class EventSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final String[] FIELDS = {"name", "address", "startDate", "endDate", "capacity"};
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A prefix match counts less than the whole word, and the address less than the name
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final double ADDRESS_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    final MongoTemplate mongoTemplate;
+
+    private final int maxResults;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<String> changedWhileLoading = new ConcurrentLinkedQueue<>();
+    private volatile boolean loading;
+    private volatile Catalog catalog;
+
+    public EventSearchIndex(MongoTemplate mongoTemplate, @Value("${search.max-results:200}") int maxResults) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * This method is used for know if the index was loaded and can answer searches
+     * @return true when the catalog is indexed
+     */
+    public boolean isReady() {
+        return catalog != null;
+    }
+
+    /**
+     * This method is used for search events by name and address, filtered by dates and capacity
+     * @param name words of the event's name, any of them must match
+     * @param address (optional) words of the address, any of them must match
+     * @param startDate (optional) minimum start date
+     * @param endDate (optional) maximum end date
+     * @param capacity (optional) minimum capacity
+     * @return ids of the best matches, best first
+     */
+    public List<String> search(String name, String address, LocalDate startDate, LocalDate endDate, Integer capacity) {
+        lock.readLock().lock();
+        try {
+            Catalog current = catalog;
+            if (current == null) return Collections.emptyList();
+
+            Map<Integer, Double> scores = current.name.score(current, tokenize(name));
+
+            List<String> addressTokens = tokenize(address);
+            if (!addressTokens.isEmpty()) {
+                Map<Integer, Double> addressScores = current.address.score(current, addressTokens);
+                scores.keySet().retainAll(addressScores.keySet());
+                scores.replaceAll((doc, score) -> score + ADDRESS_WEIGHT * addressScores.get(doc));
+            }
+
+            // Keep only the best maxResults matches in a min-heap
+            PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                Doc doc = current.docs.get(entry.getKey());
+                if (doc == null || !doc.matches(startDate, endDate, capacity)) continue;
+
+                best.add(entry);
+                if (best.size() > maxResults) best.poll();
+            }
+
+            String[] ids = new String[best.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = current.docs.get(best.poll().getKey()).idEvent;
+            }
+            return Arrays.asList(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get every event whose name matches, without ranking or limit
+     * @param name words of the event's name, any of them must match
+     * @return ids of the matching events
+     */
+    public Set<String> matching(String name) {
+        lock.readLock().lock();
+        try {
+            Catalog current = catalog;
+            if (current == null) return Collections.emptySet();
+
+            Set<String> ids = new HashSet<>();
+            for (Integer position : current.name.score(current, tokenize(name)).keySet()) {
+                Doc doc = current.docs.get(position);
+                if (doc != null) ids.add(doc.idEvent);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for add an event to the index or replace the indexed version
+     * @param event event with name, address, dates and capacity
+     */
+    public void upsert(Event event) {
+        lock.writeLock().lock();
+        try {
+            // Until the first load the whole catalog is missing, a partial index must not look ready
+            if (catalog == null) return;
+            catalog.remove(event.getIdEvent());
+            catalog.add(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for remove an event from the index
+     * @param idEvent event's id
+     */
+    public void remove(String idEvent) {
+        lock.writeLock().lock();
+        try {
+            if (catalog != null) catalog.remove(idEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for build the index again from the events collection. It also picks up
+     * the changes made by other instances of the service
+     */
+    @Scheduled(fixedDelayString = "${search.rebuild-millis:600000}")
+    public void rebuild() {
+        changedWhileLoading.clear();
+        loading = true;
+
+        Catalog fresh = new Catalog();
+        Query query = new Query();
+        query.fields().include(FIELDS);
+
+        try (Stream<Event> events = mongoTemplate.stream(query, Event.class)) {
+            events.forEach(fresh::add);
+        } catch (RuntimeException e) {
+            loading = false;
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            catalog = fresh;
+            loading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Changes published while the collection was read may be missing from the new catalog
+        String idEvent;
+        while ((idEvent = changedWhileLoading.poll()) != null) {
+            refresh(idEvent);
+        }
+    }
+
+    @EventListener
+    public void onCatalogChange(CatalogChangeEvent change) {
+        if (!StringUtils.hasText(change.idEvent())) return;
+
+        if (loading) changedWhileLoading.add(change.idEvent());
+        if (catalog != null) refresh(change.idEvent());
+    }
+
+    private void refresh(String idEvent) {
+        Query query = new Query(Criteria.where("_id").is(idEvent));
+        query.fields().include(FIELDS);
+
+        Event event = mongoTemplate.findOne(query, Event.class);
+        if (event == null) {
+            remove(idEvent);
+        } else {
+            upsert(event);
+        }
+    }
+
+    /**
+     * This method is used for fold and split a text into index terms
+     * @param text text to tokenize
+     * @return terms in lower case without accents
+     */
+    public static List<String> tokenize(String text) {
+        if (!StringUtils.hasText(text)) return Collections.emptyList();
+
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static final class Catalog {
+
+        private final List<Doc> docs = new ArrayList<>();
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final FieldIndex name = new FieldIndex();
+        private final FieldIndex address = new FieldIndex();
+        private int live;
+
+        private void add(Event event) {
+            if (event.getIdEvent() == null) return;
+
+            // Positions only grow, so every posting list stays sorted
+            int position = docs.size();
+            Doc doc = new Doc(event);
+            docs.add(doc);
+            positions.put(doc.idEvent, position);
+            name.add(position, tokenize(doc.name));
+            address.add(position, tokenize(doc.address));
+            live++;
+        }
+
+        private void remove(String idEvent) {
+            Integer position = positions.remove(idEvent);
+            if (position == null) return;
+
+            // Postings of a removed event are skipped while scoring and dropped on compaction
+            docs.set(position, null);
+            name.remove(position);
+            address.remove(position);
+            live--;
+
+            if (docs.size() > 1024 && live < docs.size() / 2) compact();
+        }
+
+        private void compact() {
+            List<Doc> current = new ArrayList<>(docs);
+            docs.clear();
+            positions.clear();
+            name.clear();
+            address.clear();
+            live = 0;
+
+            for (Doc doc : current) {
+                if (doc == null) continue;
+                int position = docs.size();
+                docs.add(doc);
+                positions.put(doc.idEvent, position);
+                name.add(position, tokenize(doc.name));
+                address.add(position, tokenize(doc.address));
+                live++;
+            }
+        }
+    }
+
+    private static final class Doc {
+
+        private final String idEvent;
+        private final String name;
+        private final String address;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final int capacity;
+
+        private Doc(Event event) {
+            this.idEvent = event.getIdEvent();
+            this.name = event.getName();
+            this.address = event.getAddress();
+            this.startDate = event.getStartDate();
+            this.endDate = event.getEndDate();
+            this.capacity = event.getCapacity();
+        }
+
+        private boolean matches(LocalDate minStartDate, LocalDate maxEndDate, Integer minCapacity) {
+            if (minStartDate != null && (startDate == null || startDate.isBefore(minStartDate))) return false;
+            if (maxEndDate != null && (endDate == null || endDate.isAfter(maxEndDate))) return false;
+            return minCapacity == null || capacity >= minCapacity;
+        }
+    }
+
+    private static final class FieldIndex {
+
+        private final NavigableMap<String, Postings> terms = new TreeMap<>();
+        private int[] lengths = new int[1024];
+        private long totalLength;
+
+        private void add(int position, List<String> tokens) {
+            if (position >= lengths.length) {
+                lengths = Arrays.copyOf(lengths, Math.max(position + 1, lengths.length * 2));
+            }
+            lengths[position] = tokens.size();
+            totalLength += tokens.size();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, key -> new Postings()).add(position, frequency));
+        }
+
+        private void remove(int position) {
+            totalLength -= lengths[position];
+        }
+
+        private void clear() {
+            terms.clear();
+            totalLength = 0;
+        }
+
+        private Map<Integer, Double> score(Catalog catalog, List<String> tokens) {
+            Map<Integer, Double> scores = new HashMap<>();
+            if (catalog.live == 0) return scores;
+
+            double averageLength = Math.max(1.0, (double) totalLength / catalog.live);
+
+            for (String token : new LinkedHashSet<>(tokens)) {
+                Postings exact = terms.get(token);
+                if (exact != null) accumulate(catalog, exact, 1.0, averageLength, scores);
+
+                // Terms that start with the token, so "conci" finds "concierto"
+                int expanded = 0;
+                for (Map.Entry<String, Postings> entry : terms.tailMap(token, false).entrySet()) {
+                    if (!entry.getKey().startsWith(token) || expanded++ == MAX_PREFIX_TERMS) break;
+                    accumulate(catalog, entry.getValue(), PREFIX_WEIGHT, averageLength, scores);
+                }
+            }
+            return scores;
+        }
+
+        private void accumulate(Catalog catalog, Postings postings, double weight, double averageLength, Map<Integer, Double> scores) {
+            double idf = Math.log(1 + (catalog.live - postings.size + 0.5) / (postings.size + 0.5));
+
+            for (int i = 0; i < postings.size; i++) {
+                int position = postings.positions[i];
+                if (catalog.docs.get(position) == null) continue;
+
+                int frequency = postings.frequencies[i];
+                double norm = K1 * (1 - B + B * lengths[position] / averageLength);
+                scores.merge(position, weight * idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            }
+        }
+    }
+
+    private static final class Postings {
+
+        private int[] positions = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        private void add(int position, int frequency) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            positions[size] = position;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
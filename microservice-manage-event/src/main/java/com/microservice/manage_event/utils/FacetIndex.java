@@ -0,0 +1,419 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.Availability;
+import com.microservice.manage_event.persistence.model.enums.DateBucket;
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.presentation.dto.EventCardDTO;
+import com.microservice.manage_event.presentation.dto.FacetCountDTO;
+import com.microservice.manage_event.presentation.dto.FacetResultDTO;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar index of the event catalog for faceted search.
+ * Each event gets a position. Its facet values are stored in one array per facet, and every facet value
+ * has a bitmap of the positions that hold it. A query ORs the bitmaps of the selected values and counts
+ * every facet in a single pass. An event that fails only one facet's filter is still counted in that
+ * facet, so the counts show what selecting another value would return.
+ */
+public class FacetIndex {
+
+    public static final String CITY = "city";
+    public static final String DEPARTMENT = "department";
+    public static final String DATE = "date";
+    public static final String PRICE = "price";
+    public static final String AVAILABILITY = "availability";
+
+    private static final int CITY_FACET = 0;
+    private static final int DEPARTMENT_FACET = 1;
+    private static final int DATE_FACET = 2;
+    private static final int PRICE_FACET = 3;
+    private static final int AVAILABILITY_FACET = 4;
+    private static final int NO_VALUE = -1;
+    private static final int NO_DAY = Integer.MAX_VALUE;
+
+    private final double[] priceBounds;
+    private final String[] priceLabels;
+    private final double fewLeftRatio;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final List<EventCardDTO> cards = new ArrayList<>();
+    private final BitSet live = new BitSet();
+
+    private final Values cities = new Values();
+    private final Values departments = new Values();
+    private final BitSet[] priceBits;
+    private final BitSet[] availabilityBits = new BitSet[Availability.values().length];
+
+    private int[] cityColumn = new int[1024];
+    private int[] departmentColumn = new int[1024];
+    private int[] priceColumn = new int[1024];
+    private int[] availabilityColumn = new int[1024];
+    private int[] startDayColumn = new int[1024];
+    private int[] endDayColumn = new int[1024];
+
+    /**
+     * @param priceBounds ascending prices where a band ends and the next one starts
+     * @param fewLeftRatio share of the capacity under which an event has few tickets left
+     */
+    public FacetIndex(double[] priceBounds, double fewLeftRatio) {
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+        this.fewLeftRatio = fewLeftRatio;
+
+        this.priceLabels = new String[this.priceBounds.length + 1];
+        this.priceBits = new BitSet[priceLabels.length];
+        double lower = 0;
+        for (int band = 0; band < priceLabels.length; band++) {
+            priceLabels[band] = band < this.priceBounds.length
+                    ? formatPrice(lower) + "-" + formatPrice(this.priceBounds[band])
+                    : formatPrice(lower) + "+";
+            if (band < this.priceBounds.length) lower = this.priceBounds[band];
+            priceBits[band] = new BitSet();
+        }
+        for (int i = 0; i < availabilityBits.length; i++) {
+            availabilityBits[i] = new BitSet();
+        }
+    }
+
+    /**
+     * This method is used for add an event or replace the indexed version
+     * @param event event with dates, location and localities
+     * @param card card returned for the event
+     */
+    public void put(Event event, EventCardDTO card) {
+        lock.writeLock().lock();
+        try {
+            removePosition(event.getIdEvent());
+
+            int position = cards.size();
+            ensureCapacity(position);
+            cards.add(card);
+            positions.put(event.getIdEvent(), position);
+            live.set(position);
+
+            cityColumn[position] = cities.set(event.getLocations() == null ? null : event.getLocations().getCity(), position);
+            departmentColumn[position] = departments.set(event.getLocations() == null ? null : event.getLocations().getDepartment(), position);
+            startDayColumn[position] = event.getStartDate() == null ? NO_DAY : (int) event.getStartDate().toEpochDay();
+            endDayColumn[position] = event.getEndDate() == null ? startDayColumn[position] : (int) event.getEndDate().toEpochDay();
+
+            // An event is in every band one of its localities is priced in
+            int priceMask = 0;
+            int capacity = 0;
+            if (event.getLocalitiesEvent() != null) {
+                for (LocalityVO locality : event.getLocalitiesEvent()) {
+                    if (locality == null) continue;
+                    priceMask |= 1 << band(locality.getPriceLocality());
+                    capacity += locality.getCapacityLocality();
+                }
+            }
+            priceColumn[position] = priceMask;
+            for (int band = 0; band < priceBits.length; band++) {
+                if ((priceMask & (1 << band)) != 0) priceBits[band].set(position);
+            }
+
+            Availability availability = availability(card.remainingTickets(), capacity);
+            availabilityColumn[position] = availability.ordinal();
+            availabilityBits[availability.ordinal()].set(position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for remove an event
+     * @param idEvent event's id
+     */
+    public void remove(String idEvent) {
+        lock.writeLock().lock();
+        try {
+            removePosition(idEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the positions of the given events
+     * @param idEvents events' ids
+     * @return bitmap of the positions of the indexed ones
+     */
+    public BitSet positionsOf(Collection<String> idEvents) {
+        lock.readLock().lock();
+        try {
+            BitSet bits = new BitSet();
+            for (String idEvent : idEvents) {
+                Integer position = positions.get(idEvent);
+                if (position != null) bits.set(position);
+            }
+            return bits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for filter the upcoming events and count every facet in one pass
+     * @param filter selected values of each facet, an empty selection does not filter
+     * @param today day used for the date buckets
+     * @param limit maximum events returned, the ones starting first
+     * @return matching events, their total and the counts by facet
+     */
+    public FacetResultDTO query(Filter filter, LocalDate today, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet[] selected = {
+                    cities.union(filter.cities()),
+                    departments.union(filter.departments()),
+                    null,
+                    priceUnion(filter.prices()),
+                    availabilityUnion(filter.availability())
+            };
+            int dateFilter = 0;
+            for (DateBucket bucket : filter.dates()) {
+                dateFilter |= 1 << bucket.ordinal();
+            }
+
+            int todayDay = (int) today.toEpochDay();
+            int weekEnd = (int) today.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)).toEpochDay();
+            int monthEnd = (int) today.with(TemporalAdjusters.lastDayOfMonth()).toEpochDay();
+
+            int[] cityCounts = new int[cities.size()];
+            int[] departmentCounts = new int[departments.size()];
+            int[] dateCounts = new int[DateBucket.values().length];
+            int[] priceCounts = new int[priceLabels.length];
+            int[] availabilityCounts = new int[availabilityBits.length];
+
+            // Earliest start dates, the latest one on top so it is the one replaced
+            PriorityQueue<Integer> first = new PriorityQueue<>(
+                    Comparator.<Integer>comparingInt(position -> startDayColumn[position]).reversed());
+            int total = 0;
+
+            BitSet scan = (BitSet) live.clone();
+            if (filter.candidates() != null) scan.and(filter.candidates());
+
+            for (int position = scan.nextSetBit(0); position >= 0; position = scan.nextSetBit(position + 1)) {
+                if (endDayColumn[position] < todayDay) continue;
+
+                int dateMask = dateMask(startDayColumn[position], weekEnd, monthEnd);
+
+                // Which facets reject the event, more than one means it is not counted anywhere
+                int failedFacet = NO_VALUE;
+                int failures = 0;
+                for (int facet = 0; facet < selected.length && failures < 2; facet++) {
+                    boolean passes = facet == DATE_FACET
+                            ? dateFilter == 0 || (dateMask & dateFilter) != 0
+                            : selected[facet] == null || selected[facet].get(position);
+                    if (!passes) {
+                        failedFacet = facet;
+                        failures++;
+                    }
+                }
+                if (failures > 1) continue;
+
+                if (failures == 0) {
+                    total++;
+                    first.add(position);
+                    if (first.size() > limit) first.poll();
+                }
+
+                if (failures == 0 || failedFacet == CITY_FACET) count(cityCounts, cityColumn[position]);
+                if (failures == 0 || failedFacet == DEPARTMENT_FACET) count(departmentCounts, departmentColumn[position]);
+                if (failures == 0 || failedFacet == DATE_FACET) countMask(dateCounts, dateMask);
+                if (failures == 0 || failedFacet == PRICE_FACET) countMask(priceCounts, priceColumn[position]);
+                if (failures == 0 || failedFacet == AVAILABILITY_FACET) availabilityCounts[availabilityColumn[position]]++;
+            }
+
+            EventCardDTO[] items = new EventCardDTO[first.size()];
+            for (int i = items.length - 1; i >= 0; i--) {
+                items[i] = cards.get(first.poll());
+            }
+
+            Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+            facets.put(CITY, cities.counts(cityCounts));
+            facets.put(DEPARTMENT, departments.counts(departmentCounts));
+            facets.put(DATE, counts(Arrays.stream(DateBucket.values()).map(Enum::name).toArray(String[]::new), dateCounts));
+            facets.put(PRICE, counts(priceLabels, priceCounts));
+            facets.put(AVAILABILITY, counts(Arrays.stream(Availability.values()).map(Enum::name).toArray(String[]::new), availabilityCounts));
+
+            return new FacetResultDTO(total, Arrays.asList(items), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the number of events indexed
+     * @return events indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removePosition(String idEvent) {
+        Integer position = positions.remove(idEvent);
+        if (position == null) return;
+
+        // The position is not reused, the next rebuild drops it
+        live.clear(position);
+        cards.set(position, null);
+        cities.clear(cityColumn[position], position);
+        departments.clear(departmentColumn[position], position);
+        for (BitSet bits : priceBits) {
+            bits.clear(position);
+        }
+        availabilityBits[availabilityColumn[position]].clear(position);
+    }
+
+    private void ensureCapacity(int position) {
+        if (position < cityColumn.length) return;
+
+        int length = Math.max(position + 1, cityColumn.length * 2);
+        cityColumn = Arrays.copyOf(cityColumn, length);
+        departmentColumn = Arrays.copyOf(departmentColumn, length);
+        priceColumn = Arrays.copyOf(priceColumn, length);
+        availabilityColumn = Arrays.copyOf(availabilityColumn, length);
+        startDayColumn = Arrays.copyOf(startDayColumn, length);
+        endDayColumn = Arrays.copyOf(endDayColumn, length);
+    }
+
+    private int band(double price) {
+        int band = 0;
+        while (band < priceBounds.length && price >= priceBounds[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    private Availability availability(int remaining, int capacity) {
+        if (remaining <= 0) return Availability.SOLD_OUT;
+        if (remaining <= capacity * fewLeftRatio) return Availability.FEW_LEFT;
+        return Availability.AVAILABLE;
+    }
+
+    private int dateMask(int startDay, int weekEnd, int monthEnd) {
+        if (startDay == NO_DAY) return 0;
+
+        // Events already running started before the end of the week, so they count as this week
+        int mask = 0;
+        if (startDay <= weekEnd) mask |= 1 << DateBucket.THIS_WEEK.ordinal();
+        if (startDay <= monthEnd) mask |= 1 << DateBucket.THIS_MONTH.ordinal();
+        if (startDay > monthEnd) mask |= 1 << DateBucket.LATER.ordinal();
+        return mask;
+    }
+
+    private BitSet priceUnion(Collection<String> labels) {
+        if (labels.isEmpty()) return null;
+
+        BitSet union = new BitSet();
+        for (int band = 0; band < priceLabels.length; band++) {
+            if (labels.contains(priceLabels[band])) union.or(priceBits[band]);
+        }
+        return union;
+    }
+
+    private BitSet availabilityUnion(Collection<Availability> values) {
+        if (values.isEmpty()) return null;
+
+        BitSet union = new BitSet();
+        for (Availability value : values) {
+            union.or(availabilityBits[value.ordinal()]);
+        }
+        return union;
+    }
+
+    private static void count(int[] counts, int value) {
+        if (value != NO_VALUE) counts[value]++;
+    }
+
+    private static void countMask(int[] counts, int mask) {
+        for (int value = 0; value < counts.length; value++) {
+            if ((mask & (1 << value)) != 0) counts[value]++;
+        }
+    }
+
+    private static List<FacetCountDTO> counts(String[] labels, int[] counts) {
+        List<FacetCountDTO> result = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            result.add(new FacetCountDTO(labels[i], counts[i]));
+        }
+        return result;
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.floor(price) ? String.valueOf((long) price) : String.valueOf(price);
+    }
+
+    /**
+     * Selected values of each facet
+     * @param candidates (optional) positions allowed by a filter that is not a facet, like the name
+     * @param cities cities
+     * @param departments departments
+     * @param dates date buckets
+     * @param prices price band labels
+     * @param availability availability values
+     */
+    public record Filter(BitSet candidates, Collection<String> cities, Collection<String> departments,
+                         Collection<DateBucket> dates, Collection<String> prices, Collection<Availability> availability) {
+    }
+
+    private static final class Values {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<BitSet> bits = new ArrayList<>();
+
+        private int set(String name, int position) {
+            if (name == null || name.isBlank()) return NO_VALUE;
+
+            int id = ids.computeIfAbsent(name.trim(), key -> {
+                names.add(key);
+                bits.add(new BitSet());
+                return names.size() - 1;
+            });
+            bits.get(id).set(position);
+            return id;
+        }
+
+        private void clear(int id, int position) {
+            if (id != NO_VALUE) bits.get(id).clear(position);
+        }
+
+        private BitSet union(Collection<String> selected) {
+            if (selected.isEmpty()) return null;
+
+            BitSet union = new BitSet();
+            for (String name : selected) {
+                Integer id = ids.get(name.trim());
+                if (id != null) union.or(bits.get(id));
+            }
+            return union;
+        }
+
+        private int size() {
+            return names.size();
+        }
+
+        private List<FacetCountDTO> counts(int[] counts) {
+            // Most frequent values first, values without events are left out
+            List<FacetCountDTO> result = new ArrayList<>();
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) result.add(new FacetCountDTO(names.get(id), counts[id]));
+            }
+            result.sort(Comparator.comparingInt(FacetCountDTO::count).reversed().thenComparing(FacetCountDTO::value));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.microservice.manage_event.utils;
+
+/**
+ * Immutable k-d tree for nearest point lookups on the globe. Points are stored as unit vectors, so the
+ * straight line distance between them grows with the great circle distance and there are no seams at
+ * the antimeridian or the poles. The tree is implicit: the median of a range is its root and the
+ * halves on each side are its subtrees, so it is only two flat arrays.
+ */
+public class GeoKdTree {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double[] coords;
+    private final int[] ids;
+
+    /**
+     * This method is used for build the tree
+     * @param latitudes latitudes in degrees
+     * @param longitudes longitudes in degrees, same length as latitudes
+     */
+    public GeoKdTree(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes must have the same length");
+        }
+
+        int size = latitudes.length;
+        this.coords = new double[size * 3];
+        this.ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            toVector(latitudes[i], longitudes[i], coords, i * 3);
+            ids[i] = i;
+        }
+        build(0, size, 0);
+    }
+
+    /**
+     * This method is used for find the point closest to a coordinate
+     * @param latitude latitude in degrees
+     * @param longitude longitude in degrees
+     * @return position of the point in the arrays the tree was built from, or -1 when the tree is empty
+     */
+    public int nearest(double latitude, double longitude) {
+        if (ids.length == 0) return -1;
+
+        double[] query = new double[3];
+        toVector(latitude, longitude, query, 0);
+
+        Nearest best = new Nearest();
+        search(query, 0, ids.length, 0, best);
+        return ids[best.slot];
+    }
+
+    /**
+     * This method is used for get the great circle distance between two coordinates
+     * @return distance in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double[] a = new double[3];
+        double[] b = new double[3];
+        toVector(latitude1, longitude1, a, 0);
+        toVector(latitude2, longitude2, b, 0);
+
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        double chord = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, chord / 2));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    private void build(int from, int to, int depth) {
+        if (to - from <= 1) return;
+
+        int median = (from + to) >>> 1;
+        select(from, to - 1, median, depth % 3);
+        build(from, median, depth + 1);
+        build(median + 1, to, depth + 1);
+    }
+
+    private void search(double[] query, int from, int to, int depth, Nearest best) {
+        if (from >= to) return;
+
+        int median = (from + to) >>> 1;
+        int offset = median * 3;
+        double dx = query[0] - coords[offset];
+        double dy = query[1] - coords[offset + 1];
+        double dz = query[2] - coords[offset + 2];
+        double distance = dx * dx + dy * dy + dz * dz;
+        if (distance < best.distance) {
+            best.distance = distance;
+            best.slot = median;
+        }
+
+        int axis = depth % 3;
+        double split = query[axis] - coords[offset + axis];
+        if (split < 0) {
+            search(query, from, median, depth + 1, best);
+            // The other side can only hold something closer if the splitting plane is closer than the best point
+            if (split * split < best.distance) search(query, median + 1, to, depth + 1, best);
+        } else {
+            search(query, median + 1, to, depth + 1, best);
+            if (split * split < best.distance) search(query, from, median, depth + 1, best);
+        }
+    }
+
+    // Quickselect: leaves the k-th smallest value on the axis at k, smaller ones before and bigger ones after
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            double pivot = coords[((left + right) >>> 1) * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coords[i * 3 + axis] < pivot) i++;
+                while (coords[j * 3 + axis] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int c = 0; c < 3; c++) {
+            double value = coords[a * 3 + c];
+            coords[a * 3 + c] = coords[b * 3 + c];
+            coords[b * 3 + c] = value;
+        }
+    }
+
+    private static void toVector(double latitude, double longitude, double[] target, int offset) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        double cos = Math.cos(lat);
+        target[offset] = cos * Math.cos(lng);
+        target[offset + 1] = cos * Math.sin(lng);
+        target[offset + 2] = Math.sin(lat);
+    }
+
+    private static final class Nearest {
+        private double distance = Double.POSITIVE_INFINITY;
+        private int slot;
+    }
+}
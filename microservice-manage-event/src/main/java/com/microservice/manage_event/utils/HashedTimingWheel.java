@@ -0,0 +1,128 @@
+package com.microservice.manage_event.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel. Scheduling and cancelling are O(1): an item is appended to the bucket of its
+ * deadline tick and a cancelled item is only flagged, it is dropped when its bucket is drained.
+ * Deadlines further away than one rotation stay in the bucket and are skipped until their round comes.
+ * A single thread is expected to call {@link #advance(long)}.
+ * @param <T> scheduled item
+ */
+public class HashedTimingWheel<T> {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickMillis;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+    private final long startMillis;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+
+        // Round the size up to a power of two so the bucket is a mask instead of a modulo
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) size <<= 1;
+
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.startMillis = startMillis;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * This method is used for schedule an item
+     * @param item item to expire
+     * @param deadlineMillis epoch millis when the item expires
+     * @return handle to cancel the item
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        long deadlineTick = (deadlineMillis - startMillis + tickMillis - 1) / tickMillis;
+
+        // A deadline already in the past fires on the next tick
+        long tick = Math.max(deadlineTick, currentTick + 1);
+
+        Timeout<T> timeout = new Timeout<>(item, tick, this);
+        buckets[(int) (tick & mask)].add(timeout);
+        pending.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * This method is used for move the wheel up to the given time
+     * @param nowMillis current epoch millis
+     * @return items whose deadline has passed
+     */
+    public List<T> advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        List<T> expired = new ArrayList<>();
+
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+            Iterator<Timeout<T>> iterator = buckets[(int) (tick & mask)].iterator();
+
+            while (iterator.hasNext()) {
+                Timeout<T> timeout = iterator.next();
+                if (timeout.state.get() == CANCELLED) {
+                    iterator.remove();
+                } else if (timeout.tick <= tick) {
+                    iterator.remove();
+                    if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                        pending.decrementAndGet();
+                        expired.add(timeout.item);
+                    }
+                }
+            }
+            currentTick = tick;
+        }
+        return expired;
+    }
+
+    /**
+     * This method is used for get the number of items waiting to expire
+     * @return pending items
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    public static final class Timeout<T> {
+
+        private final T item;
+        private final long tick;
+        private final HashedTimingWheel<T> wheel;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Timeout(T item, long tick, HashedTimingWheel<T> wheel) {
+            this.item = item;
+            this.tick = tick;
+            this.wheel = wheel;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public void cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                wheel.pending.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.microservice.manage_event.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Downscaling and encoding of event images. Images are reduced by halves before the last step,
+ * which keeps bilinear scaling sharp at large ratios without the cost of a bicubic pass over the
+ * full image. Variants are written as WebP when an ImageIO WebP writer is on the classpath and as
+ * JPEG otherwise.
+ */
+public final class ImageResizer {
+
+    private static final float QUALITY = 0.82f;
+    private static final String FORMAT = ImageIO.getImageWritersByFormatName("webp").hasNext() ? "webp" : "jpeg";
+
+    private ImageResizer() {
+    }
+
+    /**
+     * This method is used for get the format variants are encoded in
+     * @return webp or jpeg
+     */
+    public static String format() {
+        return FORMAT;
+    }
+
+    /**
+     * This method is used for decode an image, the size is read from the header first so a small file
+     * claiming a huge resolution is never expanded in memory
+     * @param content encoded image
+     * @param maxPixels largest width times height accepted
+     * @return decoded image, or null when the format is unknown or the image is too large
+     */
+    public static BufferedImage decode(InputStream content, long maxPixels) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            if (input == null) return null;
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) return null;
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * This method is used for scale an image down to a width, keeping its aspect ratio. Images
+     * already narrower are only converted to RGB
+     * @param source decoded image
+     * @param width target width in pixels
+     * @return scaled image
+     */
+    public static BufferedImage resize(BufferedImage source, int width) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+
+            // JPEG and most WebP writers have no alpha channel, transparent pixels become white
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+
+        return current;
+    }
+
+    /**
+     * This method is used for encode an image in the variant format
+     * @param image image to encode
+     * @return encoded bytes
+     */
+    public static byte[] encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(FORMAT);
+        if (!writers.hasNext()) throw new IOException("No writer for " + FORMAT);
+
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,236 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.persistence.model.entities.Location;
+
+import java.util.*;
+
+/**
+ * Immutable country → department → city → town tree of the locations collection. Nodes are numbered
+ * level by level and the children of a node are contiguous and sorted by name, so the whole tree is
+ * a few primitive arrays: the children of node n are the nodes childStart[n] .. childStart[n + 1] - 1.
+ * Names are interned in a single table. The root is node 0 and has no name.
+ */
+public class LocationTree {
+
+    public static final int ROOT = 0;
+    public static final int COUNTRY = 1;
+    public static final int DEPARTMENT = 2;
+    public static final int CITY = 3;
+    public static final int TOWN = 4;
+
+    private static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final String[] names;
+    private final int[] nameOf;
+    private final int[] childStart;
+    private final int[] levelStart;
+
+    // Indexed by node - levelStart[TOWN]
+    private final int[] postalCode;
+    private final double[] latitude;
+    private final double[] longitude;
+
+    private LocationTree(String[] names, int[] nameOf, int[] childStart, int[] levelStart,
+                         int[] postalCode, double[] latitude, double[] longitude) {
+        this.names = names;
+        this.nameOf = nameOf;
+        this.childStart = childStart;
+        this.levelStart = levelStart;
+        this.postalCode = postalCode;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * This method is used for build the tree from the rows of the locations collection
+     * @param locations location rows, one per town and postal code
+     * @return tree
+     */
+    public static LocationTree of(Collection<Location> locations) {
+        List<Location> rows = new ArrayList<>(locations);
+        rows.sort(Comparator.comparing((Location l) -> text(l.getCountry()), NAME_ORDER)
+                .thenComparing(l -> text(l.getDepartment()), NAME_ORDER)
+                .thenComparing(l -> text(l.getCity()), NAME_ORDER)
+                .thenComparing(l -> text(l.getTown()), NAME_ORDER)
+                .thenComparingInt(Location::getPostal_code));
+
+        // Sorted rows emit every level already grouped by parent, in parent order
+        List<List<Integer>> nodeNames = new ArrayList<>();
+        List<List<Integer>> parents = new ArrayList<>();
+        for (int level = 0; level <= TOWN; level++) {
+            nodeNames.add(new ArrayList<>());
+            parents.add(new ArrayList<>());
+        }
+        nodeNames.get(ROOT).add(-1);
+        parents.get(ROOT).add(-1);
+
+        Map<String, Integer> interned = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        List<Location> towns = new ArrayList<>();
+        String[] current = new String[TOWN + 1];
+        int lastPostalCode = 0;
+
+        for (Location row : rows) {
+            String[] path = {null, text(row.getCountry()), text(row.getDepartment()), text(row.getCity()), text(row.getTown())};
+
+            boolean changed = false;
+            for (int level = COUNTRY; level <= TOWN; level++) {
+                changed |= !path[level].equals(current[level]) || (level == TOWN && row.getPostal_code() != lastPostalCode);
+                if (!changed) continue;
+
+                current[level] = path[level];
+                int name = interned.computeIfAbsent(path[level], key -> {
+                    table.add(key);
+                    return table.size() - 1;
+                });
+                nodeNames.get(level).add(name);
+                parents.get(level).add(nodeNames.get(level - 1).size() - 1);
+            }
+            if (changed) {
+                lastPostalCode = row.getPostal_code();
+                towns.add(row);
+            }
+        }
+
+        int[] levelStart = new int[TOWN + 2];
+        for (int level = 0; level <= TOWN; level++) {
+            levelStart[level + 1] = levelStart[level] + nodeNames.get(level).size();
+        }
+        int nodes = levelStart[TOWN + 1];
+
+        int[] nameOf = new int[nodes];
+        int[] childStart = new int[nodes + 1];
+        for (int level = 0; level <= TOWN; level++) {
+            List<Integer> levelNames = nodeNames.get(level);
+            for (int i = 0; i < levelNames.size(); i++) {
+                nameOf[levelStart[level] + i] = levelNames.get(i);
+            }
+        }
+
+        // Count the children of every node, then turn the counts into offsets
+        int[] counts = new int[nodes];
+        for (int level = COUNTRY; level <= TOWN; level++) {
+            for (int parent : parents.get(level)) {
+                counts[levelStart[level - 1] + parent]++;
+            }
+        }
+        int offset = 1;
+        for (int node = 0; node < nodes; node++) {
+            childStart[node] = offset;
+            offset += counts[node];
+        }
+        childStart[nodes] = offset;
+
+        int[] postalCode = new int[towns.size()];
+        double[] latitude = new double[towns.size()];
+        double[] longitude = new double[towns.size()];
+        for (int i = 0; i < towns.size(); i++) {
+            postalCode[i] = towns.get(i).getPostal_code();
+            latitude[i] = towns.get(i).getLatitude();
+            longitude[i] = towns.get(i).getLongitude();
+        }
+
+        return new LocationTree(table.toArray(new String[0]), nameOf, childStart, levelStart, postalCode, latitude, longitude);
+    }
+
+    /**
+     * This method is used for find the node at the end of a path of names, starting at the root
+     * @param path country, department, city and town, in that order
+     * @return node, or -1 when the path does not exist
+     */
+    public int find(String... path) {
+        int node = ROOT;
+        for (String name : path) {
+            node = child(node, name);
+            if (node < 0) return -1;
+        }
+        return node;
+    }
+
+    /**
+     * This method is used for find a child by name, ignoring case
+     * @param node parent node
+     * @param name child's name
+     * @return child node, or -1 when it does not exist
+     */
+    public int child(int node, String name) {
+        if (name == null || level(node) == TOWN) return -1;
+
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = String.CASE_INSENSITIVE_ORDER.compare(name(mid), name.trim());
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                // Names equal ignoring case are adjacent, take the first one
+                while (mid > childStart[node] && String.CASE_INSENSITIVE_ORDER.compare(name(mid - 1), name.trim()) == 0) mid--;
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int firstChild(int node) {
+        return childStart[node];
+    }
+
+    public int childCount(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    public String name(int node) {
+        return node == ROOT ? "" : names[nameOf[node]];
+    }
+
+    public int level(int node) {
+        int level = ROOT;
+        while (node >= levelStart[level + 1]) level++;
+        return level;
+    }
+
+    /**
+     * This method is used for get the first node of a level, nodes are numbered level by level
+     * @param level tree level
+     * @return first node of the level
+     */
+    public int firstOfLevel(int level) {
+        return levelStart[level];
+    }
+
+    public int postalCode(int town) {
+        return postalCode[town - levelStart[TOWN]];
+    }
+
+    public double latitude(int town) {
+        return latitude[town - levelStart[TOWN]];
+    }
+
+    public double longitude(int town) {
+        return longitude[town - levelStart[TOWN]];
+    }
+
+    /**
+     * This method is used for know if a town has coordinates, the rows without them are stored as 0, 0
+     * @param town town node
+     * @return true when the town has coordinates
+     */
+    public boolean hasCoordinates(int town) {
+        return latitude(town) != 0 || longitude(town) != 0;
+    }
+
+    /**
+     * This method is used for get the number of nodes, root included
+     * @return nodes
+     */
+    public int size() {
+        return levelStart[TOWN + 1];
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value.trim();
+    }
+}
@@ -0,0 +1,208 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.presentation.dto.MapClusterDTO;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Grid clusters of map markers for every zoom level. At each zoom the Web Mercator plane is cut into
+ * square cells of cellPixels screen pixels and a cluster is the set of markers of one cell, so adding
+ * or removing a marker only touches one cell per zoom. Clusters are kept with their coordinate sums
+ * and members, a query only reads the cells inside the bounding box.
+ */
+public class MarkerClusterIndex {
+
+    private static final double TILE_PIXELS = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final int maxZoom;
+    private final double cellsAtZoomZero;
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    private final Map<String, double[]> markers = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public MarkerClusterIndex(int maxZoom, int cellPixels) {
+        if (maxZoom < 0 || cellPixels <= 0) {
+            throw new IllegalArgumentException("maxZoom can not be negative and cellPixels must be positive");
+        }
+        this.maxZoom = maxZoom;
+        this.cellsAtZoomZero = TILE_PIXELS / cellPixels;
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * This method is used for add a marker or move the one stored with the same id
+     * @param id marker's id
+     * @param latitude latitude in degrees
+     * @param longitude longitude in degrees
+     */
+    public void put(String id, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            removeMarker(id);
+
+            double lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+            markers.put(id, new double[]{lat, longitude});
+            for (int zoom = 0; zoom <= maxZoom; zoom++) {
+                levels.get(zoom).computeIfAbsent(key(zoom, lat, longitude), k -> new Cell()).add(id, lat, longitude);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for remove a marker
+     * @param id marker's id
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeMarker(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the clusters inside a bounding box
+     * @param west west longitude, bigger than east when the box crosses the antimeridian
+     * @param south south latitude
+     * @param east east longitude
+     * @param north north latitude
+     * @param zoom map zoom, zooms past maxZoom use the clusters of maxZoom
+     * @return clusters, the ones with a single marker carry its id
+     */
+    public List<MapClusterDTO> query(double west, double south, double east, double north, int zoom) {
+        int level = Math.max(0, Math.min(maxZoom, zoom));
+        double cells = cellsAtZoomZero * (1L << level);
+
+        int minY = cellY(north, cells);
+        int maxY = cellY(south, cells);
+        int[][] xRanges = west <= east
+                ? new int[][]{{cellX(west, cells), cellX(east, cells)}}
+                : new int[][]{{cellX(west, cells), (int) cells - 1}, {0, cellX(east, cells)}};
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> cellsOfLevel = levels.get(level);
+            List<MapClusterDTO> clusters = new ArrayList<>();
+
+            long area = 0;
+            for (int[] range : xRanges) {
+                area += (long) (range[1] - range[0] + 1) * (maxY - minY + 1);
+            }
+
+            if (area <= cellsOfLevel.size()) {
+                // Small box: look up its cells
+                for (int[] range : xRanges) {
+                    for (int x = range[0]; x <= range[1]; x++) {
+                        for (int y = minY; y <= maxY; y++) {
+                            Cell cell = cellsOfLevel.get(key(x, y));
+                            if (cell != null) clusters.add(cell.toCluster());
+                        }
+                    }
+                }
+            } else {
+                // Big box: fewer cells exist than fit in it, walk them all
+                for (Map.Entry<Long, Cell> entry : cellsOfLevel.entrySet()) {
+                    int x = (int) (entry.getKey() >>> 32);
+                    int y = (int) (long) entry.getKey();
+                    if (y < minY || y > maxY) continue;
+                    for (int[] range : xRanges) {
+                        if (x >= range[0] && x <= range[1]) {
+                            clusters.add(entry.getValue().toCluster());
+                            break;
+                        }
+                    }
+                }
+            }
+            return clusters;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the number of markers
+     * @return markers
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return markers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeMarker(String id) {
+        double[] marker = markers.remove(id);
+        if (marker == null) return;
+
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            Map<Long, Cell> cellsOfLevel = levels.get(zoom);
+            long key = key(zoom, marker[0], marker[1]);
+            Cell cell = cellsOfLevel.get(key);
+            if (cell != null && cell.remove(id, marker[0], marker[1])) {
+                cellsOfLevel.remove(key);
+            }
+        }
+    }
+
+    private long key(int zoom, double latitude, double longitude) {
+        double cells = cellsAtZoomZero * (1L << zoom);
+        return key(cellX(longitude, cells), cellY(latitude, cells));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int cellX(double longitude, double cells) {
+        double x = (longitude + 180) / 360;
+        return clamp((int) Math.floor(x * cells), cells);
+    }
+
+    private static int cellY(double latitude, double cells) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return clamp((int) Math.floor(y * cells), cells);
+    }
+
+    private static int clamp(int cell, double cells) {
+        return Math.max(0, Math.min((int) cells - 1, cell));
+    }
+
+    private static final class Cell {
+
+        private final Set<String> members = new HashSet<>();
+        private double latitudeSum;
+        private double longitudeSum;
+
+        private void add(String id, double latitude, double longitude) {
+            members.add(id);
+            latitudeSum += latitude;
+            longitudeSum += longitude;
+        }
+
+        // Returns true when the cell is left empty
+        private boolean remove(String id, double latitude, double longitude) {
+            if (members.remove(id)) {
+                latitudeSum -= latitude;
+                longitudeSum -= longitude;
+            }
+            return members.isEmpty();
+        }
+
+        private MapClusterDTO toCluster() {
+            int count = members.size();
+            String id = count == 1 ? members.iterator().next() : null;
+            return new MapClusterDTO(latitudeSum / count, longitudeSum / count, count, id);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.presentation.dto.EventRecommendationDTO;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of the upcoming events for recommendations. Events are posted under their city and
+ * under their name, the only preferences a user profile holds, so a query only scores the events that
+ * share one of them with the user instead of the whole catalog. The best ones are kept in a min-heap
+ * bounded to the number wanted.
+ */
+public class RecommendationIndex {
+
+    private static final double CITY_SCORE = 30;
+    private static final double NAME_SCORE = 40;
+    private static final double HISTORY_SCORE_BY_EVENT = 5;
+    private static final double MAX_HISTORY_SCORE = 30;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final Map<String, Set<Candidate>> byCity = new HashMap<>();
+    private final Map<String, Set<Candidate>> byName = new HashMap<>();
+
+    /**
+     * This method is used for add an event or replace the indexed version
+     * @param event event with name, start date and city
+     */
+    public void put(Event event) {
+        lock.writeLock().lock();
+        try {
+            removeCandidate(event.getIdEvent());
+
+            String city = event.getLocations() == null ? null : event.getLocations().getCity();
+            Candidate candidate = new Candidate(event.getIdEvent(), event.getName(), city, event.getStartDate());
+            candidates.put(candidate.idEvent(), candidate);
+            if (city != null) byCity.computeIfAbsent(city, key -> new HashSet<>()).add(candidate);
+            if (candidate.name() != null) byName.computeIfAbsent(candidate.name(), key -> new HashSet<>()).add(candidate);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for remove an event
+     * @param idEvent event's id
+     */
+    public void remove(String idEvent) {
+        lock.writeLock().lock();
+        try {
+            removeCandidate(idEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the events that best match the preferences of a user. An event scores
+     * 30 in the user's city, 40 if the user attended an event of the same name and 5 more by each of
+     * those events, up to 30. Ties go to the event starting first
+     * @param preferences city and attended events of the user
+     * @param today events starting on or before this day are left out
+     * @param limit events wanted
+     * @return events by score, the highest first
+     */
+    public List<EventRecommendationDTO> recommend(Preferences preferences, LocalDate today, int limit) {
+        if (limit <= 0) return List.of();
+
+        Comparator<Scored> ranking = Comparator.comparingDouble(Scored::score)
+                .thenComparing(scored -> scored.candidate().startDate(), Comparator.nullsFirst(Comparator.reverseOrder()))
+                .thenComparing(scored -> scored.candidate().idEvent(), Comparator.reverseOrder());
+
+        // The head of the heap is the worst event kept, the one a better event replaces
+        PriorityQueue<Scored> heap = new PriorityQueue<>(limit + 1, ranking);
+
+        lock.readLock().lock();
+        try {
+            // An event in the user's city with an attended name is reached twice, it is scored once
+            Set<String> seen = new HashSet<>();
+            for (String name : preferences.attended().keySet()) {
+                offer(heap, ranking, byName.get(name), preferences, today, limit, seen);
+            }
+            if (preferences.city() != null) {
+                offer(heap, ranking, byCity.get(preferences.city()), preferences, today, limit, seen);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Scored> best = new ArrayList<>(heap);
+        best.sort(ranking.reversed());
+
+        List<EventRecommendationDTO> recommendations = new ArrayList<>(best.size());
+        for (Scored scored : best) {
+            recommendations.add(new EventRecommendationDTO(scored.candidate().idEvent(), scored.candidate().name(), scored.score()));
+        }
+        return recommendations;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return candidates.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void offer(PriorityQueue<Scored> heap, Comparator<Scored> ranking, Set<Candidate> posting,
+                       Preferences preferences, LocalDate today, int limit, Set<String> seen) {
+        if (posting == null) return;
+
+        for (Candidate candidate : posting) {
+            if (candidate.startDate() == null || !candidate.startDate().isAfter(today)) continue;
+            if (!seen.add(candidate.idEvent())) continue;
+
+            Scored scored = new Scored(candidate, score(candidate, preferences));
+            if (heap.size() < limit) {
+                heap.add(scored);
+            } else if (ranking.compare(scored, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(scored);
+            }
+        }
+    }
+
+    private double score(Candidate candidate, Preferences preferences) {
+        double score = 0;
+        if (candidate.city() != null && candidate.city().equals(preferences.city())) {
+            score += CITY_SCORE;
+        }
+
+        Integer attended = candidate.name() == null ? null : preferences.attended().get(candidate.name());
+        if (attended != null) {
+            score += NAME_SCORE + Math.min(attended * HISTORY_SCORE_BY_EVENT, MAX_HISTORY_SCORE);
+        }
+        return score;
+    }
+
+    private void removeCandidate(String idEvent) {
+        Candidate previous = candidates.remove(idEvent);
+        if (previous == null) return;
+
+        removePosting(byCity, previous.city(), previous);
+        removePosting(byName, previous.name(), previous);
+    }
+
+    private void removePosting(Map<String, Set<Candidate>> postings, String key, Candidate candidate) {
+        if (key == null) return;
+
+        Set<Candidate> posting = postings.get(key);
+        if (posting == null) return;
+
+        posting.remove(candidate);
+        if (posting.isEmpty()) postings.remove(key);
+    }
+
+    /**
+     * Preferences of a user, built once by request
+     * @param city user's city
+     * @param attended events attended by name
+     */
+    public record Preferences(String city, Map<String, Integer> attended) {
+    }
+
+    private record Candidate(String idEvent, String name, String city, LocalDate startDate) {
+    }
+
+    private record Scored(Candidate candidate, double score) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.microservice.manage_event.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters over the last seconds, kept in a ring of one slot per second. Adding never locks: a slot
+ * holds one striped {@link LongAdder} per counter, and the first writer of a new second swaps a fresh
+ * slot in with a compare-and-set instead of clearing the old one, so no other writer can lose its
+ * increment to a reset. Sums only read completed seconds, the current one is still being written.
+ */
+public class SlidingWindow {
+
+    /** Completed seconds that can be summed, one slot is left for the second being written */
+    public static final int MAX_SECONDS = 63;
+
+    private static final int SLOTS = 64;
+    private static final int MASK = SLOTS - 1;
+
+    private final int counters;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOTS);
+
+    public SlidingWindow(int counters) {
+        if (counters <= 0) throw new IllegalArgumentException("counters must be positive");
+        this.counters = counters;
+    }
+
+    /**
+     * This method is used for add a value to a counter in the second of the given time
+     * @param counter counter's index
+     * @param value value to add
+     * @param nowMillis current epoch millis
+     */
+    public void add(int counter, long value, long nowMillis) {
+        Slot slot = slot(nowMillis / 1000);
+        if (slot != null) slot.counters[counter].add(value);
+    }
+
+    /**
+     * This method is used for sum every counter over the last completed seconds
+     * @param seconds seconds to sum, up to MAX_SECONDS
+     * @param nowMillis current epoch millis
+     * @return one sum by counter
+     */
+    public long[] sum(int seconds, long nowMillis) {
+        if (seconds <= 0 || seconds > MAX_SECONDS) throw new IllegalArgumentException("seconds is not valid");
+
+        long now = nowMillis / 1000;
+        long[] sums = new long[counters];
+        for (long second = now - seconds; second < now; second++) {
+            Slot slot = slots.get((int) (second & MASK));
+            // A slot of another second was either never written or belongs to an older rotation
+            if (slot == null || slot.second != second) continue;
+
+            for (int i = 0; i < counters; i++) {
+                sums[i] += slot.counters[i].sum();
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * This method is used for know if nothing was added in the last seconds
+     * @param seconds seconds without values
+     * @param nowMillis current epoch millis
+     * @return true if no slot is newer than the given seconds
+     */
+    public boolean isIdle(int seconds, long nowMillis) {
+        long oldest = nowMillis / 1000 - seconds;
+        for (int i = 0; i < SLOTS; i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.second > oldest) return false;
+        }
+        return true;
+    }
+
+    private Slot slot(long second) {
+        int index = (int) (second & MASK);
+        Slot slot = slots.get(index);
+        while (slot == null || slot.second < second) {
+            Slot fresh = new Slot(second, counters);
+            if (slots.compareAndSet(index, slot, fresh)) return fresh;
+            // Another writer rolled the slot first, use the one it installed
+            slot = slots.get(index);
+        }
+        // A clock that went back would write into a newer rotation, the value is dropped instead
+        return slot.second == second ? slot : null;
+    }
+
+    private static final class Slot {
+
+        private final long second;
+        private final LongAdder[] counters;
+
+        private Slot(long second, int size) {
+            this.second = second;
+            this.counters = new LongAdder[size];
+            for (int i = 0; i < size; i++) {
+                counters[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.microservice.manage_event.utils;
+
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.presentation.dto.AvailabilityDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process cache of the remaining stock of each locality.
+ * Entries live in a ConcurrentHashMap (lock-striped by bin) and every locality keeps its own atomic
+ * counters, so concurrent reservations on one event never contend on a shared lock.
+ */
+@Component
+public class StockCache {
+
+    private final Map<String, EventStock> stocks = new ConcurrentHashMap<>();
+    private final long refreshMillis;
+    private final long rejectMillis;
+
+    public StockCache(@Value("${inventory.cache.refresh-millis:5000}") long refreshMillis,
+                      @Value("${inventory.cache.reject-millis:250}") long rejectMillis) {
+        this.refreshMillis = refreshMillis;
+        this.rejectMillis = rejectMillis;
+    }
+
+    /**
+     * This method is used for get the cached stock of an event
+     * @param idEvent event's id
+     * @return cached stock, or null when it is missing or older than the refresh interval
+     */
+    public EventStock get(String idEvent) {
+        EventStock stock = stocks.get(idEvent);
+        if (stock == null || System.currentTimeMillis() - stock.loadedAt > refreshMillis) {
+            return null;
+        }
+        return stock;
+    }
+
+    /**
+     * This method is used for get the cached stock of an event only if it was loaded moments ago, recent enough
+     * to refuse a reservation without asking the database. Other instances release and expire holds too, so an
+     * older entry may report less stock than there is
+     * @param idEvent event's id
+     * @return cached stock, or null when it is missing or older than the reject interval
+     */
+    public EventStock getFresh(String idEvent) {
+        EventStock stock = stocks.get(idEvent);
+        if (stock == null || System.currentTimeMillis() - stock.loadedAt > rejectMillis) {
+            return null;
+        }
+        return stock;
+    }
+
+    /**
+     * This method is used for replace the cached stock of an event with the values read from the database
+     * @param idEvent event's id
+     * @param localities localities of the event
+     * @return cached stock
+     */
+    public EventStock put(String idEvent, List<LocalityVO> localities) {
+        EventStock stock = new EventStock(localities == null ? Collections.emptyList() : localities);
+        stocks.put(idEvent, stock);
+        return stock;
+    }
+
+    /**
+     * This method is used for get the cached stock of an event even if it is due for a refresh
+     * @param idEvent event's id
+     * @return cached stock or null
+     */
+    public EventStock peek(String idEvent) {
+        return stocks.get(idEvent);
+    }
+
+    /**
+     * This method is used for apply a change already persisted in the database to the cached counters.
+     * The change is applied to the entry that was current before the write, a snapshot loaded afterwards
+     * already contains it.
+     * @param idEvent event's id
+     * @param stock entry read with peek before the write
+     * @param idLocality locality's id
+     * @param soldDelta change on sold tickets
+     * @param heldDelta change on held tickets
+     */
+    public void apply(String idEvent, EventStock stock, String idLocality, int soldDelta, int heldDelta) {
+        if (stock == null) return;
+
+        LocalityStock locality = stock.localities.get(idLocality);
+        if (locality == null) {
+            // The cached entry does not know this locality, force a reload on the next read
+            stocks.remove(idEvent, stock);
+            return;
+        }
+        locality.sold.addAndGet(soldDelta);
+        locality.held.addAndGet(heldDelta);
+    }
+
+    /**
+     * This method is used for drop the cached stock of an event
+     * @param idEvent event's id
+     */
+    public void invalidate(String idEvent) {
+        stocks.remove(idEvent);
+    }
+
+    public static final class EventStock {
+
+        private final long loadedAt = System.currentTimeMillis();
+        private final Map<String, LocalityStock> localities = new LinkedHashMap<>();
+
+        private EventStock(List<LocalityVO> localityList) {
+            for (LocalityVO locality : localityList) {
+                if (locality == null) continue;
+                localities.put(locality.getIdLocality(), new LocalityStock(locality));
+            }
+        }
+
+        public LocalityStock locality(String idLocality) {
+            return localities.get(idLocality);
+        }
+
+        public List<AvailabilityDTO> toAvailability() {
+            List<AvailabilityDTO> availability = new ArrayList<>(localities.size());
+            for (LocalityStock locality : localities.values()) {
+                availability.add(locality.toAvailability());
+            }
+            return availability;
+        }
+    }
+
+    public static final class LocalityStock {
+
+        private final String idLocality;
+        private final String nameLocality;
+        private final int capacity;
+        private final double price;
+        private final AtomicInteger sold;
+        private final AtomicInteger held;
+
+        private LocalityStock(LocalityVO locality) {
+            this.idLocality = locality.getIdLocality();
+            this.nameLocality = locality.getNameLocality();
+            this.capacity = locality.getCapacityLocality();
+            this.price = locality.getPriceLocality();
+            this.sold = new AtomicInteger(locality.getSoldLocality());
+            this.held = new AtomicInteger(locality.getHeldLocality());
+        }
+
+        public double price() {
+            return price;
+        }
+
+        public int remaining() {
+            return capacity - sold.get() - held.get();
+        }
+
+        public AvailabilityDTO toAvailability() {
+            int currentSold = sold.get();
+            int currentHeld = held.get();
+            return new AvailabilityDTO(idLocality, nameLocality, capacity, currentSold, currentHeld,
+                    Math.max(0, capacity - currentSold - currentHeld));
+        }
+    }
+}
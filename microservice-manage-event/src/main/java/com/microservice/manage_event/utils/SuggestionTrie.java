@@ -0,0 +1,244 @@
+package com.microservice.manage_event.utils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix tree for search-as-you-type. Every node keeps the best topK values of its subtree already
+ * sorted, so a lookup only walks the prefix and copies that list. Adding or removing a value
+ * recomputes the lists on the path of its keys, bottom up, from the lists of the children.
+ * Keys are expected to be folded by the caller.
+ * @param <T> suggested value
+ */
+public class SuggestionTrie<T> {
+
+    private static final char[] NO_LABELS = new char[0];
+
+    private final int topK;
+    private final int maxKeyLength;
+    private final Node<T> root = new Node<>();
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionTrie(int topK, int maxKeyLength) {
+        if (topK <= 0 || maxKeyLength <= 0) {
+            throw new IllegalArgumentException("topK and maxKeyLength must be positive");
+        }
+        this.topK = topK;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * This method is used for add a value or replace the one stored with the same id
+     * @param id value's id
+     * @param value value to suggest
+     * @param score rank of the value, higher first
+     * @param keys folded keys that lead to the value
+     */
+    public void put(String id, T value, double score, Collection<String> keys) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+
+            Set<String> truncated = new LinkedHashSet<>();
+            for (String key : keys) {
+                if (key == null || key.isEmpty()) continue;
+                truncated.add(key.length() > maxKeyLength ? key.substring(0, maxKeyLength) : key);
+            }
+            if (truncated.isEmpty()) return;
+
+            Entry<T> entry = new Entry<>(id, value, score, truncated);
+            entries.put(id, entry);
+            for (String key : truncated) {
+                insert(key, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for remove a value
+     * @param id value's id
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the best values whose keys start with the prefix
+     * @param prefix folded prefix
+     * @param limit maximum values, capped to topK
+     * @return values, best first
+     */
+    public List<T> lookup(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0) return Collections.emptyList();
+        String key = prefix.length() > maxKeyLength ? prefix.substring(0, maxKeyLength) : prefix;
+
+        lock.readLock().lock();
+        try {
+            Node<T> node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) return Collections.emptyList();
+
+            int size = Math.min(limit, node.top.size());
+            List<T> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(node.top.get(i).value);
+            }
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used for get the number of values stored
+     * @return values stored
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String key, Entry<T> entry) {
+        Node<T>[] path = path(key.length());
+        Node<T> node = root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+            path[i + 1] = node;
+        }
+        node.terminals.add(entry);
+        updatePath(path, key);
+    }
+
+    private void removeEntry(String id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry == null) return;
+
+        for (String key : entry.keys) {
+            Node<T>[] path = path(key.length());
+            Node<T> node = root;
+            path[0] = node;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+                path[i + 1] = node;
+            }
+            if (node == null) continue;
+
+            node.terminals.remove(entry);
+            updatePath(path, key);
+        }
+    }
+
+    private void updatePath(Node<T>[] path, String key) {
+        // Children first, so every node merges lists that are already up to date
+        for (int depth = key.length(); depth >= 0; depth--) {
+            Node<T> node = path[depth];
+            if (depth > 0 && node.isEmpty()) {
+                path[depth - 1].removeChild(key.charAt(depth - 1));
+                continue;
+            }
+            node.top = best(node);
+        }
+    }
+
+    private List<Entry<T>> best(Node<T> node) {
+        List<Entry<T>> candidates = new ArrayList<>(node.terminals);
+        for (Node<T> child : node.children) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(Entry.RANK);
+
+        // The same value can reach a node through two of its keys
+        List<Entry<T>> top = new ArrayList<>(Math.min(topK, candidates.size()));
+        Set<String> seen = new HashSet<>();
+        for (Entry<T> candidate : candidates) {
+            if (top.size() == topK) break;
+            if (seen.add(candidate.id)) top.add(candidate);
+        }
+        return top;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<T>[] path(int length) {
+        return new Node[length + 1];
+    }
+
+    private static final class Entry<T> {
+
+        private static final Comparator<Entry<?>> RANK = Comparator.<Entry<?>>comparingDouble(entry -> entry.score)
+                .reversed()
+                .thenComparing(entry -> entry.id);
+
+        private final String id;
+        private final T value;
+        private final double score;
+        private final Set<String> keys;
+
+        private Entry(String id, T value, double score, Set<String> keys) {
+            this.id = id;
+            this.value = value;
+            this.score = score;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Node<T> {
+
+        // Children sorted by label and found with a binary search
+        private char[] labels = NO_LABELS;
+        private List<Node<T>> children = new ArrayList<>(0);
+        private final List<Entry<T>> terminals = new ArrayList<>(0);
+        private List<Entry<T>> top = Collections.emptyList();
+
+        private Node<T> child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children.get(index);
+        }
+
+        private Node<T> childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) return children.get(index);
+
+            int insertion = -index - 1;
+            char[] grown = new char[labels.length + 1];
+            System.arraycopy(labels, 0, grown, 0, insertion);
+            grown[insertion] = label;
+            System.arraycopy(labels, insertion, grown, insertion + 1, labels.length - insertion);
+            labels = grown;
+
+            Node<T> child = new Node<>();
+            children.add(insertion, child);
+            return child;
+        }
+
+        private void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) return;
+
+            char[] shrunk = new char[labels.length - 1];
+            System.arraycopy(labels, 0, shrunk, 0, index);
+            System.arraycopy(labels, index + 1, shrunk, index, labels.length - index - 1);
+            labels = shrunk;
+            children.remove(index);
+        }
+
+        private boolean isEmpty() {
+            return terminals.isEmpty() && labels.length == 0;
+        }
+    }
+}
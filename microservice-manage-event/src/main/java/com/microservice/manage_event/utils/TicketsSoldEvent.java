@@ -0,0 +1,11 @@
+package com.microservice.manage_event.utils;
+
+/**
+ * Published after held tickets of a locality are confirmed as sold
+ * @param idEvent event's id
+ * @param idLocality locality's id
+ * @param quantity tickets sold
+ * @param price ticket's price
+ */
+public record TicketsSoldEvent(String idEvent, String idLocality, int quantity, double price) {
+}
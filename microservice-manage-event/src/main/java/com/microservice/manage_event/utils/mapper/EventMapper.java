@@ -1,12 +1,17 @@
 package com.microservice.manage_event.utils.mapper;
 
 import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
 import com.microservice.manage_event.persistence.model.enums.State;
 import com.microservice.manage_event.persistence.model.vo.LocalityVO;
 import com.microservice.manage_event.presentation.dto.CreateEventDTO;
 import com.microservice.manage_event.presentation.dto.CreateLocalityDTO;
+import com.microservice.manage_event.presentation.dto.EventCardDTO;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
 public class EventMapper {
 
@@ -33,4 +38,44 @@ public class EventMapper {
 
         return localityVO;
     }
+
+    public EventCardDTO eventEntityToEventCardDTO(Event event){
+        double minPrice = 0;
+        int remainingTickets = 0;
+        boolean priced = false;
+
+        if (event.getLocalitiesEvent() != null) {
+            for (LocalityVO locality : event.getLocalitiesEvent()) {
+                if (locality == null) continue;
+
+                minPrice = priced ? Math.min(minPrice, locality.getPriceLocality()) : locality.getPriceLocality();
+                priced = true;
+                remainingTickets += Math.max(0, locality.calculateRemaining());
+            }
+        }
+
+        String city = event.getLocations() == null ? null : event.getLocations().getCity();
+
+        return new EventCardDTO(event.getIdEvent(), event.getName(), event.getStartDate(), event.getEndDate(),
+                city, minPrice, remainingTickets, imageLink(event, ImageVariant.CARD));
+    }
+
+    public String imageLink(Event event, ImageVariant variant){
+        if (event.getImages() == null || event.getImages().isEmpty()) return null;
+
+        // Cards show the first image
+        return imageLink(event, event.getImages().keySet().iterator().next(), variant);
+    }
+
+    public String imageLink(Event event, String slot, ImageVariant variant){
+        if (event.getImages() == null || !event.getImages().containsKey(slot)) return null;
+
+        Map<String, String> variants = event.getImageVariants() == null ? null : event.getImageVariants().get(slot);
+        if (variant != null && variants != null && variants.get(variant.key()) != null) return variants.get(variant.key());
+
+        // The original is used until the variants exist, an image still uploading has no link
+        String original = event.getImages().get(slot);
+        if (ImageJobState.PENDING.name().equals(original) || ImageJobState.FAILED.name().equals(original)) return null;
+        return original;
+    }
 }
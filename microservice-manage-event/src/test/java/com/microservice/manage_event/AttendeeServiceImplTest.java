@@ -0,0 +1,158 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.AttendeeBucket;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.UserVO;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.service.implementation.AttendeeServiceImpl;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class AttendeeServiceImplTest {
+
+    private static final String FIRST_BUCKET = new ObjectId().toHexString();
+    private static final String SECOND_BUCKET = new ObjectId().toHexString();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private AttendeeServiceImpl attendeeService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        attendeeService = new AttendeeServiceImpl(mongoTemplate, 3);
+    }
+
+    @Test
+    void testRegisterAttendee_FillsOpenBucket() throws ResourceNotFoundException {
+        when(mongoTemplate.exists(any(Query.class), eq(Event.class))).thenReturn(true);
+
+        State result = attendeeService.registerAttendee("eventId", "userId");
+
+        // The user goes to a bucket with room left, the event only moves its counter
+        ArgumentCaptor<Query> open = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> push = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(open.capture(), push.capture(), eq(AttendeeBucket.class));
+        assertEquals(State.SUCCESS, result);
+        assertEquals(new Document("$lt", 3), open.getValue().getQueryObject().get("count"));
+        assertEquals(new Document("$ne", "userId"), open.getValue().getQueryObject().get("attendees.idUser"));
+        assertEquals(new UserVO("userId"), push.getValue().getUpdateObject().get("$push", Document.class).get("attendees"));
+
+        ArgumentCaptor<Update> counter = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), counter.capture(), eq(Event.class));
+        assertEquals(1, counter.getValue().getUpdateObject().get("$inc", Document.class).get("attendeesCount"));
+    }
+
+    @Test
+    void testRegisterAttendee_AlreadyRegistered() throws ResourceNotFoundException {
+        when(mongoTemplate.exists(any(Query.class), eq(Event.class))).thenReturn(true);
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(AttendeeBucket.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        State result = attendeeService.registerAttendee("eventId", "userId");
+
+        assertEquals(State.ERROR, result);
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+    }
+
+    @Test
+    void testRegisterAttendee_EventNotFound() {
+        when(mongoTemplate.exists(any(Query.class), eq(Event.class))).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> attendeeService.registerAttendee("eventId", "userId"));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(AttendeeBucket.class));
+    }
+
+    @Test
+    void testUnregisterAttendee_Success() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AttendeeBucket.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        State result = attendeeService.unregisterAttendee("eventId", "userId");
+
+        ArgumentCaptor<Update> counter = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), counter.capture(), eq(Event.class));
+        assertEquals(State.SUCCESS, result);
+        assertEquals(-1, counter.getValue().getUpdateObject().get("$inc", Document.class).get("attendeesCount"));
+    }
+
+    @Test
+    void testUnregisterAttendee_NotRegistered() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(AttendeeBucket.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        State result = attendeeService.unregisterAttendee("eventId", "userId");
+
+        assertEquals(State.ERROR, result);
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+    }
+
+    @Test
+    void testGetAttendees_PagesAcrossBuckets() {
+        // First page: the bucket has more attendees than the page
+        when(mongoTemplate.findOne(any(Query.class), eq(AttendeeBucket.class)))
+                .thenReturn(bucket(FIRST_BUCKET, "u1", "u2", "u3"));
+
+        EventPageDTO<UserVO> first = attendeeService.getAttendees("eventId", null, 2);
+
+        assertEquals(List.of(new UserVO("u1"), new UserVO("u2")), first.items());
+        assertNotNull(first.nextCursor());
+
+        // Second page: the rest of the first bucket and the start of the next one
+        reset(mongoTemplate);
+        when(mongoTemplate.findOne(any(Query.class), eq(AttendeeBucket.class)))
+                .thenReturn(bucket(FIRST_BUCKET, "u3"), bucket(SECOND_BUCKET, "u4"));
+
+        EventPageDTO<UserVO> second = attendeeService.getAttendees("eventId", first.nextCursor(), 2);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).findOne(queries.capture(), eq(AttendeeBucket.class));
+        assertEquals(List.of(new UserVO("u3"), new UserVO("u4")), second.items());
+        // Only the slice of the page is read from each bucket
+        assertEquals(new Document("$slice", List.of(2, 3)), queries.getAllValues().get(0).getFieldsObject().get("attendees"));
+        assertEquals(new Document("$slice", List.of(0, 2)), queries.getAllValues().get(1).getFieldsObject().get("attendees"));
+
+        // Last page: nothing is left
+        reset(mongoTemplate);
+        when(mongoTemplate.findOne(any(Query.class), eq(AttendeeBucket.class)))
+                .thenReturn(bucket(SECOND_BUCKET), (AttendeeBucket) null);
+
+        EventPageDTO<UserVO> last = attendeeService.getAttendees("eventId", second.nextCursor(), 2);
+
+        assertTrue(last.items().isEmpty());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void testGetAttendees_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> attendeeService.getAttendees("eventId", "not a cursor", 2));
+    }
+
+    private AttendeeBucket bucket(String idBucket, String... users) {
+        List<UserVO> attendees = Arrays.stream(users).map(UserVO::new).toList();
+        return new AttendeeBucket(idBucket, "eventId", attendees.size(), attendees);
+    }
+}
@@ -0,0 +1,215 @@
+package com.microservice.manage_event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.ImportResultDTO;
+import com.microservice.manage_event.service.implementation.EventImportServiceImpl;
+import com.microservice.manage_event.service.implementation.LocationServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.LocationTree;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class EventImportServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private LocationServiceImpl locationService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private EventImportServiceImpl eventImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        eventImportService = new EventImportServiceImpl(mongoTemplate, locationService, objectMapper, eventPublisher, cacheManager, 2);
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class)).thenReturn(bulkOperations);
+        when(locationService.getLocationTree()).thenReturn(LocationTree.of(List.of(
+                location("Colombia", "Antioquia", "Medellín", "El Poblado", 50021, 6.2088, -75.5676),
+                location("Colombia", "Antioquia", "Medellín", "Laureles", 50031, 6.2447, -75.5965))));
+    }
+
+    @Test
+    void testImportEvents_Ndjson() throws IOException {
+        String input = String.join("\n",
+                event("Festival", "colombia", "antioquia", "medellín", 0),
+                "{not json",
+                event("Concierto", "Colombia", "Antioquia", "Bogotá", 0),
+                "",
+                event("Feria", "Colombia", "Antioquia", "Medellín", 50031));
+
+        List<ImportResultDTO> results = importEvents(input, false);
+
+        // Los resultados salen en el orden de las filas, las invalidas con su motivo
+        assertEquals(List.of(1, 2, 3, 5), results.stream().map(ImportResultDTO::row).toList());
+        assertEquals(State.SUCCESS, results.get(0).state());
+        assertEquals(State.ERROR, results.get(1).state());
+        assertEquals("Location not found", results.get(2).message());
+        assertEquals(State.SUCCESS, results.get(3).state());
+
+        // Lotes de dos filas, las validas se insertan con la ubicacion completada desde el arbol
+        List<List<Event>> batches = insertedEvents(2);
+        Event first = batches.get(0).get(0);
+        assertEquals(results.get(0).idEvent(), first.getIdEvent());
+        assertEquals("Medellín", first.getLocations().getCity());
+        assertEquals(50021, first.getLocations().getPostalCode());
+        assertEquals(-75.5676, first.getPosition().getX());
+        assertEquals(300, first.getCapacity());
+        Event second = batches.get(1).get(0);
+        assertEquals(50031, second.getLocations().getPostalCode());
+        assertEquals(6.2447, second.getLocations().getLatitude());
+        verify(eventPublisher, times(2)).publishEvent(any(CatalogChangeEvent.class));
+    }
+
+    @Test
+    void testImportEvents_Csv() throws IOException {
+        String input = "nameEvent,startDate,endDate,address,country,department,city,postalCode,latitude,longitude,localitiesEvent\r\n"
+                + "\"Rock, al parque\",2025-05-01,2025-05-02,Calle 10,Colombia,Antioquia,Medellín,,,,\"VIP:Zona: VIP:100:250000;GEN:General:400:80000\"\r\n"
+                + "Jazz,2025-06-01,2025-05-01,Calle 11,Colombia,Antioquia,Medellín,,,,GEN:General:100:50000\r\n"
+                + "Salsa,2025-07-01,2025-07-01,Calle 12,Colombia,Antioquia,Medellín,50031,6.25,-75.6,GEN:General:100:50000\r\n"
+                + "Blues,2025-08-01,2025-08-01,Calle 13,Colombia,Antioquia,Medellín,,,,GEN:General:many:50000\r\n";
+
+        List<ImportResultDTO> results = importEvents(input, true);
+
+        assertEquals(List.of(State.SUCCESS, State.ERROR, State.SUCCESS, State.ERROR), results.stream().map(ImportResultDTO::state).toList());
+        assertEquals("endDate is before startDate", results.get(1).message());
+        assertEquals("capacityLocality is not valid", results.get(3).message());
+
+        // Lotes de dos filas: cada lote inserta solo sus filas validas
+        List<List<Event>> batches = insertedEvents(2);
+        Event rock = batches.get(0).get(0);
+        assertEquals("Rock, al parque", rock.getName());
+        assertEquals("Zona: VIP", rock.getLocalitiesEvent().get(0).getNameLocality());
+        assertEquals(500, rock.getCapacity());
+        // Las coordenadas de la fila se conservan
+        assertEquals(6.25, batches.get(1).get(0).getLocations().getLatitude());
+    }
+
+    @Test
+    void testImportEvents_TownWithoutCoordinates() throws IOException {
+        when(locationService.getLocationTree()).thenReturn(LocationTree.of(List.of(
+                location("Colombia", "Antioquia", "Medellín", "El Poblado", 50021, 0, 0),
+                location("Colombia", "Antioquia", "Medellín", "Laureles", 50031, 6.2447, -75.5965),
+                location("Colombia", "Antioquia", "Bello", "Bello", 51050, 0, 0))));
+
+        List<ImportResultDTO> results = importEvents(String.join("\n",
+                event("Festival", "Colombia", "Antioquia", "Medellín", 50021),
+                event("Feria", "Colombia", "Antioquia", "Bello", 0)), false);
+
+        assertEquals(List.of(State.SUCCESS, State.SUCCESS), results.stream().map(ImportResultDTO::state).toList());
+
+        // Sin coordenadas en el barrio se toman de otro barrio de la ciudad, y sin ninguna no hay posición
+        List<Event> inserted = insertedEvents(1).get(0);
+        assertEquals(50021, inserted.get(0).getLocations().getPostalCode());
+        assertEquals(6.2447, inserted.get(0).getPosition().getY());
+        assertNull(inserted.get(1).getPosition());
+        assertNull(inserted.get(1).getLocations().getLatitude());
+    }
+
+    @Test
+    void testImportEvents_MissingColumn() throws IOException {
+        List<ImportResultDTO> results = importEvents("nameEvent,startDate\nFestival,2025-05-01\n", true);
+
+        assertEquals(1, results.size());
+        assertEquals(0, results.get(0).row());
+        assertEquals("Column is missing: endDate", results.get(0).message());
+        verify(bulkOperations, never()).execute();
+    }
+
+    @Test
+    void testImportEvents_BulkWriteError() throws IOException {
+        BulkOperationException failure = mock(BulkOperationException.class);
+        when(failure.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(failure);
+
+        List<ImportResultDTO> results = importEvents(String.join("\n",
+                event("Festival", "Colombia", "Antioquia", "Medellín", 0),
+                event("Feria", "Colombia", "Antioquia", "Medellín", 0)), false);
+
+        // Solo falla el documento rechazado, el resto del lote queda insertado
+        assertEquals(State.SUCCESS, results.get(0).state());
+        assertEquals(State.ERROR, results.get(1).state());
+        assertEquals("E11000 duplicate key", results.get(1).message());
+        verify(eventPublisher, times(1)).publishEvent(new CatalogChangeEvent(results.get(0).idEvent()));
+    }
+
+    private List<ImportResultDTO> importEvents(String input, boolean csv) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        eventImportService.importEvents(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), csv, output);
+
+        List<ImportResultDTO> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, ImportResultDTO.class));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Event>> insertedEvents(int batches) {
+        ArgumentCaptor<List<Event>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(batches)).insert(inserted.capture());
+        return inserted.getAllValues();
+    }
+
+    private String event(String name, String country, String department, String city, int postalCode) {
+        return "{\"nameEvent\":\"" + name + "\",\"startDate\":\"2025-05-01\",\"endDate\":\"2025-05-02\",\"address\":\"Calle 10\","
+                + "\"location\":{\"country\":\"" + country + "\",\"department\":\"" + department + "\",\"city\":\"" + city + "\","
+                + "\"postalCode\":" + postalCode + "},"
+                + "\"localitiesEvent\":[{\"idLocality\":\"VIP\",\"nameLocality\":\"VIP\",\"capacityLocality\":100,\"priceLocality\":250000},"
+                + "{\"idLocality\":\"GEN\",\"nameLocality\":\"General\",\"capacityLocality\":200,\"priceLocality\":80000}]}";
+    }
+
+    private Location location(String country, String department, String city, String town, int postalCode,
+                              double latitude, double longitude) {
+        Location location = new Location();
+        location.setId(new ObjectId());
+        location.setCountry(country);
+        location.setDepartment(department);
+        location.setCity(city);
+        location.setTown(town);
+        location.setPostal_code(postalCode);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+}
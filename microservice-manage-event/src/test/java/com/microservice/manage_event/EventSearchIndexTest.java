@@ -0,0 +1,97 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class EventSearchIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private EventSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        searchIndex = new EventSearchIndex(mongoTemplate, 200);
+
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(
+                event("1", "Concierto de Rock en Bogotá", "Movistar Arena", LocalDate.of(2024, 10, 1), 5000),
+                event("2", "Festival Estéreo Picnic", "Parque Simón Bolívar", LocalDate.of(2024, 11, 1), 40000),
+                event("3", "Concierto sinfónico", "Teatro Colón", LocalDate.of(2024, 12, 1), 800)));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void testSearchNotReadyBeforeRebuild() {
+        EventSearchIndex empty = new EventSearchIndex(mongoTemplate, 200);
+
+        assertFalse(empty.isReady());
+        assertTrue(empty.search("concierto", null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void testSearchFoldsAccents() {
+        assertEquals(List.of("1"), searchIndex.search("BOGOTA", null, null, null, null));
+        assertEquals(List.of("3"), searchIndex.search("sinfonico", null, null, null, null));
+    }
+
+    @Test
+    void testSearchMatchesPrefix() {
+        List<String> result = searchIndex.search("conci", null, null, null, null);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(List.of("1", "3")));
+    }
+
+    @Test
+    void testSearchRanksMoreMatchedWordsFirst() {
+        List<String> result = searchIndex.search("concierto rock", null, null, null, null);
+
+        assertEquals("1", result.get(0));
+    }
+
+    @Test
+    void testSearchWithAddressAndFilters() {
+        assertEquals(List.of("3"), searchIndex.search("concierto", "teatro", null, null, null));
+        assertEquals(List.of("1"), searchIndex.search("concierto", null, null, null, 1000));
+        assertEquals(List.of("3"), searchIndex.search("concierto", null, LocalDate.of(2024, 11, 15), null, null));
+    }
+
+    @Test
+    void testUpsertAndRemove() {
+        searchIndex.upsert(event("1", "Obra de teatro", "Teatro Colón", LocalDate.of(2024, 10, 1), 300));
+        assertEquals(List.of("3"), searchIndex.search("concierto", null, null, null, null));
+
+        searchIndex.remove("3");
+        assertTrue(searchIndex.search("concierto", null, null, null, null).isEmpty());
+    }
+
+    private Event event(String id, String name, String address, LocalDate startDate, int capacity) {
+        Event event = new Event();
+        event.setIdEvent(id);
+        event.setName(name);
+        event.setAddress(address);
+        event.setStartDate(startDate);
+        event.setEndDate(startDate);
+        event.setCapacity(capacity);
+        return event;
+    }
+}
@@ -1,7 +1,10 @@
 package com.microservice.manage_event;
 
 import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
 import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
 import com.microservice.manage_event.persistence.model.vo.LocalityVO;
 import com.microservice.manage_event.persistence.model.vo.LocationVO;
 import com.microservice.manage_event.persistence.repository.EventRepository;
@@ -9,19 +12,40 @@ import com.microservice.manage_event.presentation.advice.ResourceNotFoundExcepti
 import com.microservice.manage_event.presentation.dto.*;
 import com.microservice.manage_event.service.exception.ErrorResponseException;
 import com.microservice.manage_event.service.implementation.EventServiceImpl;
-import com.microservice.manage_event.service.implementation.ImagesServiceImpl;
+import com.microservice.manage_event.service.implementation.EventStatsServiceImpl;
+import com.microservice.manage_event.service.implementation.ImageJobServiceImpl;
+import com.microservice.manage_event.service.implementation.LocationServiceImpl;
+import com.microservice.manage_event.service.implementation.RecommendationServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.ConflictRetryExecutor;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import com.microservice.manage_event.utils.StockCache;
 import com.microservice.manage_event.utils.mapper.EventMapper;
 import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -45,14 +69,37 @@ class EventServiceImplTest {
     private MongoTemplate mongoTemplate;
 
     @Mock
-    private ImagesServiceImpl imagesService;
+    private ImageJobServiceImpl imageJobService;
 
     @Mock
     private UpdateResult updateResult;
 
+    @Mock
+    private EventSearchIndex searchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EventStatsServiceImpl eventStatsService;
+
+    @Mock
+    private RecommendationServiceImpl recommendationService;
+
+    @Mock
+    private LocationServiceImpl locationService;
+
+    @Mock
+    private StockCache stockCache;
+
     @Mock
     private Event event;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ConflictRetryExecutor conflictRetry = new ConflictRetryExecutor(meterRegistry, 3, 0, 0);
+
     @InjectMocks
     private EventServiceImpl eventService;
 
@@ -99,22 +146,102 @@ class EventServiceImplTest {
     @Test
     void testGetEventsFound() {
         List<Event> events = Arrays.asList(new Event(), new Event());
-        when(eventRepository.findAll()).thenReturn(events);
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(events);
 
-        List<Event> result = eventService.getEvents();
+        EventPageDTO<EventCardDTO> result = eventService.getEvents(null, 20);
 
-        assertEquals(2, result.size());
-        verify(eventRepository).findAll();
+        assertEquals(2, result.items().size());
+        assertNull(result.nextCursor());
+        verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
     // Test getEvents - No se encontraron eventos
     @Test
     void testGetEventsNotFound() {
-        when(eventRepository.findAll()).thenReturn(Collections.emptyList());
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(Collections.emptyList());
 
-        List<Event> result = eventService.getEvents();
+        EventPageDTO<EventCardDTO> result = eventService.getEvents(null, 20);
 
-        assertTrue(result.isEmpty());
+        assertTrue(result.items().isEmpty());
+        assertNull(result.nextCursor());
+    }
+
+    // Test getEvents - Hay una página siguiente
+    @Test
+    void testGetEventsNextPage() {
+        Event first = new Event();
+        first.setIdEvent("66f1a7c2e4b0a1b2c3d4e5f1");
+        first.setStartDate(LocalDate.of(2024, 10, 1));
+        Event second = new Event();
+        second.setIdEvent("66f1a7c2e4b0a1b2c3d4e5f2");
+        second.setStartDate(LocalDate.of(2024, 10, 2));
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(new ArrayList<>(List.of(first, second, new Event())));
+
+        EventPageDTO<EventCardDTO> result = eventService.getEvents(null, 2);
+
+        assertEquals(2, result.items().size());
+        assertNotNull(result.nextCursor());
+
+        // The cursor of the last event is accepted to read the following page
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(Collections.emptyList());
+        assertTrue(eventService.getEvents(result.nextCursor(), 2).items().isEmpty());
+    }
+
+    // Test getEvents - Solo los campos pedidos
+    @Test
+    void testGetEventsSparseFields() {
+        Event sparse = new Event();
+        sparse.setIdEvent("66f1a7c2e4b0a1b2c3d4e5f1");
+        sparse.setName("Concierto");
+        sparse.setStartDate(LocalDate.of(2024, 10, 1));
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(new ArrayList<>(List.of(sparse)));
+
+        EventPageDTO<Map<String, Object>> result = eventService.getEvents(null, 20, "name");
+
+        assertEquals(1, result.items().size());
+        assertEquals(Set.of("idEvent", "name"), result.items().get(0).keySet());
+        assertEquals("Concierto", result.items().get(0).get("name"));
+    }
+
+    // Test getEvents - Campo no permitido
+    @Test
+    void testGetEventsSparseFieldsNotValid() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEvents(null, 20, "registeredUsers"));
+    }
+
+    // Test findNearby - Eventos cercanos ordenados por distancia
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindNearby() {
+        Event near = new Event();
+        near.setIdEvent("near");
+        AggregationResults<Document> results = mock(AggregationResults.class);
+        MongoConverter converter = mock(MongoConverter.class);
+
+        when(results.getMappedResults()).thenReturn(List.of(new Document("_id", "near").append("distance", 1500.0)));
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class))).thenReturn(results);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(eq(Event.class), any(Document.class))).thenReturn(near);
+        when(eventMapper.eventEntityToEventCardDTO(near)).thenReturn(new EventCardDTO("near", null, null, null, null, 0, 0, null));
+
+        List<NearbyEventDTO> result = eventService.findNearby(4.6, -74.08, 10, 0, 20);
+
+        assertEquals(1, result.size());
+        assertEquals("near", result.get(0).event().idEvent());
+        assertEquals(1.5, result.get(0).distanceKm());
+    }
+
+    // Test findNearby - Coordenadas inválidas
+    @Test
+    void testFindNearbyInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.findNearby(91, 0, 10, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> eventService.findNearby(0, 0, 0, 0, 20));
+    }
+
+    // Test getEvents - Cursor inválido
+    @Test
+    void testGetEventsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEvents("not-a-cursor", 20));
     }
 
     // Test createEvent - Evento válido
@@ -142,6 +269,47 @@ class EventServiceImplTest {
     }
 
 
+    // Test createEvent - Coordenadas tomadas del dataset de ubicaciones
+    @Test
+    void testCreateEventResolvesPosition() {
+        CreateEventDTO createEventDTO = mock(CreateEventDTO.class);
+        LocationVO location = new LocationVO("Colombia", "Quindío", "Armenia", 630001);
+        Location found = new Location();
+        found.setLatitude(4.53);
+        found.setLongitude(-75.68);
+
+        when(createEventDTO.getImages()).thenReturn(Collections.emptyList());
+        when(locationService.findPositioned(630001, "Armenia")).thenReturn(found);
+        event = new Event();
+        when(eventMapper.createEventDTOToEventEntity(any(CreateEventDTO.class))).thenReturn(event);
+
+        State result = eventService.createEvent(createEventDTO, location, new ArrayList<>());
+
+        assertEquals(State.SUCCESS, result);
+        assertEquals(new GeoJsonPoint(-75.68, 4.53), event.getPosition());
+        assertEquals(4.53, event.getLocations().getLatitude());
+    }
+
+    // Test createEvent - Coordenadas 0, 0 se tratan como ausentes y sin ubicación no hay posición
+    @Test
+    void testCreateEventSkipsZeroPosition() {
+        CreateEventDTO createEventDTO = mock(CreateEventDTO.class);
+        LocationVO location = new LocationVO("Colombia", "Quindío", "Armenia", 630001);
+        location.setLatitude(0.0);
+        location.setLongitude(0.0);
+
+        when(createEventDTO.getImages()).thenReturn(Collections.emptyList());
+        when(locationService.findPositioned(630001, "Armenia")).thenReturn(null);
+        event = new Event();
+        when(eventMapper.createEventDTOToEventEntity(any(CreateEventDTO.class))).thenReturn(event);
+
+        State result = eventService.createEvent(createEventDTO, location, new ArrayList<>());
+
+        assertEquals(State.SUCCESS, result);
+        assertNull(event.getPosition());
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Location.class));
+    }
+
     @Test
     void testCreateEventWithImages() throws IOException {
         CreateEventDTO createEventDTO = mock(CreateEventDTO.class);
@@ -154,11 +322,6 @@ class EventServiceImplTest {
         when(localities.get(0).getCapacityLocality()).thenReturn(100);
         when(image.getOriginalFilename()).thenReturn("test_image.jpg");
 
-        // Simula la subida de la imagen
-        Map<String, Object> uploadResult = new HashMap<>();
-        uploadResult.put("secure_url", "http://cloudinary.com/test_image.jpg");
-        when(imagesService.uploadImage(any(MultipartFile.class))).thenReturn(uploadResult);
-
         // Simula el mapeo del DTO a la entidad Event
         event = new Event();
         when(eventMapper.createEventDTOToEventEntity(any(CreateEventDTO.class))).thenReturn(event);
@@ -166,10 +329,11 @@ class EventServiceImplTest {
         // Llama al método createEvent
         State result = eventService.createEvent(createEventDTO, location, localities);
 
-        // Verifica que el estado sea SUCCESS y que el evento se guarde con las imágenes
+        // Verifica que el evento se guarde con la imagen pendiente y que su subida quede en cola
         assertEquals(State.SUCCESS, result);
-        verify(eventRepository, times(1)).save(event);  // Se guarda dos veces: una al principio y otra después de subir imágenes
-        assertEquals(1, event.getImages().size());  // Verifica que se haya agregado la imagen correctamente
+        verify(eventRepository, times(1)).save(event);
+        assertEquals(Map.of("test_image", ImageJobState.PENDING.name()), event.getImages());
+        verify(imageJobService).enqueueImages(any(), eq(Map.of("test_image", image)));
     }
 
     @Test
@@ -184,8 +348,8 @@ class EventServiceImplTest {
         when(localities.get(0).getCapacityLocality()).thenReturn(100);
         when(image.getOriginalFilename()).thenReturn("test_image.jpg");
 
-        // Simula el fallo al subir la imagen
-        when(imagesService.uploadImage(any(MultipartFile.class))).thenThrow(IOException.class);
+        // Simula el fallo al guardar la imagen en la cola
+        doThrow(IOException.class).when(imageJobService).enqueueImages(any(), anyMap());
 
         // Simula el mapeo del DTO a la entidad Event
         event = new Event();
@@ -194,9 +358,10 @@ class EventServiceImplTest {
         // Llama al método createEvent
         State result = eventService.createEvent(createEventDTO, location, localities);
 
-        // Verifica que el estado sea ERROR debido al fallo en la subida de imágenes
+        // Verifica que el estado sea ERROR y que el evento sin imágenes en cola se elimine
         assertEquals(State.ERROR, result);
-        verify(eventRepository, never()).save(event);  // No debe intentar guardar el evento si hubo un fallo
+        verify(eventRepository).delete(event);
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangeEvent.class));
     }
 
 
@@ -276,6 +441,14 @@ class EventServiceImplTest {
 
         State result = eventService.deleteEvent("validId");
         assertEquals(State.SUCCESS, result);
+
+        // El evento se busca por su _id y se desactiva, las estadísticas se enteran por el cambio de catálogo
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Event.class));
+        assertEquals(new Document("_id", "validId"), query.getValue().getQueryObject());
+        assertEquals(State.INACTIVE, update.getValue().getUpdateObject().get("$set", Document.class).get("state"));
+        verify(eventPublisher).publishEvent(new CatalogChangeEvent("validId"));
     }
 
     @Test
@@ -312,131 +485,182 @@ class EventServiceImplTest {
     @Test
     void testUpdateEvent_NoChanges() {
         UpdateEventDTO dto = new UpdateEventDTO("Event Name", startDate, endDate, "Address");
-        when(eventRepository.findById("valid-id")).thenReturn(Optional.of(event));
-        when(event.getName()).thenReturn("Event Name");
-        when(event.getAddress()).thenReturn("Address");
-        when(event.getStartDate()).thenReturn(LocalDate.parse("2023-01-01"));
-        when(event.getEndDate()).thenReturn(LocalDate.parse("2023-01-02"));
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(storedEvent());
 
         assertEquals(State.SUCCESS, eventService.updateEvent(dto, "valid-id"));
-        verify(eventRepository, never()).save(any(Event.class)); // No debe guardarse
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)); // No debe guardarse
+        verify(eventRepository, never()).save(any(Event.class));
+    }
+
+    @Test
+    void testUpdateEvent_EventNotFound() {
+        UpdateEventDTO dto = new UpdateEventDTO("Event Name", startDate, endDate, "Address");
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(null);
+
+        assertThrows(IllegalArgumentException.class, () -> eventService.updateEvent(dto, "valid-id"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class));
     }
 
     @Test
     void testUpdateEvent_ChangeName() {
         UpdateEventDTO dto = new UpdateEventDTO("New Event Name", startDate, endDate, "Address");
-        when(eventRepository.findById("valid-id")).thenReturn(Optional.of(event));
-        when(event.getName()).thenReturn("Event Name");
-        when(event.getAddress()).thenReturn("Address");
-        when(event.getStartDate()).thenReturn(LocalDate.parse("2023-01-01"));
-        when(event.getEndDate()).thenReturn(LocalDate.parse("2023-01-02"));
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(storedEvent());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         assertEquals(State.SUCCESS, eventService.updateEvent(dto, "valid-id"));
-        verify(event).setName("New Event Name");
-        verify(eventRepository).save(event); // Debe guardarse
+
+        // Solo se escribe el campo cambiado, y solo si sigue con el valor leído
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Event.class));
+        assertEquals(new Document("_id", "valid-id").append("name", "Event Name"), query.getValue().getQueryObject());
+        assertEquals(new Document("name", "New Event Name"), update.getValue().getUpdateObject().get("$set", Document.class));
+        verify(eventRepository, never()).save(any(Event.class)); // No se reescribe el documento completo
+        verify(eventPublisher).publishEvent(new CatalogChangeEvent("valid-id"));
     }
 
     @Test
-    void testUpdateEvent_ChangeAddress() {
-        UpdateEventDTO dto = new UpdateEventDTO("Event Name", startDate, endDate, "New Address");
-        when(eventRepository.findById("valid-id")).thenReturn(Optional.of(event));
-        when(event.getName()).thenReturn("Event Name");
-        when(event.getAddress()).thenReturn("Address");
-        when(event.getStartDate()).thenReturn(LocalDate.parse("2023-01-01"));
-        when(event.getEndDate()).thenReturn(LocalDate.parse("2023-01-02"));
+    void testUpdateEvent_ChangeAddressAndDates() {
+        UpdateEventDTO dto = new UpdateEventDTO("Event Name", LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 3), "New Address");
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(storedEvent());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         assertEquals(State.SUCCESS, eventService.updateEvent(dto, "valid-id"));
-        verify(event).setAddress("New Address");
-        verify(eventRepository).save(event); // Debe guardarse
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Event.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(Set.of("address", "startDate", "endDate"), set.keySet());
+        assertEquals(LocalDate.of(2023, 1, 2), set.get("startDate"));
     }
 
     @Test
-    void testUpdateEvent_ChangeStartDate() {
-        UpdateEventDTO dto = new UpdateEventDTO("New Event Name", LocalDate.of(2023, 01, 02), endDate, "Address");
-        when(eventRepository.findById("valid-id")).thenReturn(Optional.of(event));
-        when(event.getName()).thenReturn("Event Name");
-        when(event.getAddress()).thenReturn("Address");
-        when(event.getStartDate()).thenReturn(LocalDate.parse("2023-01-01"));
-        when(event.getEndDate()).thenReturn(LocalDate.parse("2023-01-02"));
+    void testUpdateEvent_RetriesConflict() {
+        UpdateEventDTO dto = new UpdateEventDTO("New Event Name", startDate, endDate, "Address");
+        Event stale = storedEvent();
+        Event fresh = storedEvent();
+        fresh.setName("Edited Name");
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(stale, fresh);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
 
+        // Otro administrador editó el nombre primero: se vuelve a leer el evento y se aplica el cambio sobre el valor nuevo
         assertEquals(State.SUCCESS, eventService.updateEvent(dto, "valid-id"));
-        verify(event).setStartDate(LocalDate.parse("2023-01-02"));
-        verify(eventRepository).save(event); // Debe guardarse
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(query.capture(), any(Update.class), eq(Event.class));
+        assertEquals("Edited Name", query.getAllValues().get(1).getQueryObject().get("name"));
+        assertEquals(1, meterRegistry.counter("optimistic.lock.conflicts", "entity", "event").count());
     }
 
     @Test
-    void testUpdateEvent_ChangeEndDate() {
-        UpdateEventDTO dto = new UpdateEventDTO("Event Name", startDate, LocalDate.of(2023, 01, 03), "Address");
-        when(eventRepository.findById("valid-id")).thenReturn(Optional.of(event));
-        when(event.getName()).thenReturn("Event Name");
-        when(event.getAddress()).thenReturn("Address");
-        when(event.getStartDate()).thenReturn(LocalDate.parse("2023-01-01"));
-        when(event.getEndDate()).thenReturn(LocalDate.parse("2023-01-02"));
+    void testUpdateEvent_ConflictRetriesExhausted() {
+        UpdateEventDTO dto = new UpdateEventDTO("New Event Name", startDate, endDate, "Address");
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(storedEvent());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
-        assertEquals(State.SUCCESS, eventService.updateEvent(dto, "valid-id"));
-        verify(event).setEndDate(LocalDate.parse("2023-01-03"));
-        verify(eventRepository).save(event); // Debe guardarse
+        assertThrows(OptimisticLockingFailureException.class, () -> eventService.updateEvent(dto, "valid-id"));
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+        assertEquals(1, meterRegistry.counter("optimistic.lock.exhausted", "entity", "event").count());
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangeEvent.class));
+    }
+
+    private Event storedEvent() {
+        Event stored = new Event();
+        stored.setName("Event Name");
+        stored.setAddress("Address");
+        stored.setStartDate(startDate);
+        stored.setEndDate(endDate);
+        return stored;
     }
 
     // Test createLocality - Localidad creada exitosamente
     @Test
     void testCreateLocalitySuccess() {
-        // Inicializa el evento con una lista vacía de localidades
-        event = new Event();
-        event.setLocalitiesEvent(new ArrayList<>()); // Aseguramos que la lista no sea null
-
-        // Simula el valor encontrado en la base de datos
-        when(eventRepository.findById(anyString())).thenReturn(Optional.of(event));
-
-        // Crea un mock de CreateLocalityDTO
-        CreateLocalityDTO newLocality = mock(CreateLocalityDTO.class);
+        CreateLocalityDTO newLocality = new CreateLocalityDTO("idLocality", "VIP", 100, 50.0);
+        LocalityVO localityVO = new LocalityVO("idLocality", "VIP", 100, 50.0);
+        when(eventMapper.createLocalityDTOToLocalityVO(newLocality)).thenReturn(localityVO);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
-        // Simula los valores necesarios del DTO si es requerido
-        when(newLocality.idLocality()).thenReturn("idLocality");
-
-        // Llama al método createLocality
         State result = eventService.createLocality("validId", newLocality);
 
-        // Verifica que el estado sea SUCCESS y que el evento se haya guardado
+        // Se agrega con $push y la capacidad crece con $inc, sin leer ni guardar el documento completo
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Event.class));
         assertEquals(State.SUCCESS, result);
-        verify(eventRepository).save(any(Event.class));
+        assertEquals(new Document("$ne", "idLocality"), query.getValue().getQueryObject().get("localitiesEvent.idLocality"));
+        assertEquals(localityVO, update.getValue().getUpdateObject().get("$push", Document.class).get("localitiesEvent"));
+        assertEquals(100, update.getValue().getUpdateObject().get("$inc", Document.class).get("capacity"));
+        verify(eventRepository, never()).save(any(Event.class));
+        verify(eventPublisher).publishEvent(any(CatalogChangeEvent.class));
+        verify(stockCache).invalidate("validId");
+    }
+
+    // Test createLocality - Capacidad no válida
+    @Test
+    void testCreateLocalityInvalidCapacity() {
+        CreateLocalityDTO newLocality = new CreateLocalityDTO("idLocality", "VIP", 0, 50.0);
+
+        assertThrows(IllegalArgumentException.class, () -> eventService.createLocality("validId", newLocality));
+        assertThrows(IllegalArgumentException.class, () -> eventService.createLocality("validId", null));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class));
     }
 
 
-    // Test createLocality - Evento no encontrado
+    // Test createLocality - Evento no encontrado o localidad repetida
     @Test
     void testCreateLocalityEventNotFound() {
-        when(eventRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
-        CreateLocalityDTO newLocality = mock(CreateLocalityDTO.class);
+        CreateLocalityDTO newLocality = new CreateLocalityDTO("idLocality", "VIP", 100, 50.0);
         State result = eventService.createLocality("invalidId", newLocality);
 
         assertEquals(State.ERROR, result);
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangeEvent.class));
     }
 
     // Test deleteLocality - Localidad eliminada
     @Test
     void testDeleteLocalitySuccess() {
-        event = new Event();
-        LocalityVO localityVO = new LocalityVO();
-        localityVO.setIdLocality("localityId");
-        event.setLocalitiesEvent(new ArrayList<>(Collections.singletonList(localityVO)));
-        when(eventRepository.findById(anyString())).thenReturn(Optional.of(event));
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         State result = eventService.deleteLocality("eventId", "localityId");
 
+        // La localidad se filtra y la capacidad se recalcula en la misma escritura
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Event.class));
         assertEquals(State.SUCCESS, result);
-        verify(eventRepository).save(any(Event.class));
+        assertEquals("localityId", query.getValue().getQueryObject().get("localitiesEvent.idLocality"));
+        // Solo se elimina si no tiene tiquetes vendidos ni retenidos
+        String guard = query.getValue().getQueryObject().get("$expr", Document.class).toJson();
+        assertTrue(guard.contains("\"$eq\": [{\"$add\": [{\"$ifNull\": [\"$$locality.soldLocality\", 0]}"));
+
+        List<Document> pipeline = update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(2, pipeline.size());
+        assertTrue(pipeline.get(0).get("$set", Document.class).containsKey("localitiesEvent"));
+        assertEquals(new Document("$sum", "$localitiesEvent.capacityLocality"),
+                pipeline.get(1).get("$set", Document.class).get("capacity"));
+        verify(eventRepository, never()).save(any(Event.class));
     }
 
     // Test deleteLocality - Localidad no encontrada
     @Test
     void testDeleteLocalityNotFound() {
-        when(eventRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         State result = eventService.deleteLocality("eventId", "localityId");
 
         assertEquals(State.ERROR, result);
+        verify(stockCache, never()).invalidate(anyString());
     }
 
     @Test
@@ -445,21 +669,51 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents("Sample Event", startDate, endDate, null, null);
+        List<EventCardDTO> result = eventService.filterEvents("Sample Event", startDate, endDate, null, null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
+    @Test
+    void testFilterEvents_WithSearchIndex() {
+        Event first = new Event();
+        first.setIdEvent("first");
+        Event second = new Event();
+        second.setIdEvent("second");
+
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("Concierto", null, null, null, null)).thenReturn(List.of("second", "first"));
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(List.of(first, second));
+        when(eventMapper.eventEntityToEventCardDTO(any(Event.class)))
+                .thenAnswer(invocation -> new EventCardDTO(((Event) invocation.getArgument(0)).getIdEvent(), null, null, null, null, 0, 0, null));
+
+        List<EventCardDTO> result = eventService.filterEvents("Concierto", null, null, null, null);
+
+        // The order comes from the index ranking, not from the database
+        assertEquals(List.of("second", "first"), result.stream().map(EventCardDTO::idEvent).toList());
+    }
+
+    @Test
+    void testFilterEvents_WithSearchIndexNoMatches() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(anyString(), any(), any(), any(), any())).thenReturn(Collections.emptyList());
+
+        List<EventCardDTO> result = eventService.filterEvents("Concierto", null, null, null, null);
+
+        assertTrue(result.isEmpty());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Event.class));
+    }
+
     @Test
     void testFilterEvents_WithStartDateAndEndDate() {
         List<Event> expectedEvents = List.of(event);
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, startDate, endDate, null, null);
+        List<EventCardDTO> result = eventService.filterEvents(null, startDate, endDate, null, null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -469,9 +723,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, null, null, "Sample Address", null);
+        List<EventCardDTO> result = eventService.filterEvents(null, null, null, "Sample Address", null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -482,9 +736,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, null, null, null, capacity);
+        List<EventCardDTO> result = eventService.filterEvents(null, null, null, null, capacity);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -494,9 +748,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents("Sample Event", startDate, endDate, "Sample Address", 100);
+        List<EventCardDTO> result = eventService.filterEvents("Sample Event", startDate, endDate, "Sample Address", 100);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -506,9 +760,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, null, null, null, null);
+        List<EventCardDTO> result = eventService.filterEvents(null, null, null, null, null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -518,9 +772,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, startDate, null, "Sample Address", null);
+        List<EventCardDTO> result = eventService.filterEvents(null, startDate, null, "Sample Address", null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -530,9 +784,9 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents("Sample Event", null, endDate, null, null);
+        List<EventCardDTO> result = eventService.filterEvents("Sample Event", null, endDate, null, null);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
@@ -543,29 +797,26 @@ class EventServiceImplTest {
 
         when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(expectedEvents);
 
-        List<Event> result = eventService.filterEvents(null, null, null, "Sample Address", capacity);
+        List<EventCardDTO> result = eventService.filterEvents(null, null, null, "Sample Address", capacity);
 
-        assertEquals(expectedEvents, result);
+        assertEquals(expectedEvents.size(), result.size());
         verify(mongoTemplate).find(any(Query.class), eq(Event.class));
     }
 
     @Test
     void testGetEventStatistics() {
         // Arrange: crear datos de prueba
-        GlobalEventStatsDTO stat1 = new GlobalEventStatsDTO(10, 200, 1500, 1300);
-        GlobalEventStatsDTO stat2 = new GlobalEventStatsDTO(15, 150, 700, 550);
-        List<GlobalEventStatsDTO> expectedStats = List.of(stat1, stat2);
+        GlobalEventStatsDTO stats = new GlobalEventStatsDTO(10, 200, 1500, 1300);
 
-        // Configurar el comportamiento simulado del repositorio
-        when(eventRepository.getGlobalEventStats()).thenReturn(expectedStats);
+        // Los totales se leen ya calculados, sin agregar los eventos
+        when(eventStatsService.getGlobalStats()).thenReturn(stats);
 
         // Act: llamar al método que estamos probando
         List<GlobalEventStatsDTO> result = eventService.getEventStatistics();
 
         // Assert: verificar que el resultado sea el esperado
-        assertEquals(expectedStats, result);
-        // Verificar que el método del repositorio fue llamado una vez
-        verify(eventRepository, times(1)).getGlobalEventStats();
+        assertEquals(List.of(stats), result);
+        verify(eventStatsService, times(1)).getGlobalStats();
     }
 
     @Test
@@ -575,23 +826,47 @@ class EventServiceImplTest {
         String idLocality = "locality123";
         UpdateLocalityDTO updatedLocalityDTO = new UpdateLocalityDTO("New Locality Name", 100, 50.0);
 
-        event = new Event();
-        event.setLocalitiesEvent(List.of(new LocalityVO(idLocality, "Old Locality Name", 50, 20.0)));
-        event.setCapacity(50);
-
-        when(eventRepository.findById(idEvent)).thenReturn(Optional.of(event));
-        when(eventRepository.save(event)).thenReturn(event);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
         State result = eventService.updateLocality(idEvent, idLocality, updatedLocalityDTO);
 
         // Assert
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Event.class));
         assertEquals(State.SUCCESS, result);
-        assertEquals("New Locality Name", event.getLocalitiesEvent().get(0).getNameLocality());
-        assertEquals(100, event.getLocalitiesEvent().get(0).getCapacityLocality());
-        assertEquals(50.0, event.getLocalitiesEvent().get(0).getPriceLocality());
-        assertEquals(100, event.getCapacity()); // Total capacity should be updated
-        verify(eventRepository, times(1)).save(event);
+
+        List<Document> pipeline = update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        String localities = pipeline.get(0).toJson();
+        assertTrue(localities.contains("\"$literal\": \"New Locality Name\""));
+        assertTrue(localities.contains("\"capacityLocality\": 100"));
+        assertTrue(localities.contains("\"priceLocality\": 50.0"));
+        // Total capacity is summed again from the updated localities
+        assertEquals(new Document("$sum", "$localitiesEvent.capacityLocality"),
+                pipeline.get(1).get("$set", Document.class).get("capacity"));
+        verify(eventRepository, never()).save(any(Event.class)); // Whole document is not rewritten
+        verify(stockCache).invalidate(idEvent);
+    }
+
+    @Test
+    void testUpdateLocality_CapacityBelowTaken() {
+        // Arrange
+        UpdateLocalityDTO updatedLocalityDTO = new UpdateLocalityDTO("New Locality Name", 10, 50.0);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act
+        State result = eventService.updateLocality("event123", "locality123", updatedLocalityDTO);
+
+        // Assert: the new capacity must cover the tickets sold and held
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(Event.class));
+        assertEquals(State.ERROR, result);
+        String guard = query.getValue().getQueryObject().get("$expr", Document.class).toJson();
+        assertTrue(guard.contains("\"$gte\": [10, {\"$add\""));
+        assertThrows(IllegalArgumentException.class,
+                () -> eventService.updateLocality("event123", "locality123", new UpdateLocalityDTO("Name", 0, 50.0)));
     }
 
     @Test
@@ -601,14 +876,15 @@ class EventServiceImplTest {
         String idLocality = "locality123";
         UpdateLocalityDTO updatedLocalityDTO = new UpdateLocalityDTO("New Locality Name", 100, 50.0);
 
-        when(eventRepository.findById(idEvent)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         // Act
         State result = eventService.updateLocality(idEvent, idLocality, updatedLocalityDTO);
 
         // Assert
         assertEquals(State.ERROR, result);
-        verify(eventRepository, never()).save(any(Event.class)); // No save should be called
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangeEvent.class));
     }
 
     @Test
@@ -618,18 +894,17 @@ class EventServiceImplTest {
         String idLocality = "nonExistentLocality";
         UpdateLocalityDTO updatedLocalityDTO = new UpdateLocalityDTO("New Locality Name", 100, 50.0);
 
-        event = new Event();
-        event.setLocalitiesEvent(List.of(new LocalityVO("locality123", "Old Locality Name", 50, 20.0)));
-        event.setCapacity(50);
-
-        when(eventRepository.findById(idEvent)).thenReturn(Optional.of(event));
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         // Act
         State result = eventService.updateLocality(idEvent, idLocality, updatedLocalityDTO);
 
         // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(Event.class));
         assertEquals(State.ERROR, result);
-        verify(eventRepository, never()).save(any(Event.class)); // No save should be called
+        assertEquals(idLocality, query.getValue().getQueryObject().get("localitiesEvent.idLocality"));
     }
 
     @Test
@@ -648,34 +923,62 @@ class EventServiceImplTest {
     @Test
     void testGetStatisticsByEvent() {
         // Arrange
-        List<ListEventStatsDTO> expectedStats = Arrays.asList(
-                new ListEventStatsDTO(null,"Event 1", 10, 100, 1500, 1400),
-                new ListEventStatsDTO(null,"Event 2", 5, 50, 300, 250)
-        );
+        EventPageDTO<ListEventStatsDTO> expectedStats = new EventPageDTO<>(Arrays.asList(
+                new ListEventStatsDTO(null,"Event 1", 10, 100, 1500, 1400, 5000.0, 0.07),
+                new ListEventStatsDTO(null,"Event 2", 5, 50, 300, 250, 2500.0, 0.17)
+        ), "cursor");
 
-        when(eventRepository.getEventStatsByEvent()).thenReturn(expectedStats);
+        when(eventStatsService.getStatsByEvent(StatsSort.TICKETS_SOLD, Sort.Direction.DESC, null, 2)).thenReturn(expectedStats);
 
         // Act
-        List<ListEventStatsDTO> actualStats = eventService.getStatisticsByEvent();
+        EventPageDTO<ListEventStatsDTO> actualStats = eventService.getStatisticsByEvent(StatsSort.TICKETS_SOLD, Sort.Direction.DESC, null, null, 2);
 
         // Assert
         assertEquals(expectedStats, actualStats);
-        verify(eventRepository, times(1)).getEventStatsByEvent(); // Verify method is called once
+        verify(eventStatsService, times(1)).getStatsByEvent(StatsSort.TICKETS_SOLD, Sort.Direction.DESC, null, 2); // Verify method is called once
     }
 
     @Test
     void testGetStatisticsByEvent_EmptyList() {
         // Arrange
-        List<ListEventStatsDTO> expectedStats = Arrays.asList();
+        EventPageDTO<ListEventStatsDTO> expectedStats = new EventPageDTO<>(Arrays.asList(), null);
 
-        when(eventRepository.getEventStatsByEvent()).thenReturn(expectedStats);
+        when(eventStatsService.getStatsByEvent(StatsSort.REVENUE, Sort.Direction.ASC, null, 20)).thenReturn(expectedStats);
 
         // Act
-        List<ListEventStatsDTO> actualStats = eventService.getStatisticsByEvent();
+        EventPageDTO<ListEventStatsDTO> actualStats = eventService.getStatisticsByEvent(StatsSort.REVENUE, Sort.Direction.ASC, null, null, 20);
 
         // Assert
         assertEquals(expectedStats, actualStats);
-        verify(eventRepository, times(1)).getEventStatsByEvent(); // Verify method is called once
+        verify(eventStatsService, times(1)).getStatsByEvent(StatsSort.REVENUE, Sort.Direction.ASC, null, 20); // Verify method is called once
     }
-}
 
+    @Test
+    void testGetStatisticsByEvent_Top() {
+        // Arrange
+        List<ListEventStatsDTO> top = List.of(new ListEventStatsDTO(null, "Event 1", 1, 90, 100, 10, 4500.0, 0.9));
+        when(eventStatsService.getTopStats(StatsSort.SELL_THROUGH, Sort.Direction.DESC, 1)).thenReturn(top);
+
+        // Act
+        EventPageDTO<ListEventStatsDTO> actualStats = eventService.getStatisticsByEvent(StatsSort.SELL_THROUGH, Sort.Direction.DESC, 1, null, 20);
+
+        // Assert: el top es una sola pagina, sin cursor
+        assertEquals(top, actualStats.items());
+        assertNull(actualStats.nextCursor());
+        verify(eventStatsService, never()).getStatsByEvent(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testRecommendEvents() {
+        // Arrange
+        List<EventRecommendationDTO> expected = List.of(new EventRecommendationDTO("1", "Festival", 75));
+        when(recommendationService.recommendEvents("userId")).thenReturn(expected);
+
+        // Act
+        List<EventRecommendationDTO> actual = eventService.recommendEvents("userId");
+
+        // Assert: las recomendaciones vienen del indice, sin leer eventos
+        assertEquals(expected, actual);
+        verifyNoInteractions(eventRepository, mongoTemplate);
+    }
+}
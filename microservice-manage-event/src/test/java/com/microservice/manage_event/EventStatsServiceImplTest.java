@@ -0,0 +1,283 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.EventStats;
+import com.microservice.manage_event.persistence.model.entities.GlobalStats;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.StatsSort;
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.presentation.dto.EventPageDTO;
+import com.microservice.manage_event.presentation.dto.GlobalEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.ListEventStatsDTO;
+import com.microservice.manage_event.presentation.dto.StatsReconcileDTO;
+import com.microservice.manage_event.service.implementation.EventStatsServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class EventStatsServiceImplTest {
+
+    private static final String EVENT_ID = new ObjectId().toHexString();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EventStatsServiceImpl eventStatsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        eventStatsService = new EventStatsServiceImpl(mongoTemplate, meterRegistry);
+    }
+
+    @Test
+    void testGetGlobalStats_ReadsSingleDocument() {
+        when(mongoTemplate.findById("global", GlobalStats.class)).thenReturn(new GlobalStats("global", 2, 30, 100, 1500.0));
+
+        GlobalEventStatsDTO result = eventStatsService.getGlobalStats();
+
+        assertEquals(new GlobalEventStatsDTO(2, 30, 100, 70), result);
+        verify(mongoTemplate).findById("global", GlobalStats.class);
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testApplyChanges_NewEvent() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(event(State.ACTIVE, 100, 0));
+        // No previous stats: the upsert inserts them
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(EventStats.class)))
+                .thenReturn(null);
+
+        eventStatsService.onCatalogChange(new CatalogChangeEvent(EVENT_ID));
+        int updated = eventStatsService.applyChanges();
+
+        assertEquals(1, updated);
+        Document totals = globalIncrement();
+        assertEquals(1, totals.get("totalEvents"));
+        assertEquals(100, totals.get("totalCapacity"));
+        assertEquals(0, totals.get("totalTicketsSold"));
+    }
+
+    @Test
+    void testApplyChanges_NewEventSaleCountedOnce() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(event(State.ACTIVE, 100, 2));
+        // Ni la venta ni la creación encuentran estadísticas previas
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(EventStats.class)))
+                .thenReturn(null);
+
+        eventStatsService.onCatalogChange(new CatalogChangeEvent(EVENT_ID));
+        eventStatsService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 2, 50.0));
+        assertEquals(1, eventStatsService.applyChanges());
+
+        // El documento del evento ya cuenta la venta, se crea una sola vez y no se suma de nuevo
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Event.class));
+        assertEquals(2, globalIncrement().get("totalTicketsSold"));
+    }
+
+    @Test
+    void testApplyChanges_DeactivatedEvent() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(event(State.INACTIVE, 100, 10));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(EventStats.class)))
+                .thenReturn(new EventStats(EVENT_ID, "Festival", true, 10, 100, 500.0));
+
+        eventStatsService.onCatalogChange(new CatalogChangeEvent(EVENT_ID));
+        eventStatsService.applyChanges();
+
+        // The event leaves the totals with everything it had counted
+        Document totals = globalIncrement();
+        assertEquals(-1, totals.get("totalEvents"));
+        assertEquals(-100, totals.get("totalCapacity"));
+        assertEquals(-10, totals.get("totalTicketsSold"));
+        assertEquals(-500.0, totals.get("totalRevenue"));
+    }
+
+    @Test
+    void testApplyChanges_SalesAreBatched() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(EventStats.class)))
+                .thenReturn(new EventStats(EVENT_ID, "Festival", true, 5, 100, 250.0));
+
+        eventStatsService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 2, 50.0));
+        eventStatsService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 1, 50.0));
+        eventStatsService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "gen", 2, 20.0));
+        eventStatsService.applyChanges();
+
+        ArgumentCaptor<AggregationUpdate> sales = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), sales.capture(), any(FindAndModifyOptions.class), eq(EventStats.class));
+        assertEquals(List.of("$ticketsSold", 5), stage(sales.getValue(), "ticketsSold").get("$add"));
+        assertEquals(List.of("$revenue", 190.0), stage(sales.getValue(), "revenue").get("$add"));
+        // The derived fields are computed by the same write, after the increment
+        assertNotNull(stage(sales.getValue(), "available"));
+        assertNotNull(stage(sales.getValue(), "sellThrough"));
+
+        Document totals = globalIncrement();
+        assertEquals(5, totals.get("totalTicketsSold"));
+        assertEquals(0, totals.get("totalEvents"));
+    }
+
+    @Test
+    void testApplyChanges_NothingPending() {
+        assertEquals(0, eventStatsService.applyChanges());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testReconcileStats_ReportsDrift() {
+        String goneId = new ObjectId().toHexString();
+        Event event = event(State.ACTIVE, 100, 5);
+
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(event));
+        // The stored stats missed two sales
+        when(mongoTemplate.find(any(Query.class), eq(EventStats.class)))
+                .thenReturn(List.of(new EventStats(EVENT_ID, "Festival", true, 3, 100, 150.0)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventStats.class)).thenReturn(bulkOperations);
+        // Stats of an event that no longer exists
+        when(mongoTemplate.stream(any(Query.class), eq(EventStats.class)))
+                .thenReturn(Stream.of(new EventStats(EVENT_ID, null, false, 0, 0, 0), new EventStats(goneId, null, false, 0, 0, 0)));
+        when(mongoTemplate.find(any(Query.class), eq(Event.class))).thenReturn(List.of(event));
+        when(mongoTemplate.remove(any(Query.class), eq(EventStats.class))).thenReturn(DeleteResult.acknowledged(1));
+        when(mongoTemplate.findById("global", GlobalStats.class)).thenReturn(new GlobalStats("global", 1, 3, 100, 150.0));
+
+        StatsReconcileDTO result = eventStatsService.reconcileStats();
+
+        assertEquals(new StatsReconcileDTO(1, 1, 1, true), result);
+        ArgumentCaptor<Update> fix = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), fix.capture());
+        assertEquals(5, fix.getValue().getUpdateObject().get("$set", Document.class).get("ticketsSold"));
+        // The revenue of the stored stats is kept, it was counted at the prices of each sale
+        assertEquals(150.0, fix.getValue().getUpdateObject().get("$set", Document.class).get("revenue"));
+
+        ArgumentCaptor<Update> global = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), global.capture(), eq(GlobalStats.class));
+        assertEquals(5, global.getValue().getUpdateObject().get("$set", Document.class).get("totalTicketsSold"));
+        assertEquals(2.0, meterRegistry.counter("event.stats.drift", "scope", "event").count());
+    }
+
+    @Test
+    void testGetStatsByEvent_Pages() {
+        String lastId = new ObjectId().toHexString();
+        when(mongoTemplate.find(any(Query.class), eq(EventStats.class))).thenReturn(new ArrayList<>(List.of(
+                new EventStats(EVENT_ID, "Festival", true, 90, 100, 4500.0),
+                new EventStats(lastId, "Feria", true, 40, 100, 800.0),
+                new EventStats(new ObjectId().toHexString(), "Concierto", true, 40, 50, 2000.0))));
+
+        EventPageDTO<ListEventStatsDTO> page = eventStatsService.getStatsByEvent(StatsSort.TICKETS_SOLD, Sort.Direction.DESC, null, 2);
+
+        assertEquals(List.of("Festival", "Feria"), page.items().stream().map(ListEventStatsDTO::name).toList());
+        assertEquals(0.9, page.items().get(0).sellThrough());
+        assertEquals(60, page.items().get(1).totalAvailableTickets());
+        assertNotNull(page.nextCursor());
+
+        // The next page continues after the last stats of this one, on the index of the sort value
+        eventStatsService.getStatsByEvent(StatsSort.TICKETS_SOLD, Sort.Direction.DESC, page.nextCursor(), 2);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(EventStats.class));
+        Query next = queries.getAllValues().get(1);
+        assertEquals(new Document("ticketsSold", -1).append("_id", -1), next.getSortObject());
+        assertEquals(3, next.getLimit());
+        List<?> after = next.getQueryObject().get("$or", List.class);
+        assertEquals(new Document("ticketsSold", new Document("$lt", 40.0)), after.get(0));
+        assertEquals(new Document("ticketsSold", 40.0).append("_id", new Document("$lt", new ObjectId(lastId))), after.get(1));
+    }
+
+    @Test
+    void testGetStatsByEvent_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> eventStatsService.getStatsByEvent(StatsSort.REVENUE, Sort.Direction.DESC, "not a cursor", 20));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testGetTopStats_BoundedHeap() {
+        when(mongoTemplate.stream(any(Query.class), eq(EventStats.class))).thenReturn(Stream.of(
+                new EventStats("a", "A", true, 10, 100, 0),
+                new EventStats("b", "B", true, 90, 100, 0),
+                new EventStats("c", "C", true, 45, 50, 0),
+                new EventStats("d", "D", true, 0, 0, 0),
+                new EventStats("e", "E", true, 30, 40, 0)));
+
+        List<ListEventStatsDTO> top = eventStatsService.getTopStats(StatsSort.SELL_THROUGH, Sort.Direction.DESC, 3);
+        assertEquals(List.of("C", "B", "E"), top.stream().map(ListEventStatsDTO::name).toList());
+    }
+
+    @Test
+    void testGetTopStats_LowestFirst() {
+        when(mongoTemplate.stream(any(Query.class), eq(EventStats.class))).thenReturn(Stream.of(
+                new EventStats("a", "A", true, 10, 100, 0),
+                new EventStats("b", "B", true, 90, 100, 0),
+                new EventStats("c", "C", true, 45, 50, 0)));
+
+        // Events closest to selling out
+        List<ListEventStatsDTO> top = eventStatsService.getTopStats(StatsSort.AVAILABLE, Sort.Direction.ASC, 2);
+        assertEquals(List.of("C", "B"), top.stream().map(ListEventStatsDTO::name).toList());
+    }
+
+    @Test
+    void testGetTopStats_LimitNotValid() {
+        assertThrows(IllegalArgumentException.class, () -> eventStatsService.getTopStats(StatsSort.REVENUE, Sort.Direction.DESC, 0));
+        assertThrows(IllegalArgumentException.class, () -> eventStatsService.getTopStats(StatsSort.REVENUE, Sort.Direction.DESC, 5000));
+    }
+
+    private Document stage(AggregationUpdate update, String field) {
+        // Each $set of the pipeline is a stage, the derived fields read the ones set before them
+        for (Document stage : update.toPipeline(Aggregation.DEFAULT_CONTEXT)) {
+            Document set = stage.get("$set", Document.class);
+            if (set != null && set.containsKey(field)) return set.get(field, Document.class);
+        }
+        return null;
+    }
+
+    private Document globalIncrement() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(GlobalStats.class));
+        return update.getValue().getUpdateObject().get("$inc", Document.class);
+    }
+
+    private Event event(State state, int capacity, int sold) {
+        LocalityVO vip = new LocalityVO("vip", "VIP", capacity / 2, 50.0);
+        LocalityVO general = new LocalityVO("gen", "General", capacity / 2, 20.0);
+        vip.setSoldLocality(sold);
+
+        Event event = new Event();
+        event.setIdEvent(EVENT_ID);
+        event.setName("Festival");
+        event.setState(state);
+        event.setCapacity(capacity);
+        event.setTicketsSold(sold);
+        event.setLocalitiesEvent(List.of(vip, general));
+        return event;
+    }
+}
@@ -0,0 +1,139 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.Availability;
+import com.microservice.manage_event.persistence.model.enums.DateBucket;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.persistence.model.vo.LocationVO;
+import com.microservice.manage_event.presentation.dto.EventCardDTO;
+import com.microservice.manage_event.presentation.dto.FacetCountDTO;
+import com.microservice.manage_event.presentation.dto.FacetResultDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.implementation.FacetServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_event.utils.EventSearchIndex;
+import com.microservice.manage_event.utils.FacetIndex;
+import com.microservice.manage_event.utils.mapper.EventMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class FacetServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private EventSearchIndex searchIndex;
+
+    private FacetServiceImpl facetService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        facetService = new FacetServiceImpl(mongoTemplate, new EventMapper(), searchIndex, new double[]{50000, 100000}, 0.1);
+
+        LocalDate today = LocalDate.now();
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(
+                event("1", today, "Bogotá", "Cundinamarca", new LocalityVO("a", "General", 100, 40000)),
+                event("2", today.plusMonths(2), "Bogotá", "Cundinamarca", new LocalityVO("a", "VIP", 100, 150000)),
+                event("3", today.plusMonths(3), "Medellín", "Antioquia", new LocalityVO("a", "General", 100, 60000)),
+                event("4", today.minusDays(5), "Medellín", "Antioquia", new LocalityVO("a", "General", 100, 60000))));
+        facetService.rebuildFacets();
+    }
+
+    @Test
+    void testGetFacetsWithoutFilters() {
+        FacetResultDTO result = facetService.getFacets(null, null, null, null, null, null, 20);
+
+        // The finished event is not counted and the events come in start date order
+        assertEquals(3, result.total());
+        assertEquals(List.of("1", "2", "3"), result.items().stream().map(EventCardDTO::idEvent).toList());
+        assertEquals(List.of(new FacetCountDTO("Bogotá", 2), new FacetCountDTO("Medellín", 1)), result.facets().get(FacetIndex.CITY));
+        assertEquals(List.of(new FacetCountDTO("0-50000", 1), new FacetCountDTO("50000-100000", 1), new FacetCountDTO("100000+", 1)),
+                result.facets().get(FacetIndex.PRICE));
+    }
+
+    @Test
+    void testGetFacetsCountsOtherValuesOfTheSelectedFacet() {
+        FacetResultDTO result = facetService.getFacets(null, List.of("Bogotá"), null, List.of(DateBucket.LATER), null, null, 20);
+
+        assertEquals(List.of("2"), result.items().stream().map(EventCardDTO::idEvent).toList());
+
+        // Medellín is counted with the date filter only, Bogotá's event of this week with the city filter only
+        assertEquals(List.of(new FacetCountDTO("Bogotá", 1), new FacetCountDTO("Medellín", 1)), result.facets().get(FacetIndex.CITY));
+        assertEquals(1, count(result, FacetIndex.DATE, DateBucket.THIS_WEEK.name()));
+        assertEquals(1, count(result, FacetIndex.DEPARTMENT, "Cundinamarca"));
+        assertEquals(0, count(result, FacetIndex.DEPARTMENT, "Antioquia"));
+    }
+
+    @Test
+    void testGetFacetsByAvailabilityAndPrice() {
+        FacetResultDTO result = facetService.getFacets(null, null, null, null, List.of("50000-100000"), List.of(Availability.AVAILABLE), 20);
+
+        assertEquals(List.of("3"), result.items().stream().map(EventCardDTO::idEvent).toList());
+    }
+
+    @Test
+    void testGetFacetsByName() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.matching("rock")).thenReturn(Set.of("2", "3"));
+
+        FacetResultDTO result = facetService.getFacets("rock", null, null, null, null, null, 1);
+
+        assertEquals(2, result.total());
+        assertEquals(List.of("2"), result.items().stream().map(EventCardDTO::idEvent).toList());
+    }
+
+    @Test
+    void testGetFacetsNotReady() {
+        FacetServiceImpl empty = new FacetServiceImpl(mongoTemplate, new EventMapper(), searchIndex, new double[]{50000}, 0.1);
+
+        assertThrows(ErrorResponseException.class, () -> empty.getFacets(null, null, null, null, null, null, 20));
+    }
+
+    @Test
+    void testApplyCatalogChanges() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(null);
+
+        facetService.onCatalogChange(new CatalogChangeEvent("1"));
+        assertEquals(1, facetService.applyCatalogChanges());
+
+        assertEquals(2, facetService.getFacets(null, null, null, null, null, null, 20).total());
+    }
+
+    private int count(FacetResultDTO result, String facet, String value) {
+        return result.facets().get(facet).stream()
+                .filter(count -> count.value().equals(value))
+                .mapToInt(FacetCountDTO::count)
+                .sum();
+    }
+
+    private Event event(String id, LocalDate startDate, String city, String department, LocalityVO locality) {
+        Event event = new Event();
+        event.setIdEvent(id);
+        event.setName("Event " + id);
+        event.setState(State.ACTIVE);
+        event.setStartDate(startDate);
+        event.setEndDate(startDate);
+        event.setLocations(new LocationVO("Colombia", department, city, 0));
+        event.setLocalitiesEvent(List.of(locality));
+        return event;
+    }
+}
@@ -0,0 +1,258 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.TicketHold;
+import com.microservice.manage_event.persistence.model.enums.HoldState;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.repository.TicketHoldRepository;
+import com.microservice.manage_event.presentation.dto.CreateHoldDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.implementation.HoldServiceImpl;
+import com.microservice.manage_event.service.implementation.InventoryServiceImpl;
+import com.microservice.manage_event.service.implementation.OnSaleMetricsServiceImpl;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class HoldServiceImplTest {
+
+    @Mock
+    private TicketHoldRepository holdRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private InventoryServiceImpl inventoryService;
+
+    @Mock
+    private OnSaleMetricsServiceImpl onSaleMetrics;
+
+    @Mock
+    private UpdateResult updateResult;
+
+    private CreateHoldDTO createHoldDTO;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        createHoldDTO = new CreateHoldDTO("eventId", "vip", "userId", 2);
+        when(holdRepository.save(any(TicketHold.class))).thenAnswer(invocation -> {
+            TicketHold hold = invocation.getArgument(0);
+            hold.setIdHold("holdId");
+            return hold;
+        });
+    }
+
+    private HoldServiceImpl holdService(long ttlSeconds) {
+        return new HoldServiceImpl(holdRepository, mongoTemplate, inventoryService, onSaleMetrics, ttlSeconds, 10, 64, 24, 30, 60);
+    }
+
+    @Test
+    void testCreateHold_Success() {
+        when(inventoryService.reserveTickets("eventId", "vip", 2)).thenReturn(State.SUCCESS);
+
+        TicketHold hold = holdService(600).createHold(createHoldDTO);
+
+        assertEquals("holdId", hold.getIdHold());
+        assertEquals(HoldState.ACTIVE, hold.getState());
+        assertTrue(hold.getExpiresAt().isAfter(LocalDateTime.now()));
+        verify(onSaleMetrics).recordHold("eventId");
+    }
+
+    @Test
+    void testCreateHold_NotEnoughTickets() {
+        when(inventoryService.reserveTickets("eventId", "vip", 2)).thenReturn(State.ERROR);
+        HoldServiceImpl holdService = holdService(600);
+
+        assertThrows(ErrorResponseException.class, () -> holdService.createHold(createHoldDTO));
+        verify(holdRepository, never()).save(any(TicketHold.class));
+    }
+
+    @Test
+    void testCreateHold_SaveFailsReleasesTickets() {
+        when(inventoryService.reserveTickets("eventId", "vip", 2)).thenReturn(State.SUCCESS);
+        when(holdRepository.save(any(TicketHold.class))).thenThrow(new IllegalStateException("write failed"));
+        HoldServiceImpl holdService = holdService(600);
+
+        assertThrows(IllegalStateException.class, () -> holdService.createHold(createHoldDTO));
+        verify(inventoryService).releaseTickets("eventId", "vip", 2);
+    }
+
+    @Test
+    void testConfirmHold_Success() {
+        TicketHold hold = new TicketHold("holdId", "eventId", "vip", "userId", 2, HoldState.CONFIRMING,
+                LocalDateTime.now(), LocalDateTime.now().plusMinutes(5), null, null, LocalDateTime.now());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(TicketHold.class)))
+                .thenReturn(hold);
+        when(inventoryService.confirmHold("eventId", "vip", "holdId", 2)).thenReturn(State.SUCCESS);
+
+        assertEquals(State.SUCCESS, holdService(600).confirmHold("holdId"));
+        verify(onSaleMetrics).recordCheckout(eq("eventId"), eq(true), anyLong());
+        assertEquals(HoldState.CONFIRMED, finishedState());
+    }
+
+    @Test
+    void testConfirmHold_TicketsNotSoldKeepsHoldActive() {
+        TicketHold hold = new TicketHold("holdId", "eventId", "vip", "userId", 2, HoldState.CONFIRMING,
+                LocalDateTime.now(), LocalDateTime.now().plusMinutes(5), null, null, LocalDateTime.now());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(TicketHold.class)))
+                .thenReturn(hold);
+        when(inventoryService.confirmHold("eventId", "vip", "holdId", 2)).thenReturn(State.ERROR);
+
+        assertEquals(State.ERROR, holdService(600).confirmHold("holdId"));
+        verify(onSaleMetrics).recordCheckout(eq("eventId"), eq(false), anyLong());
+        // Los tiquetes siguen retenidos, la reserva vuelve a estar activa hasta que venza
+        assertEquals(HoldState.ACTIVE, finishedState());
+    }
+
+    @Test
+    void testReleaseHold_Success() {
+        TicketHold hold = new TicketHold("holdId", "eventId", "vip", "userId", 2, HoldState.RELEASING,
+                LocalDateTime.now(), LocalDateTime.now().plusMinutes(5), null, null, LocalDateTime.now());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(TicketHold.class)))
+                .thenReturn(hold);
+        when(inventoryService.releaseHolds("eventId", "vip", List.of("holdId"), 2)).thenReturn(State.SUCCESS);
+
+        assertEquals(State.SUCCESS, holdService(600).releaseHold("holdId"));
+        assertEquals(HoldState.RELEASED, finishedState());
+    }
+
+    @Test
+    void testConfirmHold_NotActive() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(TicketHold.class)))
+                .thenReturn(null);
+
+        TicketHold expired = new TicketHold();
+        expired.setIdEvent("eventId");
+        when(mongoTemplate.findOne(any(Query.class), eq(TicketHold.class))).thenReturn(expired);
+
+        assertEquals(State.ERROR, holdService(600).confirmHold("holdId"));
+        verify(inventoryService, never()).confirmHold(anyString(), anyString(), anyString(), anyInt());
+        // The failed checkout is counted for the event of the hold
+        verify(onSaleMetrics).recordCheckout(eq("eventId"), eq(false), anyLong());
+    }
+
+    @Test
+    void testExpireDueHolds_ReleasesTicketsByLocality() throws InterruptedException {
+        when(inventoryService.reserveTickets("eventId", "vip", 2)).thenReturn(State.SUCCESS);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(TicketHold.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+        when(mongoTemplate.find(any(Query.class), eq(TicketHold.class))).thenReturn(List.of(
+                expiring("holdId", 2), expiring("otherId", 3)));
+        when(inventoryService.releaseHolds("eventId", "vip", List.of("holdId", "otherId"), 5)).thenReturn(State.SUCCESS);
+
+        HoldServiceImpl holdService = holdService(0);
+        holdService.createHold(createHoldDTO);
+        Thread.sleep(50);
+
+        assertEquals(1, holdService.expireDueHolds());
+        // Una sola liberación para las dos reservas de la localidad
+        verify(inventoryService, times(1)).releaseHolds(anyString(), anyString(), anyList(), anyInt());
+
+        // Primero pasan a EXPIRING y solo quedan EXPIRED cuando se liberaron los tiquetes
+        assertEquals(List.of(HoldState.EXPIRING, HoldState.EXPIRED), updatedStates(2));
+    }
+
+    @Test
+    void testExpireDueHolds_FailedReleaseStaysExpiring() throws InterruptedException {
+        when(inventoryService.reserveTickets("eventId", "vip", 2)).thenReturn(State.SUCCESS);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(TicketHold.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+        when(mongoTemplate.find(any(Query.class), eq(TicketHold.class))).thenReturn(List.of(expiring("holdId", 2)));
+        when(inventoryService.releaseHolds("eventId", "vip", List.of("holdId"), 2)).thenReturn(State.ERROR);
+        when(inventoryService.findSettledHolds("eventId", List.of("holdId"))).thenReturn(Map.of());
+
+        HoldServiceImpl holdService = holdService(0);
+        holdService.createHold(createHoldDTO);
+        Thread.sleep(50);
+
+        assertEquals(0, holdService.expireDueHolds());
+        // Los tiquetes siguen retenidos, la reserva queda EXPIRING para que el barrido lo reintente
+        assertEquals(List.of(HoldState.EXPIRING), updatedStates(1));
+    }
+
+    @Test
+    void testSweepExpiredHolds_SettledHoldsAreNotReleasedAgain() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(TicketHold.class))).thenReturn(updateResult);
+        // Ninguna reserva activa vencida, tres quedaron a medio resolver
+        when(updateResult.getModifiedCount()).thenReturn(0L, 1L);
+        when(mongoTemplate.find(any(Query.class), eq(TicketHold.class))).thenReturn(List.of(
+                expiring("releasedId", 2), expiring("soldId", 3), expiring("heldId", 4)));
+        List<String> all = List.of("releasedId", "soldId", "heldId");
+        when(inventoryService.releaseHolds("eventId", "vip", all, 9)).thenReturn(State.ERROR);
+        when(inventoryService.findSettledHolds("eventId", all)).thenReturn(Map.of("releasedId", false, "soldId", true));
+        when(inventoryService.releaseHolds("eventId", "vip", List.of("heldId"), 4)).thenReturn(State.SUCCESS);
+
+        holdService(600).sweepExpiredHolds();
+
+        // Solo se liberan los tiquetes de la reserva que no se había resuelto
+        verify(inventoryService, never()).releaseHolds("eventId", "vip", List.of("releasedId"), 2);
+        verify(inventoryService, never()).releaseHolds("eventId", "vip", List.of("soldId"), 3);
+        verify(inventoryService).releaseHolds("eventId", "vip", List.of("heldId"), 4);
+
+        // La confirmación interrumpida que ya vendió los tiquetes queda CONFIRMED, las demás EXPIRED
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(5)).updateMulti(queries.capture(), updates.capture(), eq(TicketHold.class));
+        Map<Object, Object> finished = new HashMap<>();
+        for (int i = 2; i < 5; i++) {
+            Object idHolds = queries.getAllValues().get(i).getQueryObject().get("_id", Document.class).get("$in");
+            finished.put(idHolds, updates.getAllValues().get(i).getUpdateObject().get("$set", Document.class).get("state"));
+        }
+        assertEquals(HoldState.CONFIRMED, finished.get(List.of("soldId")));
+        assertEquals(HoldState.EXPIRED, finished.get(List.of("releasedId")));
+        assertEquals(HoldState.EXPIRED, finished.get(List.of("heldId")));
+    }
+
+    @Test
+    void testSweepExpiredHolds_RecoversInterruptedConfirmations() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(TicketHold.class))).thenReturn(updateResult);
+
+        holdService(600).sweepExpiredHolds();
+
+        // Las reservas vencidas y las que quedaron a medio confirmar o liberar se marcan EXPIRING
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), any(Update.class), eq(TicketHold.class));
+        Document retried = queries.getAllValues().get(1).getQueryObject().get("state", Document.class);
+        assertEquals(List.of(HoldState.EXPIRING, HoldState.RELEASING, HoldState.CONFIRMING), retried.get("$in"));
+    }
+
+    private TicketHold expiring(String idHold, int quantity) {
+        return new TicketHold(idHold, "eventId", "vip", "userId", quantity, HoldState.EXPIRING,
+                LocalDateTime.now(), LocalDateTime.now(), null, "sweepId", LocalDateTime.now());
+    }
+
+    private List<Object> updatedStates(int times) {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(times)).updateMulti(any(Query.class), updates.capture(), eq(TicketHold.class));
+        return updates.getAllValues().stream()
+                .map(update -> update.getUpdateObject().get("$set", Document.class).get("state"))
+                .toList();
+    }
+
+    private Object finishedState() {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(TicketHold.class));
+        return update.getValue().getUpdateObject().get("$set", Document.class).get("state");
+    }
+}
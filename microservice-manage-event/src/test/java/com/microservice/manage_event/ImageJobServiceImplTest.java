@@ -0,0 +1,239 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.ImageJob;
+import com.microservice.manage_event.persistence.model.enums.ImageJobState;
+import com.microservice.manage_event.persistence.model.enums.ImageVariant;
+import com.microservice.manage_event.service.configuration.app.CacheConfig;
+import com.microservice.manage_event.service.implementation.ImageJobServiceImpl;
+import com.microservice.manage_event.service.interfaces.ImagesService;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class ImageJobServiceImplTest {
+
+    private static final byte[] CONTENT = "image".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private GridFsTemplate gridFsTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private FakeImagesService imageStore;
+    private ImageJobServiceImpl imageJobService;
+    private ObjectId fileId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        imageStore = new FakeImagesService();
+
+        // Jobs run on the calling thread
+        imageJobService = new ImageJobServiceImpl(mongoTemplate, gridFsTemplate, imageStore, Runnable::run, Runnable::run, Runnable::run, eventPublisher,
+                new ConcurrentMapCacheManager(CacheConfig.EVENTS, CacheConfig.EVENT_PAGES), 2, 3, 1000, 60000, 300, 24, 50_000_000);
+
+        fileId = new ObjectId();
+        storeContent(CONTENT);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ImageJob.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @Test
+    void testEnqueueImages() throws IOException {
+        MultipartFile image = new MockMultipartFile("images", "poster.jpg", "image/jpeg", CONTENT);
+        when(gridFsTemplate.store(any(InputStream.class), eq("poster"), eq("image/jpeg"))).thenReturn(fileId);
+
+        imageJobService.enqueueImages("event-1", Map.of("poster", image));
+
+        ArgumentCaptor<Collection<ImageJob>> jobs = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insert(jobs.capture(), eq(ImageJob.class));
+        ImageJob job = jobs.getValue().iterator().next();
+        assertEquals("event-1", job.getIdEvent());
+        assertEquals(fileId, job.getFileId());
+        assertEquals(ImageJobState.PENDING, job.getState());
+    }
+
+    @Test
+    void testProcessJobUploadsAndFillsSlot() {
+        imageJobService.processJob(job(1));
+
+        assertArrayEquals(CONTENT, imageStore.uploaded.get("poster"));
+
+        ArgumentCaptor<Update> patch = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), patch.capture(), eq(Event.class));
+        assertEquals("fake://poster", patch.getValue().getUpdateObject().get("$set", Document.class).get("images.poster"));
+
+        ArgumentCaptor<Update> finish = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), finish.capture(), eq(ImageJob.class));
+        assertEquals(ImageJobState.DONE, finish.getValue().getUpdateObject().get("$set", Document.class).get("state"));
+
+        verify(gridFsTemplate).delete(any(Query.class));
+        verify(eventPublisher).publishEvent(new CatalogChangeEvent("event-1"));
+    }
+
+    @Test
+    void testProcessJobCreatesVariants() throws IOException {
+        BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        storeContent(png.toByteArray());
+
+        imageJobService.processJob(job(1));
+
+        // Every size is uploaded next to the original and scaled to its width
+        for (ImageVariant variant : ImageVariant.values()) {
+            BufferedImage resized = ImageIO.read(new ByteArrayInputStream(imageStore.uploaded.get("poster_" + variant.key())));
+            assertEquals(variant.width(), resized.getWidth());
+            assertEquals(variant.width() / 2, resized.getHeight());
+        }
+
+        ArgumentCaptor<Update> patch = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), patch.capture(), eq(Event.class));
+        Map<?, ?> variants = (Map<?, ?>) patch.getValue().getUpdateObject().get("$set", Document.class).get("imageVariants.poster");
+        assertEquals("fake://poster_card", variants.get("card"));
+        assertEquals(3, variants.size());
+    }
+
+    @Test
+    void testProcessJobDeletesUploadsWhenOneFails() throws IOException {
+        BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        storeContent(png.toByteArray());
+        imageStore.failingPublicId = "poster_card";
+
+        imageJobService.processJob(job(1));
+
+        // The other uploads finish and are deleted, the slot is not filled and the job is retried
+        assertEquals(ImageVariant.values().length, imageStore.deleted.size());
+        assertTrue(imageStore.deleted.contains("poster"));
+        assertFalse(imageStore.deleted.contains("poster_card"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+    }
+
+    @Test
+    void testProcessJobDeletesUploadOfMissingEvent() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        imageJobService.processJob(job(1));
+
+        assertEquals(List.of("poster"), imageStore.deleted);
+        verify(eventPublisher, never()).publishEvent(any(CatalogChangeEvent.class));
+    }
+
+    @Test
+    void testProcessJobRetriesWithBackoff() {
+        imageStore.failing = true;
+
+        imageJobService.processJob(job(1));
+
+        ArgumentCaptor<Update> retry = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), retry.capture(), eq(ImageJob.class));
+        Document set = retry.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(ImageJobState.PENDING, set.get("state"));
+        assertEquals("Store is down", set.get("lastError"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+        verify(gridFsTemplate, never()).delete(any(Query.class));
+    }
+
+    @Test
+    void testProcessJobFailsAfterLastAttempt() {
+        imageStore.failing = true;
+
+        imageJobService.processJob(job(3));
+
+        ArgumentCaptor<Update> slot = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), slot.capture(), eq(Event.class));
+        assertEquals(ImageJobState.FAILED.name(), slot.getValue().getUpdateObject().get("$set", Document.class).get("images.poster"));
+
+        ArgumentCaptor<Update> finish = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), finish.capture(), eq(ImageJob.class));
+        assertEquals(ImageJobState.FAILED, finish.getValue().getUpdateObject().get("$set", Document.class).get("state"));
+    }
+
+    @Test
+    void testRunJobsClaimsUntilQueueIsEmpty() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ImageJob.class)))
+                .thenReturn(job(1), (ImageJob) null);
+
+        assertEquals(1, imageJobService.runJobs());
+        assertTrue(imageStore.uploaded.containsKey("poster"));
+    }
+
+    private void storeContent(byte[] content) {
+        GridFSFile file = new GridFSFile(new BsonObjectId(fileId), "poster", content.length, 255, new Date(), new Document());
+        when(gridFsTemplate.findOne(any(Query.class))).thenReturn(file);
+        when(gridFsTemplate.getResource(file)).thenAnswer(invocation -> new GridFsResource(file, new ByteArrayInputStream(content)));
+    }
+
+    private ImageJob job(int attempts) {
+        return new ImageJob("job-1", "event-1", "poster", "poster", fileId, CONTENT.length, ImageJobState.RUNNING,
+                attempts, null, null, null, null, null);
+    }
+
+    // Image store kept in memory
+    private static final class FakeImagesService implements ImagesService {
+
+        private final Map<String, byte[]> uploaded = new HashMap<>();
+        private final List<String> deleted = new ArrayList<>();
+        private boolean failing;
+        private String failingPublicId;
+
+        @Override
+        public Map uploadImage(MultipartFile image) throws IOException {
+            return uploadImage(image.getName(), image.getInputStream(), image.getSize());
+        }
+
+        @Override
+        public Map uploadImage(String publicId, InputStream content, long size) throws IOException {
+            if (failing || publicId.equals(failingPublicId)) throw new IOException("Store is down");
+            uploaded.put(publicId, content.readAllBytes());
+            return Map.of("public_id", publicId, "secure_url", "fake://" + publicId);
+        }
+
+        @Override
+        public Map deleteImage(String idImage) {
+            deleted.add(idImage);
+            return Map.of("result", "ok");
+        }
+    }
+}
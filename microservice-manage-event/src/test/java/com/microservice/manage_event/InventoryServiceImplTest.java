@@ -0,0 +1,203 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.LocalityVO;
+import com.microservice.manage_event.presentation.dto.AvailabilityDTO;
+import com.microservice.manage_event.service.implementation.InventoryServiceImpl;
+import com.microservice.manage_event.utils.StockCache;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class InventoryServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UpdateResult updateResult;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private StockCache stockCache;
+
+    private InventoryServiceImpl inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        stockCache = new StockCache(60000, 60000);
+        inventoryService = new InventoryServiceImpl(mongoTemplate, stockCache, eventPublisher);
+    }
+
+    private Event eventWithLocality(int capacity, int sold, int held) {
+        LocalityVO locality = new LocalityVO("vip", "VIP", capacity, 100.0);
+        locality.setSoldLocality(sold);
+        locality.setHeldLocality(held);
+
+        Event event = new Event();
+        event.setLocalitiesEvent(new ArrayList<>(List.of(locality)));
+        return event;
+    }
+
+    @Test
+    void testReserveTickets_Success() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+
+        State result = inventoryService.reserveTickets("eventId", "vip", 2);
+
+        assertEquals(State.SUCCESS, result);
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+    }
+
+    @Test
+    void testReserveTickets_NotEnoughStock() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(0L);
+
+        State result = inventoryService.reserveTickets("eventId", "vip", 2);
+
+        assertEquals(State.ERROR, result);
+    }
+
+    @Test
+    void testReserveTickets_SoldOutInCacheSkipsDatabase() {
+        stockCache.put("eventId", eventWithLocality(10, 9, 1).getLocalitiesEvent());
+
+        State result = inventoryService.reserveTickets("eventId", "vip", 1);
+
+        assertEquals(State.ERROR, result);
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+    }
+
+    @Test
+    void testReserveTickets_OlderSnapshotAsksDatabase() {
+        // Una instancia pudo liberar tiquetes después de cargar el snapshot, solo la base de datos decide
+        StockCache olderCache = new StockCache(60000, -1);
+        InventoryServiceImpl service = new InventoryServiceImpl(mongoTemplate, olderCache, eventPublisher);
+        olderCache.put("eventId", eventWithLocality(10, 9, 1).getLocalitiesEvent());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+
+        State result = service.reserveTickets("eventId", "vip", 1);
+
+        assertEquals(State.SUCCESS, result);
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Event.class));
+    }
+
+    @Test
+    void testReserveTickets_RefusedReloadsSnapshot() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(0L);
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(eventWithLocality(10, 10, 0));
+
+        assertEquals(State.ERROR, inventoryService.reserveTickets("eventId", "vip", 1));
+        // La siguiente solicitud se rechaza con el snapshot recién cargado
+        assertEquals(State.ERROR, inventoryService.reserveTickets("eventId", "vip", 1));
+
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class), eq(Event.class));
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Event.class));
+    }
+
+    @Test
+    void testReserveTickets_InvalidQuantity() {
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.reserveTickets("eventId", "vip", 0));
+    }
+
+    @Test
+    void testConfirmHold_UpdatesCachedStock() {
+        stockCache.put("eventId", eventWithLocality(10, 0, 3).getLocalitiesEvent());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+
+        State result = inventoryService.confirmHold("eventId", "vip", "holdId", 2);
+        AvailabilityDTO availability = inventoryService.getAvailability("eventId").get(0);
+
+        assertEquals(State.SUCCESS, result);
+        assertEquals(2, availability.sold());
+        assertEquals(1, availability.held());
+        assertEquals(7, availability.remaining());
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Event.class));
+        // The sale is published with the price of the cached locality
+        verify(eventPublisher).publishEvent(new TicketsSoldEvent("eventId", "vip", 2, 100.0));
+    }
+
+    @Test
+    void testReleaseHolds_RecordsHoldsInSameWrite() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+
+        assertEquals(State.SUCCESS, inventoryService.releaseHolds("eventId", "vip", List.of("holdA", "holdB"), 5));
+
+        // Solo se liberan si ninguna de las reservas estaba resuelta, y quedan registradas en la misma escritura
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Event.class));
+        assertEquals(List.of("holdA", "holdB"), query.getValue().getQueryObject()
+                .get("settledHolds.idHold", Document.class).get("$nin"));
+        assertTrue(update.getValue().getUpdateObject().get("$push", Document.class).containsKey("settledHolds"));
+    }
+
+    @Test
+    void testConfirmHold_AlreadySettled() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Event.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(0L);
+
+        assertEquals(State.ERROR, inventoryService.confirmHold("eventId", "vip", "holdA", 2));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testFindSettledHolds() {
+        Document event = new Document("settledHolds", List.of(
+                new Document("idHold", "holdA").append("sold", true),
+                new Document("idHold", "holdB").append("sold", false),
+                new Document("idHold", "holdC").append("sold", false)));
+        when(mongoTemplate.getCollectionName(Event.class)).thenReturn("event");
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("event"))).thenReturn(event);
+
+        assertEquals(Map.of("holdA", true, "holdB", false),
+                inventoryService.findSettledHolds("eventId", List.of("holdA", "holdB", "holdD")));
+    }
+
+    @Test
+    void testGetAvailability_LoadsOnce() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(eventWithLocality(50, 10, 5));
+
+        inventoryService.getAvailability("eventId");
+        int remaining = inventoryService.getRemainingTickets("eventId", "vip");
+
+        assertEquals(35, remaining);
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Event.class));
+    }
+
+    @Test
+    void testGetAvailability_EventNotFound() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(null);
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.getAvailability("eventId"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.service.implementation.LocalImagesServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalImagesServiceImplTest {
+
+    private static final byte[] CONTENT = "poster".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private LocalImagesServiceImpl imagesService;
+
+    @BeforeEach
+    void setUp() {
+        imagesService = new LocalImagesServiceImpl(root.toString(), "/api/public-event/images/");
+    }
+
+    @Test
+    void testUploadImageIsContentAddressed() throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+
+        Map first = imagesService.uploadImage("poster", new ByteArrayInputStream(CONTENT), CONTENT.length);
+        Map second = imagesService.uploadImage("copy", new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        // The same content is stored once under its hash
+        assertEquals("/api/public-event/images/" + hash, first.get("secure_url"));
+        assertEquals(first.get("secure_url"), second.get("secure_url"));
+        assertNotEquals(first.get("public_id"), second.get("public_id"));
+        assertArrayEquals(CONTENT, Files.readAllBytes(imagesService.getImageFile(hash)));
+        try (var files = Files.walk(root.resolve("objects"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testDeleteImageKeepsSharedContent() throws IOException {
+        Map first = imagesService.uploadImage("poster", new ByteArrayInputStream(CONTENT), CONTENT.length);
+        Map second = imagesService.uploadImage("copy", new ByteArrayInputStream(CONTENT), CONTENT.length);
+        String hash = first.get("public_id").toString().substring(0, 64);
+
+        imagesService.deleteImage(first.get("public_id").toString());
+        assertNotNull(imagesService.getImageFile(hash));
+
+        imagesService.deleteImage(second.get("public_id").toString());
+        assertNull(imagesService.getImageFile(hash));
+    }
+
+    @Test
+    void testInvalidIds() {
+        assertNull(imagesService.getImageFile("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> imagesService.deleteImage("../poster"));
+    }
+}
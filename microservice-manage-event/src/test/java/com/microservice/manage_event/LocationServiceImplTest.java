@@ -1,8 +1,14 @@
 package com.microservice.manage_event;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservice.manage_event.persistence.model.entities.Location;
 import com.microservice.manage_event.persistence.repository.LocationRepository;
+import com.microservice.manage_event.presentation.advice.ResourceNotFoundException;
+import com.microservice.manage_event.presentation.dto.NearestLocationDTO;
 import com.microservice.manage_event.service.implementation.LocationServiceImpl;
+import com.microservice.manage_event.utils.CompressedBody;
+import com.microservice.manage_event.utils.LocationTree;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,9 +18,13 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -84,4 +94,121 @@ class LocationServiceImplTest {
             locationService.getLocationById(null); // Test with null
         });
     }
+
+    @Test
+    void testLocationTree_Levels() {
+        // Arrange
+        LocationTree tree = LocationTree.of(sampleLocations());
+
+        // Act
+        int antioquia = tree.find("Colombia", "antioquia");
+        int medellin = tree.find("Colombia", "Antioquia", "Medellín");
+
+        // Assert
+        assertEquals(1, tree.childCount(LocationTree.ROOT));
+        assertEquals("Colombia", tree.name(tree.firstChild(LocationTree.ROOT)));
+        assertEquals(LocationTree.DEPARTMENT, tree.level(antioquia));
+        assertEquals(2, tree.childCount(antioquia));
+        assertEquals("Envigado", tree.name(tree.firstChild(antioquia)));
+        assertEquals(2, tree.childCount(medellin));
+        assertEquals(50001, tree.postalCode(tree.firstChild(medellin)));
+        assertEquals(-1, tree.find("Colombia", "Cundinamarca"));
+    }
+
+    @Test
+    void testGetLocationLevel_Success() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper();
+        LocationServiceImpl service = new LocationServiceImpl(locationRepository, objectMapper);
+        when(locationRepository.findAll()).thenReturn(sampleLocations());
+
+        // Act
+        CompressedBody departments = service.getLocationLevel("Colombia");
+        CompressedBody towns = service.getLocationLevel("Colombia", "Antioquia", "Medellín");
+
+        // Assert
+        JsonNode names = objectMapper.readTree(departments.json()).get("data");
+        assertEquals(2, names.size());
+        assertEquals("Antioquia", names.get(0).asText());
+        assertEquals("Bolívar", names.get(1).asText());
+
+        JsonNode townList = objectMapper.readTree(towns.json()).get("data");
+        assertEquals(2, townList.size());
+        assertEquals(50001, townList.get(0).get("postalCode").asInt());
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(departments.gzip()))) {
+            assertArrayEquals(departments.json(), gzip.readAllBytes());
+        }
+        assertNotEquals(departments.etag(), departments.gzipEtag());
+        assertEquals(departments.etag(), service.getLocationLevel("Colombia").etag());
+
+        // The tree is loaded only once
+        verify(locationRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testGetLocationLevel_NotFound() {
+        // Arrange
+        LocationServiceImpl service = new LocationServiceImpl(locationRepository, new ObjectMapper());
+        when(locationRepository.findAll()).thenReturn(sampleLocations());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> service.getLocationLevel("Colombia", "Cundinamarca"));
+        assertThrows(IllegalArgumentException.class, () -> service.getLocationLevel("Colombia", " "));
+    }
+
+    @Test
+    void testReverseGeocode_Success() throws Exception {
+        // Arrange
+        LocationServiceImpl service = new LocationServiceImpl(locationRepository, new ObjectMapper());
+        when(locationRepository.findAll()).thenReturn(sampleLocations());
+
+        // Act
+        NearestLocationDTO nearEnvigado = service.reverseGeocode(6.17, -75.59);
+        NearestLocationDTO nearCartagena = service.reverseGeocode(10.40, -75.50);
+
+        // Assert
+        assertEquals(55420, nearEnvigado.location().getPostal_code());
+        assertTrue(nearEnvigado.distanceKm() < 2);
+        assertEquals("Cartagena", nearCartagena.location().getCity());
+        assertThrows(IllegalArgumentException.class, () -> service.reverseGeocode(91, 0));
+    }
+
+    @Test
+    void testFindPositioned_SkipsRowsWithoutCoordinates() {
+        // Arrange
+        LocationServiceImpl service = new LocationServiceImpl(locationRepository, new ObjectMapper());
+        List<Location> locations = new ArrayList<>(sampleLocations());
+        locations.add(0, location("Colombia", "Bolívar", "Turbaco", "Turbaco", 131001, 0, 0));
+        locations.add(0, location("Colombia", "Antioquia", "Envigado", "Envigado", 55420, 0, 0));
+        when(locationRepository.findAll()).thenReturn(locations);
+
+        // Act & Assert
+        assertEquals(6.1759, service.findPositioned(55420, null).getLatitude());
+        assertEquals("Cartagena", service.findPositioned(0, "cartagena").getCity());
+        assertEquals(50021, service.findPositioned(99999, "Medellín").getPostal_code());
+        assertNull(service.findPositioned(131001, "Turbaco"));
+    }
+
+    private List<Location> sampleLocations() {
+        return Arrays.asList(
+                location("Colombia", "Antioquia", "Medellín", "Medellín", 50021, 6.2442, -75.5812),
+                location("Colombia", "Antioquia", "Medellín", "Medellín", 50001, 6.2518, -75.5636),
+                location("Colombia", "Antioquia", "Envigado", "Envigado", 55420, 6.1759, -75.5917),
+                location("Colombia", "Bolívar", "Cartagena", "Cartagena", 130001, 10.3910, -75.4794));
+    }
+
+    private Location location(String country, String department, String city, String town, int postalCode,
+                              double latitude, double longitude) {
+        Location location = new Location();
+        location.setId(new ObjectId());
+        location.setCountry(country);
+        location.setDepartment(department);
+        location.setCity(city);
+        location.setTown(town);
+        location.setPostal_code(postalCode);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
 }
@@ -0,0 +1,101 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.presentation.dto.MapClusterDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.implementation.MapServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class MapServiceImplTest {
+
+    private static final String COLOMBIA = "-80,-5,-66,13";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private MapServiceImpl mapService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mapService = new MapServiceImpl(mongoTemplate, 16, 64);
+
+        LocalDate today = LocalDate.now();
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(
+                event("1", 6.2442, -75.5812, today.plusDays(3)),
+                event("2", 6.2518, -75.5636, today.plusDays(10)),
+                event("3", 4.7110, -74.0721, today.plusDays(1)),
+                event("4", 10.3910, -75.4794, today.minusDays(2))));
+        mapService.rebuildClusters();
+    }
+
+    @Test
+    void testClustersMergeAtLowZoom() {
+        List<MapClusterDTO> clusters = mapService.getClusters(COLOMBIA, 4);
+
+        // Medellín and Bogotá fall in different cells, the finished event in Cartagena is not shown
+        assertEquals(3, clusters.stream().mapToInt(MapClusterDTO::count).sum());
+        MapClusterDTO medellin = clusters.stream().filter(c -> c.count() == 2).findFirst().orElseThrow();
+        assertNull(medellin.idEvent());
+        assertEquals(6.248, medellin.latitude(), 0.001);
+    }
+
+    @Test
+    void testClustersSplitAtHighZoom() {
+        List<MapClusterDTO> clusters = mapService.getClusters("-75.60,6.20,-75.55,6.30", 16);
+
+        assertEquals(2, clusters.size());
+        assertTrue(clusters.stream().allMatch(c -> c.count() == 1 && c.idEvent() != null));
+    }
+
+    @Test
+    void testApplyCatalogChanges() {
+        when(mongoTemplate.find(any(Query.class), eq(Event.class)))
+                .thenReturn(List.of(event("5", 3.4516, -76.5320, LocalDate.now().plusDays(4))));
+
+        mapService.onCatalogChange(new CatalogChangeEvent("1"));
+        mapService.onCatalogChange(new CatalogChangeEvent("5"));
+        assertEquals(2, mapService.applyCatalogChanges());
+
+        // The event 1 was deactivated or deleted and the event 5 was created in Cali
+        List<MapClusterDTO> clusters = mapService.getClusters(COLOMBIA, 16);
+        assertEquals(List.of("2", "3", "5"), clusters.stream().map(MapClusterDTO::idEvent).sorted().toList());
+    }
+
+    @Test
+    void testGetClustersInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> mapService.getClusters("1,2,3", 4));
+        assertThrows(IllegalArgumentException.class, () -> mapService.getClusters("a,b,c,d", 4));
+        assertThrows(IllegalArgumentException.class, () -> mapService.getClusters("-80,13,-66,-5", 4));
+        assertThrows(ErrorResponseException.class, () -> new MapServiceImpl(mongoTemplate, 16, 64).getClusters(COLOMBIA, 4));
+    }
+
+    private Event event(String id, double latitude, double longitude, LocalDate endDate) {
+        Event event = new Event();
+        event.setIdEvent(id);
+        event.setState(State.ACTIVE);
+        event.setStartDate(endDate);
+        event.setEndDate(endDate);
+        event.setPosition(new GeoJsonPoint(longitude, latitude));
+        return event;
+    }
+}
@@ -0,0 +1,89 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.presentation.dto.OnSaleMetricsDTO;
+import com.microservice.manage_event.presentation.dto.OnSaleWindowDTO;
+import com.microservice.manage_event.service.implementation.OnSaleMetricsServiceImpl;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnSaleMetricsServiceImplTest {
+
+    private OnSaleMetricsServiceImpl onSaleMetricsService;
+
+    @BeforeEach
+    void setUp() {
+        onSaleMetricsService = new OnSaleMetricsServiceImpl(60_000);
+        // Start at the beginning of a second so everything recorded lands in the same one
+        waitNextSecond();
+    }
+
+    @Test
+    void testGetOnSaleMetrics_Rates() {
+        onSaleMetricsService.onTicketsSold(new TicketsSoldEvent("eventId", "vip", 4, 50.0));
+        onSaleMetricsService.recordHold("eventId");
+        onSaleMetricsService.recordHold("eventId");
+        for (int i = 0; i < 99; i++) {
+            onSaleMetricsService.recordCheckout("eventId", true, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        onSaleMetricsService.recordCheckout("eventId", false, TimeUnit.MILLISECONDS.toNanos(900));
+        waitNextSecond();
+
+        OnSaleMetricsDTO metrics = onSaleMetricsService.getOnSaleMetrics("eventId").get(0);
+
+        OnSaleWindowDTO second = metrics.windows().get(0);
+        assertEquals(1, second.seconds());
+        assertEquals(4.0, second.ticketsPerSecond());
+        assertEquals(2.0, second.holdsPerSecond());
+        assertEquals(0.01, second.checkoutFailureRate());
+        // The 99th checkout is one of the fast ones, reported with at most a quarter of error
+        assertTrue(second.p99CheckoutMillis() >= 10 && second.p99CheckoutMillis() <= 12.5);
+
+        OnSaleWindowDTO minute = metrics.windows().get(2);
+        assertEquals(60, minute.seconds());
+        assertEquals(4.0 / 60, minute.ticketsPerSecond());
+    }
+
+    @Test
+    void testGetOnSaleMetrics_BusiestFirst() {
+        onSaleMetricsService.onTicketsSold(new TicketsSoldEvent("quiet", "vip", 1, 50.0));
+        onSaleMetricsService.onTicketsSold(new TicketsSoldEvent("busy", "vip", 10, 50.0));
+        waitNextSecond();
+
+        List<OnSaleMetricsDTO> metrics = onSaleMetricsService.getOnSaleMetrics(null);
+
+        assertEquals(List.of("busy", "quiet"), metrics.stream().map(OnSaleMetricsDTO::idEvent).toList());
+    }
+
+    @Test
+    void testGetOnSaleMetrics_UnknownEventReadsZero() {
+        OnSaleMetricsDTO metrics = onSaleMetricsService.getOnSaleMetrics("eventId").get(0);
+
+        assertEquals(3, metrics.windows().size());
+        assertEquals(0.0, metrics.windows().get(0).ticketsPerSecond());
+        assertEquals(0.0, metrics.windows().get(0).p99CheckoutMillis());
+        // Reading does not create a window for the event
+        assertTrue(onSaleMetricsService.getOnSaleMetrics(null).isEmpty());
+    }
+
+    @Test
+    void testPushOnSaleMetrics_NoSubscribers() {
+        onSaleMetricsService.recordHold("eventId");
+
+        assertEquals(0, onSaleMetricsService.pushOnSaleMetrics());
+    }
+
+    private void waitNextSecond() {
+        long now = System.currentTimeMillis();
+        try {
+            Thread.sleep(1000 - now % 1000 + 20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.client.ManageUserClient;
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.vo.LocationVO;
+import com.microservice.manage_event.presentation.dto.EventRecommendationDTO;
+import com.microservice.manage_event.presentation.dto.http.MessageDTO;
+import com.microservice.manage_event.service.exception.ErrorResponseException;
+import com.microservice.manage_event.service.implementation.RecommendationServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import com.microservice.manage_user.persistence.model.entities.User;
+import com.microservice.manage_user.persistence.model.vo.EventVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class RecommendationServiceImplTest {
+
+    private static final LocalDate NEXT_MONTH = LocalDate.now().plusMonths(1);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ManageUserClient manageUserClient;
+
+    private RecommendationServiceImpl recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        recommendationService = new RecommendationServiceImpl(mongoTemplate, manageUserClient);
+    }
+
+    @Test
+    void testRecommendEvents_ScoresByCityAndHistory() {
+        index(
+                event("1", "Rock al Parque", "Bogotá", NEXT_MONTH),
+                event("2", "Rock al Parque", "Medellín", NEXT_MONTH),
+                event("3", "Feria de las Flores", "Medellín", NEXT_MONTH),
+                event("4", "Estéreo Picnic", "Cali", NEXT_MONTH));
+        user("Medellín", "Rock al Parque", "Rock al Parque", "Otro");
+
+        List<EventRecommendationDTO> result = recommendationService.recommendEvents("userId");
+
+        // Ciudad (30) + nombre asistido (40) + historial (2 x 5), luego solo nombre, luego solo ciudad
+        assertEquals(List.of("2", "1", "3"), result.stream().map(EventRecommendationDTO::getEventId).toList());
+        assertEquals(List.of(80.0, 50.0, 30.0), result.stream().map(EventRecommendationDTO::getScore).toList());
+    }
+
+    @Test
+    void testRecommendEvents_TopTenFirstStarting() {
+        List<Event> events = new ArrayList<>();
+        IntStream.range(0, 30).forEach(i -> events.add(event("e" + i, "Concierto " + i, "Bogotá", NEXT_MONTH.plusDays(30 - i))));
+        index(events.toArray(new Event[0]));
+        user("Bogotá");
+
+        List<EventRecommendationDTO> result = recommendationService.recommendEvents("userId");
+
+        // Empatados en puntaje, se recomiendan los diez que empiezan primero
+        assertEquals(10, result.size());
+        assertEquals("e29", result.get(0).getEventId());
+        assertEquals("e20", result.get(9).getEventId());
+    }
+
+    @Test
+    void testRecommendEvents_NoSharedPreferences() {
+        index(event("1", "Rock al Parque", "Bogotá", NEXT_MONTH));
+        user("Pasto");
+
+        assertTrue(recommendationService.recommendEvents("userId").isEmpty());
+    }
+
+    @Test
+    void testRecommendEvents_IndexNotReady() {
+        assertThrows(ErrorResponseException.class, () -> recommendationService.recommendEvents("userId"));
+        verifyNoInteractions(manageUserClient);
+    }
+
+    @Test
+    void testApplyCatalogChanges() {
+        index(event("1", "Rock al Parque", "Bogotá", NEXT_MONTH));
+        user("Bogotá");
+
+        // El evento se desactiva y otro se crea en la misma ciudad
+        Event inactive = event("1", "Rock al Parque", "Bogotá", NEXT_MONTH);
+        inactive.setState(State.INACTIVE);
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class)))
+                .thenReturn(inactive)
+                .thenReturn(event("2", "Jazz al Parque", "Bogotá", NEXT_MONTH));
+        recommendationService.onCatalogChange(new CatalogChangeEvent("1"));
+        recommendationService.onCatalogChange(new CatalogChangeEvent("2"));
+
+        assertEquals(2, recommendationService.applyCatalogChanges());
+        assertEquals(List.of("2"), recommendationService.recommendEvents("userId").stream()
+                .map(EventRecommendationDTO::getEventId).toList());
+    }
+
+    private void index(Event... events) {
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(events));
+        recommendationService.rebuildRecommendations();
+    }
+
+    private void user(String address, String... attended) {
+        User user = new User();
+        user.setAddress(address);
+        List<EventVO> events = new ArrayList<>();
+        for (String name : attended) {
+            events.add(new EventVO(null, name));
+        }
+        user.setEventsUser(events);
+        when(manageUserClient.getUser("userId")).thenReturn(ResponseEntity.ok(new MessageDTO<>(false, user)));
+    }
+
+    private Event event(String id, String name, String city, LocalDate startDate) {
+        LocationVO location = new LocationVO();
+        location.setCity(city);
+
+        Event event = new Event();
+        event.setIdEvent(id);
+        event.setName(name);
+        event.setState(State.ACTIVE);
+        event.setStartDate(startDate);
+        event.setLocations(location);
+        return event;
+    }
+}
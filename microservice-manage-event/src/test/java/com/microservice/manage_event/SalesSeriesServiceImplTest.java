@@ -0,0 +1,187 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.SalesBucket;
+import com.microservice.manage_event.persistence.model.enums.SalesGranularity;
+import com.microservice.manage_event.presentation.dto.CumulativeSalesDTO;
+import com.microservice.manage_event.presentation.dto.SalesVelocityDTO;
+import com.microservice.manage_event.service.implementation.SalesSeriesServiceImpl;
+import com.microservice.manage_event.utils.TicketsSoldEvent;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class SalesSeriesServiceImplTest {
+
+    private static final String EVENT_ID = "eventId";
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 5, 1, 20, 30);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SalesSeriesServiceImpl salesSeriesService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        salesSeriesService = new SalesSeriesServiceImpl(mongoTemplate, 7);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesBucket.class)).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void testFlushSales_OneUpsertByBucket() {
+        salesSeriesService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 2, 50.0));
+        salesSeriesService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 1, 50.0));
+        salesSeriesService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "gen", 4, 20.0));
+
+        int written = salesSeriesService.flushSales();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(written)).upsert(any(Query.class), updates.capture());
+        verify(bulkOperations, times(1)).execute();
+
+        // Each locality has one hour bucket with all its sales, only minute buckets expire
+        List<Document> hours = updates.getAllValues().stream()
+                .map(Update::getUpdateObject)
+                .filter(update -> update.get("$setOnInsert", Document.class).get("granularity") == SalesGranularity.HOUR)
+                .toList();
+        assertEquals(2, hours.size());
+        assertEquals(7, hours.stream().mapToInt(update -> (int) update.get("$inc", Document.class).get("tickets")).sum());
+        assertEquals(230.0, hours.stream().mapToDouble(update -> (double) update.get("$inc", Document.class).get("revenue")).sum());
+        assertTrue(hours.stream().noneMatch(update -> update.get("$setOnInsert", Document.class).containsKey("purgeAt")));
+
+        // The sales were drained
+        assertEquals(0, salesSeriesService.flushSales());
+        verifyNoMoreInteractions(bulkOperations);
+    }
+
+    @Test
+    void testFlushSales_WriteFailedKeepsSales() {
+        salesSeriesService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 2, 50.0));
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> salesSeriesService.flushSales());
+
+        // Se reintentan los dos buckets sin contar otra vez la venta
+        reset(bulkOperations);
+        assertEquals(2, salesSeriesService.flushSales());
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(any(Query.class), updates.capture());
+        assertTrue(updates.getAllValues().stream()
+                .allMatch(update -> (int) update.getUpdateObject().get("$inc", Document.class).get("tickets") == 2));
+        assertEquals(0, salesSeriesService.flushSales());
+    }
+
+    @Test
+    void testFlushSales_OnlyFailedBucketsRetried() {
+        salesSeriesService.onTicketsSold(new TicketsSoldEvent(EVENT_ID, "vip", 2, 50.0));
+        // Falla el upsert del bucket de la hora, el del minuto se aplica
+        BulkOperationException failed = mock(BulkOperationException.class);
+        when(failed.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(failed);
+
+        assertThrows(BulkOperationException.class, () -> salesSeriesService.flushSales());
+
+        reset(bulkOperations);
+        assertEquals(1, salesSeriesService.flushSales());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), update.capture());
+        assertEquals(SalesGranularity.HOUR, update.getValue().getUpdateObject()
+                .get("$setOnInsert", Document.class).get("granularity"));
+    }
+
+    @Test
+    void testGetSalesVelocity_MergesLocalities() {
+        when(mongoTemplate.find(any(Query.class), eq(SalesBucket.class))).thenReturn(List.of(
+                bucket("vip", FROM, 6, 300.0),
+                bucket("gen", FROM, 4, 80.0),
+                bucket("gen", FROM.plusMinutes(1), 3, 60.0)));
+
+        List<SalesVelocityDTO> result = salesSeriesService.getSalesVelocity(EVENT_ID, null, SalesGranularity.MINUTE,
+                FROM, FROM.plusMinutes(10));
+
+        assertEquals(List.of(
+                new SalesVelocityDTO(FROM, 10, 380.0, 10.0),
+                new SalesVelocityDTO(FROM.plusMinutes(1), 3, 60.0, 3.0)), result);
+    }
+
+    @Test
+    void testGetSalesVelocity_HourRate() {
+        when(mongoTemplate.find(any(Query.class), eq(SalesBucket.class))).thenReturn(List.of(
+                bucket("vip", FROM.withMinute(0), 120, 6000.0)));
+
+        List<SalesVelocityDTO> result = salesSeriesService.getSalesVelocity(EVENT_ID, "vip", SalesGranularity.HOUR,
+                FROM, FROM.plusHours(2));
+
+        assertEquals(2.0, result.get(0).ticketsPerMinute());
+    }
+
+    @Test
+    void testGetSalesVelocity_RangeNotValid() {
+        assertThrows(IllegalArgumentException.class, () -> salesSeriesService.getSalesVelocity(EVENT_ID, null,
+                SalesGranularity.MINUTE, FROM, FROM.minusMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> salesSeriesService.getSalesVelocity(EVENT_ID, null,
+                SalesGranularity.MINUTE, FROM, FROM.plusDays(2)));
+        assertThrows(IllegalArgumentException.class, () -> salesSeriesService.getSalesVelocity(" ", null,
+                SalesGranularity.MINUTE, FROM, FROM.plusMinutes(1)));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testGetCumulativeSales_StartsFromPreviousSales() {
+        when(mongoTemplate.find(any(Query.class), eq(SalesBucket.class))).thenReturn(List.of(
+                bucket("vip", FROM, 2, 100.0),
+                bucket("vip", FROM.plusMinutes(2), 3, 150.0)));
+        // Whole hours before 20:00, then the minutes between 20:00 and 20:30
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(SalesBucket.class), eq(Document.class)))
+                .thenReturn(total(40, 2000.0))
+                .thenReturn(total(5, 250.0));
+
+        List<CumulativeSalesDTO> result = salesSeriesService.getCumulativeSales(EVENT_ID, "vip", SalesGranularity.MINUTE,
+                FROM, FROM.plusMinutes(10));
+
+        assertEquals(List.of(
+                new CumulativeSalesDTO(FROM, 47, 2350.0),
+                new CumulativeSalesDTO(FROM.plusMinutes(2), 50, 2500.0)), result);
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(SalesBucket.class), eq(Document.class));
+    }
+
+    private SalesBucket bucket(String idLocality, LocalDateTime start, int tickets, double revenue) {
+        SalesBucket bucket = new SalesBucket();
+        bucket.setIdEvent(EVENT_ID);
+        bucket.setIdLocality(idLocality);
+        bucket.setStart(start);
+        bucket.setTickets(tickets);
+        bucket.setRevenue(revenue);
+        return bucket;
+    }
+
+    private AggregationResults<Document> total(long tickets, double revenue) {
+        return new AggregationResults<>(List.of(new Document("tickets", tickets).append("revenue", revenue)), new Document());
+    }
+}
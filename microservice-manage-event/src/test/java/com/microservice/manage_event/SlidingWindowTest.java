@@ -0,0 +1,72 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.utils.SlidingWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void testSumOnlyCompletedSeconds() {
+        SlidingWindow window = new SlidingWindow(2);
+        window.add(0, 3, NOW - 2000);
+        window.add(0, 2, NOW - 1500);
+        window.add(1, 7, NOW - 1000);
+        window.add(0, 9, NOW);
+
+        assertArrayEquals(new long[]{0, 7}, window.sum(1, NOW));
+        assertArrayEquals(new long[]{5, 7}, window.sum(10, NOW));
+    }
+
+    @Test
+    void testOldRotationIsNotSummed() {
+        SlidingWindow window = new SlidingWindow(1);
+        window.add(0, 4, NOW - 64_000);
+        window.add(0, 1, NOW - 1000);
+
+        // The old value shares the slot index of the current second, but not its second
+        assertArrayEquals(new long[]{1}, window.sum(SlidingWindow.MAX_SECONDS, NOW));
+
+        // Writing the slot again replaces the old rotation
+        window.add(0, 6, NOW);
+        assertArrayEquals(new long[]{6}, window.sum(1, NOW + 1000));
+    }
+
+    @Test
+    void testIsIdle() {
+        SlidingWindow window = new SlidingWindow(1);
+        assertTrue(window.isIdle(60, NOW));
+
+        window.add(0, 1, NOW - 30_000);
+
+        assertFalse(window.isIdle(60, NOW));
+        assertTrue(window.isIdle(60, NOW + 30_000));
+    }
+
+    @Test
+    void testConcurrentAddsAreNotLost() throws InterruptedException {
+        SlidingWindow window = new SlidingWindow(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                // Every thread crosses the same ten seconds, so the slots are rolled concurrently
+                for (int i = 0; i < 10_000; i++) {
+                    window.add(0, 1, NOW + (i % 10) * 1000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertArrayEquals(new long[]{80_000}, window.sum(10, NOW + 10_000));
+    }
+}
@@ -0,0 +1,122 @@
+package com.microservice.manage_event;
+
+import com.microservice.manage_event.persistence.model.entities.Event;
+import com.microservice.manage_event.persistence.model.entities.Location;
+import com.microservice.manage_event.persistence.model.enums.State;
+import com.microservice.manage_event.persistence.model.enums.SuggestionType;
+import com.microservice.manage_event.persistence.model.vo.LocationVO;
+import com.microservice.manage_event.presentation.dto.SuggestionDTO;
+import com.microservice.manage_event.service.implementation.SuggestServiceImpl;
+import com.microservice.manage_event.utils.CatalogChangeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+class SuggestServiceImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SuggestServiceImpl suggestService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        suggestService = new SuggestServiceImpl(mongoTemplate, 10, 24);
+
+        LocalDate today = LocalDate.now();
+        when(mongoTemplate.stream(any(Query.class), eq(Location.class))).thenReturn(Stream.of(
+                location("Bogotá", "Usaquén"),
+                location("Medellín", "Envigado")));
+        when(mongoTemplate.stream(any(Query.class), eq(Event.class))).thenReturn(Stream.of(
+                event("1", "Concierto de Rock", today.plusDays(60), 10, "Bogotá"),
+                event("2", "Concierto Sinfónico", today.plusDays(2), 10, "Bogotá"),
+                event("3", "Concierto pasado", today.minusDays(10), 5000, "Medellín")));
+        suggestService.rebuildSuggestions();
+    }
+
+    @Test
+    void testSuggestRanksUpcomingFirst() {
+        List<SuggestionDTO> result = suggestService.suggest("conc", 10);
+
+        // The finished event is not suggested and the closest one comes first
+        assertEquals(List.of("2", "1"), result.stream().map(SuggestionDTO::idEvent).toList());
+    }
+
+    @Test
+    void testSuggestMatchesLaterWordsAndAccents() {
+        assertEquals("1", suggestService.suggest("ROCK", 10).get(0).idEvent());
+        assertEquals("2", suggestService.suggest("sinfonico", 10).get(0).idEvent());
+    }
+
+    @Test
+    void testSuggestCities() {
+        List<SuggestionDTO> result = suggestService.suggest("bog", 10);
+
+        assertEquals(1, result.size());
+        assertEquals(SuggestionType.CITY, result.get(0).type());
+        assertEquals("Bogotá", result.get(0).text());
+        assertEquals(SuggestionType.CITY, suggestService.suggest("usa", 10).get(0).type());
+    }
+
+    @Test
+    void testSuggestLimitAndEmptyPrefix() {
+        assertEquals(1, suggestService.suggest("conc", 1).size());
+        assertTrue(suggestService.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testApplyCatalogChanges() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class)))
+                .thenReturn(event("1", "Festival de Jazz", LocalDate.now().plusDays(5), 10, "Medellín"));
+
+        suggestService.onCatalogChange(new CatalogChangeEvent("1"));
+        assertEquals(1, suggestService.applyCatalogChanges());
+
+        assertEquals(List.of("2"), suggestService.suggest("conc", 10).stream().map(SuggestionDTO::idEvent).toList());
+        assertEquals("1", suggestService.suggest("jazz", 10).get(0).idEvent());
+    }
+
+    @Test
+    void testApplyCatalogChangesRemovesDeletedEvent() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Event.class))).thenReturn(null);
+
+        suggestService.onCatalogChange(new CatalogChangeEvent("2"));
+        suggestService.applyCatalogChanges();
+
+        assertEquals(List.of("1"), suggestService.suggest("conc", 10).stream().map(SuggestionDTO::idEvent).toList());
+    }
+
+    private Location location(String city, String town) {
+        Location location = new Location();
+        location.setCity(city);
+        location.setTown(town);
+        return location;
+    }
+
+    private Event event(String id, String name, LocalDate startDate, int ticketsSold, String city) {
+        Event event = new Event();
+        event.setIdEvent(id);
+        event.setName(name);
+        event.setState(State.ACTIVE);
+        event.setStartDate(startDate);
+        event.setEndDate(startDate);
+        event.setTicketsSold(ticketsSold);
+        event.setLocations(new LocationVO(null, null, city, 0));
+        return event;
+    }
+}
@@ -7,6 +7,7 @@ import com.microservice.manage_user.persistence.model.vo.EventVO;
 import com.microservice.manage_user.presentation.dto.AddToCartDTO;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -34,6 +35,8 @@ public class User {
     private List<EventVO> eventsUser;
     private List<CouponVO> couponsUser;
     private List<AddToCartDTO> cartUser;
+    @Version
+    private Long version;
 
     public User(String idUser, String name, String address, Role role, String phoneNumber, String emailAddress, String password) {
         this.idUser = idUser;
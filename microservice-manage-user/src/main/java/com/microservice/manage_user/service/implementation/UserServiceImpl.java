@@ -8,9 +8,12 @@ import com.microservice.manage_user.persistence.repository.UserRepository;
 import com.microservice.manage_user.service.exception.ErrorResponseException;
 import com.microservice.manage_user.service.interfaces.UserService;
 import com.microservice.manage_user.utils.AppUtil;
+import com.microservice.manage_user.utils.ConflictRetryExecutor;
 import com.microservice.manage_user.utils.mapper.UserMapper;
 import com.mongodb.MongoException;
 import com.mongodb.client.result.UpdateResult;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -23,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class UserServiceImpl implements UserService{
@@ -32,6 +36,7 @@ public class UserServiceImpl implements UserService{
     final UserMapper userMapper;
     final PasswordEncoder passwordEncoder;
     final MongoTemplate mongoTemplate;
+    final ConflictRetryExecutor conflictRetry;
 
     private static final String NOT_FOUND = "User not found";
     private static final String ID_NULL = "Id is not valid";
@@ -41,13 +46,17 @@ public class UserServiceImpl implements UserService{
     //-----------------
 
     private static final String CART_USER = "cartUser";
+    private static final String USER = "user";
+    private static final String VERSION = "version";
 
-    public UserServiceImpl(UserRepository userRepository, AppUtil appUtil, UserMapper userMapper, PasswordEncoder passwordEncoder, MongoTemplate mongoTemplate) {
+    public UserServiceImpl(UserRepository userRepository, AppUtil appUtil, UserMapper userMapper, PasswordEncoder passwordEncoder, MongoTemplate mongoTemplate,
+                           ConflictRetryExecutor conflictRetry) {
         this.userRepository = userRepository;
         this.appUtil = appUtil;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
         this.mongoTemplate = mongoTemplate;
+        this.conflictRetry = conflictRetry;
     }
 
     /**
@@ -134,41 +143,49 @@ public class UserServiceImpl implements UserService{
                 throw new IllegalArgumentException("UpdateUserDTO cannot be null.");
             }
 
-            // Gets the user that is in the database
-            User user = getUser(id);
-
-            // A boolean variable is defined as needsUpdate and is initializing as false
-            boolean needsUpdate = false;
-
-            // Validates if name of the user changed
-            if (!updateUserDTO.name().equals(user.getName())) {
-                user.setName(updateUserDTO.name());
-                needsUpdate = true;
-            }
-
-            // Validates if address of the user changed
-            if (!updateUserDTO.address().equals(user.getAddress())) {
-                user.setAddress(updateUserDTO.address());
-                needsUpdate = true;
-            }
-
-            // Validates if phoneNumber of the user changed
-            if (!updateUserDTO.phoneNumber().equals(user.getPhoneNumber())) {
-                user.setPhoneNumber(updateUserDTO.phoneNumber());
-                needsUpdate = true;
-            }
-
-            // Validate if emailAddress of the user changed
-            if (!updateUserDTO.emailAddress().equals(user.getEmailAddress())) {
-                user.setEmailAddress(updateUserDTO.emailAddress());
-                needsUpdate = true;
-            }
-
-            // Only saves the information if the parameters changed
-            if (needsUpdate) {
-                userRepository.save(user);
-            }
-            return State.SUCCESS;
+            // A save that lost against a concurrent write reads the user again and reapplies the changes.
+            // The first read tells which fields this edit changes, a retry keeps the concurrent values of the rest
+            AtomicReference<UpdateUserDTO> firstRead = new AtomicReference<>();
+            return conflictRetry.execute(USER, () -> {
+                // Gets the user that is in the database
+                User user = getUser(id);
+                firstRead.compareAndSet(null, new UpdateUserDTO(user.getName(), user.getAddress(),
+                        user.getPhoneNumber(), user.getEmailAddress()));
+                UpdateUserDTO original = firstRead.get();
+
+                // A boolean variable is defined as needsUpdate and is initializing as false
+                boolean needsUpdate = false;
+
+                // Validates if name of the user changed
+                if (changes(updateUserDTO.name(), original.name(), user.getName())) {
+                    user.setName(updateUserDTO.name());
+                    needsUpdate = true;
+                }
+
+                // Validates if address of the user changed
+                if (changes(updateUserDTO.address(), original.address(), user.getAddress())) {
+                    user.setAddress(updateUserDTO.address());
+                    needsUpdate = true;
+                }
+
+                // Validates if phoneNumber of the user changed
+                if (changes(updateUserDTO.phoneNumber(), original.phoneNumber(), user.getPhoneNumber())) {
+                    user.setPhoneNumber(updateUserDTO.phoneNumber());
+                    needsUpdate = true;
+                }
+
+                // Validate if emailAddress of the user changed
+                if (changes(updateUserDTO.emailAddress(), original.emailAddress(), user.getEmailAddress())) {
+                    user.setEmailAddress(updateUserDTO.emailAddress());
+                    needsUpdate = true;
+                }
+
+                // Only saves the information if the parameters changed
+                if (needsUpdate) {
+                    userRepository.save(user);
+                }
+                return State.SUCCESS;
+            });
         } catch (IllegalArgumentException e){
             return State.ERROR;
         }
@@ -571,4 +588,25 @@ public class UserServiceImpl implements UserService{
             return State.ERROR;
         }
     }
+
+    /**
+     * This method is used for start the version of the users stored before they were versioned,
+     * a save of a user without version would be taken as an insert and fail
+     * @return users updated
+     */
+    @Override
+    public long backfillVersions() {
+        Query query = new Query(Criteria.where(VERSION).exists(false));
+        return mongoTemplate.updateMulti(query, new Update().set(VERSION, 0L), User.class).getModifiedCount();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVersionsOnStartup() {
+        backfillVersions();
+    }
+
+    private boolean changes(String edited, String firstRead, String current) {
+        // A field the edit left as it was first read is not written over a concurrent change
+        return !edited.equals(firstRead) && !edited.equals(current);
+    }
 }
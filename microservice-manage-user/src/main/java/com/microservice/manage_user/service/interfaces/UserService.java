@@ -36,4 +36,6 @@ public interface UserService {
     State validateCode(String code, String idUser);
 
     State deleteCode(String code, String id);
+
+    long backfillVersions();
 }
@@ -0,0 +1,83 @@
+package com.microservice.manage_user.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs read-modify-write operations on versioned documents and runs them again when another writer
+ * saved the document first. Each retry waits a random time up to an exponential bound (full jitter),
+ * so writers that collided do not collide again on the next attempt. Attempts, conflicts and
+ * operations that ran out of attempts are counted by entity, their ratio is the conflict rate.
+ */
+@Component
+public class ConflictRetryExecutor {
+
+    private static final String ENTITY = "entity";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    public ConflictRetryExecutor(MeterRegistry meterRegistry,
+                                 @Value("${conflict.retry.max-attempts:5}") int maxAttempts,
+                                 @Value("${conflict.retry.backoff-base-millis:20}") long backoffBaseMillis,
+                                 @Value("${conflict.retry.backoff-max-millis:500}") long backoffMaxMillis) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    /**
+     * This method is used for run an operation again while its save loses against a concurrent write
+     * @param entity name the metrics are tagged with
+     * @param operation operation that loads, changes and saves the document, it runs whole on every attempt
+     * @return result of the operation
+     * @throws OptimisticLockingFailureException when every attempt found a conflict
+     */
+    public <T, E extends Exception> T execute(String entity, Operation<T, E> operation) throws E {
+        for (int attempt = 1; ; attempt++) {
+            counter("optimistic.lock.attempts", entity).increment();
+            try {
+                return operation.run();
+            } catch (OptimisticLockingFailureException e) {
+                counter("optimistic.lock.conflicts", entity).increment();
+                if (attempt == maxAttempts) {
+                    counter("optimistic.lock.exhausted", entity).increment();
+                    throw e;
+                }
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, OptimisticLockingFailureException conflict) {
+        long bound = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 20));
+        if (bound <= 0) return;
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private Counter counter(String name, String entity) {
+        return meterRegistry.counter(name, ENTITY, entity);
+    }
+
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+}
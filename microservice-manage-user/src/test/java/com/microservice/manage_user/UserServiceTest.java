@@ -9,9 +9,11 @@ import com.microservice.manage_user.presentation.dto.*;
 import com.microservice.manage_user.service.exception.ErrorResponseException;
 import com.microservice.manage_user.service.implementation.UserServiceImpl;
 import com.microservice.manage_user.utils.AppUtil;
+import com.microservice.manage_user.utils.ConflictRetryExecutor;
 import com.microservice.manage_user.utils.mapper.UserMapper;
 import com.mongodb.MongoException;
 import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
@@ -19,7 +21,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
@@ -40,6 +44,11 @@ class UserServiceTest {
     @Mock
     AppUtil appUtil;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    ConflictRetryExecutor conflictRetry = new ConflictRetryExecutor(meterRegistry, 3, 0, 0);
+
     @InjectMocks
     UserServiceImpl userService;
 
@@ -326,6 +335,43 @@ class UserServiceTest {
         verify(userRepository, never()).save(existingUser);
     }
 
+    @Test
+    void testProfileEditRetriesConflict() throws ResourceNotFoundException {
+        // Prepare test data
+        String userId = "123";
+        UpdateUserDTO updateUserDTO = new UpdateUserDTO("NewName", "OldAddress", "OldPhone", "oldemail@example.com");
+
+        // The first read is saved by someone else before this edit
+        User stale = new User();
+        stale.setIdUser(userId);
+        stale.setName("OldName");
+        stale.setAddress("OldAddress");
+        stale.setPhoneNumber("OldPhone");
+        stale.setEmailAddress("oldemail@example.com");
+        stale.setVersion(1L);
+        User fresh = new User();
+        fresh.setIdUser(userId);
+        fresh.setName("OldName");
+        fresh.setAddress("OtherAddress");
+        fresh.setPhoneNumber("OldPhone");
+        fresh.setEmailAddress("oldemail@example.com");
+        fresh.setVersion(2L);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        // User equality is by id, the copies are told apart by their version
+        when(userRepository.save(argThat(user -> user != null && Long.valueOf(1L).equals(user.getVersion()))))
+                .thenThrow(new OptimisticLockingFailureException("version 1 is stale"));
+
+        // Call the method
+        assertEquals(State.SUCCESS, userService.profileEdit(updateUserDTO, userId));
+
+        // Only the field this edit changed is applied again on the fresh copy, the concurrent address survives
+        verify(userRepository, times(1)).save(argThat(user -> user != null && Long.valueOf(2L).equals(user.getVersion())));
+        assertEquals("NewName", fresh.getName());
+        assertEquals("OtherAddress", fresh.getAddress());
+        assertEquals(1, meterRegistry.counter("optimistic.lock.conflicts", "entity", "user").count());
+    }
+
     // GetUser Test
 
     @Test
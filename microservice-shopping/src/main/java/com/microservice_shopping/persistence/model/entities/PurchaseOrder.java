@@ -5,6 +5,7 @@ import com.microservice_shopping.persistence.model.enums.State;
 import com.microservice_shopping.persistence.model.vo.EventVO;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -29,6 +30,8 @@ public class PurchaseOrder {
     private List<EventVO> cart;
     private BigDecimal transactionAmount;
     private LocalDateTime creationDate;
+    @Version
+    private Long version;
 
     public PurchaseOrder(PurchaseOrder purchaseOrder) {
     }